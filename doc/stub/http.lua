@@ -20,7 +20,7 @@
 --
 -- @tparam[2] {
 --   url = string, body? = string, headers? = { [string] = string },
---   binary? = boolean, method? = string, redirect? = boolean,
+--   binary? = boolean, method? = string, redirect? = boolean, stream? = boolean,
 -- } request Options for the request.
 --
 -- This table form is an expanded version of the previous syntax. All arguments
@@ -32,6 +32,12 @@
 --
 --  - `method`: Which HTTP method to use, for instance `"PATCH"` or `"DELETE"`.
 --  - `redirect`: Whether to follow HTTP redirects. Defaults to true.
+--  - `stream`: Whether to stream the response body. If true, the response is
+--    available as soon as its headers are received. Reading from it yields
+--    until enough of the body has arrived, pulling `http_stream` events. If the
+--    connection fails before then, reading throws an error. The request counts
+--    towards the computer's request limit until the response is closed.
+--    Defaults to false.
 --
 -- @see http.get  For a synchronous way to make GET requests.
 -- @see http.post For a synchronous way to make POST requests.
@@ -48,7 +54,7 @@ function request(...) end
 --
 -- @tparam[2] {
 --   url = string, headers? = { [string] = string },
---   binary? = boolean, method? = string, redirect? = boolean,
+--   binary? = boolean, method? = string, redirect? = boolean, stream? = boolean,
 -- } request Options for the request. See @{http.request} for details on how
 -- these options behave.
 --
@@ -80,7 +86,7 @@ function get(...) end
 --
 -- @tparam[2] {
 --   url = string, body? = string, headers? = { [string] = string },
---   binary? = boolean, method? = string, redirect? = boolean,
+--   binary? = boolean, method? = string, redirect? = boolean, stream? = boolean,
 -- } request Options for the request. See @{http.request} for details on how
 -- these options behave.
 --
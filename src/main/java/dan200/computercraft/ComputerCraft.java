@@ -42,6 +42,7 @@
     public static int computerThreads = 1;
     public static long maxMainGlobalTime = TimeUnit.MILLISECONDS.toNanos( 10 );
     public static long maxMainComputerTime = TimeUnit.MILLISECONDS.toNanos( 5 );
+    public static boolean virtualThreadCoroutines = false;
 
     public static boolean httpEnabled = true;
     public static boolean httpWebsocketEnabled = true;
@@ -53,6 +54,10 @@
     public static int httpMaxRequests = 16;
     public static int httpMaxWebsockets = 4;
 
+    public static int metricsPort = 0;
+    public static String metricsAddress = "127.0.0.1";
+    public static String metricsFile = "";
+
     public static boolean enableCommandBlock = false;
     public static int modemRange = 64;
     public static int modemHighAltitudeRange = 384;
@@ -5,19 +5,20 @@
  */
 package dan200.computercraft.core.apis;
 
-import dan200.computercraft.api.lua.IArguments;
-import dan200.computercraft.api.lua.ILuaAPI;
-import dan200.computercraft.api.lua.LuaException;
-import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.api.lua.*;
 import dan200.computercraft.core.apis.handles.BinaryReadableHandle;
 import dan200.computercraft.core.apis.handles.BinaryWritableHandle;
 import dan200.computercraft.core.apis.handles.EncodedReadableHandle;
 import dan200.computercraft.core.apis.handles.EncodedWritableHandle;
+import dan200.computercraft.core.asm.IPauseCallback;
+import dan200.computercraft.core.computer.TimeoutState;
+import dan200.computercraft.core.filesystem.FileCopy;
 import dan200.computercraft.core.filesystem.FileSystem;
 import dan200.computercraft.core.filesystem.FileSystemException;
 import dan200.computercraft.core.filesystem.FileSystemWrapper;
 import dan200.computercraft.core.tracking.TrackingField;
 
+import javax.annotation.Nonnull;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.nio.channels.ReadableByteChannel;
@@ -257,22 +258,28 @@ public final void makeDir( String path ) throws LuaException
      *
      * Any parent directories are created as needed.
      *
+     * Large moves may pause part way through, allowing other computers to run.
+     *
      * @param path The current file or directory to move from.
      * @param dest The destination path for the file or directory.
+     * @return The result of the move.
      * @throws LuaException If the file or directory couldn't be moved.
      */
     @LuaFunction
-    public final void move( String path, String dest ) throws LuaException
+    public final MethodResult move( String path, String dest ) throws LuaException
     {
+        FileCopy move;
         try
         {
             environment.addTrackingChange( TrackingField.FS_OPS );
-            fileSystem.move( path, dest );
+            move = fileSystem.startMove( path, dest );
         }
         catch( FileSystemException e )
         {
             throw new LuaException( e.getMessage() );
         }
+
+        return new CopyCallback( move ).run();
     }
 
     /**
@@ -280,22 +287,28 @@ public final void move( String path, String dest ) throws LuaException
      *
      * Any parent directories are created as needed.
      *
+     * Large copies may pause part way through, allowing other computers to run.
+     *
      * @param path The file or directory to copy.
      * @param dest The path to the destination file or directory.
+     * @return The result of the copy.
      * @throws LuaException If the file or directory couldn't be copied.
      */
     @LuaFunction
-    public final void copy( String path, String dest ) throws LuaException
+    public final MethodResult copy( String path, String dest ) throws LuaException
     {
+        FileCopy copy;
         try
         {
             environment.addTrackingChange( TrackingField.FS_OPS );
-            fileSystem.copy( path, dest );
+            copy = fileSystem.startCopy( path, dest );
         }
         catch( FileSystemException e )
         {
             throw new LuaException( e.getMessage() );
         }
+
+        return new CopyCallback( copy ).run();
     }
 
     /**
@@ -567,4 +580,43 @@ private static long getFileTime( FileTime time )
     {
         return time == null ? 0 : time.toMillis();
     }
+
+    /**
+     * Continues a {@link FileCopy} after it has paused.
+     *
+     * When a copy has run for too long, we pause the computer, which returns control to the
+     * {@link dan200.computercraft.core.computer.ComputerThread}. This may run other computers before resuming the
+     * copy. As this does not go through the event queue, the calling program does not see (or miss) any events.
+     */
+    private final class CopyCallback implements IPauseCallback
+    {
+        private final FileCopy copy;
+
+        CopyCallback( FileCopy copy )
+        {
+            this.copy = copy;
+        }
+
+        MethodResult run() throws LuaException
+        {
+            TimeoutState timeout = environment.getTimeoutState();
+            try
+            {
+                if( copy.run( timeout::shouldYield ) ) return MethodResult.of();
+            }
+            catch( FileSystemException e )
+            {
+                throw new LuaException( e.getMessage() );
+            }
+
+            return MethodResult.yield( new Object[0], this );
+        }
+
+        @Nonnull
+        @Override
+        public MethodResult resume( Object[] args ) throws LuaException
+        {
+            return run();
+        }
+    }
 }
@@ -9,6 +9,7 @@
 import dan200.computercraft.api.peripheral.IWorkMonitor;
 import dan200.computercraft.core.computer.ComputerSide;
 import dan200.computercraft.core.computer.IComputerEnvironment;
+import dan200.computercraft.core.computer.TimeoutState;
 import dan200.computercraft.core.filesystem.FileSystem;
 import dan200.computercraft.core.terminal.Terminal;
 import dan200.computercraft.core.tracking.TrackingField;
@@ -39,6 +40,14 @@
 
     FileSystem getFileSystem();
 
+    /**
+     * Get the timeout state of the computer, allowing long-running functions to determine when they should yield.
+     *
+     * @return The computer's timeout state.
+     */
+    @Nonnull
+    TimeoutState getTimeoutState();
+
     void shutdown();
 
     void reboot();
@@ -76,4 +85,12 @@ default void addTrackingChange( @Nonnull TrackingField field )
     {
         addTrackingChange( field, 1 );
     }
+
+    /**
+     * Record how long a peripheral method took to return its result.
+     *
+     * @param method The peripheral type and method name, such as {@code "printer.write"}.
+     * @param time   The time taken, in nanoseconds.
+     */
+    void addPeripheralTiming( @Nonnull String method, long time );
 }
@@ -5,6 +5,7 @@
  */
 package dan200.computercraft.core.apis;
 
+import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.api.filesystem.IMount;
 import dan200.computercraft.api.filesystem.IWritableMount;
 import dan200.computercraft.api.lua.*;
@@ -12,10 +13,14 @@
 import dan200.computercraft.api.peripheral.IPeripheral;
 import dan200.computercraft.api.peripheral.IWorkMonitor;
 import dan200.computercraft.api.peripheral.NotAttachedException;
+import dan200.computercraft.core.asm.ITaskCallback;
 import dan200.computercraft.core.asm.LuaMethod;
 import dan200.computercraft.core.asm.NamedMethod;
 import dan200.computercraft.core.asm.PeripheralMethod;
+import dan200.computercraft.core.asm.TaskCallback;
 import dan200.computercraft.core.computer.ComputerSide;
+import dan200.computercraft.core.computer.MainThread;
+import dan200.computercraft.core.tracking.Tracking;
 import dan200.computercraft.core.tracking.TrackingField;
 
 import javax.annotation.Nonnull;
@@ -102,7 +107,57 @@ public MethodResult call( ILuaContext context, String methodName, IArguments arg
             if( method == null ) throw new LuaException( "No such method " + methodName );
 
             environment.addTrackingChange( TrackingField.PERIPHERAL_OPS );
-            return method.apply( peripheral, context, this, arguments );
+            if( !Tracking.isEnabled() ) return method.apply( peripheral, context, this, arguments );
+
+            String name = type + "." + methodName;
+            long start = System.nanoTime();
+            MethodResult result;
+            try
+            {
+                result = method.apply( peripheral, context, this, arguments );
+            }
+            catch( LuaException | RuntimeException e )
+            {
+                environment.addPeripheralTiming( name, System.nanoTime() - start );
+                throw e;
+            }
+
+            return TimedCallback.track( environment, name, start, result );
+        }
+
+        /**
+         * Call a method, running any main thread tasks it issues immediately. This should only be called from the
+         * main thread.
+         *
+         * @param methodName The method to call.
+         * @param arguments  The arguments to the method.
+         * @return The method's return values.
+         * @throws LuaException If the method does not exist, threw an error, or waits for something other than a
+         *                      main thread task.
+         */
+        Object[] callImmediate( String methodName, IArguments arguments ) throws LuaException
+        {
+            ImmediateContext context = new ImmediateContext();
+            try
+            {
+                MethodResult result = call( context, methodName, arguments );
+                while( result.getCallback() != null )
+                {
+                    Object[] event = context.events.poll();
+                    if( event == null ) throw new LuaException( "Cannot batch method " + methodName );
+                    result = result.getCallback().resume( event );
+                }
+                return result.getResult();
+            }
+            finally
+            {
+                // Pass on any tasks the method didn't wait for, as if they'd been run normally.
+                Object[] event;
+                while( (event = context.events.poll()) != null )
+                {
+                    environment.queueEvent( (String) event[0], Arrays.copyOfRange( event, 1, event.length ) );
+                }
+            }
         }
 
         // IComputerAccess implementation
@@ -346,6 +401,91 @@ public final MethodResult call( ILuaContext context, IArguments args ) throws Lu
         }
     }
 
+    /**
+     * Call several peripheral methods within a single main thread task. This means a batch usually only takes one tick
+     * (and one task from the computer's main thread budget), rather than one per method.
+     *
+     * Large batches are split over several tasks: each task runs calls until it has used the computer's main thread
+     * time for a tick ({@link ComputerCraft#maxMainComputerTime}), and the remaining calls are run in the next task.
+     *
+     * @param context The current Lua context.
+     * @param calls   A list of calls. Each call is a list of the side, the method name and then the method's
+     *                arguments, with an optional {@code n} field giving the number of values.
+     * @return The result of each call: either {@code true} and the method's return values, or {@code false} and an
+     * error message.
+     * @throws LuaException If a call is malformed.
+     */
+    @LuaFunction
+    public final MethodResult batch( ILuaContext context, Map<?, ?> calls ) throws LuaException
+    {
+        int count = length( calls, "argument #1" );
+        ComputerSide[] sides = new ComputerSide[count];
+        String[] methods = new String[count];
+        IArguments[] arguments = new IArguments[count];
+        for( int i = 0; i < count; i++ )
+        {
+            Object call = calls.get( (double) (i + 1) );
+            if( !(call instanceof Map) ) throw new LuaException( "bad call #" + (i + 1) + " (expected table, got " + LuaValues.getType( call ) + ")" );
+
+            Object[] values = unpack( (Map<?, ?>) call, "call #" + (i + 1) );
+            if( values.length < 2 || !(values[0] instanceof String) || !(values[1] instanceof String) )
+            {
+                throw new LuaException( "bad call #" + (i + 1) + " (expected peripheral name and method)" );
+            }
+
+            sides[i] = ComputerSide.valueOfInsensitive( (String) values[0] );
+            methods[i] = (String) values[1];
+            arguments[i] = new ObjectArguments( Arrays.copyOfRange( values, 2, values.length ) );
+        }
+
+        return new Batch( context, sides, methods, arguments ).start();
+    }
+
+    /**
+     * Get the number of values in a list. This is the {@code n} field if present, or the length of the sequence
+     * otherwise.
+     *
+     * @param table The list to get the length of.
+     * @param name  The name of this list, used in error messages.
+     * @return The length of this list.
+     * @throws LuaException If {@code n} is larger than the largest index in the table.
+     */
+    private static int length( Map<?, ?> table, String name ) throws LuaException
+    {
+        Object n = table.get( "n" );
+        if( n instanceof Number )
+        {
+            // We allocate an array of this size, so make sure it's not larger than the table actually is.
+            int length = Math.max( 0, ((Number) n).intValue() );
+            if( length > maxIndex( table ) ) throw new LuaException( "bad " + name + " (n is larger than the table's length)" );
+            return length;
+        }
+
+        int length = 0;
+        while( table.containsKey( (double) (length + 1) ) ) length++;
+        return length;
+    }
+
+    private static int maxIndex( Map<?, ?> table )
+    {
+        int max = 0;
+        for( Object key : table.keySet() )
+        {
+            if( !(key instanceof Number) ) continue;
+
+            double index = ((Number) key).doubleValue();
+            if( index > max && index <= Integer.MAX_VALUE && index == Math.floor( index ) ) max = (int) index;
+        }
+        return max;
+    }
+
+    private static Object[] unpack( Map<?, ?> table, String name ) throws LuaException
+    {
+        Object[] values = new Object[length( table, name )];
+        for( int i = 0; i < values.length; i++ ) values[i] = table.get( (double) (i + 1) );
+        return values;
+    }
+
     public static Map<String, PeripheralMethod> getMethods( IPeripheral peripheral )
     {
         String[] dynamicMethods = peripheral instanceof IDynamicPeripheral
@@ -365,4 +505,254 @@ public static Map<String, PeripheralMethod> getMethods( IPeripheral peripheral )
         }
         return methodMap;
     }
+
+    /**
+     * A batch of calls started by {@link #batch(ILuaContext, Map)}, which may be run over several main thread tasks.
+     */
+    private final class Batch
+    {
+        private final ILuaContext context;
+        private final ComputerSide[] sides;
+        private final String[] methods;
+        private final IArguments[] arguments;
+        private final Object[] results;
+
+        /**
+         * The next call to run. This is only modified by the task, and read once it has finished.
+         */
+        private int next;
+
+        Batch( ILuaContext context, ComputerSide[] sides, String[] methods, IArguments[] arguments )
+        {
+            this.context = context;
+            this.sides = sides;
+            this.methods = methods;
+            this.arguments = arguments;
+            results = new Object[sides.length];
+        }
+
+        MethodResult start() throws LuaException
+        {
+            return await( TaskCallback.make( context, this::run ) );
+        }
+
+        private Object[] run()
+        {
+            // Always make some progress, and then keep going until we've used this computer's time for the tick.
+            long deadline = System.nanoTime() + ComputerCraft.maxMainComputerTime;
+            while( next < results.length )
+            {
+                results[next] = call( next );
+                next++;
+                if( System.nanoTime() - deadline >= 0 ) break;
+            }
+
+            return null;
+        }
+
+        private Object[] call( int index )
+        {
+            PeripheralWrapper p = null;
+            if( sides[index] != null )
+            {
+                synchronized( peripherals )
+                {
+                    p = peripherals[sides[index].ordinal()];
+                }
+            }
+
+            if( p == null ) return new Object[] { false, "No peripheral attached" };
+
+            try
+            {
+                Object[] values = p.callImmediate( methods[index], arguments[index] );
+                Object[] result = new Object[values.length + 1];
+                result[0] = true;
+                System.arraycopy( values, 0, result, 1, values.length );
+                return result;
+            }
+            catch( LuaException e )
+            {
+                return new Object[] { false, e.getMessage() };
+            }
+        }
+
+        /**
+         * Wait for the current task to finish, starting the next one if there are calls remaining.
+         *
+         * @param result The result of waiting on the current task.
+         * @return The result of this batch, or a callback to wait for the current or next task.
+         * @throws LuaException If the next task could not be started.
+         */
+        private MethodResult await( MethodResult result ) throws LuaException
+        {
+            ILuaCallback callback = result.getCallback();
+            if( callback != null ) return MethodResult.yield( result.getResult(), new Waiting( (ITaskCallback) callback ) );
+            return next < results.length ? start() : MethodResult.of( (Object) results );
+        }
+
+        /**
+         * Waits for one of this batch's tasks. This exposes the task, so the Lua machine can pass its result straight
+         * to us.
+         */
+        private final class Waiting implements ITaskCallback
+        {
+            private final ITaskCallback task;
+
+            Waiting( ITaskCallback task )
+            {
+                this.task = task;
+            }
+
+            @Override
+            public long getTask()
+            {
+                return task.getTask();
+            }
+
+            @Nonnull
+            @Override
+            public MethodResult resume( Object[] args ) throws LuaException
+            {
+                return await( task.resume( args ) );
+            }
+
+            @Nonnull
+            @Override
+            public MethodResult complete( boolean success, @Nonnull Object[] values ) throws LuaException
+            {
+                return await( task.complete( success, values ) );
+            }
+        }
+    }
+
+    /**
+     * A context which runs main thread tasks as soon as they're issued, used when we're already on the main thread.
+     * The {@code task_complete} event for each task is stored, rather than queued on the computer.
+     */
+    private static final class ImmediateContext implements ILuaContext
+    {
+        final Queue<Object[]> events = new ArrayDeque<>();
+
+        @Override
+        public long issueMainThreadTask( @Nonnull ILuaTask task )
+        {
+            long taskID = MainThread.getUniqueTaskID();
+            try
+            {
+                Object[] results = task.execute();
+                if( results == null ) results = new Object[0];
+
+                Object[] event = new Object[results.length + 3];
+                event[0] = "task_complete";
+                event[1] = taskID;
+                event[2] = true;
+                System.arraycopy( results, 0, event, 3, results.length );
+                events.add( event );
+            }
+            catch( LuaException e )
+            {
+                events.add( new Object[] { "task_complete", taskID, false, e.getMessage() } );
+            }
+            catch( Exception t )
+            {
+                if( ComputerCraft.logComputerErrors ) ComputerCraft.log.error( "Error running task", t );
+                events.add( new Object[] { "task_complete", taskID, false, "Java Exception Thrown: " + t } );
+            }
+
+            return taskID;
+        }
+    }
+
+    /**
+     * Records how long a peripheral call takes to return its result. If the method yields (for instance, to wait for
+     * a main thread task), this includes the time spent waiting to be resumed.
+     */
+    private static class TimedCallback implements ILuaCallback
+    {
+        final IAPIEnvironment environment;
+        final String method;
+        final long start;
+        private final ILuaCallback callback;
+
+        TimedCallback( IAPIEnvironment environment, String method, long start, ILuaCallback callback )
+        {
+            this.environment = environment;
+            this.method = method;
+            this.start = start;
+            this.callback = callback;
+        }
+
+        static MethodResult track( IAPIEnvironment environment, String method, long start, MethodResult result )
+        {
+            ILuaCallback callback = result.getCallback();
+            if( callback == null )
+            {
+                environment.addPeripheralTiming( method, System.nanoTime() - start );
+                return result;
+            }
+
+            TimedCallback timed = callback instanceof ITaskCallback
+                ? new TimedTask( environment, method, start, (ITaskCallback) callback )
+                : new TimedCallback( environment, method, start, callback );
+            return MethodResult.yield( result.getResult(), timed ).adjustError( result.getErrorAdjust() );
+        }
+
+        @Nonnull
+        @Override
+        public MethodResult resume( Object[] args ) throws LuaException
+        {
+            MethodResult result;
+            try
+            {
+                result = callback.resume( args );
+            }
+            catch( LuaException | RuntimeException e )
+            {
+                environment.addPeripheralTiming( method, System.nanoTime() - start );
+                throw e;
+            }
+
+            return track( environment, method, start, result );
+        }
+    }
+
+    /**
+     * A {@link TimedCallback} waiting on a main thread task. This exposes the underlying task, so the Lua machine can
+     * still pass the task's results straight to it.
+     */
+    private static final class TimedTask extends TimedCallback implements ITaskCallback
+    {
+        private final ITaskCallback task;
+
+        TimedTask( IAPIEnvironment environment, String method, long start, ITaskCallback task )
+        {
+            super( environment, method, start, task );
+            this.task = task;
+        }
+
+        @Override
+        public long getTask()
+        {
+            return task.getTask();
+        }
+
+        @Nonnull
+        @Override
+        public MethodResult complete( boolean success, @Nonnull Object[] values ) throws LuaException
+        {
+            MethodResult result;
+            try
+            {
+                result = task.complete( success, values );
+            }
+            catch( LuaException | RuntimeException e )
+            {
+                environment.addPeripheralTiming( method, System.nanoTime() - start );
+                throw e;
+            }
+
+            return track( environment, method, start, result );
+        }
+    }
 }
@@ -30,6 +30,7 @@ public class BinaryReadableHandle extends HandleGeneric
 
     private final ReadableByteChannel reader;
     final SeekableByteChannel seekable;
+    private final ByteBufferChannel buffered;
     private final ByteBuffer single = ByteBuffer.allocate( 1 );
 
     BinaryReadableHandle( ReadableByteChannel reader, SeekableByteChannel seekable, TrackingCloseable closeable )
@@ -37,6 +38,7 @@ public class BinaryReadableHandle extends HandleGeneric
         super( closeable );
         this.reader = reader;
         this.seekable = seekable;
+        buffered = reader instanceof ByteBufferChannel ? (ByteBufferChannel) reader : null;
     }
 
     public static BinaryReadableHandle of( ReadableByteChannel channel, TrackingCloseable closeable )
@@ -77,7 +79,13 @@ public final Object[] read( Optional<Integer> countArg ) throws LuaException
                     return seekable.position() >= seekable.size() ? null : new Object[] { "" };
                 }
 
-                if( count <= BUFFER_SIZE )
+                if( buffered != null )
+                {
+                    // Return a view of the backing buffer directly, rather than copying via an intermediate buffer.
+                    ByteBuffer buffer = buffered.read( count );
+                    return buffer == null ? null : new Object[] { buffer };
+                }
+                else if( count <= BUFFER_SIZE )
                 {
                     ByteBuffer buffer = ByteBuffer.allocate( count );
 
@@ -152,6 +160,12 @@ public final Object[] readAll() throws LuaException
         checkOpen();
         try
         {
+            if( buffered != null )
+            {
+                ByteBuffer buffer = buffered.read( Integer.MAX_VALUE );
+                return buffer == null ? null : new Object[] { buffer };
+            }
+
             int expected = 32;
             if( seekable != null ) expected = Math.max( expected, (int) (seekable.size() - seekable.position()) );
             ByteArrayOutputStream stream = new ByteArrayOutputStream( expected );
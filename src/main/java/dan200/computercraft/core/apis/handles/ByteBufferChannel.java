@@ -0,0 +1,122 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.handles;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Objects;
+
+/**
+ * A seekable, readable byte channel which is backed by a {@link ByteBuffer}, such as a file read into memory.
+ *
+ * Unlike other channels, this allows reading a slice of the backing buffer with {@link #read(int)}, which lets
+ * {@link BinaryReadableHandle} return file contents without copying them into an intermediate buffer first.
+ */
+public class ByteBufferChannel implements SeekableByteChannel
+{
+    private boolean closed = false;
+    private int position = 0;
+
+    private final ByteBuffer backing;
+
+    public ByteBufferChannel( ByteBuffer backing )
+    {
+        this.backing = backing.slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public int read( ByteBuffer destination ) throws IOException
+    {
+        if( closed ) throw new ClosedChannelException();
+        Objects.requireNonNull( destination, "destination" );
+
+        ByteBuffer slice = read( destination.remaining() );
+        if( slice == null ) return -1;
+
+        int remaining = slice.remaining();
+        destination.put( slice );
+        return remaining;
+    }
+
+    /**
+     * Read up to {@code count} bytes from this channel, returning a read-only view of the backing buffer rather than
+     * copying them.
+     *
+     * @param count The maximum number of bytes to read.
+     * @return The bytes read, or {@code null} if we are at the end of the channel.
+     * @throws IOException If the channel is closed.
+     */
+    @Nullable
+    public ByteBuffer read( int count ) throws IOException
+    {
+        if( closed ) throw new ClosedChannelException();
+
+        int limit = backing.limit();
+        if( position >= limit ) return null;
+
+        int remaining = Math.min( limit - position, count );
+        ByteBuffer slice = backing.duplicate();
+        slice.position( position ).limit( position + remaining );
+        position += remaining;
+        return slice.slice();
+    }
+
+    @Override
+    public int write( ByteBuffer src ) throws ClosedChannelException
+    {
+        if( closed ) throw new ClosedChannelException();
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws ClosedChannelException
+    {
+        if( closed ) throw new ClosedChannelException();
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position( long newPosition ) throws ClosedChannelException
+    {
+        if( closed ) throw new ClosedChannelException();
+        if( newPosition < 0 || newPosition > Integer.MAX_VALUE )
+        {
+            throw new IllegalArgumentException( "Position out of bounds" );
+        }
+        position = (int) newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException
+    {
+        if( closed ) throw new ClosedChannelException();
+        return backing.limit();
+    }
+
+    @Override
+    public SeekableByteChannel truncate( long size ) throws ClosedChannelException
+    {
+        if( closed ) throw new ClosedChannelException();
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return !closed;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+    }
+}
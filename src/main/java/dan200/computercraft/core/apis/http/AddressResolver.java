@@ -0,0 +1,217 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.http;
+
+import com.google.common.net.InetAddresses;
+import dan200.computercraft.ComputerCraft;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.resolver.dns.DnsNameResolver;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Resolves host names for the HTTP API, caching the results.
+ *
+ * Lookups are performed by a {@link Lookup}. By default this uses Netty's DNS resolver running on
+ * {@link NetworkUtils#LOOP_GROUP}, so no thread is blocked while waiting for a response. Concurrent lookups of the same
+ * host share a single query. Both successful and failed lookups are cached for a short period, so computers
+ * repeatedly contacting the same host do not resolve it each time.
+ *
+ * The resolved address is the one we connect to, so {@link dan200.computercraft.core.apis.http.options.AddressRule}s
+ * are always checked against the address actually used.
+ */
+public final class AddressResolver
+{
+    /**
+     * How long successful lookups are cached for, in nanoseconds.
+     */
+    static final long POSITIVE_TTL = TimeUnit.SECONDS.toNanos( 60 );
+
+    /**
+     * How long failed lookups are cached for, in nanoseconds.
+     */
+    static final long NEGATIVE_TTL = TimeUnit.SECONDS.toNanos( 5 );
+
+    /**
+     * The number of hosts we cache before evicting expired entries.
+     */
+    private static final int MAX_ENTRIES = 1024;
+
+    /**
+     * Performs a lookup of a single host name.
+     */
+    @FunctionalInterface
+    public interface Lookup
+    {
+        /**
+         * Start resolving a host.
+         *
+         * @param host The host to resolve. This will not be an IP address.
+         * @return A future which completes with the resolved address, or completes exceptionally if the host could
+         * not be resolved.
+         */
+        @Nonnull
+        CompletableFuture<InetAddress> lookup( @Nonnull String host );
+    }
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final Lookup lookup;
+    private final LongSupplier clock;
+
+    public AddressResolver( @Nonnull Lookup lookup )
+    {
+        this( lookup, System::nanoTime );
+    }
+
+    AddressResolver( @Nonnull Lookup lookup, @Nonnull LongSupplier clock )
+    {
+        this.lookup = lookup;
+        this.clock = clock;
+    }
+
+    /**
+     * Resolve a host name. IP addresses are returned immediately, without performing a lookup.
+     *
+     * @param host The host to resolve.
+     * @return A future which completes with the resolved address.
+     */
+    @Nonnull
+    public CompletableFuture<InetAddress> resolve( @Nonnull String host )
+    {
+        if( InetAddresses.isUriInetAddress( host ) )
+        {
+            return CompletableFuture.completedFuture( InetAddresses.forUriString( host ) );
+        }
+
+        long now = clock.getAsLong();
+        String key = host.toLowerCase( Locale.ROOT );
+
+        Entry existing = cache.get( key );
+        if( existing != null && !existing.isExpired( now ) ) return existing.future;
+
+        if( cache.size() >= MAX_ENTRIES )
+        {
+            cache.values().removeIf( x -> x.isExpired( now ) );
+            if( cache.size() >= MAX_ENTRIES ) cache.clear();
+        }
+
+        return cache.compute( key, ( k, old ) -> old == null || old.isExpired( now ) ? new Entry( start( host ) ) : old ).future;
+    }
+
+    private CompletableFuture<InetAddress> start( String host )
+    {
+        try
+        {
+            return lookup.lookup( host );
+        }
+        catch( RuntimeException e )
+        {
+            CompletableFuture<InetAddress> future = new CompletableFuture<>();
+            future.completeExceptionally( e );
+            return future;
+        }
+    }
+
+    private final class Entry
+    {
+        final CompletableFuture<InetAddress> future;
+        private volatile boolean complete;
+        private volatile long expires;
+
+        Entry( CompletableFuture<InetAddress> future )
+        {
+            this.future = future;
+            future.whenComplete( ( address, error ) -> {
+                expires = clock.getAsLong() + (error == null ? POSITIVE_TTL : NEGATIVE_TTL);
+                complete = true;
+            } );
+        }
+
+        boolean isExpired( long now )
+        {
+            return complete && now - expires >= 0;
+        }
+    }
+
+    /**
+     * A {@link Lookup} which uses Netty's asynchronous DNS resolver.
+     *
+     * If the resolver cannot be created (for instance, the system's DNS servers cannot be determined), we fall back to
+     * the system resolver on {@link NetworkUtils#EXECUTOR}.
+     *
+     * @return The default lookup.
+     */
+    static Lookup createDefault()
+    {
+        return new Lookup()
+        {
+            private DnsNameResolver resolver;
+            private boolean failed;
+
+            @Nonnull
+            @Override
+            public CompletableFuture<InetAddress> lookup( @Nonnull String host )
+            {
+                DnsNameResolver resolver = getResolver();
+                if( resolver == null ) return CompletableFuture.supplyAsync( () -> lookupBlocking( host ), NetworkUtils.EXECUTOR );
+
+                CompletableFuture<InetAddress> result = new CompletableFuture<>();
+                Future<InetAddress> future = resolver.resolve( host );
+                future.addListener( f -> {
+                    if( future.isSuccess() )
+                    {
+                        result.complete( future.getNow() );
+                    }
+                    else
+                    {
+                        result.completeExceptionally( future.cause() );
+                    }
+                } );
+                return result;
+            }
+
+            private synchronized DnsNameResolver getResolver()
+            {
+                if( resolver != null || failed ) return resolver;
+                try
+                {
+                    return resolver = new DnsNameResolverBuilder( NetworkUtils.LOOP_GROUP.next() )
+                        .channelType( NioDatagramChannel.class )
+                        .build();
+                }
+                catch( RuntimeException e )
+                {
+                    ComputerCraft.log.error( "Cannot create DNS resolver, falling back to the system resolver.", e );
+                    failed = true;
+                    return null;
+                }
+            }
+        };
+    }
+
+    private static InetAddress lookupBlocking( String host )
+    {
+        try
+        {
+            return InetAddress.getByName( host );
+        }
+        catch( UnknownHostException e )
+        {
+            throw new CompletionException( e );
+        }
+    }
+}
@@ -12,9 +12,9 @@
 import java.util.concurrent.Future;
 
 /**
- * Checks a URL using {@link NetworkUtils#getAddress(String, int, boolean)}}
+ * Checks a URL using {@link NetworkUtils#resolveAddress(String, int, boolean)}.
  *
- * This requires a DNS lookup, and so needs to occur off-thread.
+ * This requires a DNS lookup, which is performed asynchronously.
  */
 public class CheckUrl extends Resource<CheckUrl>
 {
@@ -37,18 +37,27 @@ public CheckUrl( ResourceGroup<CheckUrl> limiter, IAPIEnvironment environment, S
     public void run()
     {
         if( isClosed() ) return;
-        future = NetworkUtils.EXECUTOR.submit( this::doRun );
+
+        boolean ssl = uri.getScheme().equalsIgnoreCase( "https" );
+        future = NetworkUtils.resolveAddress( uri, ssl ).whenComplete( ( netAddress, error ) -> {
+            if( error != null )
+            {
+                if( tryClose() ) environment.queueEvent( EVENT, address, false, NetworkUtils.toFriendlyError( error ) );
+            }
+            else
+            {
+                check( netAddress );
+            }
+        } );
         checkClosed();
     }
 
-    private void doRun()
+    private void check( InetSocketAddress netAddress )
     {
         if( isClosed() ) return;
 
         try
         {
-            boolean ssl = uri.getScheme().equalsIgnoreCase( "https" );
-            InetSocketAddress netAddress = NetworkUtils.getAddress( uri, ssl );
             NetworkUtils.getOptions( uri.getHost(), netAddress );
 
             if( tryClose() ) environment.queueEvent( EVENT, address, true );
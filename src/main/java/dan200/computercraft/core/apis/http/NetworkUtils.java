@@ -7,7 +7,7 @@
 
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.core.apis.http.options.Action;
-import dan200.computercraft.core.apis.http.options.AddressRule;
+import dan200.computercraft.core.apis.http.options.AddressRules;
 import dan200.computercraft.core.apis.http.options.Options;
 import dan200.computercraft.shared.util.ThreadUtils;
 import io.netty.buffer.ByteBuf;
@@ -22,12 +22,15 @@
 import io.netty.handler.timeout.ReadTimeoutException;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLHandshakeException;
 import javax.net.ssl.TrustManagerFactory;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.security.KeyStore;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -52,6 +55,8 @@
         .build()
     );
 
+    private static volatile AddressResolver resolver = new AddressResolver( AddressResolver.createDefault() );
+
     private NetworkUtils()
     {
     }
@@ -108,50 +113,59 @@ public static SslContext getSslContext() throws HTTPRequestException
     }
 
     /**
-     * Create a {@link InetSocketAddress} from a {@link java.net.URI}.
+     * Set the lookup used to resolve host names, clearing any cached addresses.
      *
-     * Note, this may require a DNS lookup, and so should not be executed on the main CC thread.
+     * This is intended for tests, which should not depend on a working DNS server.
+     *
+     * @param lookup The lookup to use, or {@code null} to use the default.
+     */
+    public static void setAddressLookup( @Nullable AddressResolver.Lookup lookup )
+    {
+        resolver = new AddressResolver( lookup == null ? AddressResolver.createDefault() : lookup );
+    }
+
+    /**
+     * Resolve a {@link InetSocketAddress} from a {@link java.net.URI}.
      *
      * @param uri The URI to fetch.
      * @param ssl Whether to connect with SSL. This is used to find the default port if not otherwise specified.
-     * @return The resolved address.
-     * @throws HTTPRequestException If the host is not malformed.
+     * @return A future which completes with the resolved address, or fails with a {@link HTTPRequestException}.
+     * @see AddressResolver
      */
-    public static InetSocketAddress getAddress( URI uri, boolean ssl ) throws HTTPRequestException
+    public static CompletableFuture<InetSocketAddress> resolveAddress( URI uri, boolean ssl )
     {
-        return getAddress( uri.getHost(), uri.getPort(), ssl );
+        return resolveAddress( uri.getHost(), uri.getPort(), ssl );
     }
 
     /**
-     * Create a {@link InetSocketAddress} from the resolved {@code host} and port.
-     *
-     * Note, this may require a DNS lookup, and so should not be executed on the main CC thread.
+     * Resolve a {@link InetSocketAddress} from a {@code host} and port.
      *
      * @param host The host to resolve.
      * @param port The port, or -1 if not defined.
      * @param ssl  Whether to connect with SSL. This is used to find the default port if not otherwise specified.
-     * @return The resolved address.
-     * @throws HTTPRequestException If the host is not malformed.
+     * @return A future which completes with the resolved address, or fails with a {@link HTTPRequestException}.
+     * @see AddressResolver
      */
-    public static InetSocketAddress getAddress( String host, int port, boolean ssl ) throws HTTPRequestException
+    public static CompletableFuture<InetSocketAddress> resolveAddress( String host, int port, boolean ssl )
     {
-        if( port < 0 ) port = ssl ? 443 : 80;
-        InetSocketAddress socketAddress = new InetSocketAddress( host, port );
-        if( socketAddress.isUnresolved() ) throw new HTTPRequestException( "Unknown host" );
-        return socketAddress;
+        int actualPort = port < 0 ? (ssl ? 443 : 80) : port;
+        return resolver.resolve( host ).handle( ( address, error ) -> {
+            if( error != null ) throw new CompletionException( new HTTPRequestException( "Unknown host" ) );
+            return new InetSocketAddress( address, actualPort );
+        } );
     }
 
     /**
      * Get options for a specific domain.
      *
      * @param host    The host to resolve.
-     * @param address The address, resolved by {@link #getAddress(String, int, boolean)}.
+     * @param address The address, resolved by {@link #resolveAddress(String, int, boolean)}.
      * @return The options for this host.
      * @throws HTTPRequestException If the host is not permitted
      */
     public static Options getOptions( String host, InetSocketAddress address ) throws HTTPRequestException
     {
-        Options options = AddressRule.apply( ComputerCraft.httpRules, host, address );
+        Options options = AddressRules.of( ComputerCraft.httpRules ).apply( host, address );
         if( options.action == Action.DENY ) throw new HTTPRequestException( "Domain not permitted" );
         return options;
     }
@@ -172,6 +186,8 @@ public static byte[] toBytes( ByteBuf buffer )
     @Nonnull
     public static String toFriendlyError( @Nonnull Throwable cause )
     {
+        if( cause instanceof CompletionException && cause.getCause() != null ) cause = cause.getCause();
+
         if( cause instanceof WebSocketHandshakeException || cause instanceof HTTPRequestException )
         {
             return cause.getMessage();
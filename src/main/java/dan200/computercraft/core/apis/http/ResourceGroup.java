@@ -6,8 +6,10 @@
 package dan200.computercraft.core.apis.http;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 
@@ -23,6 +25,11 @@
 
     private static final IntSupplier ZERO = () -> 0;
 
+    /**
+     * The number of open resources of each type, across every group.
+     */
+    private static final Map<Class<?>, AtomicInteger> openCounts = new ConcurrentHashMap<>();
+
     final IntSupplier limit;
 
     boolean active = false;
@@ -49,7 +56,7 @@ public synchronized void shutdown()
         active = false;
 
         for( T resource : resources ) resource.close();
-        resources.clear();
+        for( T resource : resources ) removeResource( resource );
 
         Resource.cleanup();
     }
@@ -71,7 +78,7 @@ public synchronized boolean queue( Supplier<T> resource )
         int limit = this.limit.getAsInt();
         if( limit <= 0 || resources.size() < limit )
         {
-            resources.add( resource.get() );
+            addResource( resource.get() );
             return true;
         }
 
@@ -80,6 +87,33 @@ public synchronized boolean queue( Supplier<T> resource )
 
     public synchronized void release( T resource )
     {
-        resources.remove( resource );
+        removeResource( resource );
+    }
+
+    final void addResource( T resource )
+    {
+        if( resources.add( resource ) ) openCount( resource.getClass() ).incrementAndGet();
+    }
+
+    private void removeResource( T resource )
+    {
+        if( resources.remove( resource ) ) openCount( resource.getClass() ).decrementAndGet();
+    }
+
+    private static AtomicInteger openCount( Class<?> type )
+    {
+        return openCounts.computeIfAbsent( type, x -> new AtomicInteger() );
+    }
+
+    /**
+     * Get the number of resources of a given type which are currently open, across every computer.
+     *
+     * @param type The type of resource, such as {@link dan200.computercraft.core.apis.http.request.HttpRequest}.
+     * @return The number of open resources.
+     */
+    public static int getOpenCount( Class<? extends Resource<?>> type )
+    {
+        AtomicInteger count = openCounts.get( type );
+        return count == null ? 0 : count.get();
     }
 }
@@ -56,7 +56,7 @@ public synchronized void release( T resource )
         if( limit <= 0 || resources.size() < limit )
         {
             Supplier<T> next = pending.poll();
-            if( next != null ) resources.add( next.get() );
+            if( next != null ) addResource( next.get() );
         }
     }
 }
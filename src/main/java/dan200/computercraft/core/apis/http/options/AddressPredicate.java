@@ -31,13 +31,15 @@ default boolean matches( InetAddress socketAddress )
 
     final class HostRange implements AddressPredicate
     {
-        private final byte[] min;
+        final byte[] min;
         private final byte[] max;
+        final int prefixSize;
 
-        HostRange( byte[] min, byte[] max )
+        HostRange( byte[] min, byte[] max, int prefixSize )
         {
             this.min = min;
             this.max = max;
+            this.prefixSize = prefixSize;
         }
 
         @Override
@@ -104,17 +106,19 @@ else if( size < 8 )
                 size -= 8;
             }
 
-            return new HostRange( minBytes, maxBytes );
+            return new HostRange( minBytes, maxBytes, Math.max( 0, Math.min( prefixSize, minBytes.length * 8 ) ) );
         }
     }
 
     final class DomainPattern implements AddressPredicate
     {
+        final String filter;
         private final Pattern pattern;
 
-        DomainPattern( Pattern pattern )
+        DomainPattern( String filter )
         {
-            this.pattern = pattern;
+            this.filter = filter;
+            pattern = Pattern.compile( "^\\Q" + filter.replaceAll( "\\*", "\\\\E.*\\\\Q" ) + "\\E$", Pattern.CASE_INSENSITIVE );
         }
 
         @Override
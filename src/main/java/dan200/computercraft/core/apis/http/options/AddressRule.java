@@ -16,7 +16,6 @@
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.util.regex.Pattern;
 
 /**
  * A pattern which matches an address, and controls whether it is accessible or not.
@@ -28,9 +27,9 @@
     public static final int TIMEOUT = 30_000;
     public static final int WEBSOCKET_MESSAGE = 128 * 1024;
 
-    private final AddressPredicate predicate;
-    private final Integer port;
-    private final PartialOptions partial;
+    final AddressPredicate predicate;
+    final Integer port;
+    final PartialOptions partial;
 
     private AddressRule( @Nonnull AddressPredicate predicate, @Nullable Integer port, @Nonnull PartialOptions partial )
     {
@@ -56,8 +55,7 @@ else if( filter.equalsIgnoreCase( "$private" ) )
         }
         else
         {
-            Pattern pattern = Pattern.compile( "^\\Q" + filter.replaceAll( "\\*", "\\\\E.*\\\\Q" ) + "\\E$", Pattern.CASE_INSENSITIVE );
-            return new AddressRule( new DomainPattern( pattern ), port, partial );
+            return new AddressRule( new DomainPattern( filter ), port, partial );
         }
     }
 
@@ -70,7 +68,7 @@ else if( filter.equalsIgnoreCase( "$private" ) )
      * @param ipv4Address An ipv4 version of the address, if the original was an ipv6 address.
      * @return Whether it matches any of these patterns.
      */
-    private boolean matches( String domain, int port, InetAddress address, Inet4Address ipv4Address )
+    boolean matches( String domain, int port, InetAddress address, Inet4Address ipv4Address )
     {
         if( this.port != null && this.port != port ) return false;
         return predicate.matches( domain )
@@ -78,6 +76,16 @@ private boolean matches( String domain, int port, InetAddress address, Inet4Addr
             || (ipv4Address != null && predicate.matches( ipv4Address ));
     }
 
+    /**
+     * Find the options for an address, checking each rule in turn. Options from earlier rules take priority over later
+     * ones.
+     *
+     * @param rules         The rules to check.
+     * @param domain        The domain to match.
+     * @param socketAddress The resolved address of this domain.
+     * @return The options for this address.
+     * @see AddressRules For a faster version of this, for use with large rule lists.
+     */
     public static Options apply( Iterable<? extends AddressRule> rules, String domain, InetSocketAddress socketAddress )
     {
         PartialOptions options = null;
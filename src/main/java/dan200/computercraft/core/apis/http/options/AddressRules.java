@@ -0,0 +1,300 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.http.options;
+
+import com.google.common.net.InetAddresses;
+import dan200.computercraft.core.apis.http.options.AddressPredicate.DomainPattern;
+import dan200.computercraft.core.apis.http.options.AddressPredicate.HostRange;
+import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
+import it.unimi.dsi.fastutil.chars.Char2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.*;
+
+/**
+ * A list of {@link AddressRule}s, compiled into a form which can be searched without checking every rule.
+ *
+ * Domain patterns with no wildcards are stored in a hash map. Patterns with a single wildcard are stored in a trie,
+ * keyed on the text after the wildcard (read backwards), or the text before it if the pattern ends with a wildcard.
+ * CIDR ranges are stored in a binary trie of address prefixes. Anything else is checked one by one, as before.
+ *
+ * This finds the same set of rules as {@link AddressRule#apply(Iterable, String, InetSocketAddress)}, and merges
+ * them in the same order, so earlier rules still take priority.
+ */
+public final class AddressRules
+{
+    private static volatile AddressRules cached;
+
+    private final List<AddressRule> source;
+    private final AddressRule[] rules;
+
+    private final Map<String, IntList> exact = new HashMap<>();
+    private final CharNode suffixes = new CharNode();
+    private final CharNode prefixes = new CharNode();
+    private final BitNode ipv4 = new BitNode();
+    private final BitNode ipv6 = new BitNode();
+    private final IntList always = new IntArrayList();
+    private final IntList other = new IntArrayList();
+
+    private AddressRules( List<AddressRule> source )
+    {
+        this.source = source;
+        rules = source.toArray( new AddressRule[0] );
+
+        for( int i = 0; i < rules.length; i++ )
+        {
+            AddressPredicate predicate = rules[i].predicate;
+            if( predicate instanceof DomainPattern )
+            {
+                addDomain( i, ((DomainPattern) predicate).filter.toLowerCase( Locale.ROOT ) );
+            }
+            else if( predicate instanceof HostRange )
+            {
+                HostRange range = (HostRange) predicate;
+                BitNode node = range.min.length == 4 ? ipv4 : ipv6;
+                for( int bit = 0; bit < range.prefixSize; bit++ ) node = node.child( getBit( range.min, bit ), true );
+                node.rules.add( i );
+            }
+            else
+            {
+                other.add( i );
+            }
+        }
+    }
+
+    private void addDomain( int index, String filter )
+    {
+        int star = filter.indexOf( '*' );
+        if( star < 0 )
+        {
+            exact.computeIfAbsent( filter, x -> new IntArrayList() ).add( index );
+        }
+        else if( filter.length() == 1 )
+        {
+            always.add( index );
+        }
+        else if( filter.indexOf( '*', star + 1 ) >= 0 )
+        {
+            other.add( index );
+        }
+        else
+        {
+            String prefix = filter.substring( 0, star ), suffix = filter.substring( star + 1 );
+            Glob glob = new Glob( index, prefix, suffix );
+            if( suffix.isEmpty() )
+            {
+                CharNode node = prefixes;
+                for( int i = 0; i < prefix.length(); i++ ) node = node.child( prefix.charAt( i ), true );
+                node.globs.add( glob );
+            }
+            else
+            {
+                CharNode node = suffixes;
+                for( int i = suffix.length() - 1; i >= 0; i-- ) node = node.child( suffix.charAt( i ), true );
+                node.globs.add( glob );
+            }
+        }
+    }
+
+    /**
+     * Get the compiled form of a list of rules. The last list compiled is cached, so this only compiles the rules
+     * again once the list is changed (for instance, when the config is reloaded).
+     *
+     * @param rules The rules to compile.
+     * @return The compiled rules.
+     */
+    @Nonnull
+    public static AddressRules of( @Nonnull List<AddressRule> rules )
+    {
+        AddressRules compiled = cached;
+        if( compiled == null || compiled.source != rules ) cached = compiled = new AddressRules( rules );
+        return compiled;
+    }
+
+    /**
+     * Find the options for an address.
+     *
+     * @param domain        The domain to match.
+     * @param socketAddress The resolved address of this domain.
+     * @return The options for this address.
+     * @see AddressRule#apply(Iterable, String, InetSocketAddress)
+     */
+    public Options apply( String domain, InetSocketAddress socketAddress )
+    {
+        int port = socketAddress.getPort();
+        InetAddress address = socketAddress.getAddress();
+        Inet4Address ipv4Address = address instanceof Inet6Address && InetAddresses.is6to4Address( (Inet6Address) address )
+            ? InetAddresses.get6to4IPv4Address( (Inet6Address) address ) : null;
+
+        BitSet matches = new BitSet( rules.length );
+        addAll( matches, always );
+        for( int i = 0; i < other.size(); i++ )
+        {
+            int index = other.getInt( i );
+            if( rules[index].matches( domain, port, address, ipv4Address ) ) matches.set( index );
+        }
+
+        findDomain( matches, domain.toLowerCase( Locale.ROOT ) );
+        findDomain( matches, address.getHostAddress() );
+        findAddress( matches, address );
+        if( ipv4Address != null )
+        {
+            findDomain( matches, ipv4Address.getHostAddress() );
+            findAddress( matches, ipv4Address );
+        }
+
+        PartialOptions options = null;
+        boolean hasMany = false;
+        for( int index = matches.nextSetBit( 0 ); index >= 0; index = matches.nextSetBit( index + 1 ) )
+        {
+            AddressRule rule = rules[index];
+            if( rule.port != null && rule.port != port ) continue;
+
+            if( options == null )
+            {
+                options = rule.partial;
+            }
+            else
+            {
+                if( !hasMany )
+                {
+                    options = options.copy();
+                    hasMany = true;
+                }
+
+                options.merge( rule.partial );
+            }
+        }
+
+        return (options == null ? PartialOptions.DEFAULT : options).toOptions();
+    }
+
+    private void findDomain( BitSet matches, String domain )
+    {
+        IntList exactMatches = exact.get( domain );
+        if( exactMatches != null ) addAll( matches, exactMatches );
+
+        CharNode node = suffixes;
+        for( int i = domain.length() - 1; i >= 0 && node != null; i-- )
+        {
+            node = node.child( domain.charAt( i ), false );
+            if( node != null ) node.find( matches, domain );
+        }
+
+        node = prefixes;
+        for( int i = 0; i < domain.length() && node != null; i++ )
+        {
+            node = node.child( domain.charAt( i ), false );
+            if( node != null ) node.find( matches, domain );
+        }
+    }
+
+    private void findAddress( BitSet matches, InetAddress address )
+    {
+        byte[] bytes = address.getAddress();
+        BitNode node = bytes.length == 4 ? ipv4 : ipv6;
+        addAll( matches, node.rules );
+        for( int bit = 0; bit < bytes.length * 8 && node != null; bit++ )
+        {
+            node = node.child( getBit( bytes, bit ), false );
+            if( node != null ) addAll( matches, node.rules );
+        }
+    }
+
+    private static boolean getBit( byte[] bytes, int bit )
+    {
+        return (bytes[bit >> 3] & (0x80 >> (bit & 7))) != 0;
+    }
+
+    private static void addAll( BitSet matches, IntList indices )
+    {
+        for( int i = 0; i < indices.size(); i++ ) matches.set( indices.getInt( i ) );
+    }
+
+    /**
+     * A domain pattern with a single wildcard.
+     */
+    private static final class Glob
+    {
+        final int index;
+        final String prefix;
+        final String suffix;
+
+        Glob( int index, String prefix, String suffix )
+        {
+            this.index = index;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        boolean matches( String domain )
+        {
+            return domain.length() >= prefix.length() + suffix.length()
+                && domain.startsWith( prefix ) && domain.endsWith( suffix );
+        }
+    }
+
+    private static final class CharNode
+    {
+        private Char2ObjectMap<CharNode> children;
+        final List<Glob> globs = new ArrayList<>( 0 );
+
+        @Nullable
+        CharNode child( char c, boolean create )
+        {
+            if( children == null )
+            {
+                if( !create ) return null;
+                children = new Char2ObjectOpenHashMap<>( 2 );
+            }
+
+            CharNode child = children.get( c );
+            if( child == null && create ) children.put( c, child = new CharNode() );
+            return child;
+        }
+
+        void find( BitSet matches, String domain )
+        {
+            for( Glob glob : globs )
+            {
+                if( glob.matches( domain ) ) matches.set( glob.index );
+            }
+        }
+    }
+
+    private static final class BitNode
+    {
+        private BitNode zero;
+        private BitNode one;
+        final IntList rules = new IntArrayList( 0 );
+
+        @Nullable
+        BitNode child( boolean bit, boolean create )
+        {
+            BitNode child = bit ? one : zero;
+            if( child == null && create )
+            {
+                child = new BitNode();
+                if( bit )
+                {
+                    one = child;
+                }
+                else
+                {
+                    zero = child;
+                }
+            }
+            return child;
+        }
+    }
+}
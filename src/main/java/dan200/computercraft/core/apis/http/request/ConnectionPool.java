@@ -0,0 +1,262 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.http.request;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.util.ReferenceCountUtil;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of idle HTTP connections, allowing requests to the same server to reuse a connection (and so skip the TCP and
+ * TLS handshakes) rather than opening a new one each time.
+ *
+ * Connections are only ever used by one request at a time, and so the number of connections in use is still bounded by
+ * each computer's request {@link dan200.computercraft.core.apis.http.ResourceGroup}. This pool only bounds how many
+ * idle connections are kept open, and for how long.
+ *
+ * Connections are keyed on the host, resolved address, scheme and any options which affect the channel's pipeline.
+ * As the address is resolved (and checked against the address rules) before a connection is acquired, pooling does not
+ * allow bypassing any rules.
+ */
+final class ConnectionPool
+{
+    static final String SSL = "ssl";
+    static final String TIMEOUT = "timeout";
+    static final String HTTP = "http";
+    static final String HANDLER = "handler";
+    private static final String IDLE = "idle";
+
+    /**
+     * The maximum number of idle connections we keep for a single server.
+     */
+    static final int MAX_IDLE_PER_KEY = 4;
+
+    /**
+     * The maximum number of idle connections we keep in total.
+     */
+    static final int MAX_IDLE = 64;
+
+    /**
+     * How long a connection may be idle before it is closed, in seconds.
+     */
+    private static final int IDLE_TIMEOUT = 30;
+
+    private static final Map<Key, Deque<Channel>> idle = new ConcurrentHashMap<>();
+    private static final AtomicInteger idleCount = new AtomicInteger();
+
+    private ConnectionPool()
+    {
+    }
+
+    /**
+     * Take an idle connection from the pool. The caller should add its handler to the end of the channel's pipeline,
+     * with the name {@link #HANDLER}.
+     *
+     * @param key The server to connect to.
+     * @return The acquired channel, or {@code null} if no idle connections are available.
+     */
+    @Nullable
+    static Channel acquire( Key key )
+    {
+        Deque<Channel> channels = idle.get( key );
+        if( channels == null ) return null;
+
+        while( true )
+        {
+            Channel channel;
+            synchronized( channels )
+            {
+                channel = channels.pollFirst();
+            }
+            if( channel == null ) return null;
+            idleCount.decrementAndGet();
+
+            if( !channel.isActive() ) continue;
+
+            ChannelPipeline pipeline = channel.pipeline();
+            if( pipeline.get( IDLE ) != null ) pipeline.remove( IDLE );
+            if( key.timeout > 0 ) pipeline.addBefore( HTTP, TIMEOUT, new ReadTimeoutHandler( key.timeout, TimeUnit.MILLISECONDS ) );
+            return channel;
+        }
+    }
+
+    /**
+     * Return a connection to the pool once a request has finished with it. If the pool is full, the connection is
+     * closed instead.
+     *
+     * This should be called from the channel's event loop, after the response has been read in full.
+     *
+     * @param key     The server this channel is connected to.
+     * @param channel The channel to release.
+     */
+    static void release( Key key, Channel channel )
+    {
+        ChannelPipeline pipeline = channel.pipeline();
+        if( pipeline.get( HANDLER ) != null ) pipeline.remove( HANDLER );
+        if( pipeline.get( TIMEOUT ) != null ) pipeline.remove( TIMEOUT );
+
+        // Streamed responses may have paused reading. Resume it, so we notice if the server closes the connection.
+        channel.config().setAutoRead( true );
+
+        if( !channel.isActive() )
+        {
+            channel.close();
+            return;
+        }
+
+        if( idleCount.incrementAndGet() > MAX_IDLE )
+        {
+            idleCount.decrementAndGet();
+            channel.close();
+            return;
+        }
+
+        Deque<Channel> channels = idle.computeIfAbsent( key, k -> new ArrayDeque<>() );
+        synchronized( channels )
+        {
+            if( channels.size() >= MAX_IDLE_PER_KEY )
+            {
+                idleCount.decrementAndGet();
+                channel.close();
+                return;
+            }
+
+            pipeline.addLast( IDLE, new IdleHandler( key ) );
+            channels.addFirst( channel );
+        }
+    }
+
+    private static void remove( Key key, Channel channel )
+    {
+        Deque<Channel> channels = idle.get( key );
+        if( channels == null ) return;
+
+        synchronized( channels )
+        {
+            if( channels.remove( channel ) ) idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Whether a request which failed on a pooled connection may be sent again on a new connection.
+     *
+     * The server may close an idle connection at any point, so a request sent on a pooled connection can fail without
+     * the server ever seeing it. However, we cannot tell this apart from the server closing the connection while
+     * handling the request. Once the request has been sent, we only retry methods which are safe to send twice, and
+     * only if the connection was closed or reset. Timeouts are never retried, as the server may still be working on
+     * the request.
+     *
+     * This should only be called if no part of the response has been received.
+     *
+     * @param method The request's method.
+     * @param sent   Whether any of the request has been sent.
+     * @param cause  The exception the request failed with, or {@code null} if the connection was closed.
+     * @return Whether this request can be retried.
+     */
+    static boolean canRetry( HttpMethod method, boolean sent, @Nullable Throwable cause )
+    {
+        if( !sent ) return true;
+        if( !method.equals( HttpMethod.GET ) && !method.equals( HttpMethod.HEAD ) && !method.equals( HttpMethod.OPTIONS ) )
+        {
+            return false;
+        }
+
+        // Read timeouts are not IOExceptions, so are rejected here too.
+        return cause == null || cause instanceof IOException;
+    }
+
+    static int idleCount()
+    {
+        return idleCount.get();
+    }
+
+    /**
+     * Added to idle connections, closing them after {@link #IDLE_TIMEOUT}, or if the server sends anything or closes
+     * the connection.
+     */
+    private static final class IdleHandler extends IdleStateHandler
+    {
+        private final Key key;
+
+        IdleHandler( Key key )
+        {
+            super( 0, 0, IDLE_TIMEOUT );
+            this.key = key;
+        }
+
+        @Override
+        protected void channelIdle( ChannelHandlerContext ctx, IdleStateEvent evt )
+        {
+            remove( key, ctx.channel() );
+            ctx.close();
+        }
+
+        @Override
+        public void channelRead( ChannelHandlerContext ctx, Object msg )
+        {
+            // We're not expecting anything from the server, so give up on this connection.
+            ReferenceCountUtil.release( msg );
+            remove( key, ctx.channel() );
+            ctx.close();
+        }
+
+        @Override
+        public void channelInactive( ChannelHandlerContext ctx ) throws Exception
+        {
+            remove( key, ctx.channel() );
+            super.channelInactive( ctx );
+        }
+    }
+
+    static final class Key
+    {
+        private final String host;
+        private final InetSocketAddress address;
+        private final boolean ssl;
+        private final int timeout;
+
+        Key( String host, InetSocketAddress address, boolean ssl, int timeout )
+        {
+            this.host = host.toLowerCase( Locale.ROOT );
+            this.address = address;
+            this.ssl = ssl;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if( this == o ) return true;
+            if( !(o instanceof Key) ) return false;
+
+            Key other = (Key) o;
+            return ssl == other.ssl && timeout == other.timeout && host.equals( other.host ) && address.equals( other.address );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash( host, address, ssl, timeout );
+        }
+    }
+}
@@ -16,6 +16,7 @@
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
@@ -25,6 +26,8 @@
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 
+import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -49,16 +52,23 @@ public class HttpRequest extends Resource<HttpRequest>
     private ChannelFuture connectFuture;
     private HttpRequestHandler currentRequest;
 
+    /**
+     * The body of a streamed response, and the handle reading it. The request stays open until the stream is closed.
+     */
+    private HttpResponseStream responseStream;
+    private WeakReference<HttpResponseHandle> responseHandle;
+
     private final IAPIEnvironment environment;
 
     private final String address;
     private final ByteBuf postBuffer;
     private final HttpHeaders headers;
     private final boolean binary;
+    private final boolean stream;
 
     final AtomicInteger redirects;
 
-    public HttpRequest( ResourceGroup<HttpRequest> limiter, IAPIEnvironment environment, String address, String postText, HttpHeaders headers, boolean binary, boolean followRedirects )
+    public HttpRequest( ResourceGroup<HttpRequest> limiter, IAPIEnvironment environment, String address, String postText, HttpHeaders headers, boolean binary, boolean followRedirects, boolean stream )
     {
         super( limiter );
         this.environment = environment;
@@ -68,6 +78,7 @@ public HttpRequest( ResourceGroup<HttpRequest> limiter, IAPIEnvironment environm
             : Unpooled.buffer( 0 );
         this.headers = headers;
         this.binary = binary;
+        this.stream = stream;
         redirects = new AtomicInteger( followRedirects ? MAX_REDIRECTS : 0 );
 
         if( postText != null )
@@ -89,6 +100,11 @@ public IAPIEnvironment environment()
         return environment;
     }
 
+    String address()
+    {
+        return address;
+    }
+
     public static URI checkUri( String address ) throws HTTPRequestException
     {
         URI url;
@@ -121,25 +137,32 @@ public static void checkUri( URI url ) throws HTTPRequestException
     public void request( URI uri, HttpMethod method )
     {
         if( isClosed() ) return;
-        executorFuture = NetworkUtils.EXECUTOR.submit( () -> doRequest( uri, method ) );
+
+        // Resolve the address without blocking, and then continue the request on the executor.
+        boolean ssl = uri.getScheme().equalsIgnoreCase( "https" );
+        executorFuture = NetworkUtils.resolveAddress( uri, ssl ).whenCompleteAsync( ( socketAddress, error ) -> {
+            if( error != null )
+            {
+                failure( NetworkUtils.toFriendlyError( error ) );
+            }
+            else
+            {
+                doRequest( uri, method, ssl, socketAddress );
+            }
+        }, NetworkUtils.EXECUTOR );
         checkClosed();
     }
 
-    private void doRequest( URI uri, HttpMethod method )
+    private void doRequest( URI uri, HttpMethod method, boolean ssl, InetSocketAddress socketAddress )
     {
         // If we're cancelled, abort.
         if( isClosed() ) return;
 
         try
         {
-            boolean ssl = uri.getScheme().equalsIgnoreCase( "https" );
-            InetSocketAddress socketAddress = NetworkUtils.getAddress( uri, ssl );
             Options options = NetworkUtils.getOptions( uri.getHost(), socketAddress );
             SslContext sslContext = ssl ? NetworkUtils.getSslContext() : null;
 
-            // getAddress may have a slight delay, so let's perform another cancellation check.
-            if( isClosed() ) return;
-
             long requestBody = getHeaderSize( headers ) + postBuffer.capacity();
             if( options.maxUpload != 0 && requestBody > options.maxUpload )
             {
@@ -151,44 +174,8 @@ private void doRequest( URI uri, HttpMethod method )
             environment.addTrackingChange( TrackingField.HTTP_REQUESTS, 1 );
             environment.addTrackingChange( TrackingField.HTTP_UPLOAD, requestBody );
 
-            HttpRequestHandler handler = currentRequest = new HttpRequestHandler( this, uri, method, options );
-            connectFuture = new Bootstrap()
-                .group( NetworkUtils.LOOP_GROUP )
-                .channelFactory( NioSocketChannel::new )
-                .handler( new ChannelInitializer<SocketChannel>()
-                {
-                    @Override
-                    protected void initChannel( SocketChannel ch )
-                    {
-
-                        if( options.timeout > 0 )
-                        {
-                            ch.config().setConnectTimeoutMillis( options.timeout );
-                        }
-
-                        ChannelPipeline p = ch.pipeline();
-                        if( sslContext != null )
-                        {
-                            p.addLast( sslContext.newHandler( ch.alloc(), uri.getHost(), socketAddress.getPort() ) );
-                        }
-
-                        if( options.timeout > 0 )
-                        {
-                            p.addLast( new ReadTimeoutHandler( options.timeout, TimeUnit.MILLISECONDS ) );
-                        }
-
-                        p.addLast(
-                            new HttpClientCodec(),
-                            new HttpContentDecompressor(),
-                            handler
-                        );
-                    }
-                } )
-                .remoteAddress( socketAddress )
-                .connect()
-                .addListener( c -> {
-                    if( !c.isSuccess() ) failure( NetworkUtils.toFriendlyError( c.cause() ) );
-                } );
+            ConnectionPool.Key key = new ConnectionPool.Key( uri.getHost(), socketAddress, ssl, options.timeout );
+            connect( uri, method, options, key, socketAddress, sslContext, true );
 
             // Do an additional check for cancellation
             checkClosed();
@@ -204,19 +191,132 @@ protected void initChannel( SocketChannel ch )
         }
     }
 
+    /**
+     * Send this request, either reusing an idle connection or opening a new one.
+     *
+     * @param uri           The URI to request.
+     * @param method        The HTTP method to use.
+     * @param options       The options for this host.
+     * @param key           The key to use when pooling this connection.
+     * @param socketAddress The address to connect to.
+     * @param sslContext    The SSL context to use, or {@code null} if this is not a secure connection.
+     * @param allowPooled   Whether an idle connection may be reused.
+     */
+    private void connect( URI uri, HttpMethod method, Options options, ConnectionPool.Key key, InetSocketAddress socketAddress, @Nullable SslContext sslContext, boolean allowPooled )
+    {
+        Channel pooled = allowPooled ? ConnectionPool.acquire( key ) : null;
+        if( pooled != null )
+        {
+            // The server may have closed an idle connection without us noticing yet. In that case, retry the request
+            // on a new connection, if it is safe to do so (see ConnectionPool.canRetry).
+            HttpRequestHandler handler = currentRequest = new HttpRequestHandler( this, uri, method, options, key,
+                () -> connect( uri, method, options, key, socketAddress, sslContext, false )
+            );
+            connectFuture = pooled.newSucceededFuture();
+            pooled.pipeline().addLast( ConnectionPool.HANDLER, handler );
+            return;
+        }
+
+        HttpRequestHandler handler = currentRequest = new HttpRequestHandler( this, uri, method, options, key, null );
+        connectFuture = new Bootstrap()
+            .group( NetworkUtils.LOOP_GROUP )
+            .channelFactory( NioSocketChannel::new )
+            .handler( new ChannelInitializer<SocketChannel>()
+            {
+                @Override
+                protected void initChannel( SocketChannel ch )
+                {
+
+                    if( options.timeout > 0 )
+                    {
+                        ch.config().setConnectTimeoutMillis( options.timeout );
+                    }
+
+                    ChannelPipeline p = ch.pipeline();
+                    if( sslContext != null )
+                    {
+                        p.addLast( ConnectionPool.SSL, sslContext.newHandler( ch.alloc(), uri.getHost(), socketAddress.getPort() ) );
+                    }
+
+                    if( options.timeout > 0 )
+                    {
+                        p.addLast( ConnectionPool.TIMEOUT, new ReadTimeoutHandler( options.timeout, TimeUnit.MILLISECONDS ) );
+                    }
+
+                    p.addLast( ConnectionPool.HTTP, new HttpClientCodec() );
+                    p.addLast( new HttpContentDecompressor() );
+                    p.addLast( ConnectionPool.HANDLER, handler );
+                }
+            } )
+            .remoteAddress( socketAddress )
+            .connect()
+            .addListener( c -> {
+                if( !c.isSuccess() ) failure( NetworkUtils.toFriendlyError( c.cause() ) );
+            } );
+    }
+
+    /**
+     * Stop tracking the current connection, as it has been returned to the {@link ConnectionPool}. This ensures it is
+     * not closed when this request is disposed.
+     */
+    void detachChannel()
+    {
+        connectFuture = null;
+    }
+
+
     void failure( String message )
     {
         if( tryClose() ) environment.queueEvent( FAILURE_EVENT, address, message );
     }
 
-    void failure( String message, HttpResponseHandle object )
+    boolean failure( String message, HttpResponseHandle object )
     {
-        if( tryClose() ) environment.queueEvent( FAILURE_EVENT, address, message, object );
+        if( !tryClose() ) return false;
+        environment.queueEvent( FAILURE_EVENT, address, message, object );
+        return true;
     }
 
-    void success( HttpResponseHandle object )
+    boolean success( HttpResponseHandle object )
     {
-        if( tryClose() ) environment.queueEvent( SUCCESS_EVENT, address, object );
+        if( !tryClose() ) return false;
+        environment.queueEvent( SUCCESS_EVENT, address, object );
+        return true;
+    }
+
+    /**
+     * Queue the response event for a streamed response.
+     *
+     * Unlike {@link #success(HttpResponseHandle)}, this does not close the request. Instead, the stream takes
+     * ownership of the connection, and the request stays open (and so counts towards the computer's request limit)
+     * until the stream is closed, the handle is garbage collected, or the computer shuts down.
+     *
+     * @param stream  The body of the response.
+     * @param object  The response handle.
+     * @param message The error message if the request failed, or {@code null} if it succeeded.
+     * @return Whether the event was queued, or {@code false} if this request has already been closed.
+     */
+    boolean streamResponse( HttpResponseStream stream, HttpResponseHandle object, @Nullable String message )
+    {
+        if( isClosed() ) return false;
+
+        connectFuture = null;
+        currentRequest = null;
+        responseStream = stream;
+        responseHandle = createOwnerReference( object );
+
+        if( message == null )
+        {
+            environment.queueEvent( SUCCESS_EVENT, address, object );
+        }
+        else
+        {
+            environment.queueEvent( FAILURE_EVENT, address, message, object );
+        }
+
+        // If we were closed in the meantime, this will close the stream.
+        checkClosed();
+        return true;
     }
 
     @Override
@@ -227,6 +327,8 @@ protected void dispose()
         executorFuture = closeFuture( executorFuture );
         connectFuture = closeChannel( connectFuture );
         currentRequest = closeCloseable( currentRequest );
+        responseStream = closeCloseable( responseStream );
+        responseHandle = null;
     }
 
     public static long getHeaderSize( HttpHeaders headers )
@@ -254,4 +356,9 @@ public boolean isBinary()
     {
         return binary;
     }
+
+    public boolean isStream()
+    {
+        return stream;
+    }
 }
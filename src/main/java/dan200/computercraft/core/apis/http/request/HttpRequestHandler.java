@@ -20,6 +20,7 @@
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
 
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -46,22 +47,66 @@ public final class HttpRequestHandler extends SimpleChannelInboundHandler<HttpOb
     private final HttpMethod method;
     private final Options options;
 
+    private final ConnectionPool.Key key;
+
+    /**
+     * If this request is using a connection from the {@link ConnectionPool}, how to retry it on a new connection.
+     * This is cleared once we receive any part of the response, as it is no longer safe to retry.
+     *
+     * @see ConnectionPool#canRetry(HttpMethod, boolean, Throwable)
+     */
+    private Runnable retry;
+    private boolean sent;
+    private boolean keepAlive;
+
     private Charset responseCharset;
     private final HttpHeaders responseHeaders = new DefaultHttpHeaders();
     private HttpResponseStatus responseStatus;
     private CompositeByteBuf responseBody;
 
-    HttpRequestHandler( HttpRequest request, URI uri, HttpMethod method, Options options )
+    /**
+     * The body of this response, if we are streaming it to the computer rather than reading it in full first.
+     */
+    private HttpResponseStream stream;
+    private long streamed;
+
+    HttpRequestHandler( HttpRequest request, URI uri, HttpMethod method, Options options, ConnectionPool.Key key, @Nullable Runnable retry )
     {
         this.request = request;
 
         this.uri = uri;
         this.method = method;
         this.options = options;
+
+        this.key = key;
+        this.retry = retry;
+    }
+
+    @Override
+    public void handlerAdded( ChannelHandlerContext ctx ) throws Exception
+    {
+        super.handlerAdded( ctx );
+
+        // Pooled connections are already active, so we won't receive channelActive.
+        if( retry == null ) return;
+        if( ctx.channel().isActive() )
+        {
+            sendRequest( ctx );
+        }
+        else
+        {
+            retry( ctx, null );
+        }
     }
 
     @Override
     public void channelActive( ChannelHandlerContext ctx ) throws Exception
+    {
+        sendRequest( ctx );
+        super.channelActive( ctx );
+    }
+
+    private void sendRequest( ChannelHandlerContext ctx )
     {
         if( request.checkClosed() ) return;
 
@@ -81,28 +126,65 @@ public void channelActive( ChannelHandlerContext ctx ) throws Exception
             request.headers().set( HttpHeaderNames.ACCEPT_CHARSET, "UTF-8" );
         }
         request.headers().set( HttpHeaderNames.HOST, uri.getPort() < 0 ? uri.getHost() : uri.getHost() + ":" + uri.getPort() );
-        request.headers().set( HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE );
+        keepAlive = HttpUtil.isKeepAlive( request );
 
+        sent = true;
         ctx.channel().writeAndFlush( request );
+    }
 
-        super.channelActive( ctx );
+    /**
+     * Retry this request on a new connection, if the pooled connection it was sent on was closed before we received
+     * a response.
+     *
+     * @param ctx   The current channel context.
+     * @param cause The exception the request failed with, or {@code null} if the connection was closed.
+     * @return Whether the request will be retried.
+     */
+    private boolean retry( ChannelHandlerContext ctx, @Nullable Throwable cause )
+    {
+        Runnable retry = this.retry;
+        this.retry = null;
+        if( retry == null || closed || !ConnectionPool.canRetry( method, sent, cause ) ) return false;
+
+        closed = true;
+        ctx.close();
+
+        if( !request.checkClosed() ) retry.run();
+        return true;
     }
 
     @Override
     public void channelInactive( ChannelHandlerContext ctx ) throws Exception
     {
-        if( !closed ) request.failure( "Could not connect" );
+        if( stream != null )
+        {
+            stream.fail( "Connection closed" );
+        }
+        else if( !closed && !retry( ctx, null ) )
+        {
+            request.failure( "Could not connect" );
+        }
         super.channelInactive( ctx );
     }
 
     @Override
     public void channelRead0( ChannelHandlerContext ctx, HttpObject message )
     {
+        // The server has started responding, so it has seen our request. It's no longer safe to send it again.
+        retry = null;
+
+        if( stream != null )
+        {
+            readStream( ctx, message );
+            return;
+        }
+
         if( closed || request.checkClosed() ) return;
 
         if( message instanceof HttpResponse )
         {
             HttpResponse response = (HttpResponse) message;
+            keepAlive &= HttpUtil.isKeepAlive( response );
 
             if( request.redirects.get() > 0 )
             {
@@ -135,6 +217,13 @@ public void channelRead0( ChannelHandlerContext ctx, HttpObject message )
             responseCharset = HttpUtil.getCharset( response, StandardCharsets.UTF_8 );
             responseStatus = response.status();
             responseHeaders.add( response.headers() );
+
+            if( request.isStream() )
+            {
+                startStream( ctx );
+                readStream( ctx, message );
+                return;
+            }
         }
 
         if( message instanceof HttpContent )
@@ -173,7 +262,19 @@ public void channelRead0( ChannelHandlerContext ctx, HttpObject message )
                     responseHeaders.set( HttpHeaderNames.CONTENT_LENGTH, responseBody.readableBytes() );
                 }
 
-                ctx.close();
+                // Return the connection to the pool if both sides are happy to keep it open. We detach it from the
+                // request first, so it is not closed when the request is disposed.
+                closed = true;
+                if( keepAlive )
+                {
+                    request.detachChannel();
+                    ConnectionPool.release( key, ctx.channel() );
+                }
+                else
+                {
+                    ctx.close();
+                }
+
                 sendResponse();
             }
         }
@@ -182,6 +283,15 @@ public void channelRead0( ChannelHandlerContext ctx, HttpObject message )
     @Override
     public void exceptionCaught( ChannelHandlerContext ctx, Throwable cause )
     {
+        if( stream != null )
+        {
+            stream.fail( NetworkUtils.toFriendlyError( cause ) );
+            ctx.close();
+            return;
+        }
+
+        if( retry( ctx, cause ) ) return;
+
         if( ComputerCraft.logComputerErrors ) ComputerCraft.log.error( "Error handling HTTP response", cause );
         request.failure( NetworkUtils.toFriendlyError( cause ) );
     }
@@ -192,6 +302,78 @@ private void sendResponse()
         CompositeByteBuf body = responseBody;
         byte[] bytes = body == null ? EMPTY_BYTES : NetworkUtils.toBytes( body );
 
+        // Fire off a stats event
+        request.environment().addTrackingChange( TrackingField.HTTP_DOWNLOAD, getHeaderSize( responseHeaders ) + bytes.length );
+
+        ArrayByteChannel contents = new ArrayByteChannel( bytes );
+        respond( request.isBinary()
+            ? BinaryReadableHandle.of( contents )
+            : new EncodedReadableHandle( EncodedReadableHandle.open( contents, responseCharset ) ) );
+    }
+
+    /**
+     * Start streaming the response body. We queue the response event immediately, and then pass the body to the
+     * computer as it arrives.
+     *
+     * The stream takes ownership of the channel. The request stays open until the stream is closed, so the stream
+     * counts towards the computer's request limit, and is closed when the computer shuts down.
+     *
+     * @param ctx The current channel context.
+     */
+    private void startStream( ChannelHandlerContext ctx )
+    {
+        HttpResponseStream stream = this.stream = new HttpResponseStream(
+            ctx.channel(), () -> request.environment().queueEvent( HttpStreamHandle.EVENT, request.address() ), request::close
+        );
+
+        request.environment().addTrackingChange( TrackingField.HTTP_DOWNLOAD, getHeaderSize( responseHeaders ) );
+
+        // If the request was cancelled in the meantime, then there's nobody to read the response.
+        if( !respond( new HttpStreamHandle( stream, request.isBinary(), responseCharset ) ) ) stream.close();
+    }
+
+    private void readStream( ChannelHandlerContext ctx, HttpObject message )
+    {
+        if( !(message instanceof HttpContent) ) return;
+
+        HttpContent content = (HttpContent) message;
+        ByteBuf partial = content.content();
+        if( partial.isReadable() )
+        {
+            streamed += partial.readableBytes();
+            if( options.maxDownload != 0 && streamed > options.maxDownload )
+            {
+                stream.fail( "Response is too large" );
+                ctx.close();
+                return;
+            }
+
+            request.environment().addTrackingChange( TrackingField.HTTP_DOWNLOAD, partial.readableBytes() );
+            stream.offer( partial.retain() );
+        }
+
+        if( message instanceof LastHttpContent )
+        {
+            stream.finish();
+            if( keepAlive && stream.isOpen() )
+            {
+                ConnectionPool.release( key, ctx.channel() );
+            }
+            else
+            {
+                ctx.close();
+            }
+        }
+    }
+
+    /**
+     * Queue the response event.
+     *
+     * @param reader The handle to read the body of the response.
+     * @return Whether the event was queued, or {@code false} if the request has already been closed.
+     */
+    private boolean respond( HandleGeneric reader )
+    {
         // Decode the headers
         HttpResponseStatus status = responseStatus;
         Map<String, String> headers = new HashMap<>();
@@ -201,24 +383,12 @@ private void sendResponse()
             headers.put( header.getKey(), existing == null ? header.getValue() : existing + "," + header.getValue() );
         }
 
-        // Fire off a stats event
-        request.environment().addTrackingChange( TrackingField.HTTP_DOWNLOAD, getHeaderSize( responseHeaders ) + bytes.length );
-
         // Prepare to queue an event
-        ArrayByteChannel contents = new ArrayByteChannel( bytes );
-        HandleGeneric reader = request.isBinary()
-            ? BinaryReadableHandle.of( contents )
-            : new EncodedReadableHandle( EncodedReadableHandle.open( contents, responseCharset ) );
-        HttpResponseHandle stream = new HttpResponseHandle( reader, status.code(), status.reasonPhrase(), headers );
+        HttpResponseHandle response = new HttpResponseHandle( reader, status.code(), status.reasonPhrase(), headers );
 
-        if( status.code() >= 200 && status.code() < 400 )
-        {
-            request.success( stream );
-        }
-        else
-        {
-            request.failure( status.reasonPhrase(), stream );
-        }
+        boolean success = status.code() >= 200 && status.code() < 400;
+        if( stream != null ) return request.streamResponse( stream, response, success ? null : status.reasonPhrase() );
+        return success ? request.success( response ) : request.failure( status.reasonPhrase(), response );
     }
 
     /**
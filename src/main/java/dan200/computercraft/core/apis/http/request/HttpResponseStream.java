@@ -0,0 +1,215 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.http.request;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The body of a streamed HTTP response. This is filled by {@link HttpRequestHandler} as data arrives, and read from
+ * by the computer's response handle.
+ *
+ * The queue of unread buffers is bounded: once more than {@link #HIGH_WATER_MARK} bytes are waiting to be read we stop
+ * reading from the socket, and only start again once the computer has read enough that fewer than
+ * {@link #LOW_WATER_MARK} remain.
+ *
+ * Reads never block: if no data is available yet, they return {@code 0}. The reader should then {@link #park()}, and
+ * wait for the listener passed to the constructor to be called once more data arrives.
+ */
+final class HttpResponseStream implements ReadableByteChannel
+{
+    static final int HIGH_WATER_MARK = 256 * 1024;
+    static final int LOW_WATER_MARK = 64 * 1024;
+
+    private final Channel channel;
+    private final Runnable listener;
+    private final Runnable closeListener;
+
+    private final Deque<ByteBuf> buffers = new ArrayDeque<>();
+    private int queued;
+    private boolean paused;
+
+    private boolean finished;
+    private boolean closed;
+    private String error;
+    private boolean waiting;
+
+    HttpResponseStream( Channel channel, Runnable listener )
+    {
+        this( channel, listener, () -> {} );
+    }
+
+    /**
+     * Create a new response stream.
+     *
+     * @param channel       The channel the response is being read from.
+     * @param listener      Called when more data arrives after the reader has {@linkplain #park() parked}.
+     * @param closeListener Called when this stream is closed. The {@link HttpRequest} uses this to stay open (and so
+     *                      count towards the computer's request limit) until the stream is closed.
+     */
+    HttpResponseStream( Channel channel, Runnable listener, Runnable closeListener )
+    {
+        this.channel = channel;
+        this.listener = listener;
+        this.closeListener = closeListener;
+    }
+
+    /**
+     * Add a buffer to the end of this stream. This takes ownership of the buffer.
+     *
+     * @param buffer The buffer to add.
+     */
+    void offer( ByteBuf buffer )
+    {
+        synchronized( this )
+        {
+            if( closed || finished )
+            {
+                buffer.release();
+                return;
+            }
+
+            buffers.addLast( buffer );
+            queued += buffer.readableBytes();
+            if( queued >= HIGH_WATER_MARK && !paused )
+            {
+                paused = true;
+                channel.config().setAutoRead( false );
+            }
+        }
+
+        wake();
+    }
+
+    /**
+     * Mark this stream as having received the entire response.
+     */
+    void finish()
+    {
+        synchronized( this )
+        {
+            finished = true;
+        }
+
+        wake();
+    }
+
+    /**
+     * Mark this stream as having failed. Any remaining data may still be read, after which reads will throw.
+     *
+     * @param message The error message.
+     */
+    void fail( String message )
+    {
+        synchronized( this )
+        {
+            if( finished ) return;
+            finished = true;
+            error = message;
+        }
+
+        wake();
+    }
+
+    /**
+     * Wait for more data to arrive. If there is nothing left to read, the next call to {@link #offer(ByteBuf)},
+     * {@link #finish()} or {@link #fail(String)} will call this stream's listener.
+     *
+     * @return Whether the reader should wait for the listener, or {@code false} if data arrived since the last read
+     * and so it should read again.
+     */
+    synchronized boolean park()
+    {
+        if( !buffers.isEmpty() || finished || closed ) return false;
+
+        waiting = true;
+        return true;
+    }
+
+    private void wake()
+    {
+        boolean wake;
+        synchronized( this )
+        {
+            wake = waiting;
+            waiting = false;
+        }
+
+        if( wake ) listener.run();
+    }
+
+    @Override
+    public int read( ByteBuffer destination ) throws IOException
+    {
+        int read = 0;
+        boolean resume;
+        synchronized( this )
+        {
+            if( closed ) throw new ClosedChannelException();
+            if( buffers.isEmpty() )
+            {
+                if( !finished ) return 0;
+                if( error != null ) throw new IOException( error );
+                return -1;
+            }
+
+            while( destination.hasRemaining() && !buffers.isEmpty() )
+            {
+                ByteBuf buffer = buffers.peekFirst();
+                int count = Math.min( destination.remaining(), buffer.readableBytes() );
+
+                int limit = destination.limit();
+                destination.limit( destination.position() + count );
+                buffer.readBytes( destination );
+                destination.limit( limit );
+
+                read += count;
+                if( !buffer.isReadable() ) buffers.removeFirst().release();
+            }
+
+            queued -= read;
+            resume = paused && !finished && queued < LOW_WATER_MARK;
+            if( resume ) paused = false;
+        }
+
+        if( resume ) channel.config().setAutoRead( true );
+        return read;
+    }
+
+    @Override
+    public synchronized boolean isOpen()
+    {
+        return !closed;
+    }
+
+    @Override
+    public void close()
+    {
+        boolean abort;
+        synchronized( this )
+        {
+            if( closed ) return;
+            closed = true;
+            abort = !finished;
+
+            for( ByteBuf buffer : buffers ) buffer.release();
+            buffers.clear();
+            queued = 0;
+            waiting = false;
+        }
+
+        // If the computer stops reading before the end of the response, there's no point in receiving the rest.
+        if( abort ) channel.close();
+        closeListener.run();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.http.request;
+
+import dan200.computercraft.api.lua.LuaException;
+import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.api.lua.MethodResult;
+import dan200.computercraft.core.apis.handles.BinaryReadableHandle;
+import dan200.computercraft.core.apis.handles.EncodedReadableHandle;
+import dan200.computercraft.core.apis.handles.HandleGeneric;
+import dan200.computercraft.core.filesystem.TrackingCloseable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Reads the body of a streamed HTTP response. This provides the same methods as an {@link EncodedReadableHandle} (or
+ * {@link BinaryReadableHandle} if the request used binary mode).
+ *
+ * If not enough of the body has arrived yet, these methods wait for an {@code http_stream} event rather than blocking
+ * the computer thread. This event is queued by the {@link HttpResponseStream} once more data arrives.
+ *
+ * If the response ends with an error (such as the connection closing or the response being too large) before enough
+ * data has arrived, these methods throw that error, rather than returning a truncated body.
+ */
+public class HttpStreamHandle extends HandleGeneric
+{
+    static final String EVENT = "http_stream";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final HttpResponseStream stream;
+    private final boolean binary;
+    private final CharsetDecoder decoder;
+
+    private final ByteBuffer bytes = ByteBuffer.allocate( BUFFER_SIZE );
+    private final CharBuffer chars = CharBuffer.allocate( BUFFER_SIZE );
+
+    /**
+     * Characters which have been received and decoded, but not yet read. In binary mode, each character is a single
+     * byte.
+     */
+    private final StringBuilder pending = new StringBuilder();
+    private boolean ended;
+
+    /**
+     * The reason the response ended early, or {@code null} if it ended normally (or has not ended yet).
+     */
+    private String error;
+
+    HttpStreamHandle( HttpResponseStream stream, boolean binary, Charset charset )
+    {
+        super( new TrackingCloseable.Impl( stream ) );
+        this.stream = stream;
+        this.binary = binary;
+        decoder = (binary ? StandardCharsets.ISO_8859_1 : charset).newDecoder()
+            .onMalformedInput( CodingErrorAction.REPLACE )
+            .onUnmappableCharacter( CodingErrorAction.REPLACE );
+    }
+
+    /**
+     * Read a number of characters (or bytes in binary mode) from the response.
+     *
+     * @param countArg The number to read. When absent, a single character is read, or a single byte is read <em>as a
+     *                 number</em> in binary mode.
+     * @return The read characters.
+     * @throws LuaException When trying to read a negative number of characters.
+     * @throws LuaException If the response has been closed.
+     * @throws LuaException If the response ended with an error.
+     * @cc.treturn string|number|nil The read characters, or {@code nil} if at the end of the response.
+     */
+    @LuaFunction
+    public final MethodResult read( Optional<Integer> countArg ) throws LuaException
+    {
+        checkOpen();
+        int count = countArg.orElse( 1 );
+        if( count < 0 )
+        {
+            throw new LuaException( binary ? "Cannot read a negative number of bytes" : "Cannot read a negative number of characters" );
+        }
+
+        return await( () -> pending.length() >= count, () -> {
+            if( pending.length() == 0 ) return ended && count > 0 ? null : new Object[] { "" };
+            if( binary && !countArg.isPresent() ) return new Object[] { (int) take( 1 ).charAt( 0 ) & 0xFF };
+            return result( take( Math.min( count, pending.length() ) ) );
+        } );
+    }
+
+    /**
+     * Read a line from the response.
+     *
+     * @param withTrailingArg Whether to include the newline characters with the returned string. Defaults to {@code false}.
+     * @return The read line.
+     * @throws LuaException If the response has been closed.
+     * @throws LuaException If the response ended with an error.
+     * @cc.treturn string|nil The read line or {@code nil} if at the end of the response.
+     */
+    @LuaFunction
+    public final MethodResult readLine( Optional<Boolean> withTrailingArg ) throws LuaException
+    {
+        checkOpen();
+        boolean withTrailing = withTrailingArg.orElse( false );
+        return await( () -> pending.indexOf( "\n" ) >= 0, () -> {
+            int newline = pending.indexOf( "\n" );
+            if( newline < 0 ) return pending.length() == 0 ? null : result( take( pending.length() ) );
+
+            String line = take( newline + 1 );
+            if( withTrailing ) return result( binary ? line : line.substring( 0, trimLine( line ) ) + "\n" );
+            return result( line.substring( 0, trimLine( line ) ) );
+        } );
+    }
+
+    /**
+     * Read the remainder of the response. This waits until the whole response has been received.
+     *
+     * @return The rest of the response.
+     * @throws LuaException If the response has been closed.
+     * @throws LuaException If the response ended with an error.
+     * @cc.treturn string|nil The remaining contents of the response, or {@code nil} if at the end in binary mode.
+     */
+    @LuaFunction
+    public final MethodResult readAll() throws LuaException
+    {
+        checkOpen();
+        return await( () -> false, () -> {
+            if( pending.length() == 0 ) return binary ? null : new Object[] { "" };
+            return result( take( pending.length() ) );
+        } );
+    }
+
+    /**
+     * Read from the response once enough data is available, or the response has ended.
+     *
+     * @param ready Whether enough data has been received.
+     * @param read  Read from the received data.
+     * @return The result of reading, or a callback to wait for more data.
+     * @throws LuaException If the response ended with an error (for instance, the connection was closed) before
+     *                      enough data was received.
+     */
+    private MethodResult await( BooleanSupplier ready, Supplier<Object[]> read ) throws LuaException
+    {
+        while( true )
+        {
+            if( ready.getAsBoolean() ) return MethodResult.of( read.get() );
+            if( ended )
+            {
+                // Don't let a truncated response look like a complete one.
+                if( error != null ) throw new LuaException( error );
+                return MethodResult.of( read.get() );
+            }
+            if( fill() ) continue;
+
+            if( stream.park() )
+            {
+                return MethodResult.pullEvent( EVENT, args -> {
+                    checkOpen();
+                    return await( ready, read );
+                } );
+            }
+        }
+    }
+
+    /**
+     * Read and decode the next chunk of data from the stream, without blocking.
+     *
+     * @return Whether anything was read, or the stream has ended.
+     */
+    private boolean fill()
+    {
+        int read;
+        try
+        {
+            read = stream.read( bytes );
+        }
+        catch( IOException e )
+        {
+            error = e.getMessage() == null ? "Could not read response" : e.getMessage();
+            read = -1;
+        }
+        if( read == 0 ) return false;
+
+        boolean end = read < 0;
+        bytes.flip();
+        while( decoder.decode( bytes, chars, end ).isOverflow() ) drainChars();
+        if( end )
+        {
+            while( decoder.flush( chars ) == CoderResult.OVERFLOW ) drainChars();
+            ended = true;
+        }
+        drainChars();
+        bytes.compact();
+        return true;
+    }
+
+    private void drainChars()
+    {
+        chars.flip();
+        pending.append( chars );
+        chars.clear();
+    }
+
+    private String take( int count )
+    {
+        String result = pending.substring( 0, count );
+        pending.delete( 0, count );
+        return result;
+    }
+
+    private Object[] result( String value )
+    {
+        if( !binary ) return new Object[] { value };
+
+        byte[] result = new byte[value.length()];
+        for( int i = 0; i < result.length; i++ ) result[i] = (byte) value.charAt( i );
+        return new Object[] { result };
+    }
+
+    /**
+     * Find the end of a line, excluding the trailing {@code \n} or {@code \r\n}.
+     *
+     * @param line The line, including the trailing {@code \n}.
+     * @return The length of the line without its terminator.
+     */
+    private static int trimLine( String line )
+    {
+        int end = line.length() - 1;
+        return end > 0 && line.charAt( end - 1 ) == '\r' ? end - 1 : end;
+    }
+}
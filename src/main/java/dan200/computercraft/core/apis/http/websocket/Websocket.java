@@ -118,25 +118,32 @@ else if( !scheme.equalsIgnoreCase( "wss" ) && !scheme.equalsIgnoreCase( "ws" ) )
     public void connect()
     {
         if( isClosed() ) return;
-        executorFuture = NetworkUtils.EXECUTOR.submit( this::doConnect );
+
+        // Resolve the address without blocking, and then continue connecting on the executor.
+        boolean ssl = uri.getScheme().equalsIgnoreCase( "wss" );
+        executorFuture = NetworkUtils.resolveAddress( uri, ssl ).whenCompleteAsync( ( socketAddress, error ) -> {
+            if( error != null )
+            {
+                failure( NetworkUtils.toFriendlyError( error ) );
+            }
+            else
+            {
+                doConnect( ssl, socketAddress );
+            }
+        }, NetworkUtils.EXECUTOR );
         checkClosed();
     }
 
-    private void doConnect()
+    private void doConnect( boolean ssl, InetSocketAddress socketAddress )
     {
         // If we're cancelled, abort.
         if( isClosed() ) return;
 
         try
         {
-            boolean ssl = uri.getScheme().equalsIgnoreCase( "wss" );
-            InetSocketAddress socketAddress = NetworkUtils.getAddress( uri, ssl );
             Options options = NetworkUtils.getOptions( uri.getHost(), socketAddress );
             SslContext sslContext = ssl ? NetworkUtils.getSslContext() : null;
 
-            // getAddress may have a slight delay, so let's perform another cancellation check.
-            if( isClosed() ) return;
-
             connectFuture = new Bootstrap()
                 .group( NetworkUtils.LOOP_GROUP )
                 .channel( NioSocketChannel.class )
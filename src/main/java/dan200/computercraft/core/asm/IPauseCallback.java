@@ -0,0 +1,19 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.asm;
+
+import dan200.computercraft.api.lua.ILuaCallback;
+
+/**
+ * A callback which does not wait for an event. Instead, the Lua machine pauses, allowing other computers to run, and
+ * then resumes this callback (with no arguments) as soon as the computer is run again.
+ *
+ * This allows long-running functions to be split into several steps, without queuing an event of their own or
+ * consuming any events meant for the calling program.
+ */
+public interface IPauseCallback extends ILuaCallback
+{
+}
@@ -0,0 +1,40 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.asm;
+
+import dan200.computercraft.api.lua.*;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A callback which is waiting for a main thread task to finish. The Lua machine may pass the task's results directly
+ * to {@link #complete(boolean, Object[])}, rather than queuing a {@code task_complete} event and resuming the callback
+ * with that.
+ *
+ * This is implemented by {@link TaskCallback}, and by any callback wrapping one, so wrappers do not stop the machine
+ * from using this path.
+ */
+public interface ITaskCallback extends ILuaCallback
+{
+    /**
+     * Get the id of the task this callback is waiting for.
+     *
+     * @return The task's id.
+     * @see ILuaContext#issueMainThreadTask(ILuaTask)
+     */
+    long getTask();
+
+    /**
+     * Finish this task, either returning its results or throwing its error.
+     *
+     * @param success Whether the task succeeded.
+     * @param values  The task's return values if it succeeded, or its error message otherwise.
+     * @return The task's return values.
+     * @throws LuaException If the task failed.
+     */
+    @Nonnull
+    MethodResult complete( boolean success, @Nonnull Object[] values ) throws LuaException;
+}
@@ -10,9 +10,21 @@
 import javax.annotation.Nonnull;
 import java.util.Arrays;
 
-public final class TaskCallback implements ILuaCallback
+/**
+ * Waits for a main thread task to finish, returning its results.
+ *
+ * This normally receives the task's results from a {@code task_complete} event. However, the Lua machine may also pass
+ * the results directly to {@link #complete(boolean, Object[])}, skipping the conversion to and from Lua values, and (if
+ * nothing else is waiting on the event) the event itself.
+ */
+public final class TaskCallback implements ITaskCallback
 {
-    private final MethodResult pull = MethodResult.pullEvent( "task_complete", this );
+    /**
+     * The name of the event fired when a task finishes.
+     */
+    public static final String EVENT = "task_complete";
+
+    private final MethodResult pull = MethodResult.pullEventRaw( EVENT, this );
     private final long task;
 
     private TaskCallback( long task )
@@ -20,10 +32,18 @@ private TaskCallback( long task )
         this.task = task;
     }
 
+    @Override
+    public long getTask()
+    {
+        return task;
+    }
+
     @Nonnull
     @Override
     public MethodResult resume( Object[] response ) throws LuaException
     {
+        if( response.length >= 1 && "terminate".equals( response[0] ) ) throw new LuaException( "Terminated", 0 );
+
         if( response.length < 3 || !(response[1] instanceof Number) || !(response[2] instanceof Boolean) )
         {
             return pull;
@@ -31,15 +51,21 @@ public MethodResult resume( Object[] response ) throws LuaException
 
         if( ((Number) response[1]).longValue() != task ) return pull;
 
-        if( (Boolean) response[2] )
+        return complete( (Boolean) response[2], Arrays.copyOfRange( response, 3, response.length ) );
+    }
+
+    @Nonnull
+    @Override
+    public MethodResult complete( boolean success, @Nonnull Object[] values ) throws LuaException
+    {
+        if( success )
         {
-            // Extract the return values from the event and return them
-            return MethodResult.of( Arrays.copyOfRange( response, 3, response.length ) );
+            return MethodResult.of( values );
         }
-        else if( response.length >= 4 && response[3] instanceof String )
+        else if( values.length >= 1 && values[0] instanceof String )
         {
             // Extract the error message from the event and raise it
-            throw new LuaException( (String) response[3] );
+            throw new LuaException( (String) values[0] );
         }
         else
         {
@@ -47,6 +73,24 @@ else if( response.length >= 4 && response[3] instanceof String )
         }
     }
 
+    /**
+     * Build the arguments of the {@code task_complete} event for a finished task.
+     *
+     * @param task    The task's id.
+     * @param success Whether the task succeeded.
+     * @param values  The task's return values if it succeeded, or its error message otherwise.
+     * @return The event's arguments.
+     */
+    @Nonnull
+    public static Object[] getEventArguments( long task, boolean success, @Nonnull Object[] values )
+    {
+        Object[] arguments = new Object[values.length + 2];
+        arguments[0] = task;
+        arguments[1] = success;
+        System.arraycopy( values, 0, arguments, 2, values.length );
+        return arguments;
+    }
+
     static Object[] checkUnwrap( MethodResult result )
     {
         if( result.getCallback() != null )
@@ -69,6 +69,11 @@ FileSystem getFileSystem()
         return executor.getFileSystem();
     }
 
+    TimeoutState getTimeoutState()
+    {
+        return executor.timeout;
+    }
+
     Terminal getTerminal()
     {
         return terminal;
@@ -114,6 +119,20 @@ public void queueEvent( String event, Object[] args )
         executor.queueEvent( event, args );
     }
 
+    /**
+     * Queue the result of a main thread task, to be passed back to the computer. This is delivered as a
+     * {@code task_complete} event, but is usually run before any other queued events.
+     *
+     * @param task    The id of the completed task.
+     * @param success Whether the task succeeded.
+     * @param values  The task's return values if it succeeded, or its error message otherwise.
+     * @see dan200.computercraft.api.lua.ILuaContext#issueMainThreadTask(dan200.computercraft.api.lua.ILuaTask)
+     */
+    public void queueTaskResult( long task, boolean success, Object[] values )
+    {
+        executor.queueTaskResult( task, success, values );
+    }
+
     /**
      * Queue a task to be run on the main thread, using {@link MainThread}.
      *
@@ -43,7 +43,8 @@
  * {@link #command} which determines which state the computer should transition too. This is set by
  * {@link #queueStart()} and {@link #queueStop(boolean, boolean)}.
  *
- * When a computer is on, we simply push any events onto to the {@link #eventQueue}.
+ * When a computer is on, we simply push any events onto to the {@link #eventQueue}. The results of main thread tasks are
+ * pushed onto a separate {@link #taskQueue}, which is run before any other events.
  *
  * Both queues are run from the {@link #work()} method, which tries to execute a command if one exists, or resumes the
  * machine with an event otherwise.
@@ -55,6 +56,13 @@
 {
     private static final int QUEUE_LIMIT = 256;
 
+    /**
+     * The maximum number of task results to run in a row while there are other events waiting.
+     *
+     * @see #taskQueue
+     */
+    private static final int TASK_RESULT_BATCH = 16;
+
     private final Computer computer;
     private final List<ILuaAPI> apis = new ArrayList<>();
     final TimeoutState timeout = new TimeoutState();
@@ -104,14 +112,14 @@
      *
      * @see ComputerThread
      */
-    long virtualRuntime = 0;
+    volatile long virtualRuntime = 0;
 
     /**
      * The last time at which we updated {@link #virtualRuntime}.
      *
      * @see ComputerThread
      */
-    long vRuntimeStart;
+    volatile long vRuntimeStart;
 
     /**
      * The command that {@link #work()} should execute on the computer thread.
@@ -131,6 +139,23 @@
      */
     private final Queue<Event> eventQueue = new ArrayDeque<>( 4 );
 
+    /**
+     * The results of main thread tasks, waiting to be passed to the computer.
+     *
+     * Task results are counted against the same {@link #QUEUE_LIMIT} as events. They are run before other events, so a
+     * computer waiting on a task is resumed as soon as possible. However, we let an event through after every
+     * {@link #TASK_RESULT_BATCH} results, so a constant stream of results cannot starve events such as
+     * {@code terminate}.
+     *
+     * @see #queueTaskResult(long, boolean, Object[])
+     */
+    private final Queue<TaskResult> taskQueue = new ArrayDeque<>( 4 );
+
+    /**
+     * The number of task results which have been run since the last event.
+     */
+    private int taskResultsRun;
+
     /**
      * Whether we interrupted an event and so should resume it instead of executing another task.
      *
@@ -139,6 +164,14 @@
      */
     private boolean interruptedEvent = false;
 
+    /**
+     * Whether the interrupted event was paused by a function asking to let other computers run. This counts as the
+     * computer yielding, and so resets its timeout.
+     *
+     * @see MachineResult#YIELD
+     */
+    private boolean interruptedYield = false;
+
     /**
      * Whether this executor has been closed, and will no longer accept any incoming commands or events.
      *
@@ -148,6 +181,11 @@
 
     private IWritableMount rootMount;
 
+    /**
+     * The ROM mounted on the current {@link #fileSystem}, used to decide which chunks may share compiled code.
+     */
+    private IMount romMount;
+
     /**
      * The thread the executor is running on. This is non-null when performing work. We use this to ensure we're only
      * doing one bit of work at one time.
@@ -293,13 +331,33 @@ void queueEvent( @Nonnull String event, @Nullable Object[] args )
             // And if we've got some command in the pipeline, then don't queue events - they'll
             // probably be disposed of anyway.
             // We also limit the number of events which can be queued.
-            if( closed || command != null || eventQueue.size() >= QUEUE_LIMIT ) return;
+            if( closed || command != null || eventQueue.size() + taskQueue.size() >= QUEUE_LIMIT ) return;
 
             eventQueue.offer( new Event( event, args ) );
             enqueue();
         }
     }
 
+    /**
+     * Queue the result of a main thread task if the computer is on. Like events, this is dropped if the queue is full.
+     *
+     * @param task    The id of the completed task.
+     * @param success Whether the task succeeded.
+     * @param values  The task's return values if it succeeded, or its error message otherwise.
+     */
+    void queueTaskResult( long task, boolean success, @Nonnull Object[] values )
+    {
+        if( !isOn ) return;
+
+        synchronized( queueLock )
+        {
+            if( closed || command != null || eventQueue.size() + taskQueue.size() >= QUEUE_LIMIT ) return;
+
+            taskQueue.offer( new TaskResult( task, success, values ) );
+            enqueue();
+        }
+    }
+
     /**
      * Add this executor to the {@link ComputerThread} if not already there.
      */
@@ -361,7 +419,7 @@ private FileSystem createFileSystem()
         {
             filesystem = new FileSystem( "hdd", getRootMount() );
 
-            IMount romMount = getRomMount();
+            romMount = getRomMount();
             if( romMount == null )
             {
                 displayFailure( "Cannot mount ROM", null );
@@ -400,7 +458,7 @@ private ILuaMachine createLuaMachine()
         }
 
         // Create the lua machine
-        ILuaMachine machine = new CobaltLuaMachine( computer, timeout );
+        ILuaMachine machine = new CobaltLuaMachine( computer, timeout, romMount );
 
         // Add the APIs. We unwrap them (yes, this is horrible) to get access to the underlying object.
         for( ILuaAPI api : apis ) machine.addAPI( api instanceof ApiWrapper ? ((ApiWrapper) api).getDelegate() : api );
@@ -430,6 +488,7 @@ private void turnOn() throws InterruptedException
             synchronized( queueLock )
             {
                 eventQueue.clear();
+                taskQueue.clear();
             }
 
             // Init filesystem
@@ -473,6 +532,7 @@ private void shutdown() throws InterruptedException
             synchronized( queueLock )
             {
                 eventQueue.clear();
+                taskQueue.clear();
             }
 
             // Shutdown Lua machine
@@ -492,6 +552,7 @@ private void shutdown() throws InterruptedException
                 fileSystem.close();
                 fileSystem = null;
             }
+            romMount = null;
 
             computer.getEnvironment().resetOutput();
             computer.markChanged();
@@ -518,7 +579,7 @@ void beforeWork()
      */
     boolean afterWork()
     {
-        if( interruptedEvent )
+        if( interruptedEvent && !interruptedYield )
         {
             timeout.pauseTimer();
         }
@@ -533,7 +594,7 @@ boolean afterWork()
 
         synchronized( queueLock )
         {
-            if( eventQueue.isEmpty() && command == null ) return onComputerQueue = false;
+            if( eventQueue.isEmpty() && taskQueue.isEmpty() && command == null ) return onComputerQueue = false;
             return true;
         }
     }
@@ -560,6 +621,7 @@ void work() throws InterruptedException
         }
 
         StateCommand command;
+        TaskResult taskResult = null;
         Event event = null;
         synchronized( queueLock )
         {
@@ -574,10 +636,20 @@ void work() throws InterruptedException
                     // We're not on and had no command, but we had work queued. This should never happen, so clear
                     // the event queue just in case.
                     eventQueue.clear();
+                    taskQueue.clear();
                     return;
                 }
 
-                event = eventQueue.poll();
+                if( !taskQueue.isEmpty() && (taskResultsRun < TASK_RESULT_BATCH || eventQueue.isEmpty()) )
+                {
+                    taskResult = taskQueue.poll();
+                    taskResultsRun++;
+                }
+                else
+                {
+                    event = eventQueue.poll();
+                    taskResultsRun = 0;
+                }
             }
         }
 
@@ -618,6 +690,10 @@ void work() throws InterruptedException
                     break;
             }
         }
+        else if( taskResult != null )
+        {
+            handleResult( machine.handleTaskResult( taskResult.task, taskResult.success, taskResult.values ) );
+        }
         else if( event != null )
         {
             resumeMachine( event.name, event.args );
@@ -650,8 +726,13 @@ private void displayFailure( String message, String extra )
 
     private void resumeMachine( String event, Object[] args ) throws InterruptedException
     {
-        MachineResult result = machine.handleEvent( event, args );
+        handleResult( machine.handleEvent( event, args ) );
+    }
+
+    private void handleResult( MachineResult result ) throws InterruptedException
+    {
         interruptedEvent = result.isPause();
+        interruptedYield = result.isYield();
         if( !result.isError() ) return;
 
         displayFailure( "Error running computer", result.getMessage() );
@@ -678,4 +759,18 @@ private Event( String name, Object[] args )
             this.args = args;
         }
     }
+
+    private static final class TaskResult
+    {
+        final long task;
+        final boolean success;
+        final Object[] values;
+
+        private TaskResult( long task, boolean success, Object[] values )
+        {
+            this.task = task;
+            this.success = success;
+            this.values = values;
+        }
+    }
 }
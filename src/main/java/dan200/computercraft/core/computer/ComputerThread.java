@@ -10,9 +10,17 @@
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.TreeSet;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.LockSupport;
@@ -43,6 +51,12 @@
  * In reality, it's unlikely that more than a few computers are waiting to execute at once, so this will not have much
  * effect unless you have a computer hogging execution time. However, it is pretty effective in those situations.
  *
+ * Rather than having one global queue, each {@link TaskRunner} owns its own run queue (and lock). New work is handed
+ * to an idle runner where possible, and computers which yield are requeued on the runner which last executed them.
+ * When picking the next task, a runner will take the head of another runner's queue if it is significantly further
+ * behind than its own (or if its own queue is empty), meaning the ordering is still approximately that of a single
+ * global queue, but without every runner contending on one lock.
+ *
  * @see TimeoutState For how hard timeouts are handled.
  * @see ComputerExecutor For how computers actually do execution.
  */
@@ -94,30 +108,42 @@
     /**
      * The array of current runners, and their owning threads.
      */
-    private static TaskRunner[] runners;
-
-    private static long latency;
-    private static long minPeriod;
+    private static volatile TaskRunner[] runners;
 
-    private static final ReentrantLock computerLock = new ReentrantLock();
+    /**
+     * Runners which have been removed by {@link #setThreadCount(int)} but may still be finishing off a task. These are
+     * observed by the {@link Monitor} until they exit. Guarded by {@link #threadLock}.
+     */
+    private static final List<TaskRunner> retiredRunners = new ArrayList<>();
 
-    private static final Condition hasWork = computerLock.newCondition();
+    private static volatile long latency;
+    private static volatile long minPeriod;
 
     /**
-     * Active queues to execute.
+     * The order executors are run in: those with the smallest {@link ComputerExecutor#virtualRuntime} first.
      */
-    private static final TreeSet<ComputerExecutor> computerQueue = new TreeSet<>( ( a, b ) -> {
+    private static final Comparator<ComputerExecutor> EXECUTOR_ORDER = ( a, b ) -> {
         if( a == b ) return 0; // Should never happen, but let's be consistent here
 
         long at = a.virtualRuntime, bt = b.virtualRuntime;
         if( at == bt ) return Integer.compare( a.hashCode(), b.hashCode() );
         return at < bt ? -1 : 1;
-    } );
+    };
+
+    /**
+     * The total number of executors queued across every runner.
+     */
+    private static final AtomicInteger queuedTasks = new AtomicInteger();
+
+    /**
+     * Used to spread the search for idle runners, so we don't always wake the first one.
+     */
+    private static final AtomicInteger nextRunner = new AtomicInteger();
 
     /**
-     * The minimum {@link ComputerExecutor#virtualRuntime} time on the tree.
+     * The minimum {@link ComputerExecutor#virtualRuntime} time across all queues.
      */
-    private static long minimumVirtualRuntime = 0;
+    private static final AtomicLong minimumVirtualRuntime = new AtomicLong();
 
     private static final ThreadFactory monitorFactory = ThreadUtils.factory( "Computer-Monitor" );
     private static final ThreadFactory runnerFactory = ThreadUtils.factory( "Computer-Runner" );
@@ -133,27 +159,24 @@ static void start()
         {
             running = true;
 
-            if( runners == null )
-            {
-                // TODO: Change the runners length on config reloads
-                runners = new TaskRunner[ComputerCraft.computerThreads];
-
-                // latency and minPeriod are scaled by 1 + floor(log2(threads)). We can afford to execute tasks for
-                // longer when executing on more than one thread.
-                long factor = 64 - Long.numberOfLeadingZeros( runners.length );
-                latency = DEFAULT_LATENCY * factor;
-                minPeriod = DEFAULT_MIN_PERIOD * factor;
-            }
+            if( runners == null || runners.length != ComputerCraft.computerThreads ) resize( ComputerCraft.computerThreads );
 
-            for( int i = 0; i < runners.length; i++ )
+            TaskRunner[] currentRunners = runners;
+            for( int i = 0; i < currentRunners.length; i++ )
             {
-                TaskRunner runner = runners[i];
-                if( runner == null || runner.owner == null || !runner.owner.isAlive() )
+                TaskRunner runner = currentRunners[i];
+                if( runner.owner == null && !runner.started )
                 {
-                    // Mark the old runner as dead, just in case.
-                    if( runner != null ) runner.running = false;
-                    // And start a new runner
-                    runnerFactory.newThread( runners[i] = new TaskRunner() ).start();
+                    // This runner has never been started, so just start it.
+                    runner.started = true;
+                    runnerFactory.newThread( runner ).start();
+                }
+                else if( runner.owner != null && !runner.owner.isAlive() )
+                {
+                    // Start a new runner, taking over the old one's queue.
+                    TaskRunner newRunner = currentRunners[i] = new TaskRunner( runner );
+                    newRunner.started = true;
+                    runnerFactory.newThread( newRunner ).start();
                 }
             }
 
@@ -161,6 +184,73 @@ static void start()
         }
     }
 
+    /**
+     * Change the number of runner threads, for instance after the config has been reloaded.
+     *
+     * When growing, new runners are started immediately. When shrinking, the removed runners finish their current task
+     * (still observed by the {@link Monitor}) and then exit, with any work queued on them moved to the remaining
+     * runners.
+     *
+     * This does nothing if the computer thread has not been started yet, as {@link #start()} will use the new count.
+     *
+     * @param threads The new number of threads.
+     */
+    public static void setThreadCount( int threads )
+    {
+        if( threads < 1 ) throw new IllegalArgumentException( "Must have at least one computer thread" );
+
+        synchronized( threadLock )
+        {
+            if( runners == null || runners.length == threads ) return;
+            resize( threads );
+        }
+    }
+
+    /**
+     * Resize the runner array. Must be called with {@link #threadLock} held.
+     *
+     * @param threads The new number of threads.
+     */
+    private static void resize( int threads )
+    {
+        TaskRunner[] oldRunners = runners;
+        int oldLength = oldRunners == null ? 0 : oldRunners.length;
+
+        TaskRunner[] newRunners = new TaskRunner[threads];
+        if( oldRunners != null ) System.arraycopy( oldRunners, 0, newRunners, 0, Math.min( oldLength, threads ) );
+
+        // Populate the array before publishing it, so submitters never observe an empty slot.
+        for( int i = oldLength; i < threads; i++ ) newRunners[i] = new TaskRunner( null );
+
+        // latency and minPeriod are scaled by 1 + floor(log2(threads)). We can afford to execute tasks for
+        // longer when executing on more than one thread.
+        long factor = 64 - Long.numberOfLeadingZeros( threads );
+        latency = DEFAULT_LATENCY * factor;
+        minPeriod = DEFAULT_MIN_PERIOD * factor;
+
+        runners = newRunners;
+
+        if( running )
+        {
+            for( int i = oldLength; i < threads; i++ )
+            {
+                newRunners[i].started = true;
+                runnerFactory.newThread( newRunners[i] ).start();
+            }
+        }
+
+        // Retire any runners which are no longer needed. We do this after publishing the new array, so anything
+        // which is submitted to the old runners is either drained here, or rejected and resubmitted.
+        for( int i = threads; i < oldLength; i++ )
+        {
+            TaskRunner runner = oldRunners[i];
+            List<ComputerExecutor> queued = runner.retire();
+            if( runner.owner != null && runner.owner.isAlive() ) retiredRunners.add( runner );
+
+            for( ComputerExecutor executor : queued ) submit( executor, null );
+        }
+    }
+
     /**
      * Attempt to stop the computer thread. This interrupts each runner, and clears the task queue.
      */
@@ -177,19 +267,10 @@ public static void stop()
 
                     runner.running = false;
                     if( runner.owner != null ) runner.owner.interrupt();
+                    runner.clear();
                 }
             }
         }
-
-        computerLock.lock();
-        try
-        {
-            computerQueue.clear();
-        }
-        finally
-        {
-            computerLock.unlock();
-        }
     }
 
     /**
@@ -202,73 +283,146 @@ public static void stop()
      */
     static void queue( @Nonnull ComputerExecutor executor )
     {
-        computerLock.lock();
-        try
+        if( executor.onComputerQueue ) throw new IllegalStateException( "Cannot queue already queued executor" );
+        executor.onComputerQueue = true;
+
+        // We're not currently on the queue, so update its current execution time to
+        // ensure its at least as high as the minimum.
+        long newRuntime = updateRuntimes( null );
+
+        if( executor.virtualRuntime == 0 )
+        {
+            // Slow down new computers a little bit.
+            newRuntime += scaledPeriod();
+        }
+        else
         {
-            if( executor.onComputerQueue ) throw new IllegalStateException( "Cannot queue already queued executor" );
-            executor.onComputerQueue = true;
+            // Give a small boost to computers which have slept a little.
+            newRuntime -= latency / 2;
+        }
 
-            updateRuntimes( null );
+        executor.virtualRuntime = Math.max( newRuntime, executor.virtualRuntime );
 
-            // We're not currently on the queue, so update its current execution time to
-            // ensure its at least as high as the minimum.
-            long newRuntime = minimumVirtualRuntime;
+        submit( executor, null );
+    }
+
+    /**
+     * Add an executor to one of the runner queues, and signal the workers.
+     *
+     * @param executor  The executor to add.
+     * @param preferred The runner we would like to execute this task. If {@code null}, we prefer an idle runner or
+     *                  otherwise the runner with the shortest queue.
+     */
+    private static void submit( @Nonnull ComputerExecutor executor, @Nullable TaskRunner preferred )
+    {
+        while( true )
+        {
+            TaskRunner[] currentRunners = runners;
 
-            if( executor.virtualRuntime == 0 )
+            TaskRunner target = preferred != null && preferred.running ? preferred : claimIdle( currentRunners );
+            boolean claimed = target != null && target != preferred;
+            if( target == null ) target = shortestQueue( currentRunners );
+
+            if( target.offer( executor ) )
             {
-                // Slow down new computers a little bit.
-                newRuntime += scaledPeriod();
+                // If nobody was idle when we looked, a runner may have gone idle since. Wake it up so it can steal this
+                // task. We don't need to do this when requeuing onto a runner which will immediately poll again.
+                if( !claimed && (target != preferred || target.size > 1) ) wakeIdle( currentRunners );
+                return;
             }
-            else
+
+            // The runner was replaced while we were queuing - just try again.
+            preferred = null;
+        }
+    }
+
+    /**
+     * Find an idle runner and mark it as no longer idle.
+     *
+     * @param currentRunners The current runners.
+     * @return The claimed runner, or {@code null} if all runners are busy.
+     */
+    @Nullable
+    private static TaskRunner claimIdle( TaskRunner[] currentRunners )
+    {
+        int length = currentRunners.length;
+        int offset = nextRunner.getAndIncrement();
+        for( int i = 0; i < length; i++ )
+        {
+            TaskRunner runner = currentRunners[Math.floorMod( offset + i, length )];
+            if( runner != null && runner.running && runner.idle.get() && runner.idle.compareAndSet( true, false ) )
             {
-                // Give a small boost to computers which have slept a little.
-                newRuntime -= latency / 2;
+                return runner;
             }
+        }
 
-            executor.virtualRuntime = Math.max( newRuntime, executor.virtualRuntime );
+        return null;
+    }
 
-            // Add to the queue, and signal the workers.
-            computerQueue.add( executor );
-            hasWork.signal();
+    /**
+     * Wake up an idle runner (if one exists), so that it can look for work on other runners' queues.
+     *
+     * @param currentRunners The current runners.
+     */
+    private static void wakeIdle( TaskRunner[] currentRunners )
+    {
+        TaskRunner runner = claimIdle( currentRunners );
+        if( runner != null ) runner.wake();
+    }
+
+    @Nonnull
+    private static TaskRunner shortestQueue( TaskRunner[] currentRunners )
+    {
+        TaskRunner best = null;
+        for( TaskRunner runner : currentRunners )
+        {
+            if( runner == null || !runner.running ) continue;
+            if( best == null || runner.size < best.size ) best = runner;
         }
-        finally
+
+        if( best != null ) return best;
+
+        // If every runner is dead (such as when we've been stopped), just pick the first one. It'll be restarted (and
+        // its queue transferred) when the computer thread starts again.
+        for( TaskRunner runner : currentRunners )
         {
-            computerLock.unlock();
+            if( runner != null ) return runner;
         }
-    }
 
+        throw new IllegalStateException( "No computer runners" );
+    }
 
     /**
-     * Update the {@link ComputerExecutor#virtualRuntime}s of all running tasks, and then update the
-     * {@link #minimumVirtualRuntime} based on the current tasks.
+     * Update the {@link ComputerExecutor#virtualRuntime} of the executor which has just finished executing, and then
+     * update the {@link #minimumVirtualRuntime} based on the current tasks.
      *
-     * This is called before queueing tasks, to ensure that {@link #minimumVirtualRuntime} is up-to-date.
+     * This is called before queueing tasks, to ensure that {@link #minimumVirtualRuntime} is up-to-date. Other
+     * currently executing tasks are only observed, not modified: their virtual runtime is updated by their own runner
+     * once they finish.
      *
      * @param current The machine which we updating runtimes from.
+     * @return The new minimum virtual runtime.
      */
-    private static void updateRuntimes( @Nullable ComputerExecutor current )
+    private static long updateRuntimes( @Nullable ComputerExecutor current )
     {
         long minRuntime = Long.MAX_VALUE;
 
-        // If we've a task on the queue, use that as our base time.
-        if( !computerQueue.isEmpty() ) minRuntime = computerQueue.first().virtualRuntime;
-
-        // Update all the currently executing tasks
         long now = System.nanoTime();
-        int tasks = 1 + computerQueue.size();
+        int tasks = 1 + queuedTasks.get();
         TaskRunner[] currentRunners = runners;
         if( currentRunners != null )
         {
             for( TaskRunner runner : currentRunners )
             {
                 if( runner == null ) continue;
-                ComputerExecutor executor = runner.currentExecutor.get();
-                if( executor == null ) continue;
 
-                // We do two things here: first we update the task's virtual runtime based on when we
-                // last checked, and then we check the minimum.
-                minRuntime = Math.min( minRuntime, executor.virtualRuntime += (now - executor.vRuntimeStart) / tasks );
-                executor.vRuntimeStart = now;
+                // If we've a task on the queue, use that as our base time.
+                minRuntime = Math.min( minRuntime, runner.headRuntime );
+
+                // And estimate the current runtime of any executing task.
+                ComputerExecutor executor = runner.currentExecutor.get();
+                if( executor == null || executor == current ) continue;
+                minRuntime = Math.min( minRuntime, executor.virtualRuntime + (now - executor.vRuntimeStart) / tasks );
             }
         }
 
@@ -278,9 +432,11 @@ private static void updateRuntimes( @Nullable ComputerExecutor current )
             minRuntime = Math.min( minRuntime, current.virtualRuntime += (now - current.vRuntimeStart) / tasks );
         }
 
-        if( minRuntime > minimumVirtualRuntime && minRuntime < Long.MAX_VALUE )
+        while( true )
         {
-            minimumVirtualRuntime = minRuntime;
+            long minimum = minimumVirtualRuntime.get();
+            if( minRuntime <= minimum || minRuntime == Long.MAX_VALUE ) return minimum;
+            if( minimumVirtualRuntime.compareAndSet( minimum, minRuntime ) ) return minRuntime;
         }
     }
 
@@ -303,22 +459,13 @@ private static void afterWork( TaskRunner runner, ComputerExecutor executor )
             );
         }
 
-        computerLock.lock();
-        try
-        {
-            updateRuntimes( executor );
+        updateRuntimes( executor );
 
-            // If we've no more tasks, just return.
-            if( !executor.afterWork() ) return;
+        // If we've no more tasks, just return.
+        if( !executor.afterWork() ) return;
 
-            // Otherwise, add to the queue, and signal any waiting workers.
-            computerQueue.add( executor );
-            hasWork.signal();
-        }
-        finally
-        {
-            computerLock.unlock();
-        }
+        // Otherwise, add back to this runner's queue, and signal any waiting workers.
+        submit( executor, runner );
     }
 
     /**
@@ -332,7 +479,7 @@ private static void afterWork( TaskRunner runner, ComputerExecutor executor )
     static long scaledPeriod()
     {
         // +1 to include the current task
-        int count = 1 + computerQueue.size();
+        int count = 1 + queuedTasks.get();
         return count < LATENCY_MAX_TASKS ? latency / count : minPeriod;
     }
 
@@ -343,7 +490,28 @@ static long scaledPeriod()
      */
     static boolean hasPendingWork()
     {
-        return !computerQueue.isEmpty();
+        return queuedTasks.get() > 0;
+    }
+
+    /**
+     * Get the number of computers waiting to be run.
+     *
+     * @return The number of queued computers.
+     */
+    public static int getQueuedTasks()
+    {
+        return queuedTasks.get();
+    }
+
+    /**
+     * Get the number of threads computers are currently run on.
+     *
+     * @return The number of computer threads, or 0 if the computer thread is not running.
+     */
+    public static int getThreadCount()
+    {
+        TaskRunner[] currentRunners = runners;
+        return currentRunners == null ? 0 : currentRunners.length;
     }
 
     /**
@@ -366,73 +534,121 @@ public void run()
                     TaskRunner[] currentRunners = ComputerThread.runners;
                     if( currentRunners != null )
                     {
-                        for( int i = 0; i < currentRunners.length; i++ )
+                        for( TaskRunner runner : currentRunners )
                         {
-                            TaskRunner runner = currentRunners[i];
-                            // If we've no runner, skip.
-                            if( runner == null || runner.owner == null || !runner.owner.isAlive() )
+                            // If the runner hasn't started yet, skip.
+                            if( runner.owner == null ) continue;
+                            if( !runner.owner.isAlive() )
                             {
                                 if( !running ) continue;
 
                                 // Mark the old runner as dead and start a new one.
-                                ComputerCraft.log.warn( "Previous runner ({}) has crashed, restarting!",
-                                    runner != null && runner.owner != null ? runner.owner.getName() : runner );
-                                if( runner != null ) runner.running = false;
-                                runnerFactory.newThread( runners[i] = new TaskRunner() ).start();
+                                ComputerCraft.log.warn( "Previous runner ({}) has crashed, restarting!", runner.owner.getName() );
+                                restartRunner( runner );
+                                continue;
                             }
 
-                            // If the runner has no work, skip
-                            ComputerExecutor executor = runner.currentExecutor.get();
-                            if( executor == null ) continue;
-
-                            // If we're still within normal execution times (TIMEOUT) or soft abort (ABORT_TIMEOUT),
-                            // then we can let the Lua machine do its work.
-                            long afterStart = executor.timeout.nanoCumulative();
-                            long afterHardAbort = afterStart - TIMEOUT - ABORT_TIMEOUT;
-                            if( afterHardAbort < 0 ) continue;
+                            if( checkRunner( runner ) ) restartRunner( runner );
+                        }
+                    }
 
-                            // Set the hard abort flag.
-                            executor.timeout.hardAbort();
-                            executor.abort();
+                    // Also observe any runners which have been removed, but are still finishing off their last task.
+                    List<TaskRunner> retired;
+                    synchronized( threadLock )
+                    {
+                        if( retiredRunners.isEmpty() ) continue;
 
-                            if( afterHardAbort >= ABORT_TIMEOUT * 2 )
-                            {
-                                // If we've hard aborted and interrupted, and we're still not dead, then mark the runner
-                                // as dead, finish off the task, and spawn a new runner.
-                                timeoutTask( executor, runner.owner, afterStart );
-                                runner.running = false;
-                                runner.owner.interrupt();
-
-                                ComputerExecutor thisExecutor = runner.currentExecutor.getAndSet( null );
-                                if( thisExecutor != null ) afterWork( runner, executor );
-
-                                synchronized( threadLock )
-                                {
-                                    if( running && runners.length > i && runners[i] == runner )
-                                    {
-                                        runnerFactory.newThread( currentRunners[i] = new TaskRunner() ).start();
-                                    }
-                                }
-                            }
-                            else if( afterHardAbort >= ABORT_TIMEOUT )
-                            {
-                                // If we've hard aborted but we're still not dead, dump the stack trace and interrupt
-                                // the task.
-                                timeoutTask( executor, runner.owner, afterStart );
-                                runner.owner.interrupt();
-                            }
+                        for( Iterator<TaskRunner> iterator = retiredRunners.iterator(); iterator.hasNext(); )
+                        {
+                            if( !iterator.next().owner.isAlive() ) iterator.remove();
                         }
+                        retired = new ArrayList<>( retiredRunners );
                     }
+
+                    for( TaskRunner runner : retired ) checkRunner( runner );
                 }
             }
             catch( InterruptedException ignored )
             {
             }
         }
+
+        /**
+         * Check if the runner's current task has exceeded its time limit, and abort it if so.
+         *
+         * @param runner The runner to check.
+         * @return If the runner has been killed, and so should be replaced.
+         */
+        private boolean checkRunner( TaskRunner runner )
+        {
+            // If the runner has no work, skip
+            ComputerExecutor executor = runner.currentExecutor.get();
+            if( executor == null ) return false;
+
+            // If we're still within normal execution times (TIMEOUT) or soft abort (ABORT_TIMEOUT),
+            // then we can let the Lua machine do its work.
+            long afterStart = executor.timeout.nanoCumulative();
+            long afterHardAbort = afterStart - TIMEOUT - ABORT_TIMEOUT;
+            if( afterHardAbort < 0 ) return false;
+
+            // Set the hard abort flag.
+            executor.timeout.hardAbort();
+            executor.abort();
+
+            if( afterHardAbort >= ABORT_TIMEOUT * 2 )
+            {
+                // If we've hard aborted and interrupted, and we're still not dead, then mark the runner
+                // as dead, finish off the task, and spawn a new runner.
+                timeoutTask( executor, runner.owner, afterStart );
+                runner.running = false;
+                runner.owner.interrupt();
+
+                ComputerExecutor thisExecutor = runner.currentExecutor.getAndSet( null );
+                if( thisExecutor != null ) afterWork( runner, executor );
+
+                return true;
+            }
+            else if( afterHardAbort >= ABORT_TIMEOUT )
+            {
+                // If we've hard aborted but we're still not dead, dump the stack trace and interrupt
+                // the task.
+                timeoutTask( executor, runner.owner, afterStart );
+                runner.owner.interrupt();
+            }
+
+            return false;
+        }
     }
 
     /**
-     * Pulls tasks from the {@link #computerQueue} queue and runs them.
+     * Replace a dead runner with a new one, moving any queued tasks over to it.
+     *
+     * The runner array may have been replaced by {@link #setThreadCount(int)} since the monitor read it, so we look for
+     * the runner in the current array. If it is no longer there, it has been retired, and so is not replaced.
+     *
+     * @param runner The runner to replace.
+     */
+    private static void restartRunner( TaskRunner runner )
+    {
+        synchronized( threadLock )
+        {
+            if( !running ) return;
+
+            TaskRunner[] currentRunners = runners;
+            for( int i = 0; i < currentRunners.length; i++ )
+            {
+                if( currentRunners[i] != runner ) continue;
+
+                TaskRunner newRunner = currentRunners[i] = new TaskRunner( runner );
+                newRunner.started = true;
+                runnerFactory.newThread( newRunner ).start();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Pulls tasks from its own queue (or those of other runners) and runs them.
      *
      * This is responsible for running the {@link ComputerExecutor#work()}, {@link ComputerExecutor#beforeWork()} and
      * {@link ComputerExecutor#afterWork()} functions. Everything else is either handled by the executor, timeout
@@ -443,8 +659,261 @@ private static final class TaskRunner implements Runnable
         Thread owner;
         volatile boolean running = true;
 
+        /**
+         * Whether a thread has been started for this runner. Guarded by {@link #threadLock}.
+         */
+        boolean started;
+
         final AtomicReference<ComputerExecutor> currentExecutor = new AtomicReference<>();
 
+        /**
+         * The lock guarding {@link #queue}, {@link #signalled} and {@link #retired}.
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition hasWork = lock.newCondition();
+        private final TreeSet<ComputerExecutor> queue = new TreeSet<>( EXECUTOR_ORDER );
+
+        /**
+         * Whether this runner has been woken up since it last waited for work.
+         */
+        private boolean signalled;
+
+        /**
+         * Whether this runner's queue has been handed over to its replacement.
+         */
+        private boolean retired;
+
+        /**
+         * The virtual runtime of the head of {@link #queue}, or {@link Long#MAX_VALUE} if empty. This allows other
+         * runners to inspect our queue without acquiring the lock.
+         */
+        volatile long headRuntime = Long.MAX_VALUE;
+
+        /**
+         * The size of {@link #queue}, readable without the lock.
+         */
+        volatile int size;
+
+        /**
+         * Whether this runner is currently waiting for work. Submitters may claim an idle runner by resetting this
+         * flag, after which they must either {@link #offer(ComputerExecutor)} a task or {@link #wake()} it.
+         */
+        final AtomicBoolean idle = new AtomicBoolean( false );
+
+        /**
+         * Construct a new runner.
+         *
+         * @param previous The runner this is replacing. Any tasks queued on it are transferred to this runner.
+         */
+        TaskRunner( @Nullable TaskRunner previous )
+        {
+            if( previous == null ) return;
+
+            previous.running = false;
+            previous.lock.lock();
+            try
+            {
+                previous.retired = true;
+                queue.addAll( previous.queue );
+                previous.queue.clear();
+                previous.updateHead();
+            }
+            finally
+            {
+                previous.lock.unlock();
+            }
+
+            updateHead();
+        }
+
+        /**
+         * Add an executor to this runner's queue.
+         *
+         * @param executor The executor to queue.
+         * @return Whether the executor was queued. This will be false if the runner has been replaced.
+         */
+        boolean offer( ComputerExecutor executor )
+        {
+            lock.lock();
+            try
+            {
+                if( retired ) return false;
+
+                queue.add( executor );
+                queuedTasks.incrementAndGet();
+                updateHead();
+
+                signalled = true;
+                hasWork.signal();
+                return true;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        @Nullable
+        ComputerExecutor poll()
+        {
+            lock.lock();
+            try
+            {
+                ComputerExecutor executor = queue.pollFirst();
+                if( executor == null ) return null;
+
+                queuedTasks.decrementAndGet();
+                updateHead();
+                return executor;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        void wake()
+        {
+            lock.lock();
+            try
+            {
+                signalled = true;
+                hasWork.signal();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        void clear()
+        {
+            lock.lock();
+            try
+            {
+                queuedTasks.addAndGet( -queue.size() );
+                queue.clear();
+                updateHead();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Stop this runner once it has finished its current task, removing all queued tasks.
+         *
+         * @return The tasks which were queued on this runner. These should be resubmitted.
+         */
+        List<ComputerExecutor> retire()
+        {
+            running = false;
+
+            List<ComputerExecutor> queued;
+            lock.lock();
+            try
+            {
+                retired = true;
+                queued = queue.isEmpty() ? Collections.emptyList() : new ArrayList<>( queue );
+                queuedTasks.addAndGet( -queue.size() );
+                queue.clear();
+                updateHead();
+
+                // Wake the runner if it's waiting for work, so it can exit.
+                signalled = true;
+                hasWork.signal();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            return queued;
+        }
+
+        private void updateHead()
+        {
+            headRuntime = queue.isEmpty() ? Long.MAX_VALUE : queue.first().virtualRuntime;
+            size = queue.size();
+        }
+
+        /**
+         * Find the next executor to run. We normally take the head of our own queue, but will steal from another
+         * runner if their head is further behind than ours by more than the minimum period.
+         *
+         * @return The executor to run, or {@code null} if there is no work available.
+         */
+        @Nullable
+        private ComputerExecutor findWork()
+        {
+            long ownHead = headRuntime;
+            long best = ownHead == Long.MAX_VALUE ? Long.MAX_VALUE : ownHead - minPeriod;
+
+            TaskRunner victim = null;
+            for( TaskRunner runner : runners )
+            {
+                if( runner == null || runner == this ) continue;
+
+                long head = runner.headRuntime;
+                if( head < best )
+                {
+                    best = head;
+                    victim = runner;
+                }
+            }
+
+            if( victim != null )
+            {
+                ComputerExecutor executor = victim.poll();
+                if( executor != null ) return executor;
+            }
+
+            return poll();
+        }
+
+        /**
+         * Wait for an executor to become available.
+         *
+         * @return The executor to run, or {@code null} if this runner has been stopped.
+         * @throws InterruptedException If we were interrupted while waiting.
+         */
+        @Nullable
+        private ComputerExecutor takeWork() throws InterruptedException
+        {
+            while( running )
+            {
+                ComputerExecutor executor = findWork();
+                if( executor != null ) return executor;
+
+                // Mark ourselves as idle and then check again. Anyone submitting work after this point will either see
+                // us as idle (and wake us), or will have queued their work before we check.
+                idle.set( true );
+                try
+                {
+                    executor = findWork();
+                    if( executor != null ) return executor;
+
+                    lock.lockInterruptibly();
+                    try
+                    {
+                        while( !signalled && queue.isEmpty() ) hasWork.await();
+                        signalled = false;
+                    }
+                    finally
+                    {
+                        lock.unlock();
+                    }
+                }
+                finally
+                {
+                    idle.set( false );
+                }
+            }
+
+            return null;
+        }
+
         @Override
         public void run()
         {
@@ -457,17 +926,7 @@ public void run()
                 ComputerExecutor executor;
                 try
                 {
-                    computerLock.lockInterruptibly();
-                    try
-                    {
-                        while( computerQueue.isEmpty() ) hasWork.await();
-                        executor = computerQueue.pollFirst();
-                        assert executor != null : "hasWork should ensure we never receive null work";
-                    }
-                    finally
-                    {
-                        computerLock.unlock();
-                    }
+                    executor = takeWork();
                 }
                 catch( InterruptedException ignored )
                 {
@@ -476,6 +935,9 @@ public void run()
                     continue;
                 }
 
+                // We've been stopped, so just exit.
+                if( executor == null ) continue;
+
                 // If we're trying to executing some task on this computer while someone else is doing work, something
                 // is seriously wrong.
                 while( !executor.executingThread.compareAndSet( null, owner ) )
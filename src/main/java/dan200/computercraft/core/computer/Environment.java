@@ -98,6 +98,13 @@ public FileSystem getFileSystem()
         return computer.getFileSystem();
     }
 
+    @Nonnull
+    @Override
+    public TimeoutState getTimeoutState()
+    {
+        return computer.getTimeoutState();
+    }
+
     @Override
     public void shutdown()
     {
@@ -365,6 +372,12 @@ public void addTrackingChange( @Nonnull TrackingField field, long change )
         Tracking.addValue( computer, field, change );
     }
 
+    @Override
+    public void addPeripheralTiming( @Nonnull String method, long time )
+    {
+        Tracking.addPeripheralTiming( computer, method, time );
+    }
+
     private static class Timer
     {
         long ticksLeft;
@@ -65,8 +65,20 @@
 
     /**
      * The remaining budgeted time for this tick. This may be negative, in the case that we've gone over budget.
+     *
+     * This is only written to by the server thread, but may be read by others (for instance, when exporting metrics).
+     */
+    private static volatile long budget;
+
+    /**
+     * The total time spent executing tasks, including external ones.
+     */
+    private static final AtomicLong totalTime = new AtomicLong();
+
+    /**
+     * The number of ticks where we could not execute any work, as we were still over budget.
      */
-    private static long budget;
+    private static final AtomicLong skippedTicks = new AtomicLong();
 
     /**
      * Whether we should be executing any work this tick.
@@ -113,6 +125,7 @@ static void cooling( @Nonnull MainThreadExecutor executor )
     static void consumeTime( long time )
     {
         budget -= time;
+        totalTime.addAndGet( time );
     }
 
     static boolean canExecute()
@@ -139,7 +152,11 @@ public static void executePendingTasks()
         // Cool down any warm computers.
         cooling.removeIf( MainThreadExecutor::tickCooling );
 
-        if( !canExecute ) return;
+        if( !canExecute )
+        {
+            skippedTicks.incrementAndGet();
+            return;
+        }
 
         // Run until we meet the deadline.
         long start = System.nanoTime();
@@ -178,10 +195,42 @@ public static void executePendingTasks()
         consumeTime( System.nanoTime() - start );
     }
 
+    /**
+     * Get the remaining budgeted time for the current tick.
+     *
+     * @return The remaining time, in nanoseconds. This will be negative if we've gone over budget.
+     */
+    public static long getBudget()
+    {
+        return budget;
+    }
+
+    /**
+     * Get the total time spent executing tasks on the server thread, including those run by external tasks.
+     *
+     * @return The total time, in nanoseconds.
+     */
+    public static long getTotalTime()
+    {
+        return totalTime.get();
+    }
+
+    /**
+     * Get the number of ticks where no tasks were run, as the previous ticks had gone over budget.
+     *
+     * @return The number of skipped ticks.
+     */
+    public static long getSkippedTicks()
+    {
+        return skippedTicks.get();
+    }
+
     public static void reset()
     {
         currentTick = 0;
         budget = 0;
+        totalTime.set( 0 );
+        skippedTicks.set( 0 );
         canExecute = true;
         minimumTime = 0;
         lastTaskId.set( 0 );
@@ -44,6 +44,12 @@
      */
     static final long ABORT_TIMEOUT = TimeUnit.MILLISECONDS.toNanos( 1500 );
 
+    /**
+     * How long a Java function may run before it should yield, in nanoseconds. This is well before {@link #TIMEOUT},
+     * so long-running operations can yield before the Lua code calling them is aborted.
+     */
+    static final long YIELD_TIMEOUT = TIMEOUT / 2;
+
     /**
      * The error message to display when we trigger an abort.
      */
@@ -108,6 +114,20 @@ public boolean isPaused()
         return paused;
     }
 
+    /**
+     * Whether a long-running Java function should stop and yield, if it is able to. This is true if we should pause
+     * ({@link #isPaused()}), or have run for long enough that we risk being aborted.
+     *
+     * This recomputes our current state, so is safe to call without calling {@link #refresh()} first.
+     *
+     * @return Whether the current function should yield.
+     */
+    public boolean shouldYield()
+    {
+        refresh();
+        return paused || nanoCumulative() - YIELD_TIMEOUT >= 0;
+    }
+
     /**
      * If the machine should be passively aborted.
      *
@@ -0,0 +1,232 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.filesystem;
+
+import dan200.computercraft.core.apis.handles.ByteBufferChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * An in-progress copy of a file or directory, started with {@link FileSystem#startCopy(String, String)} or
+ * {@link FileSystem#startMove(String, String)}.
+ *
+ * Copies are performed in chunks, checking whether we should pause after each one. This allows large copies to be
+ * spread over several calls to {@link #run(BooleanSupplier)}, yielding to other computers in between.
+ *
+ * No files are kept open between calls: if we pause part way through a file, we re-open it and continue from where
+ * we left off. This means an interrupted copy never leaks file handles, and unmounting a drive mid-copy behaves the
+ * same as it would for a synchronous one.
+ */
+public final class FileCopy
+{
+    /**
+     * The maximum number of bytes to copy before checking whether we should pause.
+     */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final FileSystem fileSystem;
+    private final MountWrapper sourceMount;
+    private final MountWrapper destinationMount;
+
+    /**
+     * The file or directory to delete once everything has been copied, when this is a move.
+     */
+    private String deleteSource;
+
+    private final Deque<Entry> pending = new ArrayDeque<>();
+
+    /**
+     * The file we are currently copying, and how much of it has been copied so far.
+     */
+    private Entry current;
+    private long position;
+
+    private ByteBuffer buffer;
+
+    FileCopy( FileSystem fileSystem, String sourcePath, MountWrapper sourceMount, String destinationPath, MountWrapper destinationMount, boolean move )
+    {
+        this.fileSystem = fileSystem;
+        this.sourceMount = sourceMount;
+        this.destinationMount = destinationMount;
+        deleteSource = move ? sourcePath : null;
+        pending.push( new Entry( sourcePath, destinationPath, 0 ) );
+    }
+
+    /**
+     * Continue copying files.
+     *
+     * @param shouldPause Whether we should stop copying for now. This is checked after each chunk is copied, so some
+     *                    progress is always made.
+     * @return Whether the copy has finished.
+     * @throws FileSystemException If the copy failed. The copy should not be resumed after this.
+     */
+    public boolean run( BooleanSupplier shouldPause ) throws FileSystemException
+    {
+        while( current != null || !pending.isEmpty() )
+        {
+            if( current != null )
+            {
+                if( !copyFile( current, shouldPause ) ) return false;
+                current = null;
+            }
+            else
+            {
+                visit( pending.pop() );
+            }
+
+            if( shouldPause.getAsBoolean() ) return false;
+        }
+
+        if( deleteSource != null )
+        {
+            String source = deleteSource;
+            deleteSource = null;
+            sourceMount.delete( source );
+        }
+
+        return true;
+    }
+
+    private void visit( Entry entry ) throws FileSystemException
+    {
+        checkMounted( entry );
+
+        if( !sourceMount.exists( entry.source ) ) return;
+        if( entry.depth >= FileSystem.MAX_COPY_DEPTH ) throw new FileSystemException( "Too many directories to copy" );
+
+        if( sourceMount.isDirectory( entry.source ) )
+        {
+            // Make the new directory, and then queue its contents to be copied. We push them in reverse, so files
+            // are still copied in the order they are listed.
+            destinationMount.makeDirectory( entry.destination );
+
+            List<String> children = new ArrayList<>();
+            sourceMount.list( entry.source, children );
+            for( int i = children.size() - 1; i >= 0; i-- )
+            {
+                String child = children.get( i );
+                pending.push( new Entry(
+                    fileSystem.combine( entry.source, child ),
+                    fileSystem.combine( entry.destination, child ),
+                    entry.depth + 1
+                ) );
+            }
+        }
+        else
+        {
+            current = entry;
+            position = 0;
+        }
+    }
+
+    private boolean copyFile( Entry entry, BooleanSupplier shouldPause ) throws FileSystemException
+    {
+        checkMounted( entry );
+
+        try( ReadableByteChannel source = sourceMount.openForRead( entry.source );
+             WritableByteChannel destination = position == 0
+                 ? destinationMount.openForWrite( entry.destination )
+                 : destinationMount.openForAppend( entry.destination ) )
+        {
+            if( position > 0 ) skip( source, position );
+
+            while( true )
+            {
+                long copied = copyChunk( source, destination );
+                if( copied <= 0 ) return true;
+
+                position += copied;
+                if( shouldPause.getAsBoolean() ) return false;
+            }
+        }
+        catch( AccessDeniedException e )
+        {
+            throw new FileSystemException( "Access denied" );
+        }
+        catch( IOException e )
+        {
+            throw new FileSystemException( e.getMessage() );
+        }
+    }
+
+    private long copyChunk( ReadableByteChannel source, WritableByteChannel destination ) throws IOException
+    {
+        // If both sides are on disk, let the OS copy the file for us.
+        long transferred = FileMount.transfer( source, position, CHUNK_SIZE, destination );
+        if( transferred >= 0 ) return transferred;
+
+        // Otherwise copy through a buffer. Channels backed by a buffer already can be written directly.
+        ByteBuffer chunk;
+        if( source instanceof ByteBufferChannel )
+        {
+            chunk = ((ByteBufferChannel) source).read( CHUNK_SIZE );
+            if( chunk == null ) return -1;
+        }
+        else
+        {
+            if( buffer == null ) buffer = ByteBuffer.allocate( CHUNK_SIZE );
+            chunk = buffer;
+
+            chunk.clear();
+            if( source.read( chunk ) < 0 ) return -1;
+            chunk.flip();
+        }
+
+        int length = chunk.remaining();
+        while( chunk.hasRemaining() ) destination.write( chunk );
+        return length;
+    }
+
+    private void skip( ReadableByteChannel source, long count ) throws IOException
+    {
+        if( source instanceof SeekableByteChannel )
+        {
+            ((SeekableByteChannel) source).position( count );
+            return;
+        }
+
+        if( buffer == null ) buffer = ByteBuffer.allocate( CHUNK_SIZE );
+        while( count > 0 )
+        {
+            buffer.clear();
+            if( count < buffer.capacity() ) buffer.limit( (int) count );
+
+            int read = source.read( buffer );
+            if( read < 0 ) return;
+            count -= read;
+        }
+    }
+
+    private void checkMounted( Entry entry ) throws FileSystemException
+    {
+        if( sourceMount.isUnmounted() ) throw new FileSystemException( "/" + entry.source + ": Invalid Path" );
+        if( destinationMount.isUnmounted() ) throw new FileSystemException( "/" + entry.destination + ": Invalid Path" );
+    }
+
+    private static final class Entry
+    {
+        final String source;
+        final String destination;
+        final int depth;
+
+        Entry( String source, String destination, int depth )
+        {
+            this.source = source;
+            this.destination = destination;
+            this.depth = depth;
+        }
+    }
+}
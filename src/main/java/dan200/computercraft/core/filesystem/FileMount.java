@@ -9,6 +9,7 @@
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.api.filesystem.FileOperationException;
 import dan200.computercraft.api.filesystem.IWritableMount;
+import dan200.computercraft.core.apis.handles.ByteBufferChannel;
 
 import javax.annotation.Nonnull;
 import java.io.File;
@@ -21,10 +22,27 @@
 import java.util.List;
 import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class FileMount implements IWritableMount
 {
     private static final int MINIMUM_FILE_SIZE = 500;
+
+    /**
+     * Files between these sizes are read into memory in one go when opened, rather than in small chunks as they are
+     * read. Larger files are still read from disk, so opening one does not allocate a buffer of the whole file.
+     */
+    private static final long MIN_BUFFERED_SIZE = 1 << 20;
+    private static final long MAX_BUFFERED_SIZE = 16 << 20;
+
+    /**
+     * The maximum number of bytes held in memory by open buffered files, across all mounts. Once this is reached,
+     * further files are read from disk as normal until some buffered files are closed.
+     */
+    private static final long MAX_TOTAL_BUFFERED = 64 << 20;
+
+    private static final AtomicLong bufferedBytes = new AtomicLong();
+
     private static final Set<OpenOption> READ_OPTIONS = Collections.singleton( StandardOpenOption.READ );
     private static final Set<OpenOption> WRITE_OPTIONS = Sets.newHashSet( StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING );
     private static final Set<OpenOption> APPEND_OPTIONS = Sets.newHashSet( StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND );
@@ -48,6 +66,25 @@ public int write( @Nonnull ByteBuffer b ) throws IOException
             return inner.write( b );
         }
 
+        /**
+         * Copy part of a file into this channel, allowing the OS to copy it directly rather than going through our
+         * buffers.
+         *
+         * @param source   The file to copy from.
+         * @param position The position in the source file to start copying from.
+         * @param count    The maximum number of bytes to copy.
+         * @return The number of bytes copied.
+         * @throws IOException If the copy failed, or we ran out of space.
+         */
+        long transferFrom( FileChannel source, long position, long count ) throws IOException
+        {
+            count = Math.min( count, source.size() - position );
+            if( count <= 0 ) return 0;
+
+            count( count );
+            return source.transferTo( position, count, inner );
+        }
+
         void count( long n ) throws IOException
         {
             ignoredBytesLeft -= n;
@@ -56,9 +93,7 @@ void count( long n ) throws IOException
                 long newBytes = -ignoredBytesLeft;
                 ignoredBytesLeft = 0;
 
-                long bytesLeft = capacity - usedSpace;
-                if( newBytes > bytesLeft ) throw new IOException( "Out of space" );
-                usedSpace += newBytes;
+                if( !usedSpace.tryAdd( newBytes, capacity ) ) throw new IOException( "Out of space" );
             }
         }
 
@@ -135,13 +170,30 @@ public long size() throws IOException
 
     private final File rootPath;
     private final long capacity;
-    private long usedSpace;
+    private final SpaceLedger usedSpace;
 
     public FileMount( File rootPath, long capacity )
     {
         this.rootPath = rootPath;
         this.capacity = capacity + MINIMUM_FILE_SIZE;
-        usedSpace = created() ? measureUsedSpace( this.rootPath ) : MINIMUM_FILE_SIZE;
+        usedSpace = SpaceLedger.get( rootPath, MINIMUM_FILE_SIZE, () -> measureUsedSpace( rootPath ) );
+    }
+
+    /**
+     * Save this mount's used space soon, rather than waiting for the usual delay. This should be called when the mount
+     * is removed from a computer.
+     */
+    void flush()
+    {
+        usedSpace.flush();
+    }
+
+    /**
+     * Save the used space of every mount, waiting for it to be written. This should be called when the server stops.
+     */
+    public static void flushAll()
+    {
+        SpaceLedger.flushAll();
     }
 
     // IMount implementation
@@ -206,12 +258,101 @@ public ReadableByteChannel openForRead( @Nonnull String path ) throws IOExceptio
         if( created() )
         {
             File file = getRealPath( path );
-            if( file.exists() && !file.isDirectory() ) return FileChannel.open( file.toPath(), READ_OPTIONS );
+            if( file.exists() && !file.isDirectory() ) return openForRead( file );
         }
 
         throw new FileOperationException( path, "No such file" );
     }
 
+    private static ReadableByteChannel openForRead( File file ) throws IOException
+    {
+        FileChannel channel = FileChannel.open( file.toPath(), READ_OPTIONS );
+
+        long size = channel.size();
+        if( size < MIN_BUFFERED_SIZE || size > MAX_BUFFERED_SIZE || !reserveBuffer( size ) ) return channel;
+
+        // We read the whole file and close it immediately, rather than memory-mapping it. Mappings are only released
+        // when garbage collected, which stops the file being deleted on Windows, and truncating a mapped file makes
+        // later reads fault.
+        ByteBuffer buffer;
+        try
+        {
+            buffer = ByteBuffer.allocate( (int) size );
+            while( buffer.hasRemaining() && channel.read( buffer ) >= 0 ) ;
+        }
+        catch( IOException | RuntimeException | Error e )
+        {
+            bufferedBytes.addAndGet( -size );
+            throw e;
+        }
+        finally
+        {
+            channel.close();
+        }
+
+        buffer.flip();
+        return new BufferedChannel( buffer, size );
+    }
+
+    private static boolean reserveBuffer( long size )
+    {
+        while( true )
+        {
+            long current = bufferedBytes.get();
+            if( current + size > MAX_TOTAL_BUFFERED ) return false;
+            if( bufferedBytes.compareAndSet( current, current + size ) ) return true;
+        }
+    }
+
+    /**
+     * A file which has been read into memory, returning its space to {@link #bufferedBytes} once closed.
+     */
+    private static final class BufferedChannel extends ByteBufferChannel
+    {
+        private final long reserved;
+        private boolean released = false;
+
+        BufferedChannel( ByteBuffer backing, long reserved )
+        {
+            super( backing );
+            this.reserved = reserved;
+        }
+
+        @Override
+        public synchronized void close() throws IOException
+        {
+            super.close();
+            if( released ) return;
+            released = true;
+            bufferedBytes.addAndGet( -reserved );
+        }
+    }
+
+    /**
+     * Copy part of a file opened by {@link #openForRead(String)} into another channel, using
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)} rather than copying through the heap. When the
+     * destination was opened by another {@link FileMount}, this can be done entirely by the OS.
+     *
+     * @param source      The channel to copy from.
+     * @param position    The position in the source file to copy from.
+     * @param count       The maximum number of bytes to copy.
+     * @param destination The channel to copy to.
+     * @return The number of bytes copied, or {@code -1} if the source is not from a {@link FileMount}.
+     * @throws IOException If the copy failed.
+     */
+    static long transfer( ReadableByteChannel source, long position, long count, WritableByteChannel destination ) throws IOException
+    {
+        if( !(source instanceof FileChannel) ) return -1;
+        FileChannel file = (FileChannel) source;
+
+        if( destination instanceof WritableCountingChannel )
+        {
+            return ((WritableCountingChannel) destination).transferFrom( file, position, count );
+        }
+
+        return file.transferTo( position, count, destination );
+    }
+
     @Nonnull
     @Override
     public BasicFileAttributes getAttributes( @Nonnull String path ) throws IOException
@@ -253,7 +394,7 @@ public void makeDirectory( @Nonnull String path ) throws IOException
 
         if( file.mkdirs() )
         {
-            usedSpace += dirsToCreate * MINIMUM_FILE_SIZE;
+            usedSpace.add( dirsToCreate * MINIMUM_FILE_SIZE );
         }
         else
         {
@@ -290,7 +431,7 @@ private void deleteRecursively( File file ) throws IOException
         boolean success = file.delete();
         if( success )
         {
-            usedSpace -= Math.max( MINIMUM_FILE_SIZE, fileSize );
+            usedSpace.add( -Math.max( MINIMUM_FILE_SIZE, fileSize ) );
         }
         else
         {
@@ -308,13 +449,12 @@ public WritableByteChannel openForWrite( @Nonnull String path ) throws IOExcepti
 
         if( file.exists() )
         {
-            usedSpace -= Math.max( file.length(), MINIMUM_FILE_SIZE );
+            usedSpace.add( MINIMUM_FILE_SIZE - Math.max( file.length(), MINIMUM_FILE_SIZE ) );
         }
-        else if( getRemainingSpace() < MINIMUM_FILE_SIZE )
+        else if( !usedSpace.tryAdd( MINIMUM_FILE_SIZE, capacity ) )
         {
             throw new FileOperationException( path, "Out of space" );
         }
-        usedSpace += MINIMUM_FILE_SIZE;
 
         return new SeekableCountingChannel( Files.newByteChannel( file.toPath(), WRITE_OPTIONS ), MINIMUM_FILE_SIZE );
     }
@@ -342,7 +482,7 @@ public WritableByteChannel openForAppend( @Nonnull String path ) throws IOExcept
     @Override
     public long getRemainingSpace()
     {
-        return Math.max( capacity - usedSpace, 0 );
+        return Math.max( capacity - usedSpace.get(), 0 );
     }
 
     @Nonnull
@@ -400,6 +540,12 @@ public FileVisitResult visitFileFailed( Path file, IOException exc )
         }
     }
 
+    /**
+     * Measure the space used by a directory.
+     *
+     * @param file The directory to measure.
+     * @return The space used, or a negative value if it could not be measured.
+     */
     private static long measureUsedSpace( File file )
     {
         if( !file.exists() ) return 0;
@@ -413,7 +559,7 @@ private static long measureUsedSpace( File file )
         catch( IOException e )
         {
             ComputerCraft.log.error( "Error computing file size for {}", file, e );
-            return 0;
+            return -1;
         }
     }
 }
@@ -5,7 +5,6 @@
  */
 package dan200.computercraft.core.filesystem;
 
-import com.google.common.io.ByteStreams;
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.api.filesystem.IFileSystem;
 import dan200.computercraft.api.filesystem.IMount;
@@ -21,12 +20,24 @@
 import java.nio.channels.Channel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
-import java.nio.file.AccessDeniedException;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
+/**
+ * A computer's file system, made up of several {@link IMount}s.
+ *
+ * The mount table is guarded by a read/write lock, which is only held while looking up or changing mounts. File
+ * operations themselves are not synchronised, so a slow operation (such as copying a large directory) does not block
+ * other operations on this file system. Files are still opened while holding the read lock, so that they are always
+ * closed by {@link #unmount(String)}.
+ *
+ * This object's monitor is not used internally. Callers may synchronise on it to make checking and mounting a location
+ * atomic.
+ */
 public class FileSystem
 {
     /**
@@ -35,10 +46,11 @@
      * This is a pretty arbitrary value, though hopefully it is large enough that it'll never be normally hit. This
      * exists to prevent it overflowing if it ever gets into an infinite loop.
      */
-    private static final int MAX_COPY_DEPTH = 128;
+    static final int MAX_COPY_DEPTH = 128;
 
     private final FileSystemWrapperMount wrapper = new FileSystemWrapperMount( this );
-    private final Map<String, MountWrapper> mounts = new HashMap<>();
+    private final ReadWriteLock mountLock = new ReentrantReadWriteLock();
+    private final MountTable mounts = new MountTable();
 
     private final HashMap<WeakReference<FileSystemWrapper<?>>, ChannelWrapper<?>> openFiles = new HashMap<>();
     private final ReferenceQueue<FileSystemWrapper<?>> openFileQueue = new ReferenceQueue<>();
@@ -62,9 +74,20 @@ public void close()
             openFiles.clear();
             while( openFileQueue.poll() != null ) ;
         }
+
+        mountLock.readLock().lock();
+        try
+        {
+            MountWrapper root = mounts.getMount( "" );
+            if( root != null ) root.flush();
+        }
+        finally
+        {
+            mountLock.readLock().unlock();
+        }
     }
 
-    public synchronized void mount( String label, String location, IMount mount ) throws FileSystemException
+    public void mount( String label, String location, IMount mount ) throws FileSystemException
     {
         if( mount == null ) throw new NullPointerException();
         location = sanitizePath( location );
@@ -72,7 +95,7 @@ public synchronized void mount( String label, String location, IMount mount ) th
         mount( new MountWrapper( label, location, mount ) );
     }
 
-    public synchronized void mountWritable( String label, String location, IWritableMount mount ) throws FileSystemException
+    public void mountWritable( String label, String location, IWritableMount mount ) throws FileSystemException
     {
         if( mount == null )
         {
@@ -86,38 +109,58 @@ public synchronized void mountWritable( String label, String location, IWritable
         mount( new MountWrapper( label, location, mount ) );
     }
 
-    private synchronized void mount( MountWrapper wrapper )
+    private void mount( MountWrapper wrapper )
     {
-        String location = wrapper.getLocation();
-        mounts.remove( location );
-        mounts.put( location, wrapper );
+        mountLock.writeLock().lock();
+        try
+        {
+            MountWrapper existing = mounts.remove( wrapper.getLocation() );
+            if( existing != null ) existing.markUnmounted();
+            mounts.add( wrapper );
+        }
+        finally
+        {
+            mountLock.writeLock().unlock();
+        }
     }
 
-    public synchronized void unmount( String path )
+    public void unmount( String path )
     {
-        MountWrapper mount = mounts.remove( sanitizePath( path ) );
-        if( mount == null ) return;
+        mountLock.writeLock().lock();
+        try
+        {
+            MountWrapper mount = mounts.remove( sanitizePath( path ) );
+            if( mount == null ) return;
 
-        cleanup();
+            // Abort any in-progress copies to or from this mount.
+            mount.markUnmounted();
+            mount.flush();
 
-        // Close any files which belong to this mount - don't want people writing to a disk after it's been ejected!
-        // There's no point storing a Mount -> Wrapper[] map, as openFiles is small and unmount isn't called very
-        // often.
-        synchronized( openFiles )
-        {
-            for( Iterator<WeakReference<FileSystemWrapper<?>>> iterator = openFiles.keySet().iterator(); iterator.hasNext(); )
-            {
-                WeakReference<FileSystemWrapper<?>> reference = iterator.next();
-                FileSystemWrapper<?> wrapper = reference.get();
-                if( wrapper == null ) continue;
+            cleanup();
 
-                if( wrapper.mount == mount )
+            // Close any files which belong to this mount - don't want people writing to a disk after it's been ejected!
+            // There's no point storing a Mount -> Wrapper[] map, as openFiles is small and unmount isn't called very
+            // often.
+            synchronized( openFiles )
+            {
+                for( Iterator<WeakReference<FileSystemWrapper<?>>> iterator = openFiles.keySet().iterator(); iterator.hasNext(); )
                 {
-                    wrapper.closeExternally();
-                    iterator.remove();
+                    WeakReference<FileSystemWrapper<?>> reference = iterator.next();
+                    FileSystemWrapper<?> wrapper = reference.get();
+                    if( wrapper == null ) continue;
+
+                    if( wrapper.mount == mount )
+                    {
+                        wrapper.closeExternally();
+                        iterator.remove();
+                    }
                 }
             }
         }
+        finally
+        {
+            mountLock.writeLock().unlock();
+        }
     }
 
     public String combine( String path, String childPath )
@@ -167,17 +210,17 @@ public static String getName( String path )
         return lastSlash >= 0 ? path.substring( lastSlash + 1 ) : path;
     }
 
-    public synchronized long getSize( String path ) throws FileSystemException
+    public long getSize( String path ) throws FileSystemException
     {
         return getMount( sanitizePath( path ) ).getSize( sanitizePath( path ) );
     }
 
-    public synchronized BasicFileAttributes getAttributes( String path ) throws FileSystemException
+    public BasicFileAttributes getAttributes( String path ) throws FileSystemException
     {
         return getMount( sanitizePath( path ) ).getAttributes( sanitizePath( path ) );
     }
 
-    public synchronized String[] list( String path ) throws FileSystemException
+    public String[] list( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
@@ -187,12 +230,14 @@ public synchronized String[] list( String path ) throws FileSystemException
         mount.list( path, list );
 
         // Add any mounts that are mounted at this location
-        for( MountWrapper otherMount : mounts.values() )
+        mountLock.readLock().lock();
+        try
         {
-            if( getDirectory( otherMount.getLocation() ).equals( path ) )
-            {
-                list.add( getName( otherMount.getLocation() ) );
-            }
+            mounts.listChildren( path, list );
+        }
+        finally
+        {
+            mountLock.readLock().unlock();
         }
 
         // Return list
@@ -202,24 +247,127 @@ public synchronized String[] list( String path ) throws FileSystemException
         return array;
     }
 
-    private void findIn( String dir, List<String> matches, Pattern wildPattern ) throws FileSystemException
+    /**
+     * Find all files matching a glob pattern, starting from a given directory.
+     *
+     * Rather than visiting every file under the directory, we match one path segment at a time, and only descend into
+     * directories which match the current segment. Segments without a wildcard are looked up directly.
+     *
+     * @param dir      The directory to search in.
+     * @param segments The segments of the glob pattern.
+     * @param index    The current segment to match.
+     * @param matches  The list to add matching paths to.
+     * @throws FileSystemException If the directory could not be listed.
+     */
+    private void findIn( String dir, String[] segments, int index, List<String> matches ) throws FileSystemException
+    {
+        String segment = segments[index];
+        boolean last = index == segments.length - 1;
+
+        if( segment.indexOf( '*' ) == -1 )
+        {
+            String path = dir.isEmpty() ? segment : dir + "/" + segment;
+            if( last )
+            {
+                if( exists( path ) ) matches.add( path );
+            }
+            else if( isDir( path ) )
+            {
+                findIn( path, segments, index + 1, matches );
+            }
+            return;
+        }
+
+        // Resolve this directory's mount once, rather than for every entry. Only entries which are themselves mount
+        // points belong to a different mount.
+        MountWrapper mount = getMount( dir );
+        List<String> entries = new ArrayList<>();
+        mount.list( dir, entries );
+
+        List<String> children = new ArrayList<>( 0 );
+        mountLock.readLock().lock();
+        try
+        {
+            mounts.listChildren( dir, children );
+        }
+        finally
+        {
+            mountLock.readLock().unlock();
+        }
+
+        // Entries hidden by a mount are only visited once, through that mount.
+        if( !children.isEmpty() ) entries.removeIf( entry -> isMountPoint( children, entry ) );
+        entries.addAll( children );
+        Collections.sort( entries );
+
+        for( String entry : entries )
+        {
+            if( !matchesGlob( segment, entry ) ) continue;
+
+            String path = dir.isEmpty() ? entry : dir + "/" + entry;
+            if( last )
+            {
+                matches.add( path );
+            }
+            else if( isMountPoint( children, entry ) ? isDir( path ) : mount.isDirectory( path ) )
+            {
+                findIn( path, segments, index + 1, matches );
+            }
+        }
+    }
+
+    private static boolean isMountPoint( List<String> children, String name )
+    {
+        for( String child : children )
+        {
+            // Mounts are looked up case-insensitively, so an entry may be hidden by a mount with a different case.
+            if( child.equalsIgnoreCase( name ) ) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Determine whether a file name matches a single segment of a glob pattern, where {@code *} matches any number of
+     * characters.
+     *
+     * @param pattern The pattern to match against.
+     * @param name    The file name.
+     * @return Whether the name matches this pattern.
+     */
+    static boolean matchesGlob( String pattern, String name )
     {
-        String[] list = list( dir );
-        for( String entry : list )
+        int patternIdx = 0, nameIdx = 0;
+        int starIdx = -1, starNameIdx = 0;
+        while( nameIdx < name.length() )
         {
-            String entryPath = dir.isEmpty() ? entry : dir + "/" + entry;
-            if( wildPattern.matcher( entryPath ).matches() )
+            if( patternIdx < pattern.length() && pattern.charAt( patternIdx ) == '*' )
+            {
+                // Initially match the star against nothing, remembering where it was so we can backtrack.
+                starIdx = patternIdx++;
+                starNameIdx = nameIdx;
+            }
+            else if( patternIdx < pattern.length() && pattern.charAt( patternIdx ) == name.charAt( nameIdx ) )
             {
-                matches.add( entryPath );
+                patternIdx++;
+                nameIdx++;
             }
-            if( isDir( entryPath ) )
+            else if( starIdx >= 0 )
             {
-                findIn( entryPath, matches, wildPattern );
+                // Otherwise have the last star consume one more character.
+                patternIdx = starIdx + 1;
+                nameIdx = ++starNameIdx;
+            }
+            else
+            {
+                return false;
             }
         }
+
+        while( patternIdx < pattern.length() && pattern.charAt( patternIdx ) == '*' ) patternIdx++;
+        return patternIdx == pattern.length();
     }
 
-    public synchronized String[] find( String wildPath ) throws FileSystemException
+    public String[] find( String wildPath ) throws FileSystemException
     {
         // Match all the files on the system
         wildPath = sanitizePath( wildPath, true );
@@ -239,9 +387,9 @@ public synchronized String[] find( String wildPath ) throws FileSystemException
         if( !isDir( startDir ) ) return new String[0];
 
         // Scan as normal, starting from this directory
-        Pattern wildPattern = Pattern.compile( "^\\Q" + wildPath.replaceAll( "\\*", "\\\\E[^\\\\/]*\\\\Q" ) + "\\E$" );
+        String[] segments = wildPath.substring( prevDir + 1 ).split( "/" );
         List<String> matches = new ArrayList<>();
-        findIn( startDir, matches, wildPattern );
+        findIn( startDir, segments, 0, matches );
 
         // Return matches
         String[] array = new String[matches.size()];
@@ -249,49 +397,63 @@ public synchronized String[] find( String wildPath ) throws FileSystemException
         return array;
     }
 
-    public synchronized boolean exists( String path ) throws FileSystemException
+    public boolean exists( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.exists( path );
     }
 
-    public synchronized boolean isDir( String path ) throws FileSystemException
+    public boolean isDir( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.isDirectory( path );
     }
 
-    public synchronized boolean isReadOnly( String path ) throws FileSystemException
+    public boolean isReadOnly( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.isReadOnly( path );
     }
 
-    public synchronized String getMountLabel( String path ) throws FileSystemException
+    public String getMountLabel( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.getLabel();
     }
 
-    public synchronized void makeDir( String path ) throws FileSystemException
+    public void makeDir( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         mount.makeDirectory( path );
     }
 
-    public synchronized void delete( String path ) throws FileSystemException
+    public void delete( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         mount.delete( path );
     }
 
-    public synchronized void move( String sourcePath, String destPath ) throws FileSystemException
+    public void move( String sourcePath, String destPath ) throws FileSystemException
+    {
+        startMove( sourcePath, destPath ).run( () -> false );
+    }
+
+    /**
+     * Start moving a file or directory. This copies the file or directory, and then deletes the original once the copy
+     * has finished.
+     *
+     * @param sourcePath The file or directory to move.
+     * @param destPath   The path to move to.
+     * @return The pending move, which should be {@linkplain FileCopy#run run} until it finishes.
+     * @throws FileSystemException If the move could not be started.
+     */
+    public FileCopy startMove( String sourcePath, String destPath ) throws FileSystemException
     {
         sourcePath = sanitizePath( sourcePath );
         destPath = sanitizePath( destPath );
@@ -311,11 +473,23 @@ public synchronized void move( String sourcePath, String destPath ) throws FileS
         {
             throw new FileSystemException( "Can't move a directory inside itself" );
         }
-        copy( sourcePath, destPath );
-        delete( sourcePath );
+        return new FileCopy( this, sourcePath, getMount( sourcePath ), destPath, getMount( destPath ), true );
+    }
+
+    public void copy( String sourcePath, String destPath ) throws FileSystemException
+    {
+        startCopy( sourcePath, destPath ).run( () -> false );
     }
 
-    public synchronized void copy( String sourcePath, String destPath ) throws FileSystemException
+    /**
+     * Start copying a file or directory, without copying any files yet.
+     *
+     * @param sourcePath The file or directory to copy.
+     * @param destPath   The path to copy to.
+     * @return The pending copy, which should be {@linkplain FileCopy#run run} until it finishes.
+     * @throws FileSystemException If the copy could not be started.
+     */
+    public FileCopy startCopy( String sourcePath, String destPath ) throws FileSystemException
     {
         sourcePath = sanitizePath( sourcePath );
         destPath = sanitizePath( destPath );
@@ -335,50 +509,7 @@ public synchronized void copy( String sourcePath, String destPath ) throws FileS
         {
             throw new FileSystemException( "/" + sourcePath + ": Can't copy a directory inside itself" );
         }
-        copyRecursive( sourcePath, getMount( sourcePath ), destPath, getMount( destPath ), 0 );
-    }
-
-    private synchronized void copyRecursive( String sourcePath, MountWrapper sourceMount, String destinationPath, MountWrapper destinationMount, int depth ) throws FileSystemException
-    {
-        if( !sourceMount.exists( sourcePath ) ) return;
-        if( depth >= MAX_COPY_DEPTH ) throw new FileSystemException( "Too many directories to copy" );
-
-        if( sourceMount.isDirectory( sourcePath ) )
-        {
-            // Copy a directory:
-            // Make the new directory
-            destinationMount.makeDirectory( destinationPath );
-
-            // Copy the source contents into it
-            List<String> sourceChildren = new ArrayList<>();
-            sourceMount.list( sourcePath, sourceChildren );
-            for( String child : sourceChildren )
-            {
-                copyRecursive(
-                    combine( sourcePath, child ), sourceMount,
-                    combine( destinationPath, child ), destinationMount,
-                    depth + 1
-                );
-            }
-        }
-        else
-        {
-            // Copy a file:
-            try( ReadableByteChannel source = sourceMount.openForRead( sourcePath );
-                 WritableByteChannel destination = destinationMount.openForWrite( destinationPath ) )
-            {
-                // Copy bytes as fast as we can
-                ByteStreams.copy( source, destination );
-            }
-            catch( AccessDeniedException e )
-            {
-                throw new FileSystemException( "Access denied" );
-            }
-            catch( IOException e )
-            {
-                throw new FileSystemException( e.getMessage() );
-            }
-        }
+        return new FileCopy( this, sourcePath, getMount( sourcePath ), destPath, getMount( destPath ), false );
     }
 
     private void cleanup()
@@ -393,7 +524,7 @@ private void cleanup()
         }
     }
 
-    private synchronized <T extends Closeable> FileSystemWrapper<T> openFile( @Nonnull MountWrapper mount, @Nonnull Channel channel, @Nonnull T file ) throws FileSystemException
+    private <T extends Closeable> FileSystemWrapper<T> openFile( @Nonnull MountWrapper mount, @Nonnull Channel channel, @Nonnull T file ) throws FileSystemException
     {
         synchronized( openFiles )
         {
@@ -420,27 +551,43 @@ void removeFile( FileSystemWrapper<?> handle )
         }
     }
 
-    public synchronized <T extends Closeable> FileSystemWrapper<T> openForRead( String path, Function<ReadableByteChannel, T> open ) throws FileSystemException
+    public <T extends Closeable> FileSystemWrapper<T> openForRead( String path, Function<ReadableByteChannel, T> open ) throws FileSystemException
     {
         cleanup();
 
         path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
-        ReadableByteChannel channel = mount.openForRead( path );
-        return channel != null ? openFile( mount, channel, open.apply( channel ) ) : null;
+        mountLock.readLock().lock();
+        try
+        {
+            MountWrapper mount = findMount( path );
+            ReadableByteChannel channel = mount.openForRead( path );
+            return channel != null ? openFile( mount, channel, open.apply( channel ) ) : null;
+        }
+        finally
+        {
+            mountLock.readLock().unlock();
+        }
     }
 
-    public synchronized <T extends Closeable> FileSystemWrapper<T> openForWrite( String path, boolean append, Function<WritableByteChannel, T> open ) throws FileSystemException
+    public <T extends Closeable> FileSystemWrapper<T> openForWrite( String path, boolean append, Function<WritableByteChannel, T> open ) throws FileSystemException
     {
         cleanup();
 
         path = sanitizePath( path );
-        MountWrapper mount = getMount( path );
-        WritableByteChannel channel = append ? mount.openForAppend( path ) : mount.openForWrite( path );
-        return channel != null ? openFile( mount, channel, open.apply( channel ) ) : null;
+        mountLock.readLock().lock();
+        try
+        {
+            MountWrapper mount = findMount( path );
+            WritableByteChannel channel = append ? mount.openForAppend( path ) : mount.openForWrite( path );
+            return channel != null ? openFile( mount, channel, open.apply( channel ) ) : null;
+        }
+        finally
+        {
+            mountLock.readLock().unlock();
+        }
     }
 
-    public synchronized long getFreeSpace( String path ) throws FileSystemException
+    public long getFreeSpace( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
@@ -448,32 +595,30 @@ public synchronized long getFreeSpace( String path ) throws FileSystemException
     }
 
     @Nonnull
-    public synchronized OptionalLong getCapacity( String path ) throws FileSystemException
+    public OptionalLong getCapacity( String path ) throws FileSystemException
     {
         path = sanitizePath( path );
         MountWrapper mount = getMount( path );
         return mount.getCapacity();
     }
 
-    private synchronized MountWrapper getMount( String path ) throws FileSystemException
+    private MountWrapper getMount( String path ) throws FileSystemException
     {
-        // Return the deepest mount that contains a given path
-        Iterator<MountWrapper> it = mounts.values().iterator();
-        MountWrapper match = null;
-        int matchLength = 999;
-        while( it.hasNext() )
+        mountLock.readLock().lock();
+        try
         {
-            MountWrapper mount = it.next();
-            if( contains( mount.getLocation(), path ) )
-            {
-                int len = toLocal( path, mount.getLocation() ).length();
-                if( match == null || len < matchLength )
-                {
-                    match = mount;
-                    matchLength = len;
-                }
-            }
+            return findMount( path );
+        }
+        finally
+        {
+            mountLock.readLock().unlock();
         }
+    }
+
+    private MountWrapper findMount( String path ) throws FileSystemException
+    {
+        // Return the deepest mount that contains a given path
+        MountWrapper match = mounts.getMount( path );
         if( match == null )
         {
             throw new FileSystemException( "/" + path + ": Invalid Path" );
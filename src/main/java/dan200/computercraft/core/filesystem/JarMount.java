@@ -11,6 +11,7 @@
 import dan200.computercraft.api.filesystem.FileOperationException;
 import dan200.computercraft.api.filesystem.IMount;
 import dan200.computercraft.core.apis.handles.ArrayByteChannel;
+import dan200.computercraft.core.apis.handles.ByteBufferChannel;
 import dan200.computercraft.shared.util.IoUtil;
 
 import javax.annotation.Nonnull;
@@ -21,7 +22,7 @@
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.nio.channels.Channels;
+import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
@@ -199,12 +200,15 @@ public ReadableByteChannel openForRead( @Nonnull String path ) throws IOExceptio
                 {
                     try( InputStream stream = zip.getInputStream( entry ) )
                     {
-                        if( stream.available() > MAX_CACHED_SIZE ) return Channels.newChannel( stream );
-
                         contents = ByteStreams.toByteArray( stream );
-                        CONTENTS_CACHE.put( file, contents );
-                        return new ArrayByteChannel( contents );
                     }
+
+                    // Large files are read in full but not cached. We still serve reads directly from the
+                    // decompressed buffer, as FileMount does.
+                    if( contents.length > MAX_CACHED_SIZE ) return new ByteBufferChannel( ByteBuffer.wrap( contents ) );
+
+                    CONTENTS_CACHE.put( file, contents );
+                    return new ArrayByteChannel( contents );
                 }
             }
             catch( IOException e )
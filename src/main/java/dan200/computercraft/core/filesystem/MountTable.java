@@ -0,0 +1,173 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.filesystem;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The mounts within a {@link FileSystem}, stored as a trie of path segments.
+ *
+ * This allows finding the deepest mount containing a path in time proportional to the path's depth, rather than the
+ * number of mounts. Like {@link FileSystem#contains(String, String)}, path segments are compared case-insensitively.
+ *
+ * All paths passed to this class should already be sanitised. This class is not thread-safe.
+ */
+final class MountTable
+{
+    private final Node root = new Node();
+    private final Map<String, MountWrapper> mounts = new HashMap<>();
+
+    /**
+     * Add a new mount, replacing any existing mount at the same location.
+     *
+     * @param mount The mount to add.
+     */
+    void add( MountWrapper mount )
+    {
+        String location = mount.getLocation();
+        remove( location );
+        mounts.put( location, mount );
+
+        Node node = root;
+        for( int start = 0; start < location.length(); )
+        {
+            int end = segmentEnd( location, start );
+            node = node.child( location.substring( start, end ).toLowerCase( Locale.ROOT ) );
+            start = end + 1;
+        }
+
+        if( node.mounts == null ) node.mounts = new ArrayList<>( 1 );
+        node.mounts.add( mount );
+    }
+
+    /**
+     * Remove the mount at a specific location.
+     *
+     * @param location The location of the mount to remove.
+     * @return The removed mount, or {@code null} if none exists.
+     */
+    @Nullable
+    MountWrapper remove( String location )
+    {
+        MountWrapper mount = mounts.remove( location );
+        if( mount != null ) removeFrom( root, location, 0, mount );
+        return mount;
+    }
+
+    /**
+     * Find the deepest mount containing a path.
+     *
+     * @param path The path to look up.
+     * @return The mount containing this path, or {@code null} if none does.
+     */
+    @Nullable
+    MountWrapper getMount( String path )
+    {
+        if( path.equals( ".." ) || path.startsWith( "../" ) ) return null;
+
+        Node node = root;
+        MountWrapper match = node.first();
+        for( int start = 0; start < path.length(); )
+        {
+            int end = segmentEnd( path, start );
+            node = node.children == null ? null : node.children.get( path.substring( start, end ).toLowerCase( Locale.ROOT ) );
+            if( node == null ) break;
+
+            MountWrapper mount = node.first();
+            if( mount != null ) match = mount;
+            start = end + 1;
+        }
+
+        return match;
+    }
+
+    /**
+     * Find the names of all mounts which are direct children of a directory.
+     *
+     * @param path The directory to look in.
+     * @param out  The list to add the mount names to.
+     */
+    void listChildren( String path, List<String> out )
+    {
+        Node node = root;
+        for( int start = 0; start < path.length() && node != null; )
+        {
+            int end = segmentEnd( path, start );
+            node = node.children == null ? null : node.children.get( path.substring( start, end ).toLowerCase( Locale.ROOT ) );
+            start = end + 1;
+        }
+        if( node == null || node.children == null ) return;
+
+        for( Node child : node.children.values() )
+        {
+            if( child.mounts == null ) continue;
+            for( MountWrapper mount : child.mounts )
+            {
+                // Mount locations are case-sensitive, so check this is actually in this directory.
+                String location = mount.getLocation();
+                if( FileSystem.getDirectory( location ).equals( path ) ) out.add( FileSystem.getName( location ) );
+            }
+        }
+    }
+
+    private static boolean removeFrom( Node node, String location, int start, MountWrapper mount )
+    {
+        if( start >= location.length() )
+        {
+            if( node.mounts != null )
+            {
+                node.mounts.remove( mount );
+                if( node.mounts.isEmpty() ) node.mounts = null;
+            }
+        }
+        else
+        {
+            int end = segmentEnd( location, start );
+            String segment = location.substring( start, end ).toLowerCase( Locale.ROOT );
+            Node child = node.children == null ? null : node.children.get( segment );
+            if( child != null && removeFrom( child, location, end + 1, mount ) )
+            {
+                node.children.remove( segment );
+                if( node.children.isEmpty() ) node.children = null;
+            }
+        }
+
+        // Let the parent know this node is now empty and can be pruned.
+        return node.mounts == null && node.children == null;
+    }
+
+    private static int segmentEnd( String path, int start )
+    {
+        int end = path.indexOf( '/', start );
+        return end < 0 ? path.length() : end;
+    }
+
+    private static final class Node
+    {
+        @Nullable
+        Map<String, Node> children;
+
+        @Nullable
+        List<MountWrapper> mounts;
+
+        Node child( String segment )
+        {
+            if( children == null ) children = new HashMap<>( 4 );
+            return children.computeIfAbsent( segment, x -> new Node() );
+        }
+
+        @Nullable
+        MountWrapper first()
+        {
+            return mounts == null ? null : mounts.get( 0 );
+        }
+    }
+}
@@ -27,6 +27,8 @@
     private final IMount mount;
     private final IWritableMount writableMount;
 
+    private volatile boolean unmounted;
+
     MountWrapper( String label, String location, IMount mount )
     {
         this.label = label;
@@ -53,6 +55,29 @@ public String getLocation()
         return location;
     }
 
+    /**
+     * Mark this mount as having been removed from its file system. Long-running operations (such as copying a
+     * directory) check this, so they do not continue to write to a mount after it has been removed.
+     */
+    void markUnmounted()
+    {
+        unmounted = true;
+    }
+
+    boolean isUnmounted()
+    {
+        return unmounted;
+    }
+
+    /**
+     * Save any state the mount keeps in memory, such as the space used by a {@link FileMount}. This is called when the
+     * mount is removed, or its file system is closed.
+     */
+    void flush()
+    {
+        if( writableMount instanceof FileMount ) ((FileMount) writableMount).flush();
+    }
+
     public long getFreeSpace()
     {
         if( writableMount == null ) return 0;
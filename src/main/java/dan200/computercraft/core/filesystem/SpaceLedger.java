@@ -0,0 +1,290 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.filesystem;
+
+import com.google.common.collect.MapMaker;
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.shared.util.ThreadUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks the space used by a {@link FileMount}, persisting it to a small file alongside the mount's directory.
+ *
+ * Measuring the size of a mount requires walking the whole directory tree, which is slow for computers with many
+ * files. Instead, we save the used space whenever it changes (batching changes together), and load it when the mount is
+ * next created. As the saved value may be out-of-date (for instance, if the server crashed before it was written),
+ * the mount is still measured, but on a background thread.
+ *
+ * Every mount of the same directory shares one ledger (see {@link #get(File, long, LongSupplier)}), so they agree on
+ * the used space and do not overwrite each other's saved value.
+ */
+final class SpaceLedger
+{
+    /**
+     * How long to wait after a change before saving the ledger, in seconds.
+     */
+    private static final long SAVE_DELAY = 5;
+
+    /**
+     * How long to wait before measuring the used space again, if the mount was modified during the last measurement.
+     */
+    private static final long VERIFY_RETRY_DELAY = 1;
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+        ThreadUtils.builder( "FileMount" ).setPriority( Thread.MIN_PRIORITY ).build()
+    );
+
+    /**
+     * The ledger for each directory. Ledgers are removed once no mount uses them, though a queued save keeps its ledger
+     * alive until it has run.
+     */
+    private static final Map<Path, SpaceLedger> LEDGERS = new MapMaker().weakValues().makeMap();
+
+    private final Path file;
+
+    /**
+     * Held while writing the ledger, so a save on the executor and a {@link #flushAll()} do not both write the
+     * temporary file at once.
+     */
+    private final Object saveLock = new Object();
+
+    private long used;
+    private long version;
+    private boolean saveQueued;
+    private boolean initialised;
+
+    private SpaceLedger( File root, long used )
+    {
+        file = new File( root.getPath() + ".size" ).toPath();
+        this.used = used;
+    }
+
+    /**
+     * Get the ledger for a directory, loading or measuring its used space if no other mount is using it.
+     *
+     * @param root    The directory to track.
+     * @param initial The space used by an empty directory.
+     * @param measure The function to measure the used space. This should return a negative value on failure.
+     * @return The ledger for this directory.
+     */
+    static SpaceLedger get( File root, long initial, LongSupplier measure )
+    {
+        Path key = getKey( root );
+        SpaceLedger ledger;
+        synchronized( LEDGERS )
+        {
+            ledger = LEDGERS.get( key );
+            if( ledger == null ) LEDGERS.put( key, ledger = new SpaceLedger( root, initial ) );
+        }
+
+        ledger.loadOrMeasure( root, measure );
+        return ledger;
+    }
+
+    private static Path getKey( File root )
+    {
+        try
+        {
+            return root.getCanonicalFile().toPath();
+        }
+        catch( IOException e )
+        {
+            return root.getAbsoluteFile().toPath().normalize();
+        }
+    }
+
+    /**
+     * Save every ledger with unsaved changes, waiting for them to be written. This should be called when the server
+     * stops, as the save thread is a daemon and so will not finish any queued saves.
+     */
+    static void flushAll()
+    {
+        List<SpaceLedger> ledgers;
+        synchronized( LEDGERS )
+        {
+            ledgers = new ArrayList<>( LEDGERS.values() );
+        }
+
+        for( SpaceLedger ledger : ledgers ) ledger.save();
+    }
+
+    /**
+     * Load this ledger, or measure the used space if it has not been saved. This only happens for the first mount of
+     * a directory, later mounts use the existing value.
+     *
+     * @param root    The directory being tracked.
+     * @param measure The function to measure the used space.
+     */
+    private synchronized void loadOrMeasure( File root, LongSupplier measure )
+    {
+        if( initialised ) return;
+        initialised = true;
+
+        // If the directory doesn't exist yet, it's empty, and we'll track any changes from here.
+        if( !root.exists() ) return;
+
+        if( load() )
+        {
+            // We've a saved value, which is almost certainly correct. Check it in the background, just in case.
+            verify( measure );
+        }
+        else
+        {
+            long measured = measure.getAsLong();
+            if( measured >= 0 ) set( measured );
+        }
+    }
+
+    /**
+     * Load the previously saved used space.
+     *
+     * @return Whether the ledger could be loaded.
+     */
+    private synchronized boolean load()
+    {
+        try
+        {
+            long value = Long.parseLong( new String( Files.readAllBytes( file ), StandardCharsets.UTF_8 ).trim() );
+            if( value < 0 ) return false;
+
+            used = value;
+            return true;
+        }
+        catch( NoSuchFileException e )
+        {
+            return false;
+        }
+        catch( IOException | NumberFormatException e )
+        {
+            ComputerCraft.log.warn( "Cannot read used space from {}", file, e );
+            return false;
+        }
+    }
+
+    synchronized long get()
+    {
+        return used;
+    }
+
+    synchronized void set( long used )
+    {
+        this.used = used;
+        changed();
+    }
+
+    synchronized void add( long delta )
+    {
+        used += delta;
+        changed();
+    }
+
+    /**
+     * Add some amount of space, if doing so would not exceed the capacity.
+     *
+     * @param delta    The amount of space to add.
+     * @param capacity The maximum amount of space which may be used.
+     * @return Whether there was enough space.
+     */
+    synchronized boolean tryAdd( long delta, long capacity )
+    {
+        if( used + delta > capacity ) return false;
+        add( delta );
+        return true;
+    }
+
+    /**
+     * Measure the actual space used in the background, correcting the ledger if it is wrong. If the mount is modified
+     * while being measured, the measurement may or may not include the change, so we discard it and measure again.
+     *
+     * @param measure The function to measure the used space. This should return a negative value on failure.
+     */
+    private void verify( LongSupplier measure )
+    {
+        EXECUTOR.execute( () -> verifyNow( measure ) );
+    }
+
+    private void verifyNow( LongSupplier measure )
+    {
+        long startVersion;
+        synchronized( this )
+        {
+            startVersion = version;
+        }
+
+        long measured = measure.getAsLong();
+        if( measured < 0 ) return;
+
+        synchronized( this )
+        {
+            if( version != startVersion )
+            {
+                EXECUTOR.schedule( () -> verifyNow( measure ), VERIFY_RETRY_DELAY, TimeUnit.SECONDS );
+                return;
+            }
+
+            if( used == measured ) return;
+            used = measured;
+            changed();
+        }
+    }
+
+    /**
+     * Save this ledger soon if it has unsaved changes, rather than waiting for the usual delay. This is used when a
+     * mount is removed, as it may be some time before the ledger is next used.
+     */
+    synchronized void flush()
+    {
+        if( saveQueued ) EXECUTOR.execute( this::save );
+    }
+
+    private void changed()
+    {
+        version++;
+        if( saveQueued ) return;
+
+        saveQueued = true;
+        EXECUTOR.schedule( this::save, SAVE_DELAY, TimeUnit.SECONDS );
+    }
+
+    private void save()
+    {
+        synchronized( saveLock )
+        {
+            long value;
+            synchronized( this )
+            {
+                if( !saveQueued ) return;
+                saveQueued = false;
+                value = used;
+            }
+
+            try
+            {
+                Path temp = file.resolveSibling( file.getFileName() + ".tmp" );
+                Files.write( temp, Long.toString( value ).getBytes( StandardCharsets.UTF_8 ) );
+                Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            }
+            catch( IOException e )
+            {
+                ComputerCraft.log.warn( "Cannot save used space to {}", file, e );
+            }
+        }
+    }
+}
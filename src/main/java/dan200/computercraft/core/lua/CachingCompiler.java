@@ -0,0 +1,263 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.lua;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.api.filesystem.IMount;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import org.squiddev.cobalt.LuaString;
+import org.squiddev.cobalt.LuaTable;
+import org.squiddev.cobalt.LuaValue;
+import org.squiddev.cobalt.Prototype;
+import org.squiddev.cobalt.compiler.CompileException;
+import org.squiddev.cobalt.compiler.LoadState;
+import org.squiddev.cobalt.compiler.LuaC;
+import org.squiddev.cobalt.function.LuaClosure;
+import org.squiddev.cobalt.function.LuaInterpretedFunction;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A Lua compiler which caches the compiled {@link Prototype}s of the bios and ROM, shared between all computers.
+ *
+ * When many computers boot at once, they all load the same bios, shell and ROM APIs. Prototypes are immutable once
+ * compiled, so rather than lexing and parsing these for every computer, we compile them once and create a new closure
+ * from the shared prototype.
+ *
+ * Chunk names do not tell us which mount a file came from (the bios loads {@code /rom/programs/shell.lua} as
+ * {@code @shell.lua}). Instead, we index the files in the ROM mount, and only cache chunks whose name and contents match
+ * one of them. Other chunks, such as user programs or calls to {@code load}, are passed to {@link LuaC} as normal.
+ */
+final class CachingCompiler implements LoadState.LuaCompiler
+{
+    private static final LuaString BIOS = LuaString.valueOf( "@bios.lua" );
+
+    /**
+     * The maximum total size of the prototypes we keep, in bytes. See {@link #weigh(Prototype)}.
+     */
+    private static final long MAX_CACHED_SIZE = 32 * 1024 * 1024;
+
+    private static final Cache<Key, Prototype> CACHE = CacheBuilder.newBuilder()
+        .maximumWeight( MAX_CACHED_SIZE )
+        .<Key, Prototype>weigher( ( key, prototype ) -> weigh( prototype ) )
+        .build();
+
+    /**
+     * The files in each ROM mount. Mounts are compared by identity, and dropped once no computer uses them.
+     */
+    private static final Cache<IMount, RomIndex> ROM_INDEX = CacheBuilder.newBuilder()
+        .weakKeys()
+        .build();
+
+    @Nullable
+    private final IMount rom;
+
+    CachingCompiler( @Nullable IMount rom )
+    {
+        this.rom = rom;
+    }
+
+    @Override
+    public LuaClosure load( InputStream stream, LuaString name, LuaString mode, LuaTable env ) throws IOException, CompileException
+    {
+        byte[] contents = ByteStreams.toByteArray( stream );
+
+        // ROM files are all text, so we can only use the cache if text chunks are allowed. Otherwise, the normal
+        // compiler will reject the chunk (or load it as a binary chunk, if allowed).
+        Key key = null;
+        if( rom != null && allowsText( mode ) )
+        {
+            RomIndex index = getIndex( rom );
+            if( index.mayContain( name, contents.length ) )
+            {
+                key = new Key( name, Hashing.sha256().hashBytes( contents ), contents.length );
+                if( !index.files.contains( key ) ) key = null;
+            }
+        }
+
+        return key == null
+            ? LuaC.INSTANCE.load( new ByteArrayInputStream( contents ), name, mode, env )
+            : closure( compile( key, contents ), env );
+    }
+
+    private static boolean allowsText( @Nullable LuaString mode )
+    {
+        return mode == null || mode.toString().indexOf( 't' ) >= 0;
+    }
+
+    /**
+     * Load the bios, using a cached prototype if available.
+     *
+     * @param stream The bios's source.
+     * @param env    The environment to load the bios in.
+     * @return The loaded bios.
+     * @throws IOException      If the bios could not be read.
+     * @throws CompileException If the bios could not be compiled.
+     */
+    LuaClosure loadBios( InputStream stream, LuaTable env ) throws IOException, CompileException
+    {
+        byte[] contents = ByteStreams.toByteArray( stream );
+        return closure( compile( new Key( BIOS, Hashing.sha256().hashBytes( contents ), contents.length ), contents ), env );
+    }
+
+    private static LuaClosure closure( Prototype prototype, LuaTable env )
+    {
+        LuaInterpretedFunction closure = new LuaInterpretedFunction( prototype, env );
+        closure.nilUpvalues();
+        return closure;
+    }
+
+    @Nonnull
+    private static Prototype compile( Key key, byte[] contents ) throws IOException, CompileException
+    {
+        try
+        {
+            // Computers starting at the same time will block on the first compile, rather than all compiling the
+            // same chunk.
+            return CACHE.get( key, () -> LuaC.compile( new ByteArrayInputStream( contents ), key.name ) );
+        }
+        catch( ExecutionException | UncheckedExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if( cause instanceof CompileException ) throw (CompileException) cause;
+            if( cause instanceof IOException ) throw (IOException) cause;
+            if( cause instanceof RuntimeException ) throw (RuntimeException) cause;
+            if( cause instanceof Error ) throw (Error) cause;
+            throw new IllegalStateException( "Unexpected error compiling " + key.name, cause );
+        }
+    }
+
+    private static RomIndex getIndex( IMount rom )
+    {
+        try
+        {
+            return ROM_INDEX.get( rom, () -> RomIndex.of( rom ) );
+        }
+        catch( ExecutionException | UncheckedExecutionException e )
+        {
+            // Indexing already handles IO errors, so this should never happen.
+            throw new IllegalStateException( "Cannot index ROM", e.getCause() );
+        }
+    }
+
+    /**
+     * Estimate how much memory a prototype uses. This counts each instruction, line number and constant (including the
+     * contents of any strings), and the same for any nested functions.
+     *
+     * @param prototype The prototype to measure.
+     * @return The approximate size of this prototype, in bytes.
+     */
+    private static int weigh( Prototype prototype )
+    {
+        int size = 64 + (prototype.code.length + prototype.lineinfo.length) * 4 + prototype.k.length * 16;
+        for( LuaValue constant : prototype.k )
+        {
+            if( constant instanceof LuaString ) size += ((LuaString) constant).length();
+        }
+        for( Prototype child : prototype.p ) size += weigh( child );
+        return size;
+    }
+
+    /**
+     * The files in a ROM mount, as the chunks the bios would load them as.
+     */
+    private static final class RomIndex
+    {
+        /**
+         * The lengths of the files with each chunk name. This allows us to skip hashing most chunks which are not from
+         * the ROM.
+         */
+        final Map<LuaString, IntSet> lengths = new HashMap<>();
+        final Set<Key> files = new HashSet<>();
+
+        static RomIndex of( IMount mount )
+        {
+            RomIndex index = new RomIndex();
+            try
+            {
+                index.add( mount, "" );
+            }
+            catch( IOException e )
+            {
+                ComputerCraft.log.warn( "Cannot index ROM for the compiler cache", e );
+            }
+            return index;
+        }
+
+        private void add( IMount mount, String path ) throws IOException
+        {
+            if( mount.isDirectory( path ) )
+            {
+                List<String> children = new ArrayList<>();
+                mount.list( path, children );
+                for( String child : children ) add( mount, path.isEmpty() ? child : path + "/" + child );
+                return;
+            }
+
+            byte[] contents;
+            try( ReadableByteChannel channel = mount.openForRead( path ) )
+            {
+                contents = ByteStreams.toByteArray( Channels.newInputStream( channel ) );
+            }
+
+            // The bios's loadfile uses the file's name, rather than its full path, as the chunk name.
+            LuaString name = LuaString.valueOf( "@" + path.substring( path.lastIndexOf( '/' ) + 1 ) );
+            lengths.computeIfAbsent( name, x -> new IntOpenHashSet() ).add( contents.length );
+            files.add( new Key( name, Hashing.sha256().hashBytes( contents ), contents.length ) );
+        }
+
+        boolean mayContain( LuaString name, int length )
+        {
+            IntSet candidates = lengths.get( name );
+            return candidates != null && candidates.contains( length );
+        }
+    }
+
+    private static final class Key
+    {
+        final LuaString name;
+        final HashCode hash;
+        final int length;
+
+        Key( LuaString name, HashCode hash, int length )
+        {
+            this.name = name;
+            this.hash = hash;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if( this == o ) return true;
+            if( !(o instanceof Key) ) return false;
+
+            Key other = (Key) o;
+            return length == other.length && name.equals( other.name ) && hash.equals( other.hash );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash.hashCode() * 31 + name.hashCode();
+        }
+    }
+}
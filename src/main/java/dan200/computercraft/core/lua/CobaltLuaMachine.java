@@ -6,17 +6,21 @@
 package dan200.computercraft.core.lua;
 
 import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.api.filesystem.IMount;
 import dan200.computercraft.api.lua.*;
+import dan200.computercraft.core.asm.IPauseCallback;
+import dan200.computercraft.core.asm.ITaskCallback;
 import dan200.computercraft.core.asm.LuaMethod;
 import dan200.computercraft.core.asm.ObjectSource;
+import dan200.computercraft.core.asm.TaskCallback;
 import dan200.computercraft.core.computer.Computer;
 import dan200.computercraft.core.computer.TimeoutState;
 import dan200.computercraft.core.tracking.Tracking;
 import dan200.computercraft.core.tracking.TrackingField;
-import dan200.computercraft.shared.util.ThreadUtils;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMaps;
 import org.squiddev.cobalt.*;
 import org.squiddev.cobalt.compiler.CompileException;
-import org.squiddev.cobalt.compiler.LoadState;
 import org.squiddev.cobalt.debug.DebugFrame;
 import org.squiddev.cobalt.debug.DebugHandler;
 import org.squiddev.cobalt.debug.DebugState;
@@ -29,9 +33,6 @@
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import static org.squiddev.cobalt.ValueFactory.valueOf;
 import static org.squiddev.cobalt.ValueFactory.varargsOf;
@@ -40,19 +41,13 @@
 
 public class CobaltLuaMachine implements ILuaMachine
 {
-    private static final ThreadPoolExecutor COROUTINES = new ThreadPoolExecutor(
-        0, Integer.MAX_VALUE,
-        5L, TimeUnit.MINUTES,
-        new SynchronousQueue<>(),
-        ThreadUtils.factory( "Coroutine" )
-    );
-
     private static final LuaMethod FUNCTION_METHOD = ( target, context, args ) -> ((ILuaFunction) target).call( args );
 
     private final Computer computer;
     private final TimeoutState timeout;
     private final TimeoutDebugHandler debug;
     private final ILuaContext context;
+    private final CachingCompiler compiler;
 
     private LuaState state;
     private LuaTable globals;
@@ -60,7 +55,29 @@ public class CobaltLuaMachine implements ILuaMachine
     private LuaThread mainRoutine = null;
     private String eventFilter = null;
 
-    public CobaltLuaMachine( Computer computer, TimeoutState timeout )
+    /**
+     * The main thread task which {@link #mainRoutine} is suspended on, or {@code -1} if it is waiting for something
+     * else.
+     */
+    private long waitingTask = -1;
+
+    /**
+     * The task result currently being passed to the machine by {@link #handleTaskResult(long, boolean, Object[])}.
+     * This is consumed by the {@link ITaskCallback} waiting on this task, without converting it to and from Lua values.
+     */
+    private long resultTask = -1;
+    private boolean resultSuccess;
+    private Object[] resultValues;
+    private boolean resultDirect;
+
+    /**
+     * Whether the machine was paused by a function, rather than by running out of time.
+     *
+     * @see #pause(LuaState)
+     */
+    private boolean yielded;
+
+    public CobaltLuaMachine( Computer computer, TimeoutState timeout, @Nullable IMount rom )
     {
         this.computer = computer;
         this.timeout = timeout;
@@ -71,9 +88,10 @@ public CobaltLuaMachine( Computer computer, TimeoutState timeout )
         LuaState state = this.state = LuaState.builder()
             .resourceManipulator( new VoidResourceManipulator() )
             .debug( debug )
+            .compiler( compiler = new CachingCompiler( rom ) )
             .coroutineExecutor( command -> {
                 Tracking.addValue( this.computer, TrackingField.COROUTINES_CREATED, 1 );
-                COROUTINES.execute( () -> {
+                CoroutineExecutors.get().execute( () -> {
                     try
                     {
                         command.run();
@@ -138,7 +156,7 @@ public MachineResult loadBios( @Nonnull InputStream bios )
 
         try
         {
-            LuaFunction value = LoadState.load( state, bios, "@bios.lua", globals );
+            LuaFunction value = compiler.loadBios( bios, globals );
             mainRoutine = new LuaThread( state, value, globals );
             return MachineResult.OK;
         }
@@ -165,25 +183,56 @@ public MachineResult handleEvent( String eventName, Object[] arguments )
             return MachineResult.OK;
         }
 
-        // If the soft abort has been cleared then we can reset our flag.
-        timeout.refresh();
-        if( !timeout.isSoftAborted() ) debug.thrownSoftAbort = false;
+        return resume( eventName == null ? Constants.NONE : varargsOf( valueOf( eventName ), toValues( arguments ) ) );
+    }
 
+    @Override
+    public MachineResult handleTaskResult( long task, boolean success, Object[] values )
+    {
+        if( mainRoutine == null ) return MachineResult.OK;
+
+        resultTask = task;
+        resultSuccess = success;
+        resultValues = values;
         try
         {
-            Varargs resumeArgs = Constants.NONE;
-            if( eventName != null )
+            // If the main coroutine is suspended on this task, we can resume it directly. Otherwise the function is
+            // waiting within another coroutine, and so we need to go through the event loop of its parent.
+            if( task == waitingTask )
+            {
+                resultDirect = true;
+                return resume( Constants.NONE );
+            }
+            else
             {
-                resumeArgs = varargsOf( valueOf( eventName ), toValues( arguments ) );
+                resultDirect = false;
+                return handleEvent( TaskCallback.EVENT, TaskCallback.getEventArguments( task, success, values ) );
             }
+        }
+        finally
+        {
+            resultTask = -1;
+            resultValues = null;
+        }
+    }
+
+    private MachineResult resume( Varargs resumeArgs )
+    {
+        // If the soft abort has been cleared then we can reset our flag.
+        timeout.refresh();
+        if( !timeout.isSoftAborted() ) debug.thrownSoftAbort = false;
 
+        try
+        {
             // Resume the current thread, or the main one when first starting off.
             LuaThread thread = state.getCurrentThread();
             if( thread == null || thread == state.getMainThread() ) thread = mainRoutine;
 
+            waitingTask = -1;
+            yielded = false;
             Varargs results = LuaThread.run( thread, resumeArgs );
             if( timeout.isHardAborted() ) throw HardAbortError.INSTANCE;
-            if( results == null ) return MachineResult.PAUSE;
+            if( results == null ) return yielded ? MachineResult.YIELD : MachineResult.PAUSE;
 
             LuaValue filter = results.first();
             eventFilter = filter.isString() ? filter.toString() : null;
@@ -211,6 +260,65 @@ public MachineResult handleEvent( String eventName, Object[] arguments )
         }
     }
 
+    /**
+     * Mark a function as suspended, waiting on a callback. If this is the main coroutine waiting on a main thread task,
+     * the task's result can be passed straight to it, without going through the event queue.
+     *
+     * @param state    The current Lua state.
+     * @param callback The callback the function is waiting on.
+     */
+    void suspend( LuaState state, ILuaCallback callback )
+    {
+        if( callback instanceof ITaskCallback && state.getCurrentThread() == mainRoutine )
+        {
+            waitingTask = ((ITaskCallback) callback).getTask();
+        }
+    }
+
+    /**
+     * Pause the whole machine, allowing other computers to run. This is used by functions returning an
+     * {@link IPauseCallback}, which are then resumed without going through the event loop.
+     *
+     * @param state The current Lua state.
+     * @throws LuaError        If the machine could not be paused.
+     * @throws UnwindThrowable To unwind the stack. This may not be thrown, in which case the machine has already been
+     *                         resumed.
+     */
+    void pause( LuaState state ) throws LuaError, UnwindThrowable
+    {
+        yielded = true;
+        LuaThread.suspend( state );
+    }
+
+    /**
+     * Resume a function waiting on a main thread task with the task's result, if it is currently being passed to the
+     * machine.
+     *
+     * @param callback The task being waited on.
+     * @param args     The values this function was resumed with.
+     * @return The result of the task, or {@code null} if this function was resumed with something else.
+     * @throws LuaException If the task failed.
+     */
+    @Nullable
+    MethodResult resumeTask( ITaskCallback callback, Varargs args ) throws LuaException
+    {
+        Object[] values = resultValues;
+        if( values == null || resultTask != callback.getTask() ) return null;
+
+        if( !resultDirect )
+        {
+            // Make sure we've been resumed with this task's event, rather than something else (such as a terminate
+            // event, or something the parent coroutine passed in).
+            LuaValue event = args.first(), task = args.arg( 2 );
+            if( !event.isString() || !event.toString().equals( TaskCallback.EVENT ) ) return null;
+            if( task.type() != Constants.TINT && task.type() != Constants.TNUMBER ) return null;
+            if( task.toDouble() != callback.getTask() ) return null;
+        }
+
+        resultValues = null;
+        return callback.complete( resultSuccess, values );
+    }
+
     @Override
     public void close()
     {
@@ -257,11 +365,16 @@ private LuaTable wrapLuaObject( Object object )
     private LuaValue toValue( @Nullable Object object, @Nullable Map<Object, LuaValue> values )
     {
         if( object == null ) return Constants.NIL;
+        if( object instanceof Integer || object instanceof Short || object instanceof Byte )
+        {
+            return valueOf( ((Number) object).intValue() );
+        }
         if( object instanceof Number ) return valueOf( ((Number) object).doubleValue() );
         if( object instanceof Boolean ) return valueOf( (Boolean) object );
         if( object instanceof String ) return valueOf( object.toString() );
         if( object instanceof byte[] )
         {
+            // The caller may reuse this array, so we must copy it.
             byte[] b = (byte[]) object;
             return valueOf( Arrays.copyOf( b, b.length ) );
         }
@@ -273,32 +386,63 @@ private LuaValue toValue( @Nullable Object object, @Nullable Map<Object, LuaValu
             return valueOf( bytes );
         }
 
-        if( values == null ) values = new IdentityHashMap<>( 1 );
-        LuaValue result = values.get( object );
-        if( result != null ) return result;
-
         if( object instanceof ILuaFunction )
         {
             return new ResultInterpreterFunction( this, FUNCTION_METHOD, object, context, object.toString() );
         }
 
+        // Primitive arrays cannot contain references, so we don't need to track them.
+        LuaTable primitive = toPrimitiveArray( object );
+        if( primitive != null ) return primitive;
+
+        // Everything else may be referenced multiple times (or contain itself). We track which objects we've already
+        // converted, but only allocate this map once we find an object which contains another container: most results
+        // are a flat table of scalar values.
+        if( values != null )
+        {
+            LuaValue result = values.get( object );
+            if( result != null ) return result;
+        }
+
         if( object instanceof IDynamicLuaObject )
         {
             LuaValue wrapped = wrapLuaObject( object );
             if( wrapped == null ) wrapped = new LuaTable();
-            values.put( object, wrapped );
+            if( values != null ) values.put( object, wrapped );
             return wrapped;
         }
 
+        if( object instanceof Int2ObjectMap )
+        {
+            LuaTable table = new LuaTable();
+            if( values != null ) values.put( object, table );
+
+            for( Int2ObjectMap.Entry<?> pair : Int2ObjectMaps.fastIterable( (Int2ObjectMap<?>) object ) )
+            {
+                Object child = pair.getValue();
+                if( values == null && isContainer( child ) ) values = trackValues( object, table );
+
+                LuaValue value = toValue( child, values );
+                if( !value.isNil() ) table.rawset( pair.getIntKey(), value );
+            }
+            return table;
+        }
+
         if( object instanceof Map )
         {
             LuaTable table = new LuaTable();
-            values.put( object, table );
+            if( values != null ) values.put( object, table );
 
             for( Map.Entry<?, ?> pair : ((Map<?, ?>) object).entrySet() )
             {
-                LuaValue key = toValue( pair.getKey(), values );
-                LuaValue value = toValue( pair.getValue(), values );
+                Object childKey = pair.getKey(), childValue = pair.getValue();
+                if( values == null && (isContainer( childKey ) || isContainer( childValue )) )
+                {
+                    values = trackValues( object, table );
+                }
+
+                LuaValue key = toValue( childKey, values );
+                LuaValue value = toValue( childValue, values );
                 if( !key.isNil() && !value.isNil() ) table.rawset( key, value );
             }
             return table;
@@ -308,9 +452,13 @@ private LuaValue toValue( @Nullable Object object, @Nullable Map<Object, LuaValu
         {
             Collection<?> objects = (Collection<?>) object;
             LuaTable table = new LuaTable( objects.size(), 0 );
-            values.put( object, table );
+            if( values != null ) values.put( object, table );
             int i = 0;
-            for( Object child : objects ) table.rawset( ++i, toValue( child, values ) );
+            for( Object child : objects )
+            {
+                if( values == null && isContainer( child ) ) values = trackValues( object, table );
+                table.rawset( ++i, toValue( child, values ) );
+            }
             return table;
         }
 
@@ -318,15 +466,20 @@ private LuaValue toValue( @Nullable Object object, @Nullable Map<Object, LuaValu
         {
             Object[] objects = (Object[]) object;
             LuaTable table = new LuaTable( objects.length, 0 );
-            values.put( object, table );
-            for( int i = 0; i < objects.length; i++ ) table.rawset( i + 1, toValue( objects[i], values ) );
+            if( values != null ) values.put( object, table );
+            for( int i = 0; i < objects.length; i++ )
+            {
+                Object child = objects[i];
+                if( values == null && isContainer( child ) ) values = trackValues( object, table );
+                table.rawset( i + 1, toValue( child, values ) );
+            }
             return table;
         }
 
         LuaTable wrapped = wrapLuaObject( object );
         if( wrapped != null )
         {
-            values.put( object, wrapped );
+            if( values != null ) values.put( object, wrapped );
             return wrapped;
         }
 
@@ -337,12 +490,78 @@ private LuaValue toValue( @Nullable Object object, @Nullable Map<Object, LuaValu
         return Constants.NIL;
     }
 
+    @Nullable
+    private static LuaTable toPrimitiveArray( Object object )
+    {
+        if( object instanceof int[] )
+        {
+            int[] array = (int[]) object;
+            LuaTable table = new LuaTable( array.length, 0 );
+            for( int i = 0; i < array.length; i++ ) table.rawset( i + 1, valueOf( array[i] ) );
+            return table;
+        }
+
+        if( object instanceof long[] )
+        {
+            long[] array = (long[]) object;
+            LuaTable table = new LuaTable( array.length, 0 );
+            for( int i = 0; i < array.length; i++ ) table.rawset( i + 1, valueOf( (double) array[i] ) );
+            return table;
+        }
+
+        if( object instanceof double[] )
+        {
+            double[] array = (double[]) object;
+            LuaTable table = new LuaTable( array.length, 0 );
+            for( int i = 0; i < array.length; i++ ) table.rawset( i + 1, valueOf( array[i] ) );
+            return table;
+        }
+
+        if( object instanceof boolean[] )
+        {
+            boolean[] array = (boolean[]) object;
+            LuaTable table = new LuaTable( array.length, 0 );
+            for( int i = 0; i < array.length; i++ ) table.rawset( i + 1, valueOf( array[i] ) );
+            return table;
+        }
+
+        return null;
+    }
+
+    /**
+     * Determine whether converting this object may need to track references to other objects. Namely, this is anything
+     * which is not a scalar value or function.
+     *
+     * @param object The object to check.
+     * @return Whether this is a container.
+     */
+    private static boolean isContainer( @Nullable Object object )
+    {
+        return object != null && !(object instanceof Number) && !(object instanceof Boolean)
+            && !(object instanceof String) && !(object instanceof byte[]) && !(object instanceof ByteBuffer)
+            && !(object instanceof ILuaFunction);
+    }
+
+    private static Map<Object, LuaValue> trackValues( Object object, LuaValue value )
+    {
+        Map<Object, LuaValue> values = new IdentityHashMap<>( 4 );
+        values.put( object, value );
+        return values;
+    }
+
     Varargs toValues( Object[] objects )
     {
         if( objects == null || objects.length == 0 ) return Constants.NONE;
         if( objects.length == 1 ) return toValue( objects[0], null );
 
-        Map<Object, LuaValue> result = new IdentityHashMap<>( 0 );
+        // We only need to track references if multiple values may share them.
+        int containers = 0;
+        for( Object object : objects )
+        {
+            if( isContainer( object ) ) containers++;
+        }
+
+        Map<Object, LuaValue> result = containers > 1 ? new IdentityHashMap<>( 4 ) : null;
         LuaValue[] values = new LuaValue[objects.length];
         for( int i = 0; i < values.length; i++ )
         {
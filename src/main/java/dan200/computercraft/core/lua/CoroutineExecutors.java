@@ -0,0 +1,90 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.lua;
+
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.shared.util.ThreadUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The executors which Cobalt coroutines are run on.
+ *
+ * Each coroutine runs on its own thread. By default these are platform threads, taken from a shared pool. When running
+ * on a JVM with virtual threads (and {@link ComputerCraft#virtualThreadCoroutines} is enabled), we instead run each
+ * coroutine on a new virtual thread, which is significantly cheaper to create and park.
+ *
+ * As we compile against Java 8, virtual threads are constructed reflectively.
+ */
+final class CoroutineExecutors
+{
+    private static final Executor PLATFORM = new ThreadPoolExecutor(
+        0, Integer.MAX_VALUE,
+        5L, TimeUnit.MINUTES,
+        new SynchronousQueue<>(),
+        ThreadUtils.factory( "Coroutine" )
+    );
+
+    @Nullable
+    private static final Executor VIRTUAL = createVirtual();
+
+    private CoroutineExecutors()
+    {
+    }
+
+    /**
+     * Get the executor new coroutines should be run on.
+     *
+     * @return The current coroutine executor.
+     */
+    @Nonnull
+    static Executor get()
+    {
+        return ComputerCraft.virtualThreadCoroutines && VIRTUAL != null ? VIRTUAL : PLATFORM;
+    }
+
+    @Nullable
+    private static Executor createVirtual()
+    {
+        ThreadFactory factory;
+        try
+        {
+            // Equivalent to Thread.ofVirtual().name( "ComputerCraft-Coroutine-Virtual-", 0 ).factory()
+            Class<?> builderClass = Class.forName( "java.lang.Thread$Builder" );
+            Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+            builder = builderClass.getMethod( "name", String.class, long.class )
+                .invoke( builder, ThreadUtils.group().getName() + "-Coroutine-Virtual-", 0L );
+
+            Method createFactory = builderClass.getMethod( "factory" );
+            factory = (ThreadFactory) createFactory.invoke( builder );
+        }
+        catch( ClassNotFoundException | NoSuchMethodException e )
+        {
+            // Running on an older JVM, without virtual threads.
+            return null;
+        }
+        catch( IllegalAccessException | InvocationTargetException | RuntimeException e )
+        {
+            // Virtual threads exist but cannot be used, such as being a preview feature which is not enabled.
+            ComputerCraft.log.debug( "Cannot create virtual threads, falling back to platform threads.", e );
+            return null;
+        }
+
+        return command -> {
+            Thread thread = factory.newThread( command );
+            thread.setUncaughtExceptionHandler( ( t, e ) -> ComputerCraft.log.error( "Exception in thread " + t.getName(), e ) );
+            thread.start();
+        };
+    }
+}
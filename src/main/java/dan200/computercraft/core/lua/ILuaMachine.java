@@ -7,6 +7,7 @@
 
 import dan200.computercraft.api.lua.IDynamicLuaObject;
 import dan200.computercraft.api.lua.ILuaAPI;
+import dan200.computercraft.core.asm.TaskCallback;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -59,6 +60,23 @@
      */
     MachineResult handleEvent( @Nullable String eventName, @Nullable Object[] arguments );
 
+    /**
+     * Resume the machine with the result of a main thread task.
+     *
+     * By default, this is passed to the machine as a {@code task_complete} event. However, machines may pass the
+     * result directly to the function waiting on this task instead.
+     *
+     * @param task    The id of the completed task.
+     * @param success Whether the task succeeded.
+     * @param values  The task's return values if it succeeded, or its error message otherwise.
+     * @return The result of resuming this machine.
+     * @see #handleEvent(String, Object[])
+     */
+    default MachineResult handleTaskResult( long task, boolean success, @Nonnull Object[] values )
+    {
+        return handleEvent( TaskCallback.EVENT, TaskCallback.getEventArguments( task, success, values ) );
+    }
+
     /**
      * Close the Lua machine, aborting any running functions and deleting the internal state.
      */
@@ -16,6 +16,8 @@
 
 class LuaContext implements ILuaContext
 {
+    private static final Object[] NO_RESULTS = new Object[0];
+
     private final Computer computer;
 
     LuaContext( Computer computer )
@@ -32,29 +34,16 @@ public long issueMainThreadTask( @Nonnull final ILuaTask task ) throws LuaExcept
             try
             {
                 Object[] results = task.execute();
-                if( results != null )
-                {
-                    Object[] eventArguments = new Object[results.length + 2];
-                    eventArguments[0] = taskID;
-                    eventArguments[1] = true;
-                    System.arraycopy( results, 0, eventArguments, 2, results.length );
-                    computer.queueEvent( "task_complete", eventArguments );
-                }
-                else
-                {
-                    computer.queueEvent( "task_complete", new Object[] { taskID, true } );
-                }
+                computer.queueTaskResult( taskID, true, results == null ? NO_RESULTS : results );
             }
             catch( LuaException e )
             {
-                computer.queueEvent( "task_complete", new Object[] { taskID, false, e.getMessage() } );
+                computer.queueTaskResult( taskID, false, new Object[] { e.getMessage() } );
             }
             catch( Exception t )
             {
                 if( ComputerCraft.logComputerErrors ) ComputerCraft.log.error( "Error running task", t );
-                computer.queueEvent( "task_complete", new Object[] {
-                    taskID, false, "Java Exception Thrown: " + t,
-                } );
+                computer.queueTaskResult( taskID, false, new Object[] { "Java Exception Thrown: " + t } );
             }
         };
         if( computer.queueMainThread( iTask ) )
@@ -24,42 +24,52 @@
     /**
      * A successful complete execution.
      */
-    public static final MachineResult OK = new MachineResult( false, false, null );
+    public static final MachineResult OK = new MachineResult( false, false, false, null );
 
     /**
      * A successful paused execution.
      */
-    public static final MachineResult PAUSE = new MachineResult( false, true, null );
+    public static final MachineResult PAUSE = new MachineResult( false, true, false, null );
+
+    /**
+     * A successful paused execution, where a function asked to let other computers run. Unlike {@link #PAUSE}, this
+     * counts as the computer yielding, and so resets its timeout.
+     *
+     * @see dan200.computercraft.core.asm.IPauseCallback
+     */
+    public static final MachineResult YIELD = new MachineResult( false, true, true, null );
 
     /**
      * An execution which timed out.
      */
-    public static final MachineResult TIMEOUT = new MachineResult( true, false, TimeoutState.ABORT_MESSAGE );
+    public static final MachineResult TIMEOUT = new MachineResult( true, false, false, TimeoutState.ABORT_MESSAGE );
 
     /**
      * An error with no user-friendly error message.
      */
-    public static final MachineResult GENERIC_ERROR = new MachineResult( true, false, null );
+    public static final MachineResult GENERIC_ERROR = new MachineResult( true, false, false, null );
 
     private final boolean error;
     private final boolean pause;
+    private final boolean yield;
     private final String message;
 
-    private MachineResult( boolean error, boolean pause, String message )
+    private MachineResult( boolean error, boolean pause, boolean yield, String message )
     {
         this.pause = pause;
+        this.yield = yield;
         this.message = message;
         this.error = error;
     }
 
     public static MachineResult error( @Nonnull String error )
     {
-        return new MachineResult( true, false, error );
+        return new MachineResult( true, false, false, error );
     }
 
     public static MachineResult error( @Nonnull Exception error )
     {
-        return new MachineResult( true, false, error.getMessage() );
+        return new MachineResult( true, false, false, error.getMessage() );
     }
 
     public boolean isError()
@@ -72,6 +82,11 @@ public boolean isPause()
         return pause;
     }
 
+    public boolean isYield()
+    {
+        return yield;
+    }
+
     @Nullable
     public String getMessage()
     {
@@ -8,6 +8,8 @@
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.api.lua.*;
 import dan200.computercraft.core.asm.LuaMethod;
+import dan200.computercraft.core.asm.IPauseCallback;
+import dan200.computercraft.core.asm.ITaskCallback;
 import org.squiddev.cobalt.*;
 import org.squiddev.cobalt.debug.DebugFrame;
 import org.squiddev.cobalt.function.ResumableVarArgFunction;
@@ -75,18 +77,24 @@ protected Varargs invoke( LuaState state, DebugFrame debugFrame, Varargs args )
 
         if( callback == null ) return ret;
 
-        debugFrame.state = new Container( callback, results.getErrorAdjust() );
-        return LuaThread.yield( state, ret );
+        Container container = new Container( callback, results.getErrorAdjust() );
+        debugFrame.state = container;
+        return suspend( state, container, ret );
     }
 
     @Override
     protected Varargs resumeThis( LuaState state, Container container, Varargs args ) throws LuaError, UnwindThrowable
     {
-        MethodResult results;
-        Object[] arguments = CobaltLuaMachine.toObjects( args );
+        MethodResult results = null;
         try
         {
-            results = container.callback.resume( arguments );
+            // Main thread tasks may receive their results directly from the machine. Otherwise, convert the arguments
+            // and resume as normal.
+            if( container.callback instanceof ITaskCallback )
+            {
+                results = machine.resumeTask( (ITaskCallback) container.callback, args );
+            }
+            if( results == null ) results = container.callback.resume( CobaltLuaMachine.toObjects( args ) );
         }
         catch( LuaException e )
         {
@@ -107,7 +115,21 @@ protected Varargs resumeThis( LuaState state, Container container, Varargs args
         if( callback == null ) return ret;
 
         container.callback = callback;
-        return LuaThread.yield( state, ret );
+        return suspend( state, container, ret );
+    }
+
+    private Varargs suspend( LuaState state, Container container, Varargs values ) throws LuaError, UnwindThrowable
+    {
+        if( container.callback instanceof IPauseCallback )
+        {
+            // Pause the machine rather than yielding, and resume the callback straight away once we're run again. If
+            // the pause did not unwind the stack, then we've already been resumed.
+            machine.pause( state );
+            return resumeThis( state, container, Constants.NONE );
+        }
+
+        machine.suspend( state, container.callback );
+        return LuaThread.yield( state, values );
     }
 
     public static LuaError wrap( LuaException exception, int adjust )
@@ -11,6 +11,7 @@
 import net.minecraft.network.PacketBuffer;
 
 import javax.annotation.Nonnull;
+import java.util.Arrays;
 
 public class Terminal
 {
@@ -33,6 +34,22 @@
 
     private final Runnable onChanged;
 
+    /**
+     * Which lines have been modified since the last call to {@link #writeDelta(PacketBuffer)}.
+     */
+    private boolean[] dirtyLines;
+
+    /**
+     * Whether the terminal has been resized (or has never been sent) since the last delta. If so, we need to send a
+     * full snapshot rather than a delta.
+     */
+    private boolean needsSnapshot = true;
+
+    /**
+     * The {@link Palette#getVersion()} when we last wrote a delta.
+     */
+    private int paletteVersion = -1;
+
     public Terminal( int width, int height )
     {
         this( width, height, null );
@@ -47,6 +64,7 @@ public Terminal( int width, int height, Runnable changedCallback )
         text = new TextBuffer[height];
         textColour = new TextBuffer[height];
         backgroundColour = new TextBuffer[height];
+        dirtyLines = new boolean[height];
         for( int i = 0; i < this.height; i++ )
         {
             text[i] = new TextBuffer( ' ', this.width );
@@ -96,6 +114,8 @@ public synchronized void resize( int width, int height )
         text = new TextBuffer[height];
         textColour = new TextBuffer[height];
         backgroundColour = new TextBuffer[height];
+        dirtyLines = new boolean[height];
+        needsSnapshot = true;
         for( int i = 0; i < this.height; i++ )
         {
             if( i >= oldHeight )
@@ -200,6 +220,7 @@ public synchronized void blit( String text, String textColour, String background
             this.text[y].write( text, x );
             this.textColour[y].write( textColour, x );
             this.backgroundColour[y].write( backgroundColour, x );
+            dirtyLines[y] = true;
             setChanged();
         }
     }
@@ -213,6 +234,7 @@ public synchronized void write( String text )
             this.text[y].write( text, x );
             textColour[y].fill( base16.charAt( cursorColour ), x, x + text.length() );
             backgroundColour[y].fill( base16.charAt( cursorBackgroundColour ), x, x + text.length() );
+            dirtyLines[y] = true;
             setChanged();
         }
     }
@@ -243,6 +265,7 @@ public synchronized void scroll( int yDiff )
             text = newText;
             textColour = newTextColour;
             backgroundColour = newBackgroundColour;
+            markAllDirty();
             setChanged();
         }
     }
@@ -255,6 +278,7 @@ public synchronized void clear()
             textColour[y].fill( base16.charAt( cursorColour ) );
             backgroundColour[y].fill( base16.charAt( cursorBackgroundColour ) );
         }
+        markAllDirty();
         setChanged();
     }
 
@@ -266,6 +290,7 @@ public synchronized void clearLine()
             text[y].fill( ' ' );
             textColour[y].fill( base16.charAt( cursorColour ) );
             backgroundColour[y].fill( base16.charAt( cursorBackgroundColour ) );
+            dirtyLines[y] = true;
             setChanged();
         }
     }
@@ -284,6 +309,7 @@ public synchronized void setLine( int y, String text, String textColour, String
         this.text[y].write( text );
         this.textColour[y].write( textColour );
         this.backgroundColour[y].write( backgroundColour );
+        dirtyLines[y] = true;
         setChanged();
     }
 
@@ -317,21 +343,7 @@ public synchronized void write( PacketBuffer buffer )
         buffer.writeBoolean( cursorBlink );
         buffer.writeByte( cursorBackgroundColour << 4 | cursorColour );
 
-        for( int y = 0; y < height; y++ )
-        {
-            TextBuffer text = this.text[y];
-            TextBuffer textColour = this.textColour[y];
-            TextBuffer backColour = backgroundColour[y];
-
-            for( int x = 0; x < width; x++ )
-            {
-                buffer.writeByte( text.charAt( x ) & 0xFF );
-                buffer.writeByte( getColour(
-                    backColour.charAt( x ), Colour.BLACK ) << 4 |
-                    getColour( textColour.charAt( x ), Colour.WHITE )
-                );
-            }
-        }
+        for( int y = 0; y < height; y++ ) writeLine( buffer, y );
 
         palette.write( buffer );
     }
@@ -346,26 +358,129 @@ public synchronized void read( PacketBuffer buffer )
         cursorBackgroundColour = (cursorColour >> 4) & 0xF;
         this.cursorColour = cursorColour & 0xF;
 
+        for( int y = 0; y < height; y++ ) readLine( buffer, y );
+
+        palette.read( buffer );
+        markAllDirty();
+        setChanged();
+    }
+
+    /**
+     * Write the changes to this terminal since the last call to this method.
+     *
+     * This writes the cursor state, any lines which have been modified, and the palette if it has changed. If the
+     * terminal has been resized since the last delta (or this is the first delta), then we cannot send a partial
+     * update, and so write a full snapshot (as {@link #write(PacketBuffer)}) instead.
+     *
+     * @param buffer The buffer to write to.
+     * @return {@code true} if a delta was written, {@code false} if a full snapshot was written.
+     * @see #readDelta(PacketBuffer)
+     */
+    public synchronized boolean writeDelta( PacketBuffer buffer )
+    {
+        if( needsSnapshot )
+        {
+            needsSnapshot = false;
+            Arrays.fill( dirtyLines, false );
+            paletteVersion = palette.getVersion();
+            write( buffer );
+            return false;
+        }
+
+        buffer.writeInt( cursorX );
+        buffer.writeInt( cursorY );
+        buffer.writeBoolean( cursorBlink );
+        buffer.writeByte( cursorBackgroundColour << 4 | cursorColour );
+
+        int dirty = 0;
+        for( boolean line : dirtyLines ) if( line ) dirty++;
+
+        buffer.writeVarInt( dirty );
         for( int y = 0; y < height; y++ )
         {
-            TextBuffer text = this.text[y];
-            TextBuffer textColour = this.textColour[y];
-            TextBuffer backColour = backgroundColour[y];
+            if( !dirtyLines[y] ) continue;
+            dirtyLines[y] = false;
 
-            for( int x = 0; x < width; x++ )
-            {
-                text.setChar( x, (char) (buffer.readByte() & 0xFF) );
+            buffer.writeVarInt( y );
+            writeLine( buffer, y );
+        }
 
-                byte colour = buffer.readByte();
-                backColour.setChar( x, base16.charAt( (colour >> 4) & 0xF ) );
-                textColour.setChar( x, base16.charAt( colour & 0xF ) );
-            }
+        int version = palette.getVersion();
+        buffer.writeBoolean( version != paletteVersion );
+        if( version != paletteVersion )
+        {
+            paletteVersion = version;
+            palette.write( buffer );
         }
 
-        palette.read( buffer );
+        return true;
+    }
+
+    /**
+     * Apply a delta written by {@link #writeDelta(PacketBuffer)}. This terminal must be the same size as the one the
+     * delta was written from.
+     *
+     * @param buffer The buffer to read from.
+     */
+    public synchronized void readDelta( PacketBuffer buffer )
+    {
+        cursorX = buffer.readInt();
+        cursorY = buffer.readInt();
+        cursorBlink = buffer.readBoolean();
+
+        byte cursorColour = buffer.readByte();
+        cursorBackgroundColour = (cursorColour >> 4) & 0xF;
+        this.cursorColour = cursorColour & 0xF;
+
+        int lines = buffer.readVarInt();
+        for( int i = 0; i < lines; i++ )
+        {
+            int y = buffer.readVarInt();
+            if( y < 0 || y >= height ) throw new IndexOutOfBoundsException( "Line " + y + " is out of bounds" );
+            readLine( buffer, y );
+        }
+
+        if( buffer.readBoolean() ) palette.read( buffer );
         setChanged();
     }
 
+    private void markAllDirty()
+    {
+        Arrays.fill( dirtyLines, true );
+    }
+
+    private void writeLine( PacketBuffer buffer, int y )
+    {
+        TextBuffer text = this.text[y];
+        TextBuffer textColour = this.textColour[y];
+        TextBuffer backColour = backgroundColour[y];
+
+        for( int x = 0; x < width; x++ )
+        {
+            buffer.writeByte( text.charAt( x ) & 0xFF );
+            buffer.writeByte( getColour(
+                backColour.charAt( x ), Colour.BLACK ) << 4 |
+                getColour( textColour.charAt( x ), Colour.WHITE )
+            );
+        }
+    }
+
+    private void readLine( PacketBuffer buffer, int y )
+    {
+        TextBuffer text = this.text[y];
+        TextBuffer textColour = this.textColour[y];
+        TextBuffer backColour = backgroundColour[y];
+
+        for( int x = 0; x < width; x++ )
+        {
+            text.setChar( x, (char) (buffer.readByte() & 0xFF) );
+
+            byte colour = buffer.readByte();
+            backColour.setChar( x, base16.charAt( (colour >> 4) & 0xF ) );
+            textColour.setChar( x, base16.charAt( colour & 0xF ) );
+        }
+    }
+
     public synchronized CompoundNBT writeToNBT( CompoundNBT nbt )
     {
         nbt.putInt( "term_cursorX", cursorX );
@@ -412,6 +527,7 @@ public synchronized void readFromNBT( CompoundNBT nbt )
         }
 
         palette.readFromNBT( nbt );
+        markAllDirty();
         setChanged();
     }
 
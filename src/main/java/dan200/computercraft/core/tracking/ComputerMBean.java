@@ -21,13 +21,19 @@ public final class ComputerMBean implements DynamicMBean, Tracker
 {
     private static final Set<TrackingField> SKIP = new HashSet<>( Arrays.asList(
         TrackingField.TASKS, TrackingField.TOTAL_TIME, TrackingField.AVERAGE_TIME, TrackingField.MAX_TIME,
-        TrackingField.SERVER_COUNT, TrackingField.SERVER_TIME
+        TrackingField.SERVER_COUNT, TrackingField.SERVER_TIME,
+        TrackingField.TASK_P50, TrackingField.TASK_P99, TrackingField.TASK_P999,
+        TrackingField.SERVER_P50, TrackingField.SERVER_P99, TrackingField.SERVER_P999,
+        TrackingField.PERIPHERAL_P50, TrackingField.PERIPHERAL_P99, TrackingField.PERIPHERAL_P999
     ) );
 
     private static ComputerMBean instance;
 
     private final Map<String, LongSupplier> attributes = new HashMap<>();
     private final Map<TrackingField, Counter> values = new HashMap<>();
+    private final LatencyHistogram taskLatencies = new LatencyHistogram();
+    private final LatencyHistogram serverLatencies = new LatencyHistogram();
+    private final LatencyHistogram peripheralLatencies = new LatencyHistogram();
     private final MBeanInfo info;
 
     private ComputerMBean()
@@ -44,6 +50,10 @@ private ComputerMBean()
         add( "task", TrackingField.TOTAL_TIME, attributes, TrackingField.TASKS );
         add( "serverTask", TrackingField.SERVER_TIME, attributes, TrackingField.SERVER_COUNT );
 
+        addPercentiles( "task", taskLatencies, attributes, TrackingField.TASK_P50, TrackingField.TASK_P99, TrackingField.TASK_P999 );
+        addPercentiles( "serverTask", serverLatencies, attributes, TrackingField.SERVER_P50, TrackingField.SERVER_P99, TrackingField.SERVER_P999 );
+        addPercentiles( "peripheral", peripheralLatencies, attributes, TrackingField.PERIPHERAL_P50, TrackingField.PERIPHERAL_P99, TrackingField.PERIPHERAL_P999 );
+
         this.info = new MBeanInfo(
             ComputerMBean.class.getSimpleName(),
             "metrics about all computers on the server",
@@ -73,6 +83,8 @@ public Object getAttribute( String attribute ) throws AttributeNotFoundException
     {
         LongSupplier value = attributes.get( attribute );
         if( value == null ) throw new AttributeNotFoundException();
+
+        Tracking.flush();
         return value.getAsLong();
     }
 
@@ -108,23 +120,41 @@ public MBeanInfo getMBeanInfo()
     }
 
     @Override
-    public void addTaskTiming( Computer computer, long time )
+    public void addTaskTiming( Computer computer, long count, long total, long max )
     {
-        addValue( computer, TrackingField.TOTAL_TIME, time );
+        addValue( computer, TrackingField.TOTAL_TIME, count, total );
     }
 
     @Override
-    public void addServerTiming( Computer computer, long time )
+    public void addServerTiming( Computer computer, long count, long total )
     {
-        addValue( computer, TrackingField.SERVER_TIME, time );
+        addValue( computer, TrackingField.SERVER_TIME, count, total );
     }
 
     @Override
-    public void addValue( Computer computer, TrackingField field, long change )
+    public void addValue( Computer computer, TrackingField field, long count, long change )
     {
         Counter counter = values.get( field );
         counter.value.addAndGet( change );
-        counter.count.incrementAndGet();
+        counter.count.addAndGet( count );
+    }
+
+    @Override
+    public void addTaskLatencies( Computer computer, LatencyHistogram latencies )
+    {
+        taskLatencies.add( latencies );
+    }
+
+    @Override
+    public void addServerLatencies( Computer computer, LatencyHistogram latencies )
+    {
+        serverLatencies.add( latencies );
+    }
+
+    @Override
+    public void addPeripheralLatencies( Computer computer, String method, LatencyHistogram latencies )
+    {
+        peripheralLatencies.add( latencies );
     }
 
     private MBeanAttributeInfo addAttribute( String name, String description, LongSupplier value )
@@ -147,6 +177,14 @@ private void add( String name, TrackingField field, List<MBeanAttributeInfo> att
         }
     }
 
+    private void addPercentiles( String name, LatencyHistogram histogram, List<MBeanAttributeInfo> attributes, TrackingField p50, TrackingField p99, TrackingField p999 )
+    {
+        LanguageMap language = LanguageMap.getInstance();
+        attributes.add( addAttribute( name + "P50", language.getOrDefault( p50.translationKey() ), () -> histogram.percentile( 0.5 ) ) );
+        attributes.add( addAttribute( name + "P99", language.getOrDefault( p99.translationKey() ), () -> histogram.percentile( 0.99 ) ) );
+        attributes.add( addAttribute( name + "P999", language.getOrDefault( p999.translationKey() ), () -> histogram.percentile( 0.999 ) ) );
+    }
+
     private static class Counter
     {
         AtomicLong value = new AtomicLong();
@@ -23,12 +23,19 @@
     private long serverCount;
     private long serverTime;
 
+    private final LatencyHistogram taskLatencies;
+    private final LatencyHistogram serverLatencies;
+    private final LatencyHistogram peripheralLatencies;
+
     private final Object2LongOpenHashMap<TrackingField> fields;
 
     public ComputerTracker( Computer computer )
     {
         this.computer = new WeakReference<>( computer );
         computerId = computer.getID();
+        taskLatencies = new LatencyHistogram();
+        serverLatencies = new LatencyHistogram();
+        peripheralLatencies = new LatencyHistogram();
         fields = new Object2LongOpenHashMap<>();
     }
 
@@ -44,6 +51,10 @@ public ComputerTracker( Computer computer )
         serverCount = timings.serverCount;
         serverTime = timings.serverTime;
 
+        taskLatencies = new LatencyHistogram( timings.taskLatencies );
+        serverLatencies = new LatencyHistogram( timings.serverLatencies );
+        peripheralLatencies = new LatencyHistogram( timings.peripheralLatencies );
+
         fields = new Object2LongOpenHashMap<>( timings.fields );
     }
 
@@ -78,17 +89,32 @@ public long getAverage()
         return totalTime / tasks;
     }
 
-    void addTaskTiming( long time )
+    void addTaskTiming( long count, long total, long max )
+    {
+        tasks += count;
+        totalTime += total;
+        if( max > maxTime ) maxTime = max;
+    }
+
+    void addMainTiming( long count, long total )
+    {
+        serverCount += count;
+        serverTime += total;
+    }
+
+    void addTaskLatencies( LatencyHistogram latencies )
+    {
+        taskLatencies.add( latencies );
+    }
+
+    void addServerLatencies( LatencyHistogram latencies )
     {
-        tasks++;
-        totalTime += time;
-        if( time > maxTime ) maxTime = time;
+        serverLatencies.add( latencies );
     }
 
-    void addMainTiming( long time )
+    void addPeripheralLatencies( LatencyHistogram latencies )
     {
-        serverCount++;
-        serverTime += time;
+        peripheralLatencies.add( latencies );
     }
 
     void addValue( TrackingField field, long change )
@@ -109,6 +135,16 @@ public long get( TrackingField field )
         if( field == TrackingField.SERVER_COUNT ) return serverCount;
         if( field == TrackingField.SERVER_TIME ) return serverTime;
 
+        if( field == TrackingField.TASK_P50 ) return taskLatencies.percentile( 0.5 );
+        if( field == TrackingField.TASK_P99 ) return taskLatencies.percentile( 0.99 );
+        if( field == TrackingField.TASK_P999 ) return taskLatencies.percentile( 0.999 );
+        if( field == TrackingField.SERVER_P50 ) return serverLatencies.percentile( 0.5 );
+        if( field == TrackingField.SERVER_P99 ) return serverLatencies.percentile( 0.99 );
+        if( field == TrackingField.SERVER_P999 ) return serverLatencies.percentile( 0.999 );
+        if( field == TrackingField.PERIPHERAL_P50 ) return peripheralLatencies.percentile( 0.5 );
+        if( field == TrackingField.PERIPHERAL_P99 ) return peripheralLatencies.percentile( 0.99 );
+        if( field == TrackingField.PERIPHERAL_P999 ) return peripheralLatencies.percentile( 0.999 );
+
         synchronized( fields )
         {
             return fields.getLong( field );
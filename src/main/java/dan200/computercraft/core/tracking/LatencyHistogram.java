@@ -0,0 +1,176 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.tracking;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations, in nanoseconds, used to estimate percentiles.
+ *
+ * Durations are sorted into logarithmic buckets: each power of two is split into {@link #SUB_BUCKETS} equally sized
+ * buckets, so a bucket's width is at most 1/8th of the values it holds. This gives percentiles to within ~6% while
+ * only needing a few hundred counters, in a similar manner to HdrHistogram.
+ *
+ * Recording values is thread-safe and does not block.
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The largest power of two we track. Durations longer than 2^40ns (about 18 minutes) are recorded as if they were
+     * this long.
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = bucket( MAX_VALUE ) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+
+    public LatencyHistogram()
+    {
+    }
+
+    public LatencyHistogram( LatencyHistogram other )
+    {
+        add( other );
+    }
+
+    /**
+     * Record a single duration.
+     *
+     * @param value The duration, in nanoseconds.
+     */
+    public void record( long value )
+    {
+        counts.incrementAndGet( bucket( value ) );
+    }
+
+    /**
+     * Add all values from another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void add( LatencyHistogram other )
+    {
+        for( int i = 0; i < BUCKETS; i++ )
+        {
+            long count = other.counts.get( i );
+            if( count != 0 ) counts.addAndGet( i, count );
+        }
+    }
+
+    /**
+     * Move all values from this histogram into another one, leaving this histogram empty.
+     *
+     * @param other The histogram to move values into.
+     * @return The number of values moved.
+     */
+    long drainTo( LatencyHistogram other )
+    {
+        long total = 0;
+        for( int i = 0; i < BUCKETS; i++ )
+        {
+            if( counts.get( i ) == 0 ) continue;
+
+            long count = counts.getAndSet( i, 0 );
+            other.counts.addAndGet( i, count );
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Remove all values from this histogram.
+     */
+    void clear()
+    {
+        for( int i = 0; i < BUCKETS; i++ ) counts.set( i, 0 );
+    }
+
+    /**
+     * Get the number of values recorded in this histogram.
+     *
+     * @return The number of values.
+     */
+    public long count()
+    {
+        long total = 0;
+        for( int i = 0; i < BUCKETS; i++ ) total += counts.get( i );
+        return total;
+    }
+
+    /**
+     * Count the values no longer than a given duration.
+     *
+     * If {@code limit} falls within a bucket, that bucket's values are not included, so this may undercount by up to
+     * one bucket's width. It is exact when {@code limit + 1} is the start of a bucket.
+     *
+     * @param limit The longest duration to include, in nanoseconds.
+     * @return The number of values no longer than {@code limit}.
+     */
+    public long countAtMost( long limit )
+    {
+        if( limit < 0 ) return 0;
+
+        int end = limit >= MAX_VALUE ? BUCKETS : bucket( limit + 1 );
+        long total = 0;
+        for( int i = 0; i < end; i++ ) total += counts.get( i );
+        return total;
+    }
+
+    /**
+     * Estimate a percentile of the recorded values.
+     *
+     * @param percentile The percentile to find, between 0 and 1 (for instance, 0.99 for the 99th percentile).
+     * @return The estimated value at this percentile, or 0 if no values have been recorded.
+     */
+    public long percentile( double percentile )
+    {
+        long total = count();
+        if( total == 0 ) return 0;
+
+        long rank = Math.max( 1, (long) Math.ceil( percentile * total ) );
+        long seen = 0;
+        for( int i = 0; i < BUCKETS; i++ )
+        {
+            seen += counts.get( i );
+            if( seen >= rank ) return midpoint( i );
+        }
+
+        return midpoint( BUCKETS - 1 );
+    }
+
+    static int bucket( long value )
+    {
+        if( value < SUB_BUCKETS ) return value < 0 ? 0 : (int) value;
+        if( value > MAX_VALUE ) value = MAX_VALUE;
+
+        int exponent = 63 - Long.numberOfLeadingZeros( value );
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound( int bucket )
+    {
+        if( bucket < SUB_BUCKETS ) return bucket;
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return (1L << exponent) + ((long) sub << (exponent - SUB_BUCKET_BITS));
+    }
+
+    private static long midpoint( int bucket )
+    {
+        if( bucket < SUB_BUCKETS ) return bucket;
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return lowerBound( bucket ) + width / 2;
+    }
+}
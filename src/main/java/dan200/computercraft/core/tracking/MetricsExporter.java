@@ -0,0 +1,409 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.tracking;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.core.apis.http.CheckUrl;
+import dan200.computercraft.core.apis.http.ResourceGroup;
+import dan200.computercraft.core.apis.http.request.HttpRequest;
+import dan200.computercraft.core.apis.http.websocket.Websocket;
+import dan200.computercraft.core.computer.Computer;
+import dan200.computercraft.core.computer.ComputerThread;
+import dan200.computercraft.core.computer.MainThread;
+import dan200.computercraft.shared.util.ThreadUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A {@link Tracker} which aggregates values across every computer, and exports them (along with other server-wide
+ * metrics) in the OpenMetrics text format, so they can be collected by Prometheus.
+ *
+ * Metrics may be served over HTTP (see {@link #serve(InetSocketAddress)}), or periodically written to a file (see
+ * {@link #writeTo(Path)}), for instance for use with node_exporter's textfile collector.
+ */
+public final class MetricsExporter implements Tracker
+{
+    static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    /**
+     * How often metrics are written to a file, in seconds.
+     */
+    private static final int FILE_INTERVAL = 15;
+
+    private static final double SECOND = 1e9;
+
+    /**
+     * The upper bounds of the buckets in exported histograms, in nanoseconds. These are coarser than the
+     * {@link LatencyHistogram}'s own buckets, to keep the number of series down.
+     */
+    private static final long[] BUCKET_BOUNDS = new long[] {
+        100_000, 250_000, 500_000,
+        1_000_000, 2_500_000, 5_000_000,
+        10_000_000, 25_000_000, 50_000_000,
+        100_000_000, 250_000_000, 500_000_000,
+        1_000_000_000, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L,
+    };
+
+    private static MetricsExporter instance;
+
+    private final LongAdder taskTime = new LongAdder();
+    private final LongAdder serverTime = new LongAdder();
+    private final LatencyHistogram taskLatencies = new LatencyHistogram();
+    private final LatencyHistogram serverLatencies = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> peripheralLatencies = new ConcurrentHashMap<>();
+    private final Map<TrackingField, LongAdder> values = new ConcurrentHashMap<>();
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService executor;
+    private HttpServer server;
+
+    public MetricsExporter()
+    {
+        addGauge( "computercraft_computer_threads", "The number of threads computers are run on.", ComputerThread::getThreadCount );
+        addGauge( "computercraft_computer_queue", "The number of computers waiting to be run.", ComputerThread::getQueuedTasks );
+
+        addGauge( "computercraft_main_thread_budget_seconds", "The remaining time computers may spend on the server thread this tick.", () -> MainThread.getBudget() / SECOND );
+        addCounter( "computercraft_main_thread_seconds", "Time spent executing tasks on the server thread.", () -> MainThread.getTotalTime() / SECOND );
+        addCounter( "computercraft_main_thread_skipped_ticks", "Ticks where no tasks were run on the server thread, as it was over budget.", MainThread::getSkippedTicks );
+
+        addGauge( "computercraft_http_requests_open", "The number of HTTP requests currently open.", () -> ResourceGroup.getOpenCount( HttpRequest.class ) );
+        addGauge( "computercraft_http_checks_open", "The number of HTTP URL checks currently running.", () -> ResourceGroup.getOpenCount( CheckUrl.class ) );
+        addGauge( "computercraft_websockets_open", "The number of websockets currently open.", () -> ResourceGroup.getOpenCount( Websocket.class ) );
+    }
+
+    /**
+     * Start exporting metrics, as configured by {@link ComputerCraft#metricsPort} and {@link ComputerCraft#metricsFile}.
+     * Any previous exporter is stopped.
+     *
+     * @return The started exporter, or {@code null} if exporting metrics is disabled.
+     */
+    @Nullable
+    public static MetricsExporter start()
+    {
+        stop();
+        if( ComputerCraft.metricsPort <= 0 && ComputerCraft.metricsFile.isEmpty() ) return null;
+
+        MetricsExporter exporter = new MetricsExporter();
+        if( ComputerCraft.metricsPort > 0 )
+        {
+            try
+            {
+                exporter.serve( new InetSocketAddress( ComputerCraft.metricsAddress, ComputerCraft.metricsPort ) );
+            }
+            catch( IOException e )
+            {
+                ComputerCraft.log.error( "Cannot serve metrics on {}:{}", ComputerCraft.metricsAddress, ComputerCraft.metricsPort, e );
+            }
+        }
+
+        if( !ComputerCraft.metricsFile.isEmpty() ) exporter.writeTo( Paths.get( ComputerCraft.metricsFile ) );
+
+        Tracking.add( exporter );
+        return instance = exporter;
+    }
+
+    /**
+     * Stop the current exporter, if one is running.
+     */
+    public static void stop()
+    {
+        if( instance == null ) return;
+        instance.close();
+        instance = null;
+    }
+
+    /**
+     * Add a metric whose value may go up or down, such as a queue's length.
+     *
+     * @param name  The name of this metric.
+     * @param help  A description of this metric.
+     * @param value A function to compute the current value.
+     */
+    public void addGauge( @Nonnull String name, @Nonnull String help, @Nonnull DoubleSupplier value )
+    {
+        metrics.add( new Metric( name, "gauge", help, value ) );
+    }
+
+    /**
+     * Add a metric whose value only ever goes up, such as the number of events which have happened.
+     *
+     * @param name  The name of this metric. This should not include the {@code _total} suffix.
+     * @param help  A description of this metric.
+     * @param value A function to compute the current value.
+     */
+    public void addCounter( @Nonnull String name, @Nonnull String help, @Nonnull DoubleSupplier value )
+    {
+        metrics.add( new Metric( name, "counter", help, value ) );
+    }
+
+    /**
+     * Serve metrics over HTTP, at {@code /metrics}.
+     *
+     * @param address The address to listen on.
+     * @throws IOException If the server could not be started.
+     */
+    public synchronized void serve( @Nonnull InetSocketAddress address ) throws IOException
+    {
+        HttpServer server = HttpServer.create( address, 0 );
+        server.createContext( "/metrics", this::handle );
+        server.setExecutor( getExecutor() );
+        server.start();
+        this.server = server;
+    }
+
+    /**
+     * Periodically write metrics to a file.
+     *
+     * @param file The file to write to. This is replaced atomically, so readers never see a partially written file.
+     */
+    public synchronized void writeTo( @Nonnull Path file )
+    {
+        getExecutor().scheduleAtFixedRate( () -> write( file ), 0, FILE_INTERVAL, TimeUnit.SECONDS );
+    }
+
+    /**
+     * Stop serving and writing metrics.
+     */
+    public synchronized void close()
+    {
+        if( server != null )
+        {
+            server.stop( 0 );
+            server = null;
+        }
+
+        if( executor != null )
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    private ScheduledExecutorService getExecutor()
+    {
+        if( executor == null ) executor = Executors.newSingleThreadScheduledExecutor( ThreadUtils.factory( "Metrics" ) );
+        return executor;
+    }
+
+    private void handle( HttpExchange exchange ) throws IOException
+    {
+        try
+        {
+            if( !exchange.getRequestMethod().equals( "GET" ) )
+            {
+                exchange.sendResponseHeaders( 405, -1 );
+                return;
+            }
+
+            byte[] body = scrape().getBytes( StandardCharsets.UTF_8 );
+            exchange.getResponseHeaders().set( "Content-Type", CONTENT_TYPE );
+            exchange.sendResponseHeaders( 200, body.length );
+            try( OutputStream output = exchange.getResponseBody() )
+            {
+                output.write( body );
+            }
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    void write( Path file )
+    {
+        byte[] body = scrape().getBytes( StandardCharsets.UTF_8 );
+        Path temp = file.resolveSibling( file.getFileName() + ".tmp" );
+        try
+        {
+            Files.write( temp, body );
+            try
+            {
+                Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            }
+            catch( AtomicMoveNotSupportedException e )
+            {
+                Files.move( temp, file, StandardCopyOption.REPLACE_EXISTING );
+            }
+        }
+        catch( IOException e )
+        {
+            ComputerCraft.log.error( "Cannot write metrics to {}", file, e );
+        }
+    }
+
+    /**
+     * Get the current value of every metric, in the OpenMetrics text format.
+     *
+     * @return The current metrics.
+     */
+    @Nonnull
+    public String scrape()
+    {
+        Tracking.flush();
+
+        StringBuilder out = new StringBuilder();
+
+        header( out, "computercraft_task_seconds", "histogram", "Time spent executing tasks on the computer thread." );
+        writeHistogram( out, "computercraft_task_seconds", "", taskLatencies );
+        sample( out, "computercraft_task_seconds_sum", "", taskTime.sum() / SECOND );
+
+        header( out, "computercraft_server_task_seconds", "histogram", "Time spent executing computers' tasks on the server thread." );
+        writeHistogram( out, "computercraft_server_task_seconds", "", serverLatencies );
+        sample( out, "computercraft_server_task_seconds_sum", "", serverTime.sum() / SECOND );
+
+        header( out, "computercraft_peripheral_call_seconds", "histogram", "Latency of peripheral method calls, including time spent waiting for the server thread." );
+        for( Map.Entry<String, LatencyHistogram> method : new TreeMap<>( peripheralLatencies ).entrySet() )
+        {
+            writeHistogram( out, "computercraft_peripheral_call_seconds", "method=\"" + escape( method.getKey() ) + "\"", method.getValue() );
+        }
+
+        for( int i = 0; i < TrackingField.count(); i++ )
+        {
+            TrackingField field = TrackingField.byIndex( i );
+            LongAdder value = values.get( field );
+            if( value == null ) continue;
+
+            String name = "computercraft_" + field.id();
+            header( out, name, "counter", "Total of the " + field.id() + " tracking field, across all computers." );
+            sample( out, name + "_total", "", value.sum() );
+        }
+
+        for( Metric metric : metrics )
+        {
+            header( out, metric.name, metric.type, metric.help );
+            sample( out, metric.type.equals( "counter" ) ? metric.name + "_total" : metric.name, "", metric.value.getAsDouble() );
+        }
+
+        out.append( "# EOF\n" );
+        return out.toString();
+    }
+
+    private static void header( StringBuilder out, String name, String type, String help )
+    {
+        out.append( "# TYPE " ).append( name ).append( ' ' ).append( type ).append( '\n' );
+        out.append( "# HELP " ).append( name ).append( ' ' ).append( escape( help ) ).append( '\n' );
+    }
+
+    /**
+     * Write the cumulative buckets and count of a histogram. The count is taken from the histogram rather than the
+     * task timings, so it always matches the {@code +Inf} bucket.
+     *
+     * @param out       The buffer to write to.
+     * @param name      The name of this histogram.
+     * @param labels    Any additional labels for this histogram, without the surrounding braces.
+     * @param latencies The latencies to write.
+     */
+    private static void writeHistogram( StringBuilder out, String name, String labels, LatencyHistogram latencies )
+    {
+        // Copy the histogram first, so the buckets are consistent with each other even while values are being added.
+        LatencyHistogram snapshot = new LatencyHistogram( latencies );
+        String prefix = labels.isEmpty() ? "{" : "{" + labels + ",";
+        for( long bound : BUCKET_BOUNDS )
+        {
+            String le = BigDecimal.valueOf( bound ).movePointLeft( 9 ).stripTrailingZeros().toPlainString();
+            sample( out, name + "_bucket", prefix + "le=\"" + le + "\"}", snapshot.countAtMost( bound ) );
+        }
+
+        long count = snapshot.count();
+        sample( out, name + "_bucket", prefix + "le=\"+Inf\"}", count );
+        sample( out, name + "_count", labels.isEmpty() ? "" : "{" + labels + "}", count );
+    }
+
+    private static void sample( StringBuilder out, String name, String labels, double value )
+    {
+        out.append( name ).append( labels ).append( ' ' );
+        if( value == (long) value )
+        {
+            out.append( (long) value );
+        }
+        else
+        {
+            out.append( value );
+        }
+        out.append( '\n' );
+    }
+
+    private static String escape( String value )
+    {
+        return value.replace( "\\", "\\\\" ).replace( "\"", "\\\"" ).replace( "\n", "\\n" );
+    }
+
+    @Override
+    public void addTaskTiming( Computer computer, long count, long total, long max )
+    {
+        taskTime.add( total );
+    }
+
+    @Override
+    public void addServerTiming( Computer computer, long count, long total )
+    {
+        serverTime.add( total );
+    }
+
+    @Override
+    public void addValue( Computer computer, TrackingField field, long count, long change )
+    {
+        values.computeIfAbsent( field, x -> new LongAdder() ).add( change );
+    }
+
+    @Override
+    public void addTaskLatencies( Computer computer, LatencyHistogram latencies )
+    {
+        taskLatencies.add( latencies );
+    }
+
+    @Override
+    public void addServerLatencies( Computer computer, LatencyHistogram latencies )
+    {
+        serverLatencies.add( latencies );
+    }
+
+    @Override
+    public void addPeripheralLatencies( Computer computer, String method, LatencyHistogram latencies )
+    {
+        peripheralLatencies.computeIfAbsent( method, x -> new LatencyHistogram() ).add( latencies );
+    }
+
+    private static final class Metric
+    {
+        final String name;
+        final String type;
+        final String help;
+        final DoubleSupplier value;
+
+        Metric( String name, String type, String help, DoubleSupplier value )
+        {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+            this.value = value;
+        }
+    }
+}
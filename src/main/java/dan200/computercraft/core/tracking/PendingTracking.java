@@ -0,0 +1,175 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.tracking;
+
+import dan200.computercraft.core.computer.Computer;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Values for a single computer which have been recorded but not yet passed to any {@link Tracker}s.
+ *
+ * Values are accumulated in {@link LongAdder}s, so recording them never blocks, even when many threads report values
+ * for the same computer. They are collected by {@link Tracking#flush()}.
+ *
+ * This only holds a weak reference to its computer. {@link Tracking} keys these by computer in a weak map, so a strong
+ * reference here would keep every computer alive.
+ */
+final class PendingTracking
+{
+    private final WeakReference<Computer> computer;
+
+    /**
+     * Whether this is in {@link Tracking}'s queue of computers to flush.
+     */
+    final AtomicBoolean queued = new AtomicBoolean();
+
+    final LongAdder tasks = new LongAdder();
+    final LongAdder taskTime = new LongAdder();
+    final LongAccumulator taskMax = new LongAccumulator( Math::max, 0 );
+
+    final LongAdder serverCount = new LongAdder();
+    final LongAdder serverTime = new LongAdder();
+
+    private final LatencyHistogram taskLatencies = new LatencyHistogram();
+    private final LatencyHistogram serverLatencies = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> peripheralLatencies = new ConcurrentHashMap<>();
+
+    private volatile Counter[] fields = new Counter[0];
+
+    PendingTracking( Computer computer )
+    {
+        this.computer = new WeakReference<>( computer );
+    }
+
+    void addTaskTiming( long time )
+    {
+        tasks.increment();
+        taskTime.add( time );
+        taskMax.accumulate( time );
+        taskLatencies.record( time );
+    }
+
+    void addServerTiming( long time )
+    {
+        serverCount.increment();
+        serverTime.add( time );
+        serverLatencies.record( time );
+    }
+
+    void addPeripheralTiming( String method, long time )
+    {
+        LatencyHistogram latencies = peripheralLatencies.get( method );
+        if( latencies == null ) latencies = peripheralLatencies.computeIfAbsent( method, x -> new LatencyHistogram() );
+        latencies.record( time );
+    }
+
+    void addValue( TrackingField field, long change )
+    {
+        Counter counter = getCounter( field.index() );
+        counter.count.increment();
+        counter.value.add( change );
+    }
+
+    /**
+     * Collect all pending values, passing them to each tracker and resetting them to 0.
+     *
+     * @param trackers The trackers to pass values to.
+     * @param scratch  An empty histogram, used to collect latencies before passing them to each tracker.
+     */
+    void drain( List<Tracker> trackers, LatencyHistogram scratch )
+    {
+        Computer computer = this.computer.get();
+        if( computer == null ) return;
+
+        long tasks = this.tasks.sumThenReset();
+        long taskTime = this.taskTime.sumThenReset();
+        long taskMax = this.taskMax.getThenReset();
+        if( tasks > 0 )
+        {
+            for( Tracker tracker : trackers ) tracker.addTaskTiming( computer, tasks, taskTime, taskMax );
+        }
+
+        long serverCount = this.serverCount.sumThenReset();
+        long serverTime = this.serverTime.sumThenReset();
+        if( serverCount > 0 )
+        {
+            for( Tracker tracker : trackers ) tracker.addServerTiming( computer, serverCount, serverTime );
+        }
+
+        if( taskLatencies.drainTo( scratch ) > 0 )
+        {
+            for( Tracker tracker : trackers ) tracker.addTaskLatencies( computer, scratch );
+            scratch.clear();
+        }
+
+        if( serverLatencies.drainTo( scratch ) > 0 )
+        {
+            for( Tracker tracker : trackers ) tracker.addServerLatencies( computer, scratch );
+            scratch.clear();
+        }
+
+        for( Map.Entry<String, LatencyHistogram> method : peripheralLatencies.entrySet() )
+        {
+            if( method.getValue().drainTo( scratch ) == 0 ) continue;
+
+            for( Tracker tracker : trackers ) tracker.addPeripheralLatencies( computer, method.getKey(), scratch );
+            scratch.clear();
+        }
+
+        Counter[] fields = this.fields;
+        for( int i = 0; i < fields.length; i++ )
+        {
+            Counter counter = fields[i];
+            if( counter == null ) continue;
+
+            long count = counter.count.sumThenReset();
+            long value = counter.value.sumThenReset();
+            if( count == 0 ) continue;
+
+            TrackingField field = TrackingField.byIndex( i );
+            for( Tracker tracker : trackers ) tracker.addValue( computer, field, count, value );
+        }
+    }
+
+    private Counter getCounter( int index )
+    {
+        Counter[] fields = this.fields;
+        Counter counter;
+        if( index < fields.length && (counter = fields[index]) != null ) return counter;
+
+        synchronized( this )
+        {
+            fields = this.fields;
+            if( index >= fields.length )
+            {
+                Counter[] newFields = new Counter[TrackingField.count()];
+                System.arraycopy( fields, 0, newFields, 0, fields.length );
+                fields = newFields;
+            }
+
+            counter = fields[index];
+            if( counter == null )
+            {
+                fields[index] = counter = new Counter();
+                this.fields = fields;
+            }
+            return counter;
+        }
+    }
+
+    private static final class Counter
+    {
+        final LongAdder count = new LongAdder();
+        final LongAdder value = new LongAdder();
+    }
+}
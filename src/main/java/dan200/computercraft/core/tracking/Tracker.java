@@ -7,41 +7,92 @@
 
 import dan200.computercraft.core.computer.Computer;
 
+/**
+ * Receives information about computers from {@link Tracking}.
+ *
+ * Values are not passed to trackers as they are recorded. Instead, they are accumulated for each computer and passed
+ * on in batches by {@link Tracking#flush()}, so each method may describe several events at once.
+ */
 public interface Tracker
 {
     /**
-     * Report how long a task executed on the computer thread took.
+     * Report how long tasks executed on the computer thread took.
      *
      * Computer thread tasks include events or a computer being turned on/off.
      *
-     * @param computer The computer processing this task
-     * @param time     The time taken for this task.
+     * @param computer The computer processing these tasks
+     * @param count    The number of tasks executed.
+     * @param total    The total time taken for these tasks.
+     * @param max      The longest time taken by a single task.
      */
-    default void addTaskTiming( Computer computer, long time )
+    default void addTaskTiming( Computer computer, long count, long total, long max )
     {
     }
 
     /**
-     * Report how long a task executed on the server thread took.
+     * Report how long tasks executed on the server thread took.
      *
      * Server tasks include actions performed by peripherals.
      *
-     * @param computer The computer processing this task
-     * @param time     The time taken for this task.
+     * @param computer The computer processing these tasks
+     * @param count    The number of tasks executed.
+     * @param total    The total time taken for these tasks.
      */
-    default void addServerTiming( Computer computer, long time )
+    default void addServerTiming( Computer computer, long count, long total )
     {
     }
 
     /**
-     * Increment an arbitrary field by some value. Implementations may track how often this is called
+     * Increment an arbitrary field by some value. Implementations may track how often this is incremented
      * as well as the change, to compute some level of "average".
      *
      * @param computer The computer to increment
      * @param field    The field to increment.
-     * @param change   The amount to increment said field by.
+     * @param count    The number of times this field was incremented.
+     * @param change   The total amount to increment said field by.
+     */
+    default void addValue( Computer computer, TrackingField field, long count, long change )
+    {
+    }
+
+    /**
+     * Report the distribution of durations of tasks executed on the computer thread. This is called alongside
+     * {@link #addTaskTiming(Computer, long, long, long)}.
+     *
+     * The histogram is reused once this method returns, so implementations should copy any values they need.
+     *
+     * @param computer  The computer processing these tasks.
+     * @param latencies The durations of these tasks.
+     */
+    default void addTaskLatencies( Computer computer, LatencyHistogram latencies )
+    {
+    }
+
+    /**
+     * Report the distribution of durations of tasks executed on the server thread. This is called alongside
+     * {@link #addServerTiming(Computer, long, long)}.
+     *
+     * The histogram is reused once this method returns, so implementations should copy any values they need.
+     *
+     * @param computer  The computer processing these tasks.
+     * @param latencies The durations of these tasks.
+     */
+    default void addServerLatencies( Computer computer, LatencyHistogram latencies )
+    {
+    }
+
+    /**
+     * Report the distribution of latencies of calls to a peripheral method. This measures the time from the method
+     * being called to its result being returned to the computer, including any time spent waiting for the server
+     * thread.
+     *
+     * The histogram is reused once this method returns, so implementations should copy any values they need.
+     *
+     * @param computer  The computer calling this method.
+     * @param method    The peripheral type and method name, such as {@code "printer.write"}.
+     * @param latencies The latencies of these calls.
      */
-    default void addValue( Computer computer, TrackingField field, long change )
+    default void addPeripheralLatencies( Computer computer, String method, LatencyHistogram latencies )
     {
     }
 }
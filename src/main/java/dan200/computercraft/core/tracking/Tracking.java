@@ -5,14 +5,21 @@
  */
 package dan200.computercraft.core.tracking;
 
+import com.google.common.collect.MapMaker;
 import dan200.computercraft.core.computer.Computer;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Records information about computers, and passes it on to each {@link TrackingContext} and {@link Tracker}.
+ *
+ * Recording a value does not take any locks: values are accumulated for each computer in a {@link PendingTracking},
+ * and only passed to trackers when {@link #flush()} is called. This happens every tick, and before a
+ * {@link TrackingContext}'s timings are read.
+ */
 public final class Tracking
 {
     static final AtomicInteger tracking = new AtomicInteger( 0 );
@@ -21,6 +28,9 @@
     private static final HashMap<UUID, TrackingContext> contexts = new HashMap<>();
     private static final List<Tracker> trackers = new ArrayList<>();
 
+    private static final ConcurrentMap<Computer, PendingTracking> pending = new MapMaker().weakKeys().makeMap();
+    private static final Queue<PendingTracking> dirty = new ConcurrentLinkedQueue<>();
+
     private Tracking() {}
 
     public static TrackingContext getContext( UUID uuid )
@@ -46,32 +56,81 @@ public static void addTaskTiming( Computer computer, long time )
     {
         if( tracking.get() == 0 ) return;
 
-        synchronized( contexts )
-        {
-            for( TrackingContext context : contexts.values() ) context.addTaskTiming( computer, time );
-            for( Tracker tracker : trackers ) tracker.addTaskTiming( computer, time );
-        }
+        PendingTracking pending = getPending( computer );
+        pending.addTaskTiming( time );
+        markDirty( pending );
     }
 
     public static void addServerTiming( Computer computer, long time )
     {
         if( tracking.get() == 0 ) return;
 
-        synchronized( contexts )
-        {
-            for( TrackingContext context : contexts.values() ) context.addServerTiming( computer, time );
-            for( Tracker tracker : trackers ) tracker.addServerTiming( computer, time );
-        }
+        PendingTracking pending = getPending( computer );
+        pending.addServerTiming( time );
+        markDirty( pending );
+    }
+
+    public static void addPeripheralTiming( Computer computer, String method, long time )
+    {
+        if( tracking.get() == 0 ) return;
+
+        PendingTracking pending = getPending( computer );
+        pending.addPeripheralTiming( method, time );
+        markDirty( pending );
     }
 
     public static void addValue( Computer computer, TrackingField field, long change )
     {
         if( tracking.get() == 0 ) return;
 
+        PendingTracking pending = getPending( computer );
+        pending.addValue( field, change );
+        markDirty( pending );
+    }
+
+    /**
+     * Whether anything is currently being tracked. This may be used to skip expensive measurements.
+     *
+     * @return Whether tracking is enabled.
+     */
+    public static boolean isEnabled()
+    {
+        return tracking.get() != 0;
+    }
+
+    private static PendingTracking getPending( Computer computer )
+    {
+        PendingTracking existing = pending.get( computer );
+        return existing != null ? existing : pending.computeIfAbsent( computer, PendingTracking::new );
+    }
+
+    private static void markDirty( PendingTracking pending )
+    {
+        if( !pending.queued.get() && pending.queued.compareAndSet( false, true ) ) dirty.add( pending );
+    }
+
+    /**
+     * Pass all recorded values to each context and tracker.
+     */
+    public static void flush()
+    {
+        if( dirty.isEmpty() ) return;
+
         synchronized( lock )
         {
-            for( TrackingContext context : contexts.values() ) context.addValue( computer, field, change );
-            for( Tracker tracker : trackers ) tracker.addValue( computer, field, change );
+            List<Tracker> targets = new ArrayList<>( contexts.size() + trackers.size() );
+            targets.addAll( contexts.values() );
+            targets.addAll( trackers );
+
+            LatencyHistogram scratch = new LatencyHistogram();
+            PendingTracking pending;
+            while( (pending = dirty.poll()) != null )
+            {
+                // Clear the flag before collecting values, so any values recorded while we do so are picked up by
+                // the next flush.
+                pending.queued.set( false );
+                pending.drain( targets, scratch );
+            }
         }
     }
 
@@ -82,6 +141,9 @@ public static void reset()
             contexts.clear();
             trackers.clear();
             tracking.set( 0 );
+
+            pending.clear();
+            dirty.clear();
         }
     }
 }
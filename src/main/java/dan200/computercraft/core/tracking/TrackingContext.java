@@ -8,9 +8,7 @@
 import com.google.common.collect.MapMaker;
 import dan200.computercraft.core.computer.Computer;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Tracks timing information about computers, including how long they ran for
@@ -25,92 +23,131 @@ public class TrackingContext implements Tracker
 
     private final List<ComputerTracker> timings = new ArrayList<>();
     private final Map<Computer, ComputerTracker> timingLookup = new MapMaker().weakKeys().makeMap();
+    private final Map<String, LatencyHistogram> peripheralLatencies = new HashMap<>();
 
-    public synchronized void start()
+    public void start()
     {
-        if( !tracking ) Tracking.tracking.incrementAndGet();
-        tracking = true;
+        // Collect any values recorded before we started, so they're not included in this session.
+        Tracking.flush();
 
-        timings.clear();
-        timingLookup.clear();
+        synchronized( this )
+        {
+            if( !tracking ) Tracking.tracking.incrementAndGet();
+            tracking = true;
+
+            timings.clear();
+            timingLookup.clear();
+            peripheralLatencies.clear();
+        }
     }
 
-    public synchronized boolean stop()
+    public boolean stop()
     {
-        if( !tracking ) return false;
+        // Collect any values recorded before we stopped.
+        Tracking.flush();
+
+        synchronized( this )
+        {
+            if( !tracking ) return false;
 
-        Tracking.tracking.decrementAndGet();
-        tracking = false;
-        timingLookup.clear();
-        return true;
+            Tracking.tracking.decrementAndGet();
+            tracking = false;
+            timingLookup.clear();
+            return true;
+        }
     }
 
-    public synchronized List<ComputerTracker> getImmutableTimings()
+    public List<ComputerTracker> getImmutableTimings()
     {
-        ArrayList<ComputerTracker> timings = new ArrayList<>( this.timings.size() );
-        for( ComputerTracker timing : this.timings ) timings.add( new ComputerTracker( timing ) );
-        return timings;
+        Tracking.flush();
+
+        synchronized( this )
+        {
+            ArrayList<ComputerTracker> timings = new ArrayList<>( this.timings.size() );
+            for( ComputerTracker timing : this.timings ) timings.add( new ComputerTracker( timing ) );
+            return timings;
+        }
     }
 
-    public synchronized List<ComputerTracker> getTimings()
+    public List<ComputerTracker> getTimings()
     {
-        return new ArrayList<>( timings );
+        Tracking.flush();
+
+        synchronized( this )
+        {
+            return new ArrayList<>( timings );
+        }
     }
 
-    @Override
-    public void addTaskTiming( Computer computer, long time )
+    /**
+     * Get the latencies of each peripheral method called while tracking, across all computers.
+     *
+     * @return A copy of each method's latencies, sorted by method name.
+     */
+    public SortedMap<String, LatencyHistogram> getPeripheralLatencies()
     {
-        if( !tracking ) return;
+        Tracking.flush();
 
         synchronized( this )
         {
-            ComputerTracker computerTimings = timingLookup.get( computer );
-            if( computerTimings == null )
+            SortedMap<String, LatencyHistogram> latencies = new TreeMap<>();
+            for( Map.Entry<String, LatencyHistogram> method : peripheralLatencies.entrySet() )
             {
-                computerTimings = new ComputerTracker( computer );
-                timingLookup.put( computer, computerTimings );
-                timings.add( computerTimings );
+                latencies.put( method.getKey(), new LatencyHistogram( method.getValue() ) );
             }
-
-            computerTimings.addTaskTiming( time );
+            return latencies;
         }
     }
 
     @Override
-    public void addServerTiming( Computer computer, long time )
+    public synchronized void addTaskTiming( Computer computer, long count, long total, long max )
     {
-        if( !tracking ) return;
+        if( tracking ) getTracker( computer ).addTaskTiming( count, total, max );
+    }
 
-        synchronized( this )
-        {
-            ComputerTracker computerTimings = timingLookup.get( computer );
-            if( computerTimings == null )
-            {
-                computerTimings = new ComputerTracker( computer );
-                timingLookup.put( computer, computerTimings );
-                timings.add( computerTimings );
-            }
+    @Override
+    public synchronized void addServerTiming( Computer computer, long count, long total )
+    {
+        if( tracking ) getTracker( computer ).addMainTiming( count, total );
+    }
 
-            computerTimings.addMainTiming( time );
-        }
+    @Override
+    public synchronized void addValue( Computer computer, TrackingField field, long count, long change )
+    {
+        if( tracking ) getTracker( computer ).addValue( field, change );
+    }
+
+    @Override
+    public synchronized void addTaskLatencies( Computer computer, LatencyHistogram latencies )
+    {
+        if( tracking ) getTracker( computer ).addTaskLatencies( latencies );
     }
 
     @Override
-    public void addValue( Computer computer, TrackingField field, long change )
+    public synchronized void addServerLatencies( Computer computer, LatencyHistogram latencies )
+    {
+        if( tracking ) getTracker( computer ).addServerLatencies( latencies );
+    }
+
+    @Override
+    public synchronized void addPeripheralLatencies( Computer computer, String method, LatencyHistogram latencies )
     {
         if( !tracking ) return;
 
-        synchronized( this )
-        {
-            ComputerTracker computerTimings = timingLookup.get( computer );
-            if( computerTimings == null )
-            {
-                computerTimings = new ComputerTracker( computer );
-                timingLookup.put( computer, computerTimings );
-                timings.add( computerTimings );
-            }
+        getTracker( computer ).addPeripheralLatencies( latencies );
+        peripheralLatencies.computeIfAbsent( method, x -> new LatencyHistogram() ).add( latencies );
+    }
 
-            computerTimings.addValue( field, change );
+    private ComputerTracker getTracker( Computer computer )
+    {
+        ComputerTracker computerTimings = timingLookup.get( computer );
+        if( computerTimings == null )
+        {
+            computerTimings = new ComputerTracker( computer );
+            timingLookup.put( computer, computerTimings );
+            timings.add( computerTimings );
         }
+
+        return computerTimings;
     }
 }
@@ -5,24 +5,34 @@
  */
 package dan200.computercraft.core.tracking;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.function.LongFunction;
 
 public final class TrackingField
 {
     private static final Map<String, TrackingField> fields = new HashMap<>();
+    private static final List<TrackingField> fieldList = new ArrayList<>();
 
     public static final TrackingField TASKS = TrackingField.of( "tasks", x -> String.format( "%4d", x ) );
     public static final TrackingField TOTAL_TIME = TrackingField.of( "total", x -> String.format( "%7.1fms", x / 1e6 ) );
     public static final TrackingField AVERAGE_TIME = TrackingField.of( "average", x -> String.format( "%4.1fms", x / 1e6 ) );
     public static final TrackingField MAX_TIME = TrackingField.of( "max", x -> String.format( "%5.1fms", x / 1e6 ) );
 
+    public static final TrackingField TASK_P50 = TrackingField.of( "task_p50", TrackingField::formatMillis );
+    public static final TrackingField TASK_P99 = TrackingField.of( "task_p99", TrackingField::formatMillis );
+    public static final TrackingField TASK_P999 = TrackingField.of( "task_p999", TrackingField::formatMillis );
+
     public static final TrackingField SERVER_COUNT = TrackingField.of( "server_count", x -> String.format( "%4d", x ) );
     public static final TrackingField SERVER_TIME = TrackingField.of( "server_time", x -> String.format( "%7.1fms", x / 1e6 ) );
 
+    public static final TrackingField SERVER_P50 = TrackingField.of( "server_p50", TrackingField::formatMillis );
+    public static final TrackingField SERVER_P99 = TrackingField.of( "server_p99", TrackingField::formatMillis );
+    public static final TrackingField SERVER_P999 = TrackingField.of( "server_p999", TrackingField::formatMillis );
+
     public static final TrackingField PERIPHERAL_OPS = TrackingField.of( "peripheral", TrackingField::formatDefault );
+    public static final TrackingField PERIPHERAL_P50 = TrackingField.of( "peripheral_p50", TrackingField::formatMillis );
+    public static final TrackingField PERIPHERAL_P99 = TrackingField.of( "peripheral_p99", TrackingField::formatMillis );
+    public static final TrackingField PERIPHERAL_P999 = TrackingField.of( "peripheral_p999", TrackingField::formatMillis );
     public static final TrackingField FS_OPS = TrackingField.of( "fs", TrackingField::formatDefault );
     public static final TrackingField TURTLE_OPS = TrackingField.of( "turtle", TrackingField::formatDefault );
 
@@ -36,6 +46,7 @@
     public static final TrackingField COROUTINES_CREATED = TrackingField.of( "coroutines_created", x -> String.format( "%4d", x ) );
     public static final TrackingField COROUTINES_DISPOSED = TrackingField.of( "coroutines_dead", x -> String.format( "%4d", x ) );
 
+    private final int index;
     private final String id;
     private final String translationKey;
     private final LongFunction<String> format;
@@ -50,8 +61,19 @@ public String translationKey()
         return translationKey;
     }
 
-    private TrackingField( String id, LongFunction<String> format )
+    /**
+     * A unique, sequential index for this field, used by {@link PendingTracking} to store fields in an array.
+     *
+     * @return This field's index.
+     */
+    int index()
+    {
+        return index;
+    }
+
+    private TrackingField( int index, String id, LongFunction<String> format )
     {
+        this.index = index;
         this.id = id;
         translationKey = "tracking_field.computercraft." + id + ".name";
         this.format = format;
@@ -64,11 +86,22 @@ public String format( long value )
 
     public static TrackingField of( String id, LongFunction<String> format )
     {
-        TrackingField field = new TrackingField( id, format );
+        TrackingField field = new TrackingField( fieldList.size(), id, format );
         fields.put( id, field );
+        fieldList.add( field );
         return field;
     }
 
+    static TrackingField byIndex( int index )
+    {
+        return fieldList.get( index );
+    }
+
+    static int count()
+    {
+        return fieldList.size();
+    }
+
     public static Map<String, TrackingField> fields()
     {
         return Collections.unmodifiableMap( fields );
@@ -79,6 +112,11 @@ private static String formatDefault( long value )
         return String.format( "%6d", value );
     }
 
+    private static String formatMillis( long value )
+    {
+        return String.format( "%5.1fms", value / 1e6 );
+    }
+
     /**
      * So technically a kibibyte, but let's not argue here.
      */
@@ -7,13 +7,16 @@
 
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.core.computer.MainThread;
+import dan200.computercraft.core.filesystem.FileMount;
 import dan200.computercraft.core.tracking.ComputerMBean;
+import dan200.computercraft.core.tracking.MetricsExporter;
 import dan200.computercraft.core.tracking.Tracking;
 import dan200.computercraft.shared.command.CommandComputerCraft;
 import dan200.computercraft.shared.computer.core.IComputer;
 import dan200.computercraft.shared.computer.core.IContainerComputer;
 import dan200.computercraft.shared.computer.core.ServerComputer;
 import dan200.computercraft.shared.peripheral.modem.wireless.WirelessNetwork;
+import dan200.computercraft.shared.peripheral.monitor.MonitorWatcher;
 import net.minecraft.inventory.container.Container;
 import net.minecraft.loot.ConstantRange;
 import net.minecraft.loot.LootPool;
@@ -57,6 +60,11 @@ public static void onServerTick( TickEvent.ServerTickEvent event )
         {
             MainThread.executePendingTasks();
             ComputerCraft.serverComputerRegistry.update();
+            WirelessNetwork.tick();
+        }
+        else
+        {
+            Tracking.flush();
         }
     }
 
@@ -98,12 +106,21 @@ public static void onServerStarted( FMLServerStartedEvent event )
         WirelessNetwork.resetNetworks();
         Tracking.reset();
         ComputerMBean.registerTracker();
+
+        MetricsExporter metrics = MetricsExporter.start();
+        if( metrics != null )
+        {
+            metrics.addGauge( "computercraft_monitor_sent_bytes", "Bytes of monitor updates sent in the last tick.", MonitorWatcher::getBytesSent );
+            metrics.addGauge( "computercraft_monitor_queued_bytes", "Bytes of monitor updates waiting to be sent in the last tick.", MonitorWatcher::getBytesQueued );
+        }
     }
 
     @SubscribeEvent
     public static void onServerStopped( FMLServerStoppedEvent event )
     {
+        MetricsExporter.stop();
         ComputerCraft.serverComputerRegistry.reset();
+        FileMount.flushAll();
         WirelessNetwork.resetNetworks();
         Tracking.reset();
     }
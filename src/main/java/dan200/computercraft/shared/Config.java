@@ -14,6 +14,8 @@
 import dan200.computercraft.api.turtle.event.TurtleAction;
 import dan200.computercraft.core.apis.http.options.Action;
 import dan200.computercraft.core.apis.http.options.AddressRuleConfig;
+import dan200.computercraft.core.apis.http.options.AddressRules;
+import dan200.computercraft.core.computer.ComputerThread;
 import dan200.computercraft.shared.peripheral.monitor.MonitorRenderer;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.common.ForgeConfigSpec.Builder;
@@ -48,6 +50,7 @@
     private static final ConfigValue<Integer> computerThreads;
     private static final ConfigValue<Integer> maxMainGlobalTime;
     private static final ConfigValue<Integer> maxMainComputerTime;
+    private static final ConfigValue<Boolean> virtualThreadCoroutines;
 
     private static final ConfigValue<Boolean> httpEnabled;
     private static final ConfigValue<Boolean> httpWebsocketEnabled;
@@ -56,6 +59,10 @@
     private static final ConfigValue<Integer> httpMaxRequests;
     private static final ConfigValue<Integer> httpMaxWebsockets;
 
+    private static final ConfigValue<Integer> metricsPort;
+    private static final ConfigValue<String> metricsAddress;
+    private static final ConfigValue<String> metricsFile;
+
     private static final ConfigValue<Boolean> commandBlockEnabled;
     private static final ConfigValue<Integer> modemRange;
     private static final ConfigValue<Integer> modemHighAltitudeRange;
@@ -138,8 +145,8 @@ private Config() {}
             computerThreads = builder
                 .comment( "Set the number of threads computers can run on. A higher number means more computers can run " +
                     "at once, but may induce lag.\n" +
-                    "Please note that some mods may not work with a thread count higher than 1. Use with caution." )
-                .worldRestart()
+                    "Please note that some mods may not work with a thread count higher than 1. Use with caution.\n" +
+                    "Changes to this take effect immediately, without needing to restart the server." )
                 .defineInRange( "computer_threads", ComputerCraft.computerThreads, 1, Integer.MAX_VALUE );
 
             maxMainGlobalTime = builder
@@ -154,6 +161,12 @@ private Config() {}
                     "- this aims to be the upper bound of the average time." )
                 .defineInRange( "max_main_computer_time", (int) TimeUnit.NANOSECONDS.toMillis( ComputerCraft.maxMainComputerTime ), 1, Integer.MAX_VALUE );
 
+            virtualThreadCoroutines = builder
+                .comment( "Run Lua coroutines on virtual threads rather than OS threads. This greatly reduces the memory " +
+                    "used by programs with many coroutines. This is only supported when running on a Java version " +
+                    "with virtual threads (Java 21 or later), and is ignored otherwise." )
+                .define( "virtual_thread_coroutines", ComputerCraft.virtualThreadCoroutines );
+
             builder.pop();
         }
 
@@ -190,6 +203,28 @@ private Config() {}
             builder.pop();
         }
 
+        { // Metrics
+            builder.comment( "Exports metrics about computers in the OpenMetrics text format, for collection by Prometheus " +
+                "or similar. Changes to these options take effect when the server is next started." );
+            builder.push( "metrics" );
+
+            metricsPort = builder
+                .comment( "The port to serve metrics on, at \"/metrics\". Set to 0 to disable." )
+                .defineInRange( "port", ComputerCraft.metricsPort, 0, 65535 );
+
+            metricsAddress = builder
+                .comment( "The address to serve metrics on. This defaults to only accepting connections from the " +
+                    "local machine." )
+                .define( "address", ComputerCraft.metricsAddress );
+
+            metricsFile = builder
+                .comment( "A file to periodically write metrics to, for instance for node_exporter's textfile " +
+                    "collector. Leave empty to disable." )
+                .define( "file", ComputerCraft.metricsFile );
+
+            builder.pop();
+        }
+
         { // Peripherals
             builder.comment( "Various options relating to peripherals." );
             builder.push( "peripheral" );
@@ -318,8 +353,10 @@ public static void sync()
 
         // Execution
         ComputerCraft.computerThreads = computerThreads.get();
+        ComputerThread.setThreadCount( ComputerCraft.computerThreads );
         ComputerCraft.maxMainGlobalTime = TimeUnit.MILLISECONDS.toNanos( maxMainGlobalTime.get() );
         ComputerCraft.maxMainComputerTime = TimeUnit.MILLISECONDS.toNanos( maxMainComputerTime.get() );
+        ComputerCraft.virtualThreadCoroutines = virtualThreadCoroutines.get();
 
         // HTTP
         ComputerCraft.httpEnabled = httpEnabled.get();
@@ -327,9 +364,17 @@ public static void sync()
         ComputerCraft.httpRules = Collections.unmodifiableList( httpRules.get().stream()
             .map( AddressRuleConfig::parseRule ).filter( Objects::nonNull ).collect( Collectors.toList() ) );
 
+        // Compile the rules now, rather than on the first request.
+        AddressRules.of( ComputerCraft.httpRules );
+
         ComputerCraft.httpMaxRequests = httpMaxRequests.get();
         ComputerCraft.httpMaxWebsockets = httpMaxWebsockets.get();
 
+        // Metrics
+        ComputerCraft.metricsPort = metricsPort.get();
+        ComputerCraft.metricsAddress = metricsAddress.get();
+        ComputerCraft.metricsFile = metricsFile.get();
+
         // Peripheral
         ComputerCraft.enableCommandBlock = commandBlockEnabled.get();
         ComputerCraft.maxNotesPerTick = maxNotesPerTick.get();
@@ -13,6 +13,7 @@
 import dan200.computercraft.core.computer.Computer;
 import dan200.computercraft.core.computer.ComputerSide;
 import dan200.computercraft.core.tracking.ComputerTracker;
+import dan200.computercraft.core.tracking.LatencyHistogram;
 import dan200.computercraft.core.tracking.Tracking;
 import dan200.computercraft.core.tracking.TrackingContext;
 import dan200.computercraft.core.tracking.TrackingField;
@@ -61,6 +62,7 @@
     private static final int DUMP_LIST_ID = 5373952;
     private static final int DUMP_SINGLE_ID = 1844510720;
     private static final int TRACK_ID = 373882880;
+    private static final int TRACK_METHODS_ID = 373882881;
 
     private CommandComputerCraft()
     {
@@ -280,7 +282,11 @@ public Container createMenu( int id, @Nonnull PlayerInventory player, @Nonnull P
                         }
 
                         return displayTimings( context.getSource(), sort, fields );
-                    } ) ) )
+                    } ) )
+
+                .then( command( "methods" )
+                    .requires( UserLevel.OWNER_OP )
+                    .executes( context -> displayMethodTimings( context.getSource() ) ) ) )
         );
     }
 
@@ -367,7 +373,10 @@ private static TrackingContext getTimingContext( CommandSource source )
         return entity instanceof PlayerEntity ? Tracking.getContext( entity.getUUID() ) : Tracking.getContext( SYSTEM_UUID );
     }
 
-    private static final List<TrackingField> DEFAULT_FIELDS = Arrays.asList( TrackingField.TASKS, TrackingField.TOTAL_TIME, TrackingField.AVERAGE_TIME, TrackingField.MAX_TIME );
+    private static final List<TrackingField> DEFAULT_FIELDS = Arrays.asList(
+        TrackingField.TASKS, TrackingField.TOTAL_TIME, TrackingField.AVERAGE_TIME, TrackingField.MAX_TIME,
+        TrackingField.TASK_P50, TrackingField.TASK_P99, TrackingField.TASK_P999
+    );
 
     private static int displayTimings( CommandSource source, TrackingField sortField, List<TrackingField> fields ) throws CommandSyntaxException
     {
@@ -411,4 +420,33 @@ private static int displayTimings( CommandSource source, @Nonnull List<ComputerT
         table.display( source );
         return timings.size();
     }
+
+    private static int displayMethodTimings( CommandSource source ) throws CommandSyntaxException
+    {
+        SortedMap<String, LatencyHistogram> methods = getTimingContext( source ).getPeripheralLatencies();
+        if( methods.isEmpty() ) throw NO_TIMINGS_EXCEPTION.create();
+
+        TableBuilder table = new TableBuilder( TRACK_METHODS_ID,
+            translate( "commands.computercraft.track.methods.method" ),
+            translate( "commands.computercraft.track.methods.calls" ),
+            translate( TrackingField.PERIPHERAL_P50.translationKey() ),
+            translate( TrackingField.PERIPHERAL_P99.translationKey() ),
+            translate( TrackingField.PERIPHERAL_P999.translationKey() )
+        );
+
+        for( Map.Entry<String, LatencyHistogram> method : methods.entrySet() )
+        {
+            LatencyHistogram latencies = method.getValue();
+            table.row(
+                text( method.getKey() ),
+                text( Long.toString( latencies.count() ) ),
+                text( TrackingField.PERIPHERAL_P50.format( latencies.percentile( 0.5 ) ) ),
+                text( TrackingField.PERIPHERAL_P99.format( latencies.percentile( 0.99 ) ) ),
+                text( TrackingField.PERIPHERAL_P999.format( latencies.percentile( 0.999 ) ) )
+            );
+        }
+
+        table.display( source );
+        return methods.size();
+    }
 }
@@ -45,6 +45,13 @@ public boolean isColour()
     public void read( TerminalState state )
     {
         colour = state.colour;
+        if( state.isDelta() && (terminal == null || terminal.getWidth() != state.width || terminal.getHeight() != state.height) )
+        {
+            // We can't apply a delta to a terminal we don't have. The server always sends a full snapshot before any
+            // deltas, so this should only happen if packets arrive for a stale terminal.
+            return;
+        }
+
         if( state.hasTerminal() )
         {
             resizeTerminal( state.width, state.height );
@@ -82,4 +82,16 @@ public TerminalState write()
     {
         return new TerminalState( colour, terminal );
     }
+
+    /**
+     * Write the changes to the terminal since the last delta. This should only be sent to clients which have received
+     * every previous delta or a full snapshot (see {@link #write()}).
+     *
+     * @return The terminal delta.
+     * @see TerminalState#delta(boolean, Terminal)
+     */
+    public TerminalState writeDelta()
+    {
+        return TerminalState.delta( colour, terminal );
+    }
 }
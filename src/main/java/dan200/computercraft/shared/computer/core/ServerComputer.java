@@ -48,6 +48,7 @@ public class ServerComputer extends ServerTerminal implements IComputer, IComput
     private boolean changed;
 
     private boolean changedLastFrame;
+    private NetworkMessage terminalDelta;
     private int ticksSincePing;
 
     public ServerComputer( World world, int computerID, String label, int instanceID, ComputerFamily family, int terminalWidth, int terminalHeight )
@@ -104,6 +105,7 @@ public void update()
 
         changedLastFrame = computer.pollAndResetChanged() || changed;
         changed = false;
+        terminalDelta = null;
 
         ticksSincePing++;
     }
@@ -152,6 +154,19 @@ protected NetworkMessage createTerminalPacket()
         return new ComputerTerminalClientMessage( getInstanceID(), write() );
     }
 
+    /**
+     * Create a packet containing the changes to the terminal this tick. As taking a delta resets the terminal's dirty
+     * state, this is cached until the next {@link #update()}, so all clients receive the same delta.
+     *
+     * @return The terminal delta packet.
+     */
+    protected NetworkMessage createTerminalDeltaPacket()
+    {
+        NetworkMessage packet = terminalDelta;
+        if( packet == null ) packet = terminalDelta = new ComputerTerminalClientMessage( getInstanceID(), writeDelta() );
+        return packet;
+    }
+
     public void broadcastState( boolean force )
     {
         if( hasOutputChanged() || force )
@@ -170,7 +185,7 @@ public void broadcastState( boolean force )
             {
                 if( isInteracting( player ) )
                 {
-                    if( packet == null ) packet = createTerminalPacket();
+                    if( packet == null ) packet = force ? createTerminalPacket() : createTerminalDeltaPacket();
                     NetworkHandler.sendToPlayer( player, packet );
                 }
             }
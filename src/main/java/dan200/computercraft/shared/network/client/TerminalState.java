@@ -13,6 +13,7 @@
 import io.netty.buffer.Unpooled;
 import net.minecraft.network.PacketBuffer;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -27,9 +28,18 @@
  * This is somewhat memory inefficient (we build a buffer, only to write it elsewhere), however it means we get a
  * complete and accurate description of a terminal, which avoids a lot of complexities with resizing terminals, dirty
  * states, etc...
+ *
+ * A state may also be a delta (see {@link #delta(boolean, Terminal)}), which only contains the lines which have changed
+ * since the previous delta. These can only be applied to a terminal which has received every previous delta (or a
+ * full snapshot since then), and so should only be sent to clients which are already tracking this terminal.
  */
 public class TerminalState
 {
+    /**
+     * Deltas smaller than this are sent uncompressed, as the gzip header and trailer would outweigh any savings.
+     */
+    private static final int COMPRESS_THRESHOLD = 1024;
+
     public final boolean colour;
 
     public final int width;
@@ -37,6 +47,8 @@
 
     private final boolean compress;
 
+    private final boolean delta;
+
     @Nullable
     private final ByteBuf buffer;
 
@@ -51,6 +63,7 @@ public TerminalState( boolean colour, @Nullable Terminal terminal, boolean compr
     {
         this.colour = colour;
         this.compress = compress;
+        delta = false;
 
         if( terminal == null )
         {
@@ -67,10 +80,39 @@ public TerminalState( boolean colour, @Nullable Terminal terminal, boolean compr
         }
     }
 
+    private TerminalState( boolean colour, @Nonnull Terminal terminal )
+    {
+        this.colour = colour;
+
+        width = terminal.getWidth();
+        height = terminal.getHeight();
+
+        ByteBuf buf = buffer = Unpooled.buffer();
+        delta = terminal.writeDelta( new PacketBuffer( buf ) );
+        compress = !delta || buf.readableBytes() >= COMPRESS_THRESHOLD;
+    }
+
+    /**
+     * Construct a state containing the changes to the terminal since the last delta was taken.
+     *
+     * If the terminal has been resized since the last delta, this will be a full snapshot instead. Taking a delta
+     * resets the terminal's dirty state, so the same delta should be sent to every client tracking this terminal.
+     *
+     * @param colour   Whether this is a colour terminal.
+     * @param terminal The terminal to take a delta of.
+     * @return The terminal's state.
+     * @see Terminal#writeDelta(PacketBuffer)
+     */
+    public static TerminalState delta( boolean colour, @Nullable Terminal terminal )
+    {
+        return terminal == null ? new TerminalState( colour, null, true ) : new TerminalState( colour, terminal );
+    }
+
     public TerminalState( PacketBuffer buf )
     {
         colour = buf.readBoolean();
         compress = buf.readBoolean();
+        delta = buf.readBoolean();
 
         if( buf.readBoolean() )
         {
@@ -91,6 +133,7 @@ public void write( PacketBuffer buf )
     {
         buf.writeBoolean( colour );
         buf.writeBoolean( compress );
+        buf.writeBoolean( delta );
 
         buf.writeBoolean( buffer != null );
         if( buffer != null )
@@ -109,6 +152,16 @@ public boolean hasTerminal()
         return buffer != null;
     }
 
+    /**
+     * Whether this state is a delta, and so can only be applied to an existing terminal of the same size.
+     *
+     * @return Whether this is a delta.
+     */
+    public boolean isDelta()
+    {
+        return delta;
+    }
+
     public int size()
     {
         return buffer == null ? 0 : buffer.readableBytes();
@@ -117,7 +170,14 @@ public int size()
     public void apply( Terminal terminal )
     {
         if( buffer == null ) throw new NullPointerException( "buffer" );
-        terminal.read( new PacketBuffer( buffer ) );
+        if( delta )
+        {
+            terminal.readDelta( new PacketBuffer( buffer ) );
+        }
+        else
+        {
+            terminal.read( new PacketBuffer( buffer ) );
+        }
     }
 
     private ByteBuf getCompressed()
@@ -0,0 +1,129 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared.peripheral.modem;
+
+import dan200.computercraft.api.network.IPacketReceiver;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A set of packet receivers, indexed by the channels they are listening on.
+ *
+ * Modems only receive packets on channels they have open, so rather than offering every packet to every modem, networks
+ * can use this to only visit modems which are listening on the packet's channel. The index is kept up-to-date by the
+ * modem's {@link ModemState}.
+ *
+ * Receivers which are not modems (such as those provided by other mods) may listen on any channel, and so are always
+ * visited.
+ */
+public final class ChannelIndex
+{
+    private final Map<Integer, Set<IPacketReceiver>> channels = new ConcurrentHashMap<>();
+    private final Map<IPacketReceiver, Listener> modems = new ConcurrentHashMap<>();
+    private final Set<IPacketReceiver> others = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+
+    public void add( @Nonnull IPacketReceiver receiver )
+    {
+        if( receiver instanceof ModemPeripheral )
+        {
+            Listener listener = new Listener( receiver );
+            if( modems.putIfAbsent( receiver, listener ) == null )
+            {
+                ((ModemPeripheral) receiver).getModemState().addListener( listener );
+            }
+        }
+        else
+        {
+            others.add( receiver );
+        }
+    }
+
+    public void remove( @Nonnull IPacketReceiver receiver )
+    {
+        Listener listener = modems.remove( receiver );
+        if( listener != null )
+        {
+            ((ModemPeripheral) receiver).getModemState().removeListener( listener );
+        }
+        else
+        {
+            others.remove( receiver );
+        }
+    }
+
+    /**
+     * Determine whether a receiver may accept a packet on this channel.
+     *
+     * @param receiver The receiver to check.
+     * @param channel  The packet's channel.
+     * @return If the receiver is listening on this channel, or is not a modem.
+     */
+    public boolean accepts( @Nonnull IPacketReceiver receiver, int channel )
+    {
+        if( others.contains( receiver ) ) return true;
+        Set<IPacketReceiver> listening = channels.get( channel );
+        return listening != null && listening.contains( receiver );
+    }
+
+    /**
+     * Get the number of receivers which may accept a packet on this channel.
+     *
+     * @param channel The packet's channel.
+     * @return The number of receivers {@link #forEach(int, Consumer)} will visit.
+     */
+    public int count( int channel )
+    {
+        Set<IPacketReceiver> listening = channels.get( channel );
+        return others.size() + (listening == null ? 0 : listening.size());
+    }
+
+    /**
+     * Visit every receiver which may accept a packet on this channel.
+     *
+     * @param channel  The packet's channel.
+     * @param consumer The function to call with each receiver.
+     */
+    public void forEach( int channel, Consumer<IPacketReceiver> consumer )
+    {
+        Set<IPacketReceiver> listening = channels.get( channel );
+        if( listening != null ) listening.forEach( consumer );
+        others.forEach( consumer );
+    }
+
+    private final class Listener implements ModemState.ChannelListener
+    {
+        private final IPacketReceiver receiver;
+
+        private Listener( IPacketReceiver receiver )
+        {
+            this.receiver = receiver;
+        }
+
+        @Override
+        public void onChannelOpen( int channel )
+        {
+            channels.compute( channel, ( k, listening ) -> {
+                if( listening == null ) listening = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+                listening.add( receiver );
+                return listening;
+            } );
+        }
+
+        @Override
+        public void onChannelClose( int channel )
+        {
+            channels.computeIfPresent( channel, ( k, listening ) -> {
+                listening.remove( receiver );
+                return listening.isEmpty() ? null : listening;
+            } );
+        }
+    }
+}
@@ -6,9 +6,12 @@
 package dan200.computercraft.shared.peripheral.modem;
 
 import dan200.computercraft.api.lua.LuaException;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ModemState
@@ -18,6 +21,7 @@
 
     private boolean open = false;
     private final IntSet channels = new IntOpenHashSet();
+    private final List<ChannelListener> listeners = new ArrayList<>( 0 );
 
     public ModemState()
     {
@@ -62,6 +66,7 @@ public void open( int channel ) throws LuaException
             {
                 if( channels.size() >= 128 ) throw new LuaException( "Too many open channels" );
                 channels.add( channel );
+                for( ChannelListener listener : listeners ) listener.onChannelOpen( channel );
                 setOpen( true );
             }
         }
@@ -71,7 +76,8 @@ public void close( int channel )
     {
         synchronized( channels )
         {
-            channels.remove( channel );
+            if( !channels.remove( channel ) ) return;
+            notifyClose( channel );
             if( channels.isEmpty() ) setOpen( false );
         }
     }
@@ -80,8 +86,56 @@ public void closeAll()
     {
         synchronized( channels )
         {
+            if( !listeners.isEmpty() )
+            {
+                for( IntIterator iterator = channels.iterator(); iterator.hasNext(); ) notifyClose( iterator.nextInt() );
+            }
             channels.clear();
             setOpen( false );
         }
     }
+
+    /**
+     * Add a listener which is notified whenever a channel is opened or closed. The listener is immediately notified
+     * of every channel which is currently open.
+     *
+     * Listeners are called while this state is locked, and so should not call back into this state.
+     *
+     * @param listener The listener to add.
+     * @see dan200.computercraft.shared.peripheral.modem.ChannelIndex
+     */
+    public void addListener( ChannelListener listener )
+    {
+        synchronized( channels )
+        {
+            listeners.add( listener );
+            for( IntIterator iterator = channels.iterator(); iterator.hasNext(); ) listener.onChannelOpen( iterator.nextInt() );
+        }
+    }
+
+    /**
+     * Remove a previously added listener. The listener is notified that every open channel has been closed.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeListener( ChannelListener listener )
+    {
+        synchronized( channels )
+        {
+            if( !listeners.remove( listener ) ) return;
+            for( IntIterator iterator = channels.iterator(); iterator.hasNext(); ) listener.onChannelClose( iterator.nextInt() );
+        }
+    }
+
+    private void notifyClose( int channel )
+    {
+        for( ChannelListener listener : listeners ) listener.onChannelClose( channel );
+    }
+
+    public interface ChannelListener
+    {
+        void onChannelOpen( int channel );
+
+        void onChannelClose( int channel );
+    }
 }
@@ -9,15 +9,44 @@
 import dan200.computercraft.api.network.IPacketReceiver;
 import dan200.computercraft.api.network.IPacketSender;
 import dan200.computercraft.api.network.Packet;
+import dan200.computercraft.shared.peripheral.modem.ChannelIndex;
+import net.minecraft.util.math.vector.Vector3d;
+import net.minecraft.world.World;
 
 import javax.annotation.Nonnull;
-import java.util.Collections;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
+/**
+ * The network shared by all wireless and ender modems.
+ *
+ * Rather than checking the distance to every receiver on the server, same-dimension transmissions use a spatial
+ * index of receivers, bucketed by world and by a grid of {@link #CELL_SIZE}-block columns. This index is rebuilt at
+ * most once a tick (see {@link #tick()}), and only when a packet is sent. Receivers added since the index was last
+ * built are checked individually.
+ *
+ * As receivers may move within a tick, we still check each candidate's current position before delivering a packet.
+ * The index only needs to be accurate enough to not miss any candidates, and so includes a small margin to account
+ * for this movement.
+ *
+ * Receivers are also indexed by the channels they are listening on (see {@link ChannelIndex}). When fewer receivers
+ * are listening on a packet's channel than are in range, we use that instead.
+ */
 public class WirelessNetwork implements IPacketNetwork
 {
+    /**
+     * The width of each cell in the index, in blocks. Modem ranges are typically several hundred blocks, so smaller
+     * cells mean visiting more empty cells.
+     */
+    private static final int CELL_SHIFT = 6;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    /**
+     * The distance a receiver may have moved since the index was built, while still being found by the index.
+     */
+    private static final double MOVEMENT_MARGIN = 16;
+
     private static WirelessNetwork universalNetwork = null;
 
     public static WirelessNetwork getUniversal()
@@ -31,34 +60,78 @@ public static void resetNetworks()
         universalNetwork = null;
     }
 
+    /**
+     * Mark the universal network's index as out-of-date, so the positions and ranges of its receivers are re-read
+     * before the next transmission. This should be called once a tick.
+     */
+    public static void tick()
+    {
+        WirelessNetwork network = universalNetwork;
+        if( network != null ) network.stale = true;
+    }
+
     private final Set<IPacketReceiver> receivers = Collections.newSetFromMap( new ConcurrentHashMap<>() );
 
+    /**
+     * Receivers which have been added since the index was last built.
+     */
+    private final Set<IPacketReceiver> unindexed = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+
+    private final ChannelIndex channels = new ChannelIndex();
+
+    private final Object indexLock = new Object();
+    private volatile Index index;
+    private volatile boolean stale = true;
+
     @Override
     public void addReceiver( @Nonnull IPacketReceiver receiver )
     {
         Objects.requireNonNull( receiver, "device cannot be null" );
-        receivers.add( receiver );
+        if( receivers.add( receiver ) ) channels.add( receiver );
+        unindexed.add( receiver );
     }
 
     @Override
     public void removeReceiver( @Nonnull IPacketReceiver receiver )
     {
         Objects.requireNonNull( receiver, "device cannot be null" );
-        receivers.remove( receiver );
+        if( receivers.remove( receiver ) ) channels.remove( receiver );
+        unindexed.remove( receiver );
     }
 
     @Override
     public void transmitSameDimension( @Nonnull Packet packet, double range )
     {
         Objects.requireNonNull( packet, "packet cannot be null" );
-        for( IPacketReceiver device : receivers ) tryTransmit( device, packet, range, false );
+
+        IPacketSender sender = packet.getSender();
+        int channel = packet.getChannel();
+        Index index = getIndex();
+
+        int candidates = index.countCandidates( sender.getWorld(), sender.getPosition(), range ) + unindexed.size();
+        if( channels.count( channel ) < candidates )
+        {
+            channels.forEach( channel, device -> tryTransmit( device, packet, range, false ) );
+            return;
+        }
+
+        // The spatial index may contain receivers which have since been removed. These will no longer be in the
+        // channel index, and so are skipped.
+        index.forEachCandidate( sender.getWorld(), sender.getPosition(), range, device -> {
+            if( channels.accepts( device, channel ) ) tryTransmit( device, packet, range, false );
+        } );
+
+        for( IPacketReceiver device : unindexed )
+        {
+            if( !index.contains( device ) && channels.accepts( device, channel ) ) tryTransmit( device, packet, range, false );
+        }
     }
 
     @Override
     public void transmitInterdimensional( @Nonnull Packet packet )
     {
         Objects.requireNonNull( packet, "packet cannot be null" );
-        for( IPacketReceiver device : receivers ) tryTransmit( device, packet, 0, true );
+        channels.forEach( packet.getChannel(), device -> tryTransmit( device, packet, 0, true ) );
     }
 
     private static void tryTransmit( IPacketReceiver receiver, Packet packet, double range, boolean interdimensional )
@@ -82,9 +155,153 @@ private static void tryTransmit( IPacketReceiver receiver, Packet packet, double
         }
     }
 
+    @Nonnull
+    private Index getIndex()
+    {
+        Index index = this.index;
+        if( index != null && !stale ) return index;
+
+        synchronized( indexLock )
+        {
+            index = this.index;
+            if( index != null && !stale ) return index;
+
+            // Clear the pending set before reading the receivers, so any receiver added while we're building the index
+            // is either in the index, the pending set, or both.
+            stale = false;
+            unindexed.clear();
+            return this.index = Index.build( receivers );
+        }
+    }
+
     @Override
     public boolean isWireless()
     {
         return true;
     }
+
+    private static long cellKey( int x, int z )
+    {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    private static int cell( double coordinate )
+    {
+        return (int) Math.floor( coordinate ) >> CELL_SHIFT;
+    }
+
+    /**
+     * An immutable snapshot of the receivers on this network, and where they were when it was built.
+     */
+    private static final class Index
+    {
+        private final Set<IPacketReceiver> members;
+        private final List<IPacketReceiver> interdimensional;
+        private final Map<World, WorldIndex> worlds;
+
+        private Index( Set<IPacketReceiver> members, List<IPacketReceiver> interdimensional, Map<World, WorldIndex> worlds )
+        {
+            this.members = members;
+            this.interdimensional = interdimensional;
+            this.worlds = worlds;
+        }
+
+        static Index build( Collection<IPacketReceiver> receivers )
+        {
+            Set<IPacketReceiver> members = new HashSet<>();
+            List<IPacketReceiver> interdimensional = new ArrayList<>();
+            Map<World, WorldIndex> worlds = new HashMap<>();
+            for( IPacketReceiver receiver : receivers )
+            {
+                members.add( receiver );
+                if( receiver.isInterdimensional() )
+                {
+                    interdimensional.add( receiver );
+                }
+                else
+                {
+                    worlds.computeIfAbsent( receiver.getWorld(), x -> new WorldIndex() ).add( receiver );
+                }
+            }
+
+            return new Index( members, interdimensional, worlds );
+        }
+
+        boolean contains( IPacketReceiver receiver )
+        {
+            return members.contains( receiver );
+        }
+
+        /**
+         * Visit every receiver which may be able to receive a same-dimension packet. This is every interdimensional
+         * receiver, and every receiver in the sender's world which was in range when the index was built.
+         *
+         * @param world    The sender's world.
+         * @param position The sender's position.
+         * @param range    The range of the packet.
+         * @param consumer The function to call with each candidate.
+         */
+        void forEachCandidate( World world, Vector3d position, double range, Consumer<IPacketReceiver> consumer )
+        {
+            for( IPacketReceiver receiver : interdimensional ) consumer.accept( receiver );
+
+            WorldIndex index = worlds.get( world );
+            if( index != null ) index.forEachCandidate( position, range, cell -> cell.forEach( consumer ) );
+        }
+
+        /**
+         * Count the number of receivers {@link #forEachCandidate(World, Vector3d, double, Consumer)} would visit.
+         *
+         * @param world    The sender's world.
+         * @param position The sender's position.
+         * @param range    The range of the packet.
+         * @return The number of candidate receivers.
+         */
+        int countCandidates( World world, Vector3d position, double range )
+        {
+            WorldIndex index = worlds.get( world );
+            if( index == null ) return interdimensional.size();
+
+            int[] count = new int[] { interdimensional.size() };
+            index.forEachCandidate( position, range, cell -> count[0] += cell.size() );
+            return count[0];
+        }
+    }
+
+    private static final class WorldIndex
+    {
+        private final Map<Long, List<IPacketReceiver>> cells = new HashMap<>();
+        private double maxRange;
+
+        void add( IPacketReceiver receiver )
+        {
+            Vector3d position = receiver.getPosition();
+            cells.computeIfAbsent( cellKey( cell( position.x ), cell( position.z ) ), x -> new ArrayList<>() ).add( receiver );
+            maxRange = Math.max( maxRange, receiver.getRange() );
+        }
+
+        void forEachCandidate( Vector3d position, double range, Consumer<List<IPacketReceiver>> consumer )
+        {
+            // A packet may be received by anything within the sender's range, or within the receiver's range.
+            double radius = Math.max( range, maxRange ) + MOVEMENT_MARGIN;
+            int minX = cell( position.x - radius ), maxX = cell( position.x + radius );
+            int minZ = cell( position.z - radius ), maxZ = cell( position.z + radius );
+
+            // If the area covers more cells than we have, it's cheaper to just visit every receiver.
+            if( radius >= Integer.MAX_VALUE || (long) (maxX - minX + 1) * (maxZ - minZ + 1) >= cells.size() )
+            {
+                cells.values().forEach( consumer );
+                return;
+            }
+
+            for( int x = minX; x <= maxX; x++ )
+            {
+                for( int z = minZ; z <= maxZ; z++ )
+                {
+                    List<IPacketReceiver> cell = cells.get( cellKey( x, z ) );
+                    if( cell != null ) consumer.accept( cell );
+                }
+            }
+        }
+    }
 }
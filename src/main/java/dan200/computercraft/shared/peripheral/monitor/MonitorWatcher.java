@@ -6,6 +6,7 @@
 package dan200.computercraft.shared.peripheral.monitor;
 
 import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.core.terminal.Terminal;
 import dan200.computercraft.shared.network.NetworkHandler;
 import dan200.computercraft.shared.network.client.MonitorClientMessage;
 import dan200.computercraft.shared.network.client.TerminalState;
@@ -22,8 +23,9 @@
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
-import java.util.ArrayDeque;
-import java.util.Queue;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.stream.Stream;
 
 @Mod.EventBusSubscriber( modid = ComputerCraft.MOD_ID )
 public final class MonitorWatcher
@@ -31,6 +33,17 @@
     private static final Queue<TileMonitor> watching = new ArrayDeque<>();
     private static final Queue<PlayerUpdate> playerUpdates = new ArrayDeque<>();
 
+    /**
+     * The bandwidth each player went over (or under) their share by, for players who still have pending updates.
+     *
+     * @see #schedule(Map, long)
+     */
+    private static final Map<UUID, Long> deficits = new HashMap<>();
+    private static int rotation;
+
+    private static volatile long lastBytesSent;
+    private static volatile long lastBytesQueued;
+
     private MonitorWatcher()
     {
     }
@@ -53,12 +66,13 @@ public static void onWatch( ChunkWatchEvent.Watch event )
 
         for( TileEntity te : chunk.getBlockEntities().values() )
         {
-            // Find all origin monitors who are not already on the queue.
+            // Find all origin monitors. We send these even if the monitor is already queued, as the queued update
+            // will only be a delta.
             if( !(te instanceof TileMonitor) ) continue;
 
             TileMonitor monitor = (TileMonitor) te;
             ServerMonitor serverMonitor = getMonitor( monitor );
-            if( serverMonitor == null || monitor.enqueued ) continue;
+            if( serverMonitor == null ) continue;
 
             // The chunk hasn't been sent to the client yet, so we can't send an update. Do it on tick end.
             playerUpdates.add( new PlayerUpdate( event.getPlayer(), monitor ) );
@@ -74,7 +88,7 @@ public static void onTick( TickEvent.ServerTickEvent event )
         while( (playerUpdate = playerUpdates.poll()) != null )
         {
             TileMonitor tile = playerUpdate.monitor;
-            if( tile.enqueued || tile.isRemoved() ) continue;
+            if( tile.isRemoved() ) continue;
 
             ServerMonitor monitor = getMonitor( tile );
             if( monitor == null ) continue;
@@ -88,30 +102,179 @@ public static void onTick( TickEvent.ServerTickEvent event )
         }
 
         long limit = ComputerCraft.monitorBandwidth;
-        boolean obeyLimit = limit > 0;
 
+        // Gather all monitors which need updating, and group them by the players tracking them.
+        List<PendingUpdate> pending = new ArrayList<>( watching.size() );
+        Map<ServerPlayerEntity, PlayerQueue> players = new HashMap<>();
         TileMonitor tile;
-        while( (!obeyLimit || limit > 0) && (tile = watching.poll()) != null )
+        while( (tile = watching.poll()) != null )
         {
-            tile.enqueued = false;
             ServerMonitor monitor = getMonitor( tile );
-            if( monitor == null ) continue;
-
-            BlockPos pos = tile.getBlockPos();
             World world = tile.getLevel();
-            if( !(world instanceof ServerWorld) ) continue;
+            if( monitor == null || !(world instanceof ServerWorld) )
+            {
+                tile.enqueued = false;
+                continue;
+            }
+
+            Chunk chunk = world.getChunkAt( tile.getBlockPos() );
+            PendingUpdate update = new PendingUpdate( tile, monitor, chunk );
+            getTrackers( update ).forEach( player -> {
+                players.computeIfAbsent( player, PlayerQueue::new ).add( update );
+                update.trackers++;
+            } );
 
-            Chunk chunk = world.getChunkAt( pos );
-            if( !((ServerWorld) world).getChunkSource().chunkMap.getPlayers( chunk.getPos(), false ).findAny().isPresent() )
+            if( update.trackers == 0 )
             {
+                // Nobody can see this monitor. Anyone who starts watching it will be sent a full snapshot.
+                tile.enqueued = false;
                 continue;
             }
 
-            TerminalState state = getState( tile, monitor );
-            NetworkHandler.sendToAllTracking( new MonitorClientMessage( pos, state ), chunk );
+            pending.add( update );
+        }
+
+        long bytesSent = 0;
+        if( limit <= 0 )
+        {
+            for( PendingUpdate update : pending ) bytesSent += send( update );
+        }
+        else if( !players.isEmpty() )
+        {
+            bytesSent = schedule( players, limit );
+        }
+
+        // Keep any updates we couldn't send on the queue, in their original order.
+        long bytesQueued = bytesSent;
+        for( PendingUpdate update : pending )
+        {
+            if( update.sent ) continue;
+            watching.add( update.tile );
+            bytesQueued += estimateSize( update.monitor );
+        }
+
+        lastBytesSent = bytesSent;
+        lastBytesQueued = bytesQueued;
+    }
+
+    /**
+     * Send monitor updates, sharing the bandwidth limit fairly between players.
+     *
+     * This is a deficit round robin scheduler: each player is given an equal share of the limit each tick (plus any
+     * unused share from previous ticks). We then take it in turns to send each player's next update, splitting its size
+     * evenly between every player tracking that monitor. Each player's updates are sorted so monitors close to them go
+     * first.
+     *
+     * Once every player has used their share, any remaining bandwidth is handed out in the same order. Players who go
+     * over their share will have less bandwidth next tick.
+     *
+     * @param players The players with pending updates.
+     * @param limit   The bandwidth limit for this tick.
+     * @return The number of bytes sent.
+     */
+    private static long schedule( Map<ServerPlayerEntity, PlayerQueue> players, long limit )
+    {
+        long quantum = Math.max( 1, limit / players.size() );
+
+        List<PlayerQueue> queues = new ArrayList<>( players.values() );
+        Collections.rotate( queues, rotation++ % queues.size() );
+        for( PlayerQueue queue : queues )
+        {
+            queue.sort();
+            queue.deficit = Math.min( deficits.getOrDefault( queue.id, 0L ) + quantum, limit );
+        }
 
-            limit -= state.size();
+        long remaining = limit;
+        for( boolean fair : new boolean[] { true, false } )
+        {
+            Deque<PlayerQueue> active = new ArrayDeque<>( queues );
+            PlayerQueue queue;
+            while( remaining > 0 && (queue = active.poll()) != null )
+            {
+                if( fair && queue.deficit <= 0 ) continue;
+
+                PendingUpdate update = queue.next();
+                if( update == null ) continue;
+
+                int size = send( update );
+                remaining -= size;
+
+                long share = size / update.trackers;
+                getTrackers( update ).forEach( player -> {
+                    PlayerQueue tracker = players.get( player );
+                    if( tracker != null ) tracker.deficit -= share;
+                } );
+
+                active.add( queue );
+            }
         }
+
+        // Carry over the deficit of anyone who still has updates left.
+        deficits.clear();
+        for( PlayerQueue queue : queues )
+        {
+            if( queue.next() != null ) deficits.put( queue.id, queue.deficit );
+        }
+
+        return limit - remaining;
+    }
+
+    private static int send( PendingUpdate update )
+    {
+        update.sent = true;
+        update.tile.enqueued = false;
+
+        // Players who started tracking this monitor will have been sent a full snapshot above, so we only need
+        // to send the changes since the last update.
+        TerminalState state = update.monitor.writeDelta();
+        NetworkHandler.sendToAllTracking( new MonitorClientMessage( update.tile.getBlockPos(), state ), update.chunk );
+        return state.size();
+    }
+
+    /**
+     * Estimate the size of a monitor's next update. We can't compute this without taking (and so consuming) a delta,
+     * so this is an upper bound assuming every line has changed.
+     *
+     * @param monitor The monitor to estimate.
+     * @return The estimated size of the update.
+     */
+    private static long estimateSize( ServerMonitor monitor )
+    {
+        Terminal terminal = monitor.getTerminal();
+        return terminal == null ? 0 : (long) terminal.getWidth() * terminal.getHeight() * 2;
+    }
+
+    /**
+     * Get the number of bytes of monitor updates sent in the last tick.
+     *
+     * @return The number of bytes sent. This is measured before compression.
+     */
+    public static long getBytesSent()
+    {
+        return lastBytesSent;
+    }
+
+    /**
+     * Get the number of bytes of monitor updates which were waiting to be sent in the last tick. This includes
+     * updates which were sent, and an estimate of the size of those which were deferred to later ticks.
+     *
+     * @return The number of bytes queued.
+     */
+    public static long getBytesQueued()
+    {
+        return lastBytesQueued;
+    }
+
+    /**
+     * Get the players tracking a monitor's chunk. This is queried again when charging for an update, rather than stored
+     * for every pending update, as only updates which are actually sent need it.
+     *
+     * @param update The update to find the players for.
+     * @return The players tracking this update's monitor.
+     */
+    private static Stream<ServerPlayerEntity> getTrackers( PendingUpdate update )
+    {
+        return ((ServerWorld) update.tile.getLevel()).getChunkSource().chunkMap.getPlayers( update.chunk.getPos(), false );
     }
 
     private static ServerMonitor getMonitor( TileMonitor monitor )
@@ -126,6 +289,73 @@ private static TerminalState getState( TileMonitor tile, ServerMonitor monitor )
         return state;
     }
 
+    private static final class PendingUpdate
+    {
+        final TileMonitor tile;
+        final ServerMonitor monitor;
+        final Chunk chunk;
+        int trackers;
+        boolean sent;
+
+        PendingUpdate( TileMonitor tile, ServerMonitor monitor, Chunk chunk )
+        {
+            this.tile = tile;
+            this.monitor = monitor;
+            this.chunk = chunk;
+        }
+    }
+
+    /**
+     * The updates visible to a single player.
+     */
+    private static final class PlayerQueue
+    {
+        final ServerPlayerEntity player;
+        final UUID id;
+        final List<PendingUpdate> updates = new ArrayList<>();
+        long deficit;
+        private int index;
+
+        PlayerQueue( ServerPlayerEntity player )
+        {
+            this.player = player;
+            id = player.getUUID();
+        }
+
+        void add( PendingUpdate update )
+        {
+            updates.add( update );
+        }
+
+        /**
+         * Sort this player's updates, so those within {@link ComputerCraft#monitorDistanceSq} of the player are sent
+         * first. Otherwise updates are kept in the order they were queued.
+         */
+        void sort()
+        {
+            updates.sort( Comparator.comparing( x -> !isVisible( x.tile ) ) );
+        }
+
+        private boolean isVisible( TileMonitor tile )
+        {
+            BlockPos pos = tile.getBlockPos();
+            return player.distanceToSqr( pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5 ) <= ComputerCraft.monitorDistanceSq;
+        }
+
+        @Nullable
+        PendingUpdate next()
+        {
+            while( index < updates.size() )
+            {
+                PendingUpdate update = updates.get( index );
+                if( !update.sent ) return update;
+                index++;
+            }
+
+            return null;
+        }
+    }
+
     private static final class PlayerUpdate
     {
         final ServerPlayerEntity player;
@@ -37,6 +37,7 @@ public class PocketServerComputer extends ServerComputer implements IPocketAcces
 {
     private IPocketUpgrade upgrade;
     private Entity entity;
+    private boolean holderChanged;
     private ItemStack stack;
 
     public PocketServerComputer( World world, int computerID, String label, int instanceID, ComputerFamily family )
@@ -167,7 +168,11 @@ public synchronized void updateValues( Entity entity, @Nonnull ItemStack stack,
         }
 
         // If a new entity has picked it up then rebroadcast the terminal to them
-        if( entity != this.entity && entity instanceof ServerPlayerEntity ) markTerminalChanged();
+        if( entity != this.entity && entity instanceof ServerPlayerEntity )
+        {
+            holderChanged = true;
+            markTerminalChanged();
+        }
 
         this.entity = entity;
         this.stack = stack;
@@ -190,8 +195,11 @@ public void broadcastState( boolean force )
             ServerPlayerEntity player = (ServerPlayerEntity) entity;
             if( player.connection != null && !isInteracting( player ) )
             {
-                NetworkHandler.sendToPlayer( player, createTerminalPacket() );
+                // The new holder won't have seen any previous deltas, so send them the full terminal.
+                NetworkHandler.sendToPlayer( player, force || holderChanged ? createTerminalPacket() : createTerminalDeltaPacket() );
             }
+
+            holderChanged = false;
         }
     }
 }
@@ -13,6 +13,11 @@
     private static final int PALETTE_SIZE = 16;
     private final double[][] colours = new double[PALETTE_SIZE][3];
 
+    /**
+     * Incremented every time the palette is modified.
+     */
+    private int version;
+
     public static final Palette DEFAULT = new Palette();
 
     public Palette()
@@ -28,6 +33,7 @@ public void setColour( int i, double r, double g, double b )
             colours[i][0] = r;
             colours[i][1] = g;
             colours[i][2] = b;
+            version++;
         }
     }
 
@@ -93,6 +99,7 @@ public void read( PacketBuffer buffer )
         {
             for( int i = 0; i < colour.length; i++ ) colour[i] = (buffer.readByte() & 0xFF) / 255.0;
         }
+        version++;
     }
 
     public CompoundNBT writeToNBT( CompoundNBT nbt )
@@ -119,5 +126,17 @@ public void readFromNBT( CompoundNBT nbt )
         {
             colours[i] = decodeRGB8( rgb8[i] );
         }
+        version++;
+    }
+
+    /**
+     * Get the current version of this palette. This changes whenever any colour is modified, and so may be used to
+     * determine whether the palette needs to be sent to the client again.
+     *
+     * @return The palette's current version.
+     */
+    public int getVersion()
+    {
+        return version;
     }
 }
@@ -15,15 +15,32 @@
 
 import javax.annotation.Nonnull;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public final class WiredNetwork implements IWiredNetwork
 {
+    /**
+     * The maximum number of entries across all cached {@link PathTable}s in a network. Very large networks which send
+     * packets from many nodes will compute paths for each packet instead.
+     */
+    private static final int MAX_CACHED_PATHS = 1 << 20;
+
     final ReadWriteLock lock = new ReentrantReadWriteLock();
     HashSet<WiredNode> nodes;
     private HashMap<String, IPeripheral> peripherals = new HashMap<>();
 
+    /**
+     * Shortest paths from each node which has transmitted a packet. These are computed lazily, and cleared whenever the
+     * network's structure changes. Entries are only added while holding the read lock, and cleared while holding the
+     * write lock.
+     *
+     * As with {@link IWiredNetwork} in general, we assume an element does not move while it is part of the network.
+     */
+    private final Map<WiredNode, PathTable> paths = new ConcurrentHashMap<>();
+    private int cachedPaths;
+
     WiredNetwork( WiredNode node )
     {
         nodes = new HashSet<>( 1 );
@@ -92,6 +109,7 @@ public boolean connect( @Nonnull IWiredNode nodeU, @Nonnull IWiredNode nodeV )
 
             boolean added = wiredU.neighbours.add( wiredV );
             if( added ) wiredV.neighbours.add( wiredU );
+            if( added ) invalidatePaths();
 
             InvariantChecker.checkNetwork( this );
             InvariantChecker.checkNode( wiredU );
@@ -122,6 +140,7 @@ public boolean disconnect( @Nonnull IWiredNode nodeU, @Nonnull IWiredNode nodeV
             // If there was no connection to remove then split.
             if( !wiredU.neighbours.remove( wiredV ) ) return false;
             wiredV.neighbours.remove( wiredU );
+            invalidatePaths();
 
             // Determine if there is still some connection from u to v.
             // Note this is an inlining of reachableNodes which short-circuits
@@ -203,6 +222,7 @@ public boolean remove( @Nonnull IWiredNode node )
             HashSet<WiredNode> neighbours = wired.neighbours;
 
             // Remove this node and move into a separate network.
+            invalidatePaths();
             nodes.remove( wired );
             for( WiredNode neighbour : neighbours ) neighbour.neighbours.remove( wired );
 
@@ -321,18 +341,127 @@ public void updatePeripherals( @Nonnull IWiredNode node, @Nonnull Map<String, IP
 
     static void transmitPacket( WiredNode start, Packet packet, double range, boolean interdimensional )
     {
-        Map<WiredNode, TransmitPoint> points = new HashMap<>();
-        TreeSet<TransmitPoint> transmitTo = new TreeSet<>();
+        PathTable paths;
+        double offset;
+        if( start.element.getWorld() != packet.getSender().getWorld() )
+        {
+            // This should never happen in practice, so we don't bother caching it.
+            paths = PathTable.compute( start, Double.POSITIVE_INFINITY, true );
+            offset = 0;
+        }
+        else
+        {
+            paths = start.network.getPaths( start );
+            offset = start.element.getPosition().distanceTo( packet.getSender().getPosition() );
+        }
 
+        WiredNode[] nodes = paths.nodes;
+        for( int i = 0; i < nodes.length; i++ )
         {
-            TransmitPoint startEntry = start.element.getWorld() != packet.getSender().getWorld()
-                ? new TransmitPoint( start, Double.POSITIVE_INFINITY, true )
-                : new TransmitPoint( start, start.element.getPosition().distanceTo( packet.getSender().getPosition() ), false );
-            points.put( start, startEntry );
-            transmitTo.add( startEntry );
+            nodes[i].tryTransmit( packet, offset + paths.distances[i], paths.interdimensional[i], range, interdimensional );
         }
+    }
+
+    /**
+     * Get the shortest paths from a node to every other node in the network, computing them if needed. This should be
+     * called while holding the read lock.
+     *
+     * @param start The node to find paths from.
+     * @return The paths from this node.
+     */
+    private PathTable getPaths( WiredNode start )
+    {
+        PathTable table = paths.get( start );
+        if( table != null ) return table;
+
+        table = PathTable.compute( start, 0, false );
+        synchronized( paths )
+        {
+            if( cachedPaths + table.nodes.length <= MAX_CACHED_PATHS && paths.putIfAbsent( start, table ) == null )
+            {
+                cachedPaths += table.nodes.length;
+            }
+        }
+        return table;
+    }
+
+    private void invalidatePaths()
+    {
+        synchronized( paths )
+        {
+            paths.clear();
+            cachedPaths = 0;
+        }
+    }
+
+    private void removeSingleNode( WiredNode wired, WiredNetwork wiredNetwork )
+    {
+        wiredNetwork.lock.writeLock().lock();
+        try
+        {
+            // Cache all the old nodes.
+            Map<String, IPeripheral> wiredPeripherals = new HashMap<>( wired.peripherals );
+
+            // Setup the new node's network
+            // Detach the old peripherals then remove them from the old network
+            wired.network = wiredNetwork;
+            wired.neighbours.clear();
+            wired.peripherals = Collections.emptyMap();
 
+            // Broadcast the change
+            if( !peripherals.isEmpty() ) WiredNetworkChange.removed( peripherals ).broadcast( wired );
+
+            // Now remove all peripherals from this network and broadcast the change.
+            peripherals.keySet().removeAll( wiredPeripherals.keySet() );
+            if( !wiredPeripherals.isEmpty() ) WiredNetworkChange.removed( wiredPeripherals ).broadcast( nodes );
+
+        }
+        finally
         {
+            wiredNetwork.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The shortest distance from one node to every node in the network. This is a flattened version of the
+     * {@link TransmitPoint}s computed by Dijkstra's algorithm, so transmitting a packet is just a walk over the arrays.
+     *
+     * Distances are relative to the start node, and so should be offset by the sender's distance from it.
+     */
+    private static final class PathTable
+    {
+        final WiredNode[] nodes;
+        final double[] distances;
+        final boolean[] interdimensional;
+
+        private PathTable( Collection<TransmitPoint> points )
+        {
+            int size = points.size();
+            nodes = new WiredNode[size];
+            distances = new double[size];
+            interdimensional = new boolean[size];
+
+            int i = 0;
+            for( TransmitPoint point : points )
+            {
+                nodes[i] = point.node;
+                distances[i] = point.distance;
+                interdimensional[i] = point.interdimensional;
+                i++;
+            }
+        }
+
+        static PathTable compute( WiredNode start, double startDistance, boolean startInterdimensional )
+        {
+            Map<WiredNode, TransmitPoint> points = new HashMap<>();
+            TreeSet<TransmitPoint> transmitTo = new TreeSet<>();
+
+            {
+                TransmitPoint startEntry = new TransmitPoint( start, startDistance, startInterdimensional );
+                points.put( start, startEntry );
+                transmitTo.add( startEntry );
+            }
+
             TransmitPoint point;
             while( (point = transmitTo.pollFirst()) != null )
             {
@@ -370,39 +499,8 @@ else if( newDistance < neighbourPoint.distance )
                     }
                 }
             }
-        }
 
-        for( TransmitPoint point : points.values() )
-        {
-            point.node.tryTransmit( packet, point.distance, point.interdimensional, range, interdimensional );
-        }
-    }
-
-    private void removeSingleNode( WiredNode wired, WiredNetwork wiredNetwork )
-    {
-        wiredNetwork.lock.writeLock().lock();
-        try
-        {
-            // Cache all the old nodes.
-            Map<String, IPeripheral> wiredPeripherals = new HashMap<>( wired.peripherals );
-
-            // Setup the new node's network
-            // Detach the old peripherals then remove them from the old network
-            wired.network = wiredNetwork;
-            wired.neighbours.clear();
-            wired.peripherals = Collections.emptyMap();
-
-            // Broadcast the change
-            if( !peripherals.isEmpty() ) WiredNetworkChange.removed( peripherals ).broadcast( wired );
-
-            // Now remove all peripherals from this network and broadcast the change.
-            peripherals.keySet().removeAll( wiredPeripherals.keySet() );
-            if( !wiredPeripherals.isEmpty() ) WiredNetworkChange.removed( wiredPeripherals ).broadcast( nodes );
-
-        }
-        finally
-        {
-            wiredNetwork.lock.writeLock().unlock();
+            return new PathTable( points.values() );
         }
     }
 
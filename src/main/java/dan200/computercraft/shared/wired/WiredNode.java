@@ -12,6 +12,7 @@
 import dan200.computercraft.api.network.wired.IWiredNode;
 import dan200.computercraft.api.network.wired.IWiredSender;
 import dan200.computercraft.api.peripheral.IPeripheral;
+import dan200.computercraft.shared.peripheral.modem.ChannelIndex;
 
 import javax.annotation.Nonnull;
 import java.util.*;
@@ -19,7 +20,7 @@
 
 public final class WiredNode implements IWiredNode
 {
-    private Set<IPacketReceiver> receivers;
+    private ChannelIndex receivers;
 
     final IWiredElement element;
     Map<String, IPeripheral> peripherals = Collections.emptyMap();
@@ -36,7 +37,7 @@ public WiredNode( IWiredElement element )
     @Override
     public synchronized void addReceiver( @Nonnull IPacketReceiver receiver )
     {
-        if( receivers == null ) receivers = new HashSet<>();
+        if( receivers == null ) receivers = new ChannelIndex();
         receivers.add( receiver );
     }
 
@@ -50,8 +51,8 @@ synchronized void tryTransmit( Packet packet, double packetDistance, boolean pac
     {
         if( receivers == null ) return;
 
-        for( IPacketReceiver receiver : receivers )
-        {
+        // Only visit receivers which are listening on this packet's channel.
+        receivers.forEach( packet.getChannel(), receiver -> {
             if( !packetInterdimensional )
             {
                 double receiveRange = Math.max( range, receiver.getRange() ); // Ensure range is symmetrical
@@ -67,7 +68,7 @@ synchronized void tryTransmit( Packet packet, double packetDistance, boolean pac
                     receiver.receiveDifferentDimension( packet );
                 }
             }
-        }
+        } );
     }
 
     @Override
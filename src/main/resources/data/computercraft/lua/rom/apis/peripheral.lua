@@ -155,6 +155,85 @@ function call(name, method, ...)
     return nil
 end
 
+--[[- Call several peripheral methods at once.
+
+Methods which interact with the world, such as an inventory's `list`, are run
+on the server's main thread. Normally each call waits for its own task, so
+calling many of them takes several ticks. The calls in a batch are run in a
+single task instead, though very large batches may be split over several ticks.
+
+Each call's errors are caught and returned, rather than being thrown.
+
+@tparam { { string, string, any... }... } calls A list of calls to make. Each
+call is a table containing the name of the peripheral, the method to call and
+then any arguments to pass to the method.
+@treturn { { boolean, any... }... } The result of each call. This is a table
+containing `true` and the method's return values if the call succeeded, or
+`false` and an error message if it failed.
+@usage Count the items in every chest.
+
+    local calls = {}
+    for _, name in ipairs(peripheral.getNames()) do
+      if peripheral.getType(name) == "minecraft:chest" then
+        calls[#calls + 1] = { name, "list" }
+      end
+    end
+
+    for i, result in ipairs(peripheral.batch(calls)) do
+      if result[1] then
+        local count = 0
+        for _, item in pairs(result[2]) do count = count + item.count end
+        print(calls[i][1], count)
+      end
+    end
+]]
+function batch(calls)
+    expect(1, calls, "table")
+
+    local native_calls, remote_sides = {}, {}
+    for i = 1, #calls do
+        local call = calls[i]
+        if type(call) ~= "table" then
+            error(("bad call #%d (expected table, got %s)"):format(i, type(call)), 2)
+        end
+
+        local name, method = call[1], call[2]
+        if type(name) ~= "string" or type(method) ~= "string" then
+            error(("bad call #%d (expected peripheral name and method)"):format(i), 2)
+        end
+
+        local remote_side = remote_sides[name]
+        if remote_side == nil then
+            remote_side = false
+            if not native.isPresent(name) then
+                for n = 1, #sides do
+                    local side = sides[n]
+                    if native.getType(side) == "modem" and not native.call(side, "isWireless") and
+                        native.call(side, "isPresentRemote", name)
+                    then
+                        remote_side = side
+                        break
+                    end
+                end
+            end
+            remote_sides[name] = remote_side
+        end
+
+        local native_call
+        if remote_side then
+            native_call = table.pack(remote_side, "callRemote", name, method, table.unpack(call, 3, call.n or #call))
+        else
+            native_call = table.pack(name, method, table.unpack(call, 3, call.n or #call))
+        end
+
+        -- The native batch rejects an n past the last value, so drop any trailing nils.
+        while native_call.n > 0 and native_call[native_call.n] == nil do native_call.n = native_call.n - 1 end
+        native_calls[i] = native_call
+    end
+
+    return native.batch(native_calls)
+end
+
 --- Get a table containing functions pointing to the peripheral's methods, which
 -- can then be called as if using @{peripheral.call}.
 --
@@ -7,6 +7,7 @@
 
 import dan200.computercraft.ComputerCraft;
 import dan200.computercraft.api.filesystem.IWritableMount;
+import dan200.computercraft.api.lua.IArguments;
 import dan200.computercraft.api.lua.ILuaAPI;
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.api.lua.LuaFunction;
@@ -18,6 +19,8 @@
 import dan200.computercraft.core.filesystem.FileMount;
 import dan200.computercraft.core.filesystem.FileSystemException;
 import dan200.computercraft.core.terminal.Terminal;
+import dan200.computercraft.core.tracking.Tracker;
+import dan200.computercraft.core.tracking.Tracking;
 import dan200.computercraft.shared.peripheral.modem.ModemState;
 import dan200.computercraft.shared.peripheral.modem.wireless.WirelessModemPeripheral;
 import net.minecraft.util.math.vector.Vector3d;
@@ -112,6 +115,11 @@ public void before() throws IOException
             writer.write( "loadfile('test-rom/mcfly.lua', nil, _ENV)('test-rom/spec') cct_test.finish()" );
         }
 
+        // Enable tracking, so that peripheral calls are timed.
+        Tracking.add( new Tracker()
+        {
+        } );
+
         computer = new Computer( new BasicEnvironment( mount ), term, 0 );
         computer.getEnvironment().setPeripheral( ComputerSide.TOP, new FakeModem() );
         computer.addApi( new CctTestAPI() );
@@ -154,6 +162,7 @@ public void after() throws InterruptedException, IOException
 
             // And shutdown
             computer.shutdown();
+            Tracking.reset();
         }
 
         if( finishedWith != null )
@@ -306,6 +315,12 @@ public boolean equals( @Nullable IPeripheral other )
         {
             return this == other;
         }
+
+        @LuaFunction( mainThread = true )
+        public final Object[] echoMainThread( IArguments args )
+        {
+            return args.getAll();
+        }
     }
 
     public class CctTestAPI implements ILuaAPI
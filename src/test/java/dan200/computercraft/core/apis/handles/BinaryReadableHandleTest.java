@@ -77,6 +77,20 @@ public void testReadLineTrailing() throws LuaException
         assertNull( wrapper.call( "readLine", true ) );
     }
 
+    @Test
+    public void testReadBuffered() throws LuaException
+    {
+        byte[] input = new byte[10000];
+        Arrays.fill( input, (byte) 'A' );
+        ObjectWrapper wrapper = new ObjectWrapper( BinaryReadableHandle.of( new ByteBufferChannel( ByteBuffer.wrap( input ) ) ) );
+
+        assertEquals( 9000, wrapper.<ByteBuffer>callOf( "read", 9000 ).remaining() );
+        assertEquals( 'A', (int) wrapper.callOf( Integer.class, "read" ) );
+        assertEquals( 999, wrapper.<ByteBuffer>callOf( "readAll" ).remaining() );
+        assertNull( wrapper.call( "readAll" ) );
+        assertNull( wrapper.call( "read", 10 ) );
+    }
+
     private static ObjectWrapper fromLength( int length )
     {
         byte[] input = new byte[length];
@@ -0,0 +1,79 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AddressResolverTest
+{
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> lookups = new ArrayList<>();
+    private final List<CompletableFuture<InetAddress>> pending = new ArrayList<>();
+
+    private final AddressResolver resolver = new AddressResolver( host -> {
+        lookups.add( host );
+        CompletableFuture<InetAddress> future = new CompletableFuture<>();
+        pending.add( future );
+        return future;
+    }, clock::get );
+
+    @Test
+    public void sharesPendingLookups() throws Exception
+    {
+        CompletableFuture<InetAddress> first = resolver.resolve( "example.com" );
+        CompletableFuture<InetAddress> second = resolver.resolve( "EXAMPLE.com" );
+        assertEquals( 1, lookups.size() );
+
+        pending.get( 0 ).complete( InetAddress.getByName( "93.184.216.34" ) );
+        assertEquals( first.get(), second.get() );
+    }
+
+    @Test
+    public void cachesUntilExpiry() throws Exception
+    {
+        resolver.resolve( "example.com" );
+        pending.get( 0 ).complete( InetAddress.getByName( "93.184.216.34" ) );
+
+        clock.addAndGet( AddressResolver.POSITIVE_TTL - 1 );
+        assertTrue( resolver.resolve( "example.com" ).isDone() );
+        assertEquals( 1, lookups.size() );
+
+        clock.addAndGet( 1 );
+        assertFalse( resolver.resolve( "example.com" ).isDone() );
+        assertEquals( 2, lookups.size() );
+    }
+
+    @Test
+    public void cachesFailures()
+    {
+        resolver.resolve( "missing.example" );
+        pending.get( 0 ).completeExceptionally( new UnknownHostException( "missing.example" ) );
+
+        assertTrue( resolver.resolve( "missing.example" ).isCompletedExceptionally() );
+        assertEquals( 1, lookups.size() );
+
+        clock.addAndGet( AddressResolver.NEGATIVE_TTL );
+        resolver.resolve( "missing.example" );
+        assertEquals( 2, lookups.size() );
+    }
+
+    @Test
+    public void skipsAddresses() throws Exception
+    {
+        assertEquals( InetAddress.getByName( "127.0.0.1" ), resolver.resolve( "127.0.0.1" ).get() );
+        assertEquals( InetAddress.getByName( "::1" ), resolver.resolve( "[::1]" ).get() );
+        assertEquals( 0, lookups.size() );
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.http.options;
+
+import com.google.common.net.InetAddresses;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AddressRulesTest
+{
+    private static final List<AddressRule> RULES = Arrays.asList(
+        AddressRule.parse( "$private", null, Action.DENY.toPartial() ),
+        AddressRule.parse( "example.com", 8080, new PartialOptions( Action.ALLOW, null, null, 1000, null ) ),
+        AddressRule.parse( "*.EXAMPLE.com", null, new PartialOptions( null, 10L, null, 2000, null ) ),
+        AddressRule.parse( "api.*", null, new PartialOptions( null, null, 20L, null, null ) ),
+        AddressRule.parse( "a*b*c.org", null, Action.DENY.toPartial() ),
+        AddressRule.parse( "93.184.0.0/16", null, new PartialOptions( null, null, null, 3000, 30 ) ),
+        AddressRule.parse( "2001:db8::/32", null, Action.DENY.toPartial() ),
+        AddressRule.parse( "93.184.216.*", null, new PartialOptions( null, 40L, null, null, null ) ),
+        AddressRule.parse( "*", null, Action.ALLOW.toPartial() )
+    );
+
+    @ParameterizedTest
+    @CsvSource( {
+        "example.com, 93.184.216.34, 80",
+        "example.com, 93.184.216.34, 8080",
+        "www.example.com, 93.184.216.34, 443",
+        "api.example.com, 1.2.3.4, 80",
+        "api.example.org, 1.2.3.4, 80",
+        "abc.org, 1.2.3.4, 80",
+        "axxbxxc.org, 1.2.3.4, 80",
+        "ac.org, 1.2.3.4, 80",
+        "localhost, 127.0.0.1, 80",
+        "internal, 192.168.1.20, 80",
+        "v6.example.net, 2001:db8::1, 80",
+        "v6.example.net, 2002:5db8:d822::1, 80",
+        "other.net, 8.8.8.8, 80",
+    } )
+    public void matchesLinearScan( String domain, String address, int port ) throws UnknownHostException
+    {
+        InetSocketAddress socketAddress = new InetSocketAddress(
+            InetAddress.getByAddress( domain, InetAddresses.forString( address ).getAddress() ), port
+        );
+
+        Options expected = AddressRule.apply( RULES, domain, socketAddress );
+        Options actual = AddressRules.of( RULES ).apply( domain, socketAddress );
+
+        assertEquals( expected.action, actual.action, "action" );
+        assertEquals( expected.maxUpload, actual.maxUpload, "maxUpload" );
+        assertEquals( expected.maxDownload, actual.maxDownload, "maxDownload" );
+        assertEquals( expected.timeout, actual.timeout, "timeout" );
+        assertEquals( expected.websocketMessage, actual.websocketMessage, "websocketMessage" );
+    }
+
+    @Test
+    @Disabled( "Takes a long time to run, mostly for stress testing" )
+    public void testLarge() throws UnknownHostException
+    {
+        InetSocketAddress[] addresses = new InetSocketAddress[] {
+            address( "team42.example.com", "93.184.216.34" ),
+            address( "host7.team250.example.org", "10.20.30.40" ),
+            address( "unmatched.example.net", "8.8.8.8" ),
+            address( "localhost", "127.0.0.1" ),
+            address( "v6.example.net", "2001:db8::1" ),
+        };
+
+        // Run everything twice, to give the JIT a chance to warm up.
+        for( int i = 0; i < 2; i++ )
+        {
+            for( int count : new int[] { 10, 100, 1000 } ) time( count, addresses );
+        }
+    }
+
+    private static void time( int count, InetSocketAddress[] addresses )
+    {
+        final int lookups = 200_000;
+
+        List<AddressRule> rules = new ArrayList<>( count );
+        rules.add( AddressRule.parse( "$private", null, Action.DENY.toPartial() ) );
+        for( int i = 1; rules.size() < count - 1; i++ )
+        {
+            PartialOptions options = new PartialOptions( Action.ALLOW, null, null, i, null );
+            switch( i % 4 )
+            {
+                case 0:
+                    rules.add( AddressRule.parse( "team" + i + ".example.com", null, options ) );
+                    break;
+                case 1:
+                    rules.add( AddressRule.parse( "*.team" + i + ".example.org", null, options ) );
+                    break;
+                case 2:
+                    rules.add( AddressRule.parse( "10." + (i & 0xFF) + ".0.0/16", null, options ) );
+                    break;
+                case 3:
+                    rules.add( AddressRule.parse( "2001:db8:" + Integer.toHexString( i ) + "::/48", null, options ) );
+                    break;
+            }
+        }
+        rules.add( AddressRule.parse( "*", null, Action.DENY.toPartial() ) );
+
+        AddressRules compiled = AddressRules.of( rules );
+
+        long start = System.nanoTime();
+        for( int i = 0; i < lookups; i++ )
+        {
+            InetSocketAddress address = addresses[i % addresses.length];
+            compiled.apply( address.getHostString(), address );
+        }
+        long trie = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for( int i = 0; i < lookups; i++ )
+        {
+            InetSocketAddress address = addresses[i % addresses.length];
+            AddressRule.apply( rules, address.getHostString(), address );
+        }
+        long linear = System.nanoTime() - start;
+
+        System.out.printf( "%4d rules: compiled %.1f ns/lookup, linear %.1f ns/lookup\n",
+            count, (double) trie / lookups, (double) linear / lookups );
+    }
+
+    private static InetSocketAddress address( String host, String address ) throws UnknownHostException
+    {
+        return new InetSocketAddress( InetAddress.getByAddress( host, InetAddresses.forString( address ).getAddress() ), 80 );
+    }
+}
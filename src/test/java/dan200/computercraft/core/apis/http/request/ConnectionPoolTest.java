@@ -0,0 +1,163 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.http.request;
+
+import dan200.computercraft.core.apis.IAPIEnvironment;
+import dan200.computercraft.core.apis.http.ResourceGroup;
+import dan200.computercraft.core.apis.http.options.AddressRules;
+import dan200.computercraft.core.apis.http.options.Options;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest
+{
+    private static EmbeddedChannel makeChannel()
+    {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.pipeline().addLast( ConnectionPool.HTTP, new HttpClientCodec() );
+        channel.pipeline().addLast( ConnectionPool.HANDLER, new ChannelInboundHandlerAdapter() );
+        return channel;
+    }
+
+    private static ConnectionPool.Key makeKey( String host )
+    {
+        return new ConnectionPool.Key( host, new InetSocketAddress( "127.0.0.1", 80 ), false, 1000 );
+    }
+
+    @Test
+    public void reusesReleasedChannels()
+    {
+        ConnectionPool.Key key = makeKey( "reuse.example" );
+        EmbeddedChannel channel = makeChannel();
+
+        ConnectionPool.release( key, channel );
+        assertNull( channel.pipeline().get( ConnectionPool.HANDLER ), "Handler is removed when released" );
+        assertNull( ConnectionPool.acquire( makeKey( "other.example" ) ) );
+
+        assertSame( channel, ConnectionPool.acquire( key ) );
+        assertNotNull( channel.pipeline().get( ConnectionPool.TIMEOUT ), "Timeout is added when acquired" );
+        assertNull( ConnectionPool.acquire( key ) );
+    }
+
+    @Test
+    public void skipsClosedChannels()
+    {
+        ConnectionPool.Key key = makeKey( "closed.example" );
+        EmbeddedChannel channel = makeChannel();
+
+        ConnectionPool.release( key, channel );
+        channel.close();
+
+        assertNull( ConnectionPool.acquire( key ) );
+    }
+
+    @Test
+    public void limitsIdleChannels()
+    {
+        ConnectionPool.Key key = makeKey( "limit.example" );
+        EmbeddedChannel[] channels = new EmbeddedChannel[ConnectionPool.MAX_IDLE_PER_KEY + 1];
+        for( int i = 0; i < channels.length; i++ )
+        {
+            channels[i] = makeChannel();
+            ConnectionPool.release( key, channels[i] );
+        }
+
+        assertFalse( channels[channels.length - 1].isOpen(), "Channels past the limit are closed" );
+        for( int i = 0; i < ConnectionPool.MAX_IDLE_PER_KEY; i++ ) assertNotNull( ConnectionPool.acquire( key ) );
+        assertNull( ConnectionPool.acquire( key ) );
+    }
+
+    @Test
+    public void retriesGetOnStaleConnection()
+    {
+        PooledRequest request = new PooledRequest( HttpMethod.GET );
+        request.channel.close();
+
+        assertEquals( 1, request.retries.get(), "GET requests are retried" );
+        assertEquals( Collections.emptyList(), request.events );
+    }
+
+    @Test
+    public void doesNotRetryPostOnStaleConnection()
+    {
+        PooledRequest request = new PooledRequest( HttpMethod.POST );
+        request.channel.close();
+
+        assertEquals( 0, request.retries.get(), "POST requests are not retried once sent" );
+        assertEquals( Collections.singletonList( "http_failure" ), request.events );
+    }
+
+    @Test
+    public void doesNotRetryTimeouts()
+    {
+        PooledRequest request = new PooledRequest( HttpMethod.GET );
+        request.channel.pipeline().fireExceptionCaught( ReadTimeoutException.INSTANCE );
+        request.channel.close();
+
+        assertEquals( 0, request.retries.get(), "Timed out requests are not retried" );
+        assertEquals( Collections.singletonList( "http_failure" ), request.events );
+    }
+
+    @Test
+    public void retriesOnlySafeRequests()
+    {
+        assertTrue( ConnectionPool.canRetry( HttpMethod.POST, false, null ), "Unsent requests can always be retried" );
+        assertTrue( ConnectionPool.canRetry( HttpMethod.HEAD, true, new IOException( "Connection reset by peer" ) ) );
+        assertFalse( ConnectionPool.canRetry( HttpMethod.PUT, true, null ) );
+        assertFalse( ConnectionPool.canRetry( HttpMethod.PATCH, true, null ) );
+        assertFalse( ConnectionPool.canRetry( HttpMethod.GET, true, ReadTimeoutException.INSTANCE ) );
+    }
+
+    /**
+     * A request sent on a pooled connection, which records any retries and events.
+     */
+    private static final class PooledRequest
+    {
+        final EmbeddedChannel channel = new EmbeddedChannel();
+        final AtomicInteger retries = new AtomicInteger();
+        final List<String> events = new ArrayList<>();
+
+        PooledRequest( HttpMethod method )
+        {
+            IAPIEnvironment environment = (IAPIEnvironment) Proxy.newProxyInstance(
+                IAPIEnvironment.class.getClassLoader(), new Class<?>[] { IAPIEnvironment.class },
+                ( proxy, m, args ) -> {
+                    if( m.getName().equals( "queueEvent" ) ) events.add( (String) args[0] );
+                    return null;
+                }
+            );
+
+            URI uri = URI.create( "http://example.com/" );
+            InetSocketAddress address = new InetSocketAddress( "127.0.0.1", 80 );
+            Options options = AddressRules.of( Collections.emptyList() ).apply( uri.getHost(), address );
+            HttpRequest request = new HttpRequest(
+                new ResourceGroup<>(), environment, uri.toString(), null, new DefaultHttpHeaders(), false, true, false
+            );
+
+            channel.pipeline().addLast( ConnectionPool.HTTP, new HttpClientCodec() );
+            channel.pipeline().addLast( ConnectionPool.HANDLER, new HttpRequestHandler(
+                request, uri, method, options, makeKey( uri.getHost() ), retries::incrementAndGet
+            ) );
+            assertNotNull( channel.readOutbound(), "Request is sent" );
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.apis.http.request;
+
+import dan200.computercraft.api.lua.LuaException;
+import dan200.computercraft.api.lua.MethodResult;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpResponseStreamTest
+{
+    @Test
+    public void readsInOrder() throws IOException
+    {
+        HttpResponseStream stream = new HttpResponseStream( new EmbeddedChannel(), () -> {} );
+        stream.offer( Unpooled.wrappedBuffer( new byte[] { 1, 2, 3 } ) );
+        stream.offer( Unpooled.wrappedBuffer( new byte[] { 4, 5 } ) );
+        stream.finish();
+
+        ByteBuffer buffer = ByteBuffer.allocate( 4 );
+        assertEquals( 4, stream.read( buffer ) );
+        assertArrayEquals( new byte[] { 1, 2, 3, 4 }, buffer.array() );
+
+        buffer.clear();
+        assertEquals( 1, stream.read( buffer ) );
+        assertEquals( 5, buffer.get( 0 ) );
+
+        assertEquals( -1, stream.read( buffer ) );
+    }
+
+    @Test
+    public void appliesBackpressure() throws IOException
+    {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        HttpResponseStream stream = new HttpResponseStream( channel, () -> {} );
+
+        stream.offer( Unpooled.wrappedBuffer( new byte[HttpResponseStream.HIGH_WATER_MARK] ) );
+        assertFalse( channel.config().isAutoRead(), "Stops reading once full" );
+
+        ByteBuffer buffer = ByteBuffer.allocate( HttpResponseStream.HIGH_WATER_MARK - HttpResponseStream.LOW_WATER_MARK );
+        stream.read( buffer );
+        assertFalse( channel.config().isAutoRead(), "Still paused at the low water mark" );
+
+        stream.read( ByteBuffer.allocate( 1 ) );
+        assertTrue( channel.config().isAutoRead(), "Resumes once drained" );
+    }
+
+    @Test
+    public void failsAfterRemainingData() throws IOException
+    {
+        HttpResponseStream stream = new HttpResponseStream( new EmbeddedChannel(), () -> {} );
+        stream.offer( Unpooled.wrappedBuffer( new byte[] { 1 } ) );
+        stream.fail( "Connection closed" );
+
+        assertEquals( 1, stream.read( ByteBuffer.allocate( 4 ) ) );
+        IOException e = assertThrows( IOException.class, () -> stream.read( ByteBuffer.allocate( 4 ) ) );
+        assertEquals( "Connection closed", e.getMessage() );
+    }
+
+    @Test
+    public void closeReleasesBuffers()
+    {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        HttpResponseStream stream = new HttpResponseStream( channel, () -> {} );
+
+        ByteBuf buffer = Unpooled.buffer( 4 ).writeInt( 0 );
+        stream.offer( buffer );
+        stream.close();
+
+        assertEquals( 0, buffer.refCnt() );
+        assertFalse( channel.isOpen(), "Closing an unfinished stream closes the connection" );
+
+        ByteBuf late = Unpooled.buffer( 4 ).writeInt( 0 );
+        stream.offer( late );
+        assertEquals( 0, late.refCnt() );
+    }
+
+    @Test
+    public void closeNotifiesListenerOnce()
+    {
+        AtomicInteger closed = new AtomicInteger();
+        HttpResponseStream stream = new HttpResponseStream( new EmbeddedChannel(), () -> {}, closed::incrementAndGet );
+
+        stream.close();
+        stream.close();
+        assertEquals( 1, closed.get() );
+    }
+
+    @Test
+    public void readsDoNotBlock() throws IOException
+    {
+        AtomicInteger woken = new AtomicInteger();
+        HttpResponseStream stream = new HttpResponseStream( new EmbeddedChannel(), woken::incrementAndGet );
+
+        assertEquals( 0, stream.read( ByteBuffer.allocate( 4 ) ), "Nothing to read yet" );
+        assertTrue( stream.park(), "Should wait for data" );
+
+        stream.offer( Unpooled.wrappedBuffer( new byte[] { 1 } ) );
+        assertEquals( 1, woken.get(), "Wakes the reader once data arrives" );
+        assertFalse( stream.park(), "Data is available" );
+
+        stream.offer( Unpooled.wrappedBuffer( new byte[] { 2 } ) );
+        assertEquals( 1, woken.get(), "Only wakes a waiting reader" );
+        assertEquals( 2, stream.read( ByteBuffer.allocate( 4 ) ) );
+    }
+
+    @Test
+    public void handleWaitsForLaterData() throws LuaException
+    {
+        AtomicInteger woken = new AtomicInteger();
+        HttpResponseStream stream = new HttpResponseStream( new EmbeddedChannel(), woken::incrementAndGet );
+        HttpStreamHandle handle = new HttpStreamHandle( stream, false, StandardCharsets.UTF_8 );
+
+        MethodResult line = handle.readLine( Optional.empty() );
+        assertNotNull( line.getCallback(), "Waits for a line" );
+        assertArrayEquals( new Object[] { HttpStreamHandle.EVENT }, line.getResult() );
+
+        stream.offer( Unpooled.copiedBuffer( "hello, ", StandardCharsets.UTF_8 ) );
+        assertEquals( 1, woken.get() );
+        line = line.getCallback().resume( new Object[] { HttpStreamHandle.EVENT } );
+        assertNotNull( line.getCallback(), "Still waiting for the end of the line" );
+
+        stream.offer( Unpooled.copiedBuffer( "world\r\nrest", StandardCharsets.UTF_8 ) );
+        assertEquals( 2, woken.get() );
+        line = line.getCallback().resume( new Object[] { HttpStreamHandle.EVENT } );
+        assertNull( line.getCallback() );
+        assertArrayEquals( new Object[] { "hello, world" }, line.getResult() );
+
+        MethodResult rest = handle.readAll();
+        assertNotNull( rest.getCallback(), "Waits for the end of the response" );
+        stream.finish();
+        rest = rest.getCallback().resume( new Object[] { HttpStreamHandle.EVENT } );
+        assertArrayEquals( new Object[] { "rest" }, rest.getResult() );
+
+        Object[] end = handle.read( Optional.empty() ).getResult();
+        assertTrue( end == null || end.length == 0, "At the end of the response" );
+    }
+
+    @Test
+    public void handleRaisesErrors() throws LuaException
+    {
+        HttpResponseStream stream = new HttpResponseStream( new EmbeddedChannel(), () -> {} );
+        HttpStreamHandle handle = new HttpStreamHandle( stream, false, StandardCharsets.UTF_8 );
+
+        stream.offer( Unpooled.copiedBuffer( "line\npartial", StandardCharsets.UTF_8 ) );
+        stream.fail( "Connection closed" );
+
+        assertArrayEquals( new Object[] { "line" }, handle.readLine( Optional.empty() ).getResult() );
+        LuaException e = assertThrows( LuaException.class, handle::readAll, "A truncated body is an error" );
+        assertEquals( "Connection closed", e.getMessage() );
+    }
+
+    @Test
+    public void handleCanBeTerminated() throws LuaException
+    {
+        HttpResponseStream stream = new HttpResponseStream( new EmbeddedChannel(), () -> {} );
+        HttpStreamHandle handle = new HttpStreamHandle( stream, true, StandardCharsets.UTF_8 );
+
+        MethodResult read = handle.read( Optional.of( 4 ) );
+        assertNotNull( read.getCallback() );
+        LuaException e = assertThrows( LuaException.class, () -> read.getCallback().resume( new Object[] { "terminate" } ) );
+        assertEquals( "Terminated", e.getMessage() );
+    }
+}
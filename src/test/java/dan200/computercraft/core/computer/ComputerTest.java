@@ -6,6 +6,10 @@
 package dan200.computercraft.core.computer;
 
 import com.google.common.io.CharStreams;
+import dan200.computercraft.api.lua.ILuaAPI;
+import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.api.lua.MethodResult;
+import dan200.computercraft.core.asm.IPauseCallback;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -15,6 +19,7 @@
 import java.util.Objects;
 
 import static java.time.Duration.ofSeconds;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 public class ComputerTest
@@ -37,6 +42,54 @@ public void testTimeout()
         } );
     }
 
+    /**
+     * Checks functions returning an {@link IPauseCallback} are resumed without any events, both from the program's
+     * coroutine and from within another coroutine, and do not consume any events.
+     */
+    @Test
+    public void testPauseCallback()
+    {
+        PauseApi api = new PauseApi();
+        assertTimeoutPreemptively( ofSeconds( 20 ), () -> ComputerBootstrap.run( String.join( "\n",
+            "os.queueEvent('marker')",
+            "assertion.assert(pause.run(3) == 'done')",
+            "parallel.waitForAll(",
+            "  function() assertion.assert(pause.run(2) == 'done') end,",
+            "  function() assertion.assert(pause.run(2) == 'done') end",
+            ")",
+            "local event = os.pullEvent()",
+            "assertion.assert(event == 'marker', 'Expected marker event, got ' .. tostring(event))"
+        ), computer -> computer.addApi( api ), ComputerBootstrap.MAX_TIME ) );
+
+        assertEquals( 7, api.resumes, "Number of resumes" );
+    }
+
+    public static class PauseApi implements ILuaAPI
+    {
+        int resumes;
+
+        @Override
+        public String[] getNames()
+        {
+            return new String[] { "pause" };
+        }
+
+        @LuaFunction
+        public final MethodResult run( int count )
+        {
+            return pause( count );
+        }
+
+        private MethodResult pause( int remaining )
+        {
+            if( remaining <= 0 ) return MethodResult.of( "done" );
+            return MethodResult.yield( new Object[0], (IPauseCallback) args -> {
+                resumes++;
+                return pause( remaining - 1 );
+            } );
+        }
+    }
+
     public static void main( String[] args ) throws Exception
     {
         InputStream stream = ComputerTest.class.getClassLoader().getResourceAsStream( "benchmark.lua" );
@@ -0,0 +1,203 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.computer;
+
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.api.lua.ILuaAPI;
+import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.core.filesystem.MemoryMount;
+import dan200.computercraft.core.terminal.Terminal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.time.Duration.ofSeconds;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class ComputerThreadTest
+{
+    private static final int TPS = 20;
+    private static final int COMPUTERS = 32;
+    private static final int EVENTS_PER_ROUND = 5;
+    private static final int[] THREAD_COUNTS = new int[] { 4, 1, 8, 2, 3, 1, 6, 2 };
+
+    private final List<Computer> computers = new ArrayList<>();
+
+    @AfterEach
+    public void after()
+    {
+        for( Computer computer : computers ) computer.unload();
+        setThreadCount( 1 );
+    }
+
+    /**
+     * Grows and shrinks the runner pool while computers have events queued, checking each event is processed exactly
+     * once and in order.
+     */
+    @Test
+    public void testResizeWhileQueued()
+    {
+        ComputerCraft.maxMainComputerTime = ComputerCraft.maxMainGlobalTime = Integer.MAX_VALUE;
+        ComputerCraft.computerThreads = 2;
+
+        List<CounterApi> counters = new ArrayList<>( COMPUTERS );
+        for( int i = 0; i < COMPUTERS; i++ )
+        {
+            MemoryMount mount = new MemoryMount().addFile( "startup.lua",
+                "counter.ready() while true do local _, n = os.pullEvent('count') counter.record(n) end"
+            );
+            Computer computer = new Computer( new BasicEnvironment( mount ), new Terminal( 51, 19 ), i );
+
+            CounterApi counter = new CounterApi();
+            computer.addApi( counter );
+            computer.turnOn();
+
+            computers.add( computer );
+            counters.add( counter );
+        }
+
+        assertTimeoutPreemptively( ofSeconds( 20 ), () -> {
+            tickUntil( () -> counters.stream().allMatch( x -> x.ready ) );
+
+            int event = 0;
+            for( int threads : THREAD_COUNTS )
+            {
+                for( int i = 0; i < EVENTS_PER_ROUND; i++ )
+                {
+                    event++;
+                    for( Computer computer : computers ) computer.queueEvent( "count", new Object[] { event } );
+                }
+
+                setThreadCount( threads );
+                assertEquals( threads, ComputerThread.getThreadCount(), "Number of threads" );
+                tick();
+            }
+
+            int total = event;
+            tickUntil( () -> counters.stream().allMatch( x -> x.size() >= total ) );
+
+            List<Integer> expected = IntStream.rangeClosed( 1, total ).boxed().collect( Collectors.toList() );
+            for( int i = 0; i < COMPUTERS; i++ )
+            {
+                assertEquals( expected, counters.get( i ).received(), "Events received by computer #" + i );
+            }
+        } );
+    }
+
+    /**
+     * Measures how many events per second can be processed across many computers with different numbers of threads.
+     */
+    @Test
+    @Disabled( "Takes a long time to run, mostly for stress testing" )
+    public void testLarge() throws InterruptedException
+    {
+        final int computerCount = 1000;
+        final int warmupSeconds = 5, runSeconds = 15;
+
+        ComputerCraft.maxMainComputerTime = ComputerCraft.maxMainGlobalTime = Integer.MAX_VALUE;
+
+        CounterApi counter = new CounterApi();
+        for( int i = 0; i < computerCount; i++ )
+        {
+            MemoryMount mount = new MemoryMount()
+                .addFile( "startup.lua", "while true do os.queueEvent('x') os.pullEvent('x') counter.increment() end" );
+            Computer computer = new Computer( new BasicEnvironment( mount ), new Terminal( 51, 19 ), i );
+            computer.addApi( counter );
+            computer.turnOn();
+            computers.add( computer );
+        }
+
+        for( int threads : new int[] { 1, 2, 4, 8 } )
+        {
+            setThreadCount( threads );
+            tickFor( warmupSeconds );
+
+            long start = System.nanoTime();
+            long startCount = counter.count.get();
+            tickFor( runSeconds );
+            long elapsed = System.nanoTime() - start;
+            long events = counter.count.get() - startCount;
+
+            System.out.printf( "%d threads, %d computers: %.0f events/s\n", threads, computerCount, events / (elapsed * 1e-9) );
+        }
+    }
+
+    private static void setThreadCount( int threads )
+    {
+        ComputerCraft.computerThreads = threads;
+        ComputerThread.setThreadCount( threads );
+    }
+
+    private void tickUntil( BooleanSupplier condition ) throws InterruptedException
+    {
+        while( !condition.getAsBoolean() ) tick();
+    }
+
+    private void tickFor( int seconds ) throws InterruptedException
+    {
+        for( int i = 0; i < TPS * seconds; i++ ) tick();
+    }
+
+    private void tick() throws InterruptedException
+    {
+        long start = System.currentTimeMillis();
+
+        for( Computer computer : computers ) computer.tick();
+        MainThread.executePendingTasks();
+
+        long remaining = (1000 / TPS) - (System.currentTimeMillis() - start);
+        if( remaining > 0 ) Thread.sleep( remaining );
+    }
+
+    public static class CounterApi implements ILuaAPI
+    {
+        volatile boolean ready;
+        final AtomicLong count = new AtomicLong();
+        private final List<Integer> received = new ArrayList<>();
+
+        @Override
+        public String[] getNames()
+        {
+            return new String[] { "counter" };
+        }
+
+        @LuaFunction
+        public final void ready()
+        {
+            ready = true;
+        }
+
+        @LuaFunction
+        public final void increment()
+        {
+            count.incrementAndGet();
+        }
+
+        @LuaFunction
+        public final synchronized void record( int event )
+        {
+            received.add( event );
+        }
+
+        synchronized int size()
+        {
+            return received.size();
+        }
+
+        synchronized List<Integer> received()
+        {
+            return new ArrayList<>( received );
+        }
+    }
+}
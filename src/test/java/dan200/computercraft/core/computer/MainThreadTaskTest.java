@@ -0,0 +1,170 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.computer;
+
+import dan200.computercraft.ComputerCraft;
+import dan200.computercraft.api.lua.ILuaAPI;
+import dan200.computercraft.api.lua.LuaFunction;
+import dan200.computercraft.core.terminal.Terminal;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static java.time.Duration.ofSeconds;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Checks the two ways a {@code mainThread} function's result can get back to the caller:
+ *
+ * <ul>
+ *     <li>{@code direct}: The function is called from the main coroutine, and so the result is passed straight to it.</li>
+ *     <li>{@code event}: The function is called from within another coroutine, and so the result is queued as a
+ *     {@code task_complete} event, which is passed down by the parent coroutine.</li>
+ * </ul>
+ */
+public class MainThreadTaskTest
+{
+    private static final int ROUNDS = 10;
+    private static final int CALLS = 10000;
+
+    private static final String BIOS = String.join( "\n",
+        "local function run()",
+        "  for i = 1, bench.calls() do bench.task() end",
+        "end",
+        "local function resume(co, filter, event, ...)",
+        "  if filter ~= nil and event ~= filter then return filter end",
+        "  local _, new_filter = coroutine.resume(co, event, ...)",
+        "  return new_filter",
+        "end",
+        "for round = 1, bench.rounds() do",
+        "  bench.begin() run() bench.finish('direct')",
+        "  bench.begin()",
+        "  local co = coroutine.create(run)",
+        "  local _, filter = coroutine.resume(co)",
+        "  while coroutine.status(co) ~= 'dead' do filter = resume(co, filter, coroutine.yield(filter)) end",
+        "  bench.finish('event')",
+        "end",
+        "bench.done()",
+        "while true do coroutine.yield() end"
+    );
+
+    /**
+     * Ensures results are returned along both paths, and that other events are not lost or reordered.
+     */
+    @Test
+    public void testResults()
+    {
+        BenchApi api = new BenchApi();
+        assertTimeoutPreemptively( ofSeconds( 20 ), () -> ComputerBootstrap.run( String.join( "\n",
+            "os.queueEvent('marker')",
+            "assertion.assert(bench.add(1, 2) == 3)",
+            "parallel.waitForAll(",
+            "  function() assertion.assert(bench.add(3, 4) == 7) end,",
+            "  function() assertion.assert(bench.add(5, 6) == 11) end",
+            ")",
+            "local event = os.pullEvent()",
+            "assertion.assert(event == 'marker', 'Expected marker event, got ' .. tostring(event))"
+        ), computer -> computer.addApi( api ), ComputerBootstrap.MAX_TIME ) );
+    }
+
+    /**
+     * Measures the latency of each path. The server thread is run in a busy loop rather than at 20 ticks a second, so
+     * this measures the overhead of each path rather than the tick rate.
+     */
+    @Test
+    @Disabled( "Takes a long time to run, mostly for stress testing" )
+    public void testLarge()
+    {
+        ComputerCraft.maxMainComputerTime = ComputerCraft.maxMainGlobalTime = Integer.MAX_VALUE;
+
+        BenchApi api = new BenchApi();
+        Computer computer = new Computer( new BasicEnvironment()
+        {
+            @Override
+            public InputStream createResourceFile( String domain, String subPath )
+            {
+                return subPath.equals( "lua/bios.lua" )
+                    ? new ByteArrayInputStream( BIOS.getBytes( StandardCharsets.UTF_8 ) )
+                    : super.createResourceFile( domain, subPath );
+            }
+        }, new Terminal( 51, 19 ), 0 );
+        computer.addApi( api );
+        computer.turnOn();
+
+        try
+        {
+            while( !api.done )
+            {
+                computer.tick();
+                MainThread.executePendingTasks();
+            }
+        }
+        finally
+        {
+            computer.unload();
+        }
+    }
+
+    public static class BenchApi implements ILuaAPI
+    {
+        private int round;
+        private long start;
+        volatile boolean done;
+
+        @Override
+        public String[] getNames()
+        {
+            return new String[] { "bench" };
+        }
+
+        @LuaFunction
+        public final int calls()
+        {
+            return CALLS;
+        }
+
+        @LuaFunction
+        public final int rounds()
+        {
+            return ROUNDS;
+        }
+
+        @LuaFunction( mainThread = true )
+        public final boolean task()
+        {
+            return true;
+        }
+
+        @LuaFunction( mainThread = true )
+        public final int add( int a, int b )
+        {
+            return a + b;
+        }
+
+        @LuaFunction
+        public final void begin()
+        {
+            start = System.nanoTime();
+        }
+
+        @LuaFunction
+        public final void finish( String path )
+        {
+            long elapsed = System.nanoTime() - start;
+            if( path.equals( "direct" ) ) round++;
+            System.out.printf( "Round %d, %s: %.2f us/call\n", round, path, elapsed * 1e-3 / CALLS );
+        }
+
+        @LuaFunction
+        public final void done()
+        {
+            done = true;
+        }
+    }
+}
@@ -9,16 +9,30 @@
 import dan200.computercraft.api.filesystem.IWritableMount;
 import dan200.computercraft.api.lua.LuaException;
 import dan200.computercraft.core.apis.ObjectWrapper;
+import dan200.computercraft.core.apis.handles.BinaryReadableHandle;
+import dan200.computercraft.core.apis.handles.ByteBufferChannel;
 import dan200.computercraft.core.apis.handles.EncodedWritableHandle;
 import org.junit.jupiter.api.Test;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class FileSystemTest
 {
@@ -78,4 +92,207 @@ public void testUnmountCloses() throws FileSystemException
         LuaException err = assertThrows( LuaException.class, () -> wrapper.call( "write", "Tiny line" ) );
         assertEquals( "attempt to use a closed file", err.getMessage() );
     }
+
+    @Test
+    public void testNestedMounts() throws FileSystemException
+    {
+        FileSystem fs = new FileSystem( "hdd", new MemoryMount() );
+        fs.mount( "a", "a", new MemoryMount() );
+        fs.mount( "b", "a/b", new MemoryMount() );
+
+        assertEquals( "hdd", fs.getMountLabel( "x" ) );
+        assertEquals( "a", fs.getMountLabel( "a/x" ) );
+        assertEquals( "a", fs.getMountLabel( "A/x" ), "Mounts are case-insensitive" );
+        assertEquals( "b", fs.getMountLabel( "a/b/c" ) );
+        assertArrayEquals( new String[] { "b" }, fs.list( "a" ) );
+        assertArrayEquals( new String[] { "a" }, fs.list( "" ) );
+
+        fs.unmount( "a" );
+        assertEquals( "hdd", fs.getMountLabel( "a/x" ) );
+        assertEquals( "b", fs.getMountLabel( "a/b/c" ) );
+    }
+
+    @Test
+    public void testFind() throws FileSystemException, IOException
+    {
+        FileSystem fs = mkFs();
+        fs.makeDir( "find/a/x/b" );
+        fs.makeDir( "find/a/y/b" );
+        fs.makeDir( "find/a/y/c" );
+        for( String file : new String[] { "find/a/x/b/one.lua", "find/a/y/b/two.lua", "find/a/y/b/three.txt" } )
+        {
+            fs.openForWrite( file, false, EncodedWritableHandle::openUtf8 ).get().close();
+        }
+
+        assertArrayEquals( new String[] { "find/a/x/b/one.lua", "find/a/y/b/two.lua" }, fs.find( "find/a/*/b/*.lua" ) );
+        assertArrayEquals( new String[] { "find/a/y/b", "find/a/y/c" }, fs.find( "find/a/y/*" ) );
+        assertArrayEquals( new String[] { "find/a/y/b/three.txt" }, fs.find( "find/*/y/b/t*e*.txt" ) );
+        assertArrayEquals( new String[0], fs.find( "find/a/*/missing/*" ) );
+    }
+
+    @Test
+    public void testFindAcrossMounts() throws FileSystemException, IOException
+    {
+        FileSystem fs = mkFs();
+        if( fs.exists( "mounts" ) ) fs.delete( "mounts" );
+        fs.makeDir( "mounts/a/x" );
+        fs.makeDir( "mounts/b" );
+        fs.openForWrite( "mounts/a/x/one.lua", false, EncodedWritableHandle::openUtf8 ).get().close();
+
+        // Mount over an existing directory, and somewhere with no directory.
+        fs.mountWritable( "b", "mounts/b", new FileMount( new File( ROOT, "mount-b" ), CAPACITY ) );
+        fs.mount( "c", "mounts/c", new FileMount( new File( ROOT, "mount-c" ), CAPACITY ) );
+        if( fs.exists( "mounts/b/x" ) ) fs.delete( "mounts/b/x" );
+        fs.makeDir( "mounts/b/x" );
+        fs.openForWrite( "mounts/b/x/two.lua", false, EncodedWritableHandle::openUtf8 ).get().close();
+
+        assertArrayEquals( new String[] { "mounts/a/x/one.lua", "mounts/b/x/two.lua" }, fs.find( "mounts/*/x/*.lua" ) );
+        assertArrayEquals( new String[] { "mounts/a", "mounts/b", "mounts/c" }, fs.find( "mounts/*" ) );
+    }
+
+    @Test
+    public void testMatchesGlob()
+    {
+        assertTrue( FileSystem.matchesGlob( "*", "" ) );
+        assertTrue( FileSystem.matchesGlob( "*.lua", "startup.lua" ) );
+        assertFalse( FileSystem.matchesGlob( "*.lua", "startup.luac" ) );
+        assertTrue( FileSystem.matchesGlob( "a*b*c", "aXbYbZc" ) );
+        assertFalse( FileSystem.matchesGlob( "a*b*c", "aXbYbZ" ) );
+        assertTrue( FileSystem.matchesGlob( "a**", "a" ) );
+    }
+
+    @Test
+    public void testCopyResumes() throws FileSystemException, IOException
+    {
+        FileSystem fs = mkFs();
+        if( fs.exists( "copy" ) ) fs.delete( "copy" );
+        fs.makeDir( "copy" );
+
+        byte[] contents = new byte[200 * 1024];
+        new Random( 0 ).nextBytes( contents );
+        Files.write( contents, new File( ROOT, "copy/source.bin" ) );
+
+        FileCopy copy = fs.startCopy( "copy/source.bin", "copy/dest.bin" );
+        int runs = 1;
+        while( !copy.run( () -> true ) ) runs++;
+
+        assertTrue( runs > 1, "Copy should pause part way through" );
+        assertArrayEquals( contents, Files.toByteArray( new File( ROOT, "copy/dest.bin" ) ) );
+    }
+
+    @Test
+    public void testMoveResumes() throws FileSystemException, IOException
+    {
+        FileSystem fs = mkFs();
+        if( fs.exists( "move" ) ) fs.delete( "move" );
+        fs.makeDir( "move" );
+
+        byte[] contents = new byte[200 * 1024];
+        new Random( 0 ).nextBytes( contents );
+        Files.write( contents, new File( ROOT, "move/source.bin" ) );
+
+        FileCopy move = fs.startMove( "move/source.bin", "move/dest.bin" );
+        assertFalse( move.run( () -> true ), "Move should pause part way through" );
+        assertTrue( fs.exists( "move/source.bin" ), "Source should exist until the move finishes" );
+
+        while( !move.run( () -> true ) ) ;
+
+        assertFalse( fs.exists( "move/source.bin" ), "Source should be deleted" );
+        assertArrayEquals( contents, Files.toByteArray( new File( ROOT, "move/dest.bin" ) ) );
+    }
+
+    /**
+     * Ensures large files are read in full when opened, so they can be replaced or deleted while the handle is open.
+     *
+     * @throws IOException When reading and writing files.
+     */
+    @Test
+    public void testLargeFileReplacedWhileOpen() throws IOException
+    {
+        ROOT.mkdirs();
+        File file = new File( ROOT, "large.bin" );
+        byte[] contents = new byte[2 << 20];
+        new Random( 0 ).nextBytes( contents );
+        Files.write( contents, file );
+
+        try( ReadableByteChannel channel = new FileMount( ROOT, CAPACITY ).openForRead( "large.bin" ) )
+        {
+            Files.write( new byte[] { 1, 2, 3 }, file );
+            assertTrue( file.delete(), "File should be deleted" );
+
+            ByteBuffer buffer = ByteBuffer.allocate( contents.length + 1 );
+            while( channel.read( buffer ) >= 0 ) ;
+            assertArrayEquals( contents, Arrays.copyOf( buffer.array(), buffer.position() ) );
+        }
+    }
+
+    /**
+     * Ensures handles to files which have been read into memory can seek and read, even once the file has changed.
+     *
+     * @throws FileSystemException When the file system cannot be constructed.
+     * @throws LuaException        When Lua functions fail.
+     * @throws IOException         When reading and writing files.
+     */
+    @Test
+    public void testBufferedFileHandle() throws FileSystemException, LuaException, IOException
+    {
+        ROOT.mkdirs();
+        File file = new File( ROOT, "buffered.bin" );
+        byte[] contents = new byte[2 << 20];
+        new Random( 0 ).nextBytes( contents );
+        Files.write( contents, file );
+
+        FileSystem fs = mkFs();
+        FileSystemWrapper<ReadableByteChannel> reader = fs.openForRead( "buffered.bin", Function.identity() );
+        ObjectWrapper wrapper = new ObjectWrapper( BinaryReadableHandle.of( reader.get(), reader ) );
+
+        Files.write( new byte[] { 1, 2, 3 }, file );
+
+        assertEquals( 100L, wrapper.call( "seek", "set", 100 )[0] );
+        assertEquals( copyOf( contents, 100, contents.length ), wrapper.<ByteBuffer>callOf( "readAll" ) );
+        assertNull( wrapper.call( "readAll" ) );
+
+        assertEquals( (long) contents.length - 10, wrapper.call( "seek", "end", -10 )[0] );
+        assertEquals( copyOf( contents, contents.length - 10, contents.length ), wrapper.<ByteBuffer>callOf( "read", 100 ) );
+
+        wrapper.call( "close" );
+        assertThrows( LuaException.class, () -> wrapper.call( "readAll" ) );
+    }
+
+    /**
+     * Ensures we stop reading files into memory once too many are open, and start again once they are closed.
+     *
+     * @throws IOException When reading and writing files.
+     */
+    @Test
+    public void testBufferedFilesAreBounded() throws IOException
+    {
+        ROOT.mkdirs();
+        File file = new File( ROOT, "buffered.bin" );
+        Files.write( new byte[2 << 20], file );
+
+        FileMount mount = new FileMount( ROOT, CAPACITY );
+        List<ReadableByteChannel> channels = new ArrayList<>();
+        try
+        {
+            for( int i = 0; i < 40; i++ ) channels.add( mount.openForRead( "buffered.bin" ) );
+
+            assertTrue( channels.get( 0 ) instanceof ByteBufferChannel, "First file should be buffered" );
+            assertTrue( channels.get( channels.size() - 1 ) instanceof FileChannel, "Last file should not be buffered" );
+        }
+        finally
+        {
+            for( ReadableByteChannel channel : channels ) channel.close();
+        }
+
+        try( ReadableByteChannel channel = mount.openForRead( "buffered.bin" ) )
+        {
+            assertTrue( channel instanceof ByteBufferChannel, "File should be buffered once others are closed" );
+        }
+    }
+
+    private static ByteBuffer copyOf( byte[] contents, int from, int to )
+    {
+        return ByteBuffer.wrap( Arrays.copyOfRange( contents, from, to ) );
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.filesystem;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class MountTableTest
+{
+    private static final String[] PATHS = new String[] {
+        "", "startup.lua", "rom", "rom/programs/shell.lua", "disk5/data/file.txt", "disk50/file", "disk", "disk2x",
+        "a/deeply/nested/path/to/a/file",
+    };
+
+    /**
+     * Ensures each path resolves to the same mount as checking every mount.
+     */
+    @Test
+    public void testMatchesLinear()
+    {
+        for( int count : new int[] { 1, 10, 100 } )
+        {
+            List<MountWrapper> mounts = createMounts( count );
+            MountTable table = createTable( mounts );
+
+            for( String path : PATHS )
+            {
+                assertSame( linearLookup( mounts, path ), table.getMount( path ), "Mount for '" + path + "' with " + count + " mounts" );
+            }
+        }
+    }
+
+    @Test
+    @Disabled( "Takes a long time to run, mostly for stress testing" )
+    public void testLarge()
+    {
+        // Run everything twice, to give the JIT a chance to warm up.
+        for( int i = 0; i < 2; i++ )
+        {
+            for( int count : new int[] { 1, 10, 100 } ) time( count );
+        }
+    }
+
+    private static List<MountWrapper> createMounts( int count )
+    {
+        List<MountWrapper> mounts = new ArrayList<>( count );
+        mounts.add( new MountWrapper( "hdd", "", new MemoryMount() ) );
+        for( int i = 1; i < count; i++ )
+        {
+            String location = i == 1 ? "rom" : "disk" + i;
+            mounts.add( new MountWrapper( location, location, new MemoryMount() ) );
+        }
+        return mounts;
+    }
+
+    private static MountTable createTable( List<MountWrapper> mounts )
+    {
+        MountTable table = new MountTable();
+        for( MountWrapper mount : mounts ) table.add( mount );
+        return table;
+    }
+
+    private static void time( int count )
+    {
+        final int lookups = 2_000_000;
+        List<MountWrapper> mounts = createMounts( count );
+        MountTable table = createTable( mounts );
+
+        long start = System.nanoTime();
+        for( int i = 0; i < lookups; i++ ) table.getMount( PATHS[i % PATHS.length] );
+        long trie = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for( int i = 0; i < lookups; i++ ) linearLookup( mounts, PATHS[i % PATHS.length] );
+        long linear = System.nanoTime() - start;
+
+        System.out.printf( "%3d mounts: trie %.1f ns/lookup, linear %.1f ns/lookup\n",
+            count, (double) trie / lookups, (double) linear / lookups );
+    }
+
+    /**
+     * The original implementation of {@link FileSystem}'s mount lookup.
+     *
+     * @param mounts The mounts to search.
+     * @param path   The path to find.
+     * @return The deepest mount containing this path.
+     */
+    private static MountWrapper linearLookup( List<MountWrapper> mounts, String path )
+    {
+        MountWrapper match = null;
+        int matchLength = 999;
+        for( MountWrapper mount : mounts )
+        {
+            if( FileSystem.contains( mount.getLocation(), path ) )
+            {
+                int len = FileSystem.toLocal( path, mount.getLocation() ).length();
+                if( match == null || len < matchLength )
+                {
+                    match = mount;
+                    matchLength = len;
+                }
+            }
+        }
+        return match;
+    }
+}
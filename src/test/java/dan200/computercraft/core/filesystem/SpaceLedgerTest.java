@@ -0,0 +1,120 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.filesystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpaceLedgerTest
+{
+    @Test
+    public void measuresWithoutSavedSpace( @TempDir Path dir )
+    {
+        File root = dir.resolve( "computer" ).toFile();
+        assertTrue( root.mkdir() );
+
+        assertEquals( 1234, SpaceLedger.get( root, 500, () -> 1234 ).get() );
+    }
+
+    @Test
+    public void restoresSavedSpace( @TempDir Path dir ) throws IOException
+    {
+        File root = dir.resolve( "computer" ).toFile();
+        assertTrue( root.mkdir() );
+        Files.write( dir.resolve( "computer.size" ), "1234".getBytes( StandardCharsets.UTF_8 ) );
+
+        assertEquals( 1234, SpaceLedger.get( root, 500, () -> 1234 ).get() );
+    }
+
+    @Test
+    public void savesOnFlush( @TempDir Path dir ) throws IOException
+    {
+        SpaceLedger ledger = SpaceLedger.get( dir.resolve( "computer" ).toFile(), 500, () -> 0 );
+        ledger.add( 100 );
+
+        SpaceLedger.flushAll();
+        assertEquals( "600", new String( Files.readAllBytes( dir.resolve( "computer.size" ) ), StandardCharsets.UTF_8 ) );
+    }
+
+    @Test
+    public void correctsSavedSpaceInBackground( @TempDir Path dir ) throws IOException, InterruptedException
+    {
+        File root = dir.resolve( "computer" ).toFile();
+        assertTrue( root.mkdir() );
+        Files.write( dir.resolve( "computer.size" ), "1234".getBytes( StandardCharsets.UTF_8 ) );
+
+        SpaceLedger ledger = SpaceLedger.get( root, 500, () -> 2000 );
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while( ledger.get() != 2000 && System.nanoTime() < deadline ) Thread.sleep( 10 );
+        assertEquals( 2000, ledger.get() );
+    }
+
+    @Test
+    public void remeasuresIfChangedWhileMeasuring( @TempDir Path dir ) throws IOException, InterruptedException
+    {
+        File root = dir.resolve( "computer" ).toFile();
+        assertTrue( root.mkdir() );
+        Files.write( dir.resolve( "computer.size" ), "1234".getBytes( StandardCharsets.UTF_8 ) );
+
+        AtomicInteger attempts = new AtomicInteger();
+        SpaceLedger ledger = SpaceLedger.get( root, 500, () -> {
+            if( attempts.getAndIncrement() > 0 ) return 3000;
+
+            // Modify the mount while it's being measured, so this measurement is out of date.
+            SpaceLedger.get( root, 500, () -> -1 ).add( 100 );
+            return 1000;
+        } );
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while( ledger.get() != 3000 && System.nanoTime() < deadline ) Thread.sleep( 10 );
+        assertEquals( 3000, ledger.get() );
+        assertEquals( 2, attempts.get() );
+    }
+
+    @Test
+    public void refusesToExceedCapacity( @TempDir Path dir )
+    {
+        SpaceLedger ledger = SpaceLedger.get( dir.resolve( "computer" ).toFile(), 500, () -> 0 );
+
+        assertFalse( ledger.tryAdd( 600, 1000 ) );
+        assertEquals( 500, ledger.get() );
+
+        assertTrue( ledger.tryAdd( 500, 1000 ) );
+        assertEquals( 1000, ledger.get() );
+    }
+
+    @Test
+    public void sharesLedgerBetweenMounts( @TempDir Path dir ) throws IOException
+    {
+        File root = dir.resolve( "computer" ).toFile();
+        assertSame(
+            SpaceLedger.get( root, 500, () -> 0 ),
+            SpaceLedger.get( new File( dir.toFile(), "other/../computer" ), 500, () -> 0 )
+        );
+
+        FileMount first = new FileMount( root, 10000 );
+        FileMount second = new FileMount( root, 10000 );
+        try( WritableByteChannel channel = first.openForWrite( "file.txt" ) )
+        {
+            channel.write( ByteBuffer.wrap( new byte[1000] ) );
+        }
+
+        assertEquals( first.getRemainingSpace(), second.getRemainingSpace() );
+        assertTrue( second.getRemainingSpace() <= 9000 );
+    }
+}
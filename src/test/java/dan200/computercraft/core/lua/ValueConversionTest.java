@@ -0,0 +1,137 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.lua;
+
+import dan200.computercraft.core.computer.BasicEnvironment;
+import dan200.computercraft.core.computer.Computer;
+import dan200.computercraft.core.computer.TimeoutState;
+import dan200.computercraft.core.terminal.Terminal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.squiddev.cobalt.Constants;
+import org.squiddev.cobalt.LuaTable;
+import org.squiddev.cobalt.LuaValue;
+import org.squiddev.cobalt.Varargs;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.squiddev.cobalt.ValueFactory.valueOf;
+
+public class ValueConversionTest
+{
+    private CobaltLuaMachine machine;
+
+    @BeforeEach
+    public void before()
+    {
+        machine = new CobaltLuaMachine( new Computer( new BasicEnvironment(), new Terminal( 51, 19 ), 0 ), new TimeoutState(), null );
+    }
+
+    @AfterEach
+    public void after()
+    {
+        machine.close();
+    }
+
+    /**
+     * Ensures results are converted to the same values as the original converter.
+     */
+    @Test
+    public void testMatchesLegacy()
+    {
+        Object[] result = new Object[] { createInventory() };
+        assertEquals(
+            Arrays.asList( CobaltLuaMachine.toObjects( LegacyConverter.toValues( result ) ) ),
+            Arrays.asList( CobaltLuaMachine.toObjects( machine.toValues( result ) ) )
+        );
+    }
+
+    /**
+     * Compares the time taken to convert a result mirroring that of {@code inventory.list()} on a double chest.
+     */
+    @Test
+    @Disabled( "Takes a long time to run, mostly for stress testing" )
+    public void testLarge()
+    {
+        Object[] result = new Object[] { createInventory() };
+
+        // Run each twice, to give the JIT a chance to warm up.
+        for( int i = 0; i < 2; i++ )
+        {
+            time( "Original", LegacyConverter::toValues, result );
+            time( "Current", machine::toValues, result );
+        }
+    }
+
+    private static Map<Integer, Map<String, ?>> createInventory()
+    {
+        Map<Integer, Map<String, ?>> inventory = new HashMap<>();
+        for( int slot = 1; slot <= 54; slot++ )
+        {
+            Map<String, Object> item = new HashMap<>();
+            item.put( "name", "minecraft:stone" );
+            item.put( "count", slot );
+            inventory.put( slot, item );
+        }
+        return inventory;
+    }
+
+    private static void time( String name, Function<Object[], Varargs> convert, Object[] result )
+    {
+        final int iterations = 200_000;
+
+        long start = System.nanoTime();
+        for( int i = 0; i < iterations; i++ ) convert.apply( result );
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf( "%s: %d conversions took %.3f seconds (%.0f ns/conversion)\n",
+            name, iterations, elapsed * 1e-9, (double) elapsed / iterations );
+    }
+
+    /**
+     * The original conversion code, limited to the types used in these tests.
+     */
+    private static final class LegacyConverter
+    {
+        static Varargs toValues( Object[] objects )
+        {
+            if( objects.length == 1 ) return toValue( objects[0], null );
+            throw new UnsupportedOperationException();
+        }
+
+        private static LuaValue toValue( Object object, Map<Object, LuaValue> values )
+        {
+            if( object == null ) return Constants.NIL;
+            if( object instanceof Number ) return valueOf( ((Number) object).doubleValue() );
+            if( object instanceof Boolean ) return valueOf( (Boolean) object );
+            if( object instanceof String ) return valueOf( object.toString() );
+
+            if( values == null ) values = new IdentityHashMap<>( 1 );
+            LuaValue result = values.get( object );
+            if( result != null ) return result;
+
+            if( object instanceof Map )
+            {
+                LuaTable table = new LuaTable();
+                values.put( object, table );
+
+                for( Map.Entry<?, ?> pair : ((Map<?, ?>) object).entrySet() )
+                {
+                    LuaValue key = toValue( pair.getKey(), values );
+                    LuaValue value = toValue( pair.getValue(), values );
+                    if( !key.isNil() && !value.isNil() ) table.rawset( key, value );
+                }
+                return table;
+            }
+
+            throw new UnsupportedOperationException( object.getClass().getName() );
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.tracking;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void bucketsContainTheirValues()
+    {
+        for( long value : new long[] { 0, 1, 7, 8, 15, 16, 17, 1000, 123_456_789, 1L << 40 } )
+        {
+            int bucket = LatencyHistogram.bucket( value );
+            assertTrue( LatencyHistogram.lowerBound( bucket ) <= value, "Lower bound of " + value );
+            assertTrue( LatencyHistogram.lowerBound( bucket + 1 ) > value, "Upper bound of " + value );
+        }
+    }
+
+    @Test
+    public void estimatesPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for( long i = 1; i <= 10_000; i++ ) histogram.record( i * 1000 );
+
+        assertEquals( 10_000, histogram.count() );
+        assertWithin( 5_000_000, histogram.percentile( 0.5 ) );
+        assertWithin( 9_900_000, histogram.percentile( 0.99 ) );
+        assertWithin( 9_990_000, histogram.percentile( 0.999 ) );
+    }
+
+    @Test
+    public void drainsIntoAnotherHistogram()
+    {
+        LatencyHistogram source = new LatencyHistogram();
+        source.record( 100 );
+        source.record( 1_000_000 );
+
+        LatencyHistogram destination = new LatencyHistogram();
+        destination.record( 100 );
+
+        assertEquals( 2, source.drainTo( destination ) );
+        assertEquals( 0, source.count() );
+        assertEquals( 3, destination.count() );
+        assertWithin( 1_000_000, destination.percentile( 1 ) );
+    }
+
+    @Test
+    public void countsValuesUpToALimit()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record( 100 );
+        histogram.record( 1_000_000 );
+        histogram.record( 1_000_001 );
+        histogram.record( 5_000_000_000L );
+
+        // 100 is in the bucket [96, 104), and 1,000,000 in [983,040, 1,048,576).
+        assertEquals( 0, histogram.countAtMost( 95 ) );
+        assertEquals( 1, histogram.countAtMost( 103 ) );
+        assertEquals( 1, histogram.countAtMost( 1_000_000 ) );
+        assertEquals( 3, histogram.countAtMost( 1_048_575 ) );
+        assertEquals( 4, histogram.countAtMost( Long.MAX_VALUE ) );
+    }
+
+    private static void assertWithin( long expected, long actual )
+    {
+        assertTrue( Math.abs( expected - actual ) <= expected / 16, "Expected ~" + expected + ", got " + actual );
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.tracking;
+
+import com.google.common.io.ByteStreams;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsExporterTest
+{
+    private final MetricsExporter exporter = new MetricsExporter();
+
+    @AfterEach
+    public void close()
+    {
+        exporter.close();
+    }
+
+    @Test
+    public void servesMetrics() throws IOException
+    {
+        record();
+        exporter.serve( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ) );
+
+        URL url = new URL( "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + exporter.getPort() + "/metrics" );
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection( Proxy.NO_PROXY );
+        assertEquals( 200, connection.getResponseCode() );
+        assertEquals( MetricsExporter.CONTENT_TYPE, connection.getContentType() );
+
+        String body;
+        try( InputStream stream = connection.getInputStream() )
+        {
+            body = new String( ByteStreams.toByteArray( stream ), StandardCharsets.UTF_8 );
+        }
+
+        assertMetrics( Arrays.asList( body.split( "\n" ) ) );
+    }
+
+    @Test
+    public void writesMetrics( @TempDir Path dir ) throws IOException
+    {
+        record();
+
+        Path file = dir.resolve( "computercraft.prom" );
+        exporter.write( file );
+
+        assertMetrics( Files.readAllLines( file ) );
+        assertFalse( Files.exists( dir.resolve( "computercraft.prom.tmp" ) ) );
+    }
+
+    private void record()
+    {
+        exporter.addTaskTiming( null, 2, 3_000_000, 2_000_000 );
+        LatencyHistogram tasks = new LatencyHistogram();
+        tasks.record( 900_000 );
+        tasks.record( 2_000_000 );
+        exporter.addTaskLatencies( null, tasks );
+
+        exporter.addValue( null, TrackingField.FS_OPS, 3, 5 );
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        latencies.record( 1_000_000 );
+        exporter.addPeripheralLatencies( null, "printer.write", latencies );
+
+        exporter.addGauge( "test_gauge", "A gauge for testing.", () -> 42 );
+    }
+
+    private static void assertMetrics( List<String> lines )
+    {
+        assertTrue( lines.contains( "# TYPE computercraft_task_seconds histogram" ), "Has task histogram" );
+        assertTrue( lines.contains( "computercraft_task_seconds_bucket{le=\"0.0005\"} 0" ), "Has empty bucket" );
+        assertTrue( lines.contains( "computercraft_task_seconds_bucket{le=\"0.001\"} 1" ), "Has first task bucket" );
+        assertTrue( lines.contains( "computercraft_task_seconds_bucket{le=\"0.0025\"} 2" ), "Has cumulative task bucket" );
+        assertTrue( lines.contains( "computercraft_task_seconds_bucket{le=\"+Inf\"} 2" ), "Has infinite task bucket" );
+        assertTrue( lines.contains( "computercraft_task_seconds_count 2" ), "Has task count" );
+        assertTrue( lines.contains( "computercraft_task_seconds_sum 0.003" ), "Has task time" );
+        assertTrue( lines.contains( "computercraft_peripheral_call_seconds_bucket{method=\"printer.write\",le=\"10\"} 1" ), "Has peripheral bucket" );
+        assertTrue( lines.contains( "computercraft_peripheral_call_seconds_count{method=\"printer.write\"} 1" ), "Has peripheral count" );
+        assertFalse( lines.stream().anyMatch( x -> x.contains( "quantile=" ) ), "Has no quantiles" );
+        assertTrue( lines.contains( "computercraft_fs_total 5" ), "Has fs operations" );
+        assertTrue( lines.contains( "test_gauge 42" ), "Has gauge" );
+        assertEquals( "# EOF", lines.get( lines.size() - 1 ) );
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.core.tracking;
+
+import dan200.computercraft.core.computer.BasicEnvironment;
+import dan200.computercraft.core.computer.Computer;
+import dan200.computercraft.core.terminal.Terminal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TrackingTest
+{
+    @AfterEach
+    public void reset()
+    {
+        Tracking.reset();
+    }
+
+    @Test
+    public void doesNotKeepComputersAlive() throws InterruptedException
+    {
+        Tracking.add( new Tracker() {} );
+
+        WeakReference<Computer> computer = track();
+        for( int i = 0; i < 50 && computer.get() != null; i++ )
+        {
+            System.gc();
+            Thread.sleep( 10 );
+        }
+
+        assertNull( computer.get(), "Computer should be collected" );
+
+        // Flushing the values of a collected computer should do nothing.
+        Tracking.flush();
+    }
+
+    private static WeakReference<Computer> track()
+    {
+        Computer computer = new Computer( new BasicEnvironment(), new Terminal( 51, 19 ), 0 );
+        Tracking.addTaskTiming( computer, 1000 );
+        Tracking.addValue( computer, TrackingField.FS_OPS, 1 );
+        return new WeakReference<>( computer );
+    }
+}
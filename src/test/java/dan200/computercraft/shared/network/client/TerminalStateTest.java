@@ -44,6 +44,52 @@ public void testUncompressed()
         assertEquals( 0, buffer.readableBytes() );
     }
 
+    @RepeatedTest( 5 )
+    public void testDelta()
+    {
+        Terminal terminal = randomTerminal();
+
+        // The first delta is always a full snapshot.
+        TerminalState initial = TerminalState.delta( true, terminal );
+        assertFalse( initial.isDelta() );
+        Terminal other = read( roundTrip( initial ) );
+
+        terminal.setCursorPos( 2, 3 );
+        terminal.write( "Hello" );
+        terminal.getPalette().setColour( 0, 0.5, 0.5, 0.5 );
+
+        TerminalState delta = TerminalState.delta( true, terminal );
+        assertTrue( delta.isDelta() );
+        assertTrue( delta.size() < initial.size(), "Delta should be smaller than a full snapshot" );
+
+        TerminalState received = new TerminalState( roundTrip( delta ) );
+        received.apply( other );
+        checkEqual( terminal, other );
+        assertEquals( 2, other.getCursorX() );
+        assertEquals( 3, other.getCursorY() );
+        assertArrayEquals( terminal.getPalette().getColour( 0 ), other.getPalette().getColour( 0 ), 1.0 / 255 );
+    }
+
+    @RepeatedTest( 5 )
+    public void testDeltaAfterResize()
+    {
+        Terminal terminal = randomTerminal();
+        TerminalState.delta( true, terminal );
+
+        terminal.resize( 12, 6 );
+        TerminalState state = TerminalState.delta( true, terminal );
+        assertFalse( state.isDelta(), "Should send a full snapshot after resizing" );
+
+        checkEqual( terminal, read( roundTrip( state ) ) );
+    }
+
+    private static PacketBuffer roundTrip( TerminalState state )
+    {
+        PacketBuffer buffer = new PacketBuffer( Unpooled.directBuffer() );
+        state.write( buffer );
+        return buffer;
+    }
+
     private static Terminal randomTerminal()
     {
         Random random = new Random();
@@ -0,0 +1,221 @@
+/*
+ * This file is part of ComputerCraft - http://www.computercraft.info
+ * Copyright Daniel Ratcliffe, 2011-2021. Do not distribute without permission.
+ * Send enquiries to dratcliffe@gmail.com
+ */
+package dan200.computercraft.shared.peripheral.modem.wireless;
+
+import dan200.computercraft.api.network.IPacketNetwork;
+import dan200.computercraft.api.network.IPacketReceiver;
+import dan200.computercraft.api.network.IPacketSender;
+import dan200.computercraft.api.network.Packet;
+import net.minecraft.util.math.vector.Vector3d;
+import net.minecraft.world.World;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WirelessNetworkTest
+{
+    private static final double RANGE = 64;
+
+    /**
+     * Ensures packets are delivered to the same receivers as checking every receiver.
+     */
+    @Test
+    public void testMatchesLinear()
+    {
+        List<Receiver> receivers = createReceivers( 2000, 1000 );
+        WirelessNetwork indexed = createNetwork( new WirelessNetwork(), receivers );
+        LinearNetwork linear = createNetwork( new LinearNetwork(), receivers );
+
+        for( int i = 0; i < 2000; i += 7 )
+        {
+            Receiver sender = receivers.get( i );
+
+            List<Receiver> expected = transmit( linear, sender, receivers );
+            List<Receiver> actual = transmit( indexed, sender, receivers );
+            assertEquals( expected, actual, "Receivers of packet from #" + i );
+        }
+    }
+
+    @Test
+    @Disabled( "Takes a long time to run, mostly for stress testing" )
+    public void testLarge()
+    {
+        List<Receiver> receivers = createReceivers( 5000, 10000 );
+        WirelessNetwork indexed = createNetwork( new WirelessNetwork(), receivers );
+        LinearNetwork linear = createNetwork( new LinearNetwork(), receivers );
+
+        // Run each twice, to give the JIT a chance to warm up.
+        for( int i = 0; i < 2; i++ )
+        {
+            time( "Linear", linear, receivers );
+            time( "Indexed", indexed, receivers );
+        }
+    }
+
+    private static List<Receiver> createReceivers( int count, int size )
+    {
+        Random random = new Random( 0 );
+        List<Receiver> receivers = new ArrayList<>( count );
+        for( int i = 0; i < count; i++ )
+        {
+            receivers.add( new Receiver( new Vector3d( random.nextInt( size ), 64 + random.nextInt( 64 ), random.nextInt( size ) ) ) );
+        }
+        return receivers;
+    }
+
+    private static <T extends IPacketNetwork> T createNetwork( T network, List<Receiver> receivers )
+    {
+        for( Receiver receiver : receivers ) network.addReceiver( receiver );
+        return network;
+    }
+
+    private static List<Receiver> transmit( IPacketNetwork network, Receiver sender, List<Receiver> receivers )
+    {
+        for( Receiver receiver : receivers ) receiver.received = 0;
+        network.transmitSameDimension( new Packet( 0, 0, null, sender ), RANGE );
+
+        List<Receiver> received = new ArrayList<>();
+        for( Receiver receiver : receivers )
+        {
+            if( receiver.received > 0 ) received.add( receiver );
+        }
+        return received;
+    }
+
+    private static void time( String name, IPacketNetwork network, List<Receiver> receivers )
+    {
+        final int packets = 200_000;
+        Random random = new Random( 1 );
+
+        long start = System.nanoTime();
+        for( int i = 0; i < packets; i++ )
+        {
+            Receiver sender = receivers.get( random.nextInt( receivers.size() ) );
+            network.transmitSameDimension( new Packet( 0, 0, null, sender ), RANGE );
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf(
+            "%s: %d packets to %d receivers took %.3f seconds (%.0f ns/packet)\n",
+            name, packets, receivers.size(), elapsed * 1e-9, (double) elapsed / packets
+        );
+    }
+
+    /**
+     * The original implementation of {@link WirelessNetwork}, which checks every receiver.
+     */
+    private static final class LinearNetwork implements IPacketNetwork
+    {
+        private final Set<IPacketReceiver> receivers = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+
+        @Override
+        public void addReceiver( @Nonnull IPacketReceiver receiver )
+        {
+            receivers.add( receiver );
+        }
+
+        @Override
+        public void removeReceiver( @Nonnull IPacketReceiver receiver )
+        {
+            receivers.remove( receiver );
+        }
+
+        @Override
+        public boolean isWireless()
+        {
+            return true;
+        }
+
+        @Override
+        public void transmitSameDimension( @Nonnull Packet packet, double range )
+        {
+            IPacketSender sender = packet.getSender();
+            for( IPacketReceiver receiver : receivers )
+            {
+                if( receiver.getWorld() != sender.getWorld() ) continue;
+
+                double receiveRange = Math.max( range, receiver.getRange() );
+                double distanceSq = receiver.getPosition().distanceToSqr( sender.getPosition() );
+                if( receiver.isInterdimensional() || distanceSq <= receiveRange * receiveRange )
+                {
+                    receiver.receiveSameDimension( packet, Math.sqrt( distanceSq ) );
+                }
+            }
+        }
+
+        @Override
+        public void transmitInterdimensional( @Nonnull Packet packet )
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class Receiver implements IPacketReceiver, IPacketSender
+    {
+        int received;
+
+        private final Vector3d position;
+
+        Receiver( Vector3d position )
+        {
+            this.position = position;
+        }
+
+        @Nonnull
+        @Override
+        @SuppressWarnings( "ConstantConditions" )
+        public World getWorld()
+        {
+            return null;
+        }
+
+        @Nonnull
+        @Override
+        public Vector3d getPosition()
+        {
+            return position;
+        }
+
+        @Nonnull
+        @Override
+        public String getSenderID()
+        {
+            return "receiver";
+        }
+
+        @Override
+        public double getRange()
+        {
+            return RANGE;
+        }
+
+        @Override
+        public boolean isInterdimensional()
+        {
+            return false;
+        }
+
+        @Override
+        public void receiveSameDimension( @Nonnull Packet packet, double distance )
+        {
+            received++;
+        }
+
+        @Override
+        public void receiveDifferentDimension( @Nonnull Packet packet )
+        {
+        }
+    }
+}
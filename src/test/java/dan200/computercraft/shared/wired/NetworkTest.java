@@ -8,10 +8,13 @@
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import dan200.computercraft.api.ComputerCraftAPI;
+import dan200.computercraft.api.network.IPacketReceiver;
+import dan200.computercraft.api.network.Packet;
 import dan200.computercraft.api.network.wired.IWiredElement;
 import dan200.computercraft.api.network.wired.IWiredNetwork;
 import dan200.computercraft.api.network.wired.IWiredNetworkChange;
 import dan200.computercraft.api.network.wired.IWiredNode;
+import dan200.computercraft.api.network.wired.IWiredSender;
 import dan200.computercraft.api.peripheral.IPeripheral;
 import dan200.computercraft.shared.util.DirectionUtil;
 import net.minecraft.util.Direction;
@@ -241,6 +244,43 @@ public void testRemoveSplit()
         assertEquals( Sets.newHashSet(), cE.allPeripherals().keySet(), "C's peripheral set should be empty" );
     }
 
+    @Test
+    public void testTransmitAfterChange()
+    {
+        NetworkElement
+            aE = new NetworkElement( null, new Vector3d( 0, 0, 0 ), "a" ),
+            bE = new NetworkElement( null, new Vector3d( 1, 0, 0 ), "b" ),
+            cE = new NetworkElement( null, new Vector3d( 1, 1, 0 ), "c" );
+
+        IWiredNode
+            aN = aE.getNode(),
+            bN = bE.getNode(),
+            cN = cE.getNode();
+
+        NetworkModem
+            aM = new NetworkModem( aN, aE.getPosition() ),
+            cM = new NetworkModem( cN, cE.getPosition() );
+        aN.addReceiver( aM );
+        cN.addReceiver( cM );
+
+        aN.getNetwork().connect( aN, bN );
+        aN.getNetwork().connect( bN, cN );
+
+        aN.transmitSameDimension( new Packet( 0, 0, null, aM ), 0 );
+        assertEquals( 2.0, cM.received, 1e-6, "C should receive the packet via B" );
+
+        // Adding a shorter route must invalidate the cached paths.
+        aN.getNetwork().connect( aN, cN );
+        aN.transmitSameDimension( new Packet( 0, 0, null, aM ), 0 );
+        assertEquals( Math.sqrt( 2 ), cM.received, 1e-6, "C should receive the packet directly" );
+
+        aN.getNetwork().disconnect( aN, cN );
+        aN.getNetwork().disconnect( bN, cN );
+        cM.received = -1;
+        aN.transmitSameDimension( new Packet( 0, 0, null, aM ), 0 );
+        assertEquals( -1, cM.received, "C should not receive the packet" );
+    }
+
     private static final int BRUTE_SIZE = 16;
     private static final int TOGGLE_CONNECTION_TIMES = 5;
     private static final int TOGGLE_NODE_TIMES = 5;
@@ -385,6 +425,71 @@ public Map<String, IPeripheral> allPeripherals()
         }
     }
 
+    private static final class NetworkModem implements IWiredSender, IPacketReceiver
+    {
+        private final IWiredNode node;
+        private final Vector3d position;
+        double received = -1;
+
+        private NetworkModem( IWiredNode node, Vector3d position )
+        {
+            this.node = node;
+            this.position = position;
+        }
+
+        @Nonnull
+        @Override
+        public IWiredNode getNode()
+        {
+            return node;
+        }
+
+        @Nonnull
+        @Override
+        @SuppressWarnings( "ConstantConditions" )
+        public World getWorld()
+        {
+            return null;
+        }
+
+        @Nonnull
+        @Override
+        public Vector3d getPosition()
+        {
+            return position;
+        }
+
+        @Nonnull
+        @Override
+        public String getSenderID()
+        {
+            return "modem";
+        }
+
+        @Override
+        public double getRange()
+        {
+            return 16;
+        }
+
+        @Override
+        public boolean isInterdimensional()
+        {
+            return false;
+        }
+
+        @Override
+        public void receiveSameDimension( @Nonnull Packet packet, double distance )
+        {
+            received = distance;
+        }
+
+        @Override
+        public void receiveDifferentDimension( @Nonnull Packet packet )
+        {
+        }
+    }
+
     private static class NetworkPeripheral implements IPeripheral
     {
         @Nonnull
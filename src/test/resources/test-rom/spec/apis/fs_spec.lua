@@ -168,6 +168,22 @@ describe("The fs library", function()
             fs.copy("some-folder", "another-folder")
             expect(fs.isDir("another-folder")):eq(true)
         end)
+
+        it("copies large files without queuing or consuming events", function()
+            local contents = ("0123456789abcdef"):rep(64 * 1024)
+            local handle = fs.open("test-files/copy-large.bin", "wb")
+            handle.write(contents)
+            handle.close()
+
+            fs.delete("test-files/copy-large-out.bin")
+            os.queueEvent("copy_marker")
+            fs.copy("test-files/copy-large.bin", "test-files/copy-large-out.bin")
+            expect(os.pullEvent()):eq("copy_marker")
+
+            handle = fs.open("test-files/copy-large-out.bin", "rb")
+            expect(handle.readAll() == contents):eq(true)
+            handle.close()
+        end)
     end)
 
     describe("fs.move", function()
@@ -176,6 +192,23 @@ describe("The fs library", function()
             expect.error(fs.move, "test-files", "rom/move"):eq("Access denied")
             expect.error(fs.move, "rom", "test-files"):eq("Access denied")
         end)
+
+        it("moves large files without queuing or consuming events", function()
+            local contents = ("0123456789abcdef"):rep(64 * 1024)
+            local handle = fs.open("test-files/move-large.bin", "wb")
+            handle.write(contents)
+            handle.close()
+
+            fs.delete("test-files/move-large-out.bin")
+            os.queueEvent("move_marker")
+            fs.move("test-files/move-large.bin", "test-files/move-large-out.bin")
+            expect(os.pullEvent()):eq("move_marker")
+            expect(fs.exists("test-files/move-large.bin")):eq(false)
+
+            handle = fs.open("test-files/move-large-out.bin", "rb")
+            expect(handle.readAll() == contents):eq(true)
+            handle.close()
+        end)
     end)
 
     describe("fs.getCapacity", function()
@@ -53,6 +53,80 @@ describe("The peripheral library", function()
             expect.error(function() peripheral.call("top", "isOpen", false) end)
                 :str_match("^[^:]+:%d+: bad argument #1 %(number expected, got boolean%)$")
         end)
+
+        describe("with main thread methods", function()
+            it_modem("returns the task's results", function()
+                expect(table.pack(peripheral.call("top", "echoMainThread", 1, "two", nil)))
+                    :same({ n = 3, 1, "two", nil })
+            end)
+
+            it_modem("can be called from several coroutines", function()
+                local results = {}
+                parallel.waitForAll(
+                    function() results[1] = peripheral.call("top", "echoMainThread", 1) end,
+                    function() results[2] = peripheral.call("top", "echoMainThread", 2) end,
+                    function() results[3] = peripheral.call("top", "echoMainThread", 3) end
+                )
+
+                expect(results):same({ 1, 2, 3 })
+            end)
+
+            it_modem("passes task_complete to other listeners", function()
+                local event
+                parallel.waitForAll(
+                    function() event = table.pack(os.pullEvent("task_complete")) end,
+                    function() expect(peripheral.call("top", "echoMainThread", "value")):eq("value") end
+                )
+
+                expect(event[1]):eq("task_complete")
+                expect(event[2]):type("number")
+                expect(event[3]):eq(true)
+                expect(event[4]):eq("value")
+            end)
+
+            it_modem("can be terminated while waiting", function()
+                os.queueEvent("terminate")
+                expect.error(peripheral.call, "top", "echoMainThread", 1):eq("Terminated")
+            end)
+        end)
+    end)
+
+    describe("peripheral.batch", function()
+        it("validates arguments", function()
+            peripheral.batch({})
+            expect.error(peripheral.batch, nil):eq("bad argument #1 (expected table, got nil)")
+            expect.error(peripheral.batch, { false }):eq("bad call #1 (expected table, got boolean)")
+            expect.error(peripheral.batch, { { "top" } }):eq("bad call #1 (expected peripheral name and method)")
+        end)
+
+        it("reports missing peripherals with trailing nil arguments", function()
+            expect(peripheral.batch({ table.pack("not_a_peripheral", "isOpen", nil) })):same({ { false, "No peripheral attached" } })
+        end)
+
+        it("reports missing peripherals", function()
+            expect(peripheral.batch({ { "not_a_peripheral", "isOpen", 1 } })):same({ { false, "No peripheral attached" } })
+        end)
+
+        it_modem("calls methods", function()
+            expect(peripheral.batch({
+                { "top", "isOpen", 1 },
+                { "top", "isOpen", false },
+                { "top", "not_a_method" },
+            })):same({
+                { true, false },
+                { false, "bad argument #1 (number expected, got boolean)" },
+                { false, "No such method not_a_method" },
+            })
+        end)
+
+        it_modem("calls methods over several tasks", function()
+            local calls, expected = {}, {}
+            for i = 1, 500 do
+                calls[i] = { "top", "isOpen", i }
+                expected[i] = { true, false }
+            end
+            expect(peripheral.batch(calls)):same(expected)
+        end)
     end)
 
     describe("peripheral.wrap", function()
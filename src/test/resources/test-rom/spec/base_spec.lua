@@ -106,5 +106,20 @@ describe("The Lua base library", function()
             info = debug.getinfo(load(generator { "return 1" }, "name"), "S")
             expect(info):matches { short_src = "[string \"name\"]", source = "name" }
         end)
+
+        it("rejects text chunks in binary mode", function()
+            local fn, err = load("return 1", "=name", "b")
+            expect(fn):eq(nil)
+            expect(err):str_match("text chunk")
+
+            -- Chunks matching a ROM file may be cached, but should still respect the mode.
+            local handle = fs.open("rom/startup.lua", "r")
+            local contents = handle.readAll()
+            handle.close()
+
+            fn, err = load(contents, "@startup.lua", "b")
+            expect(fn):eq(nil)
+            expect(err):str_match("text chunk")
+        end)
     end)
 end)